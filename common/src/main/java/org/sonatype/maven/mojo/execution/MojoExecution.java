@@ -13,8 +13,6 @@
 package org.sonatype.maven.mojo.execution;
 
 import java.io.File;
-import java.util.ArrayList;
-import java.util.Collections;
 
 import org.apache.maven.execution.MavenSession;
 import org.apache.maven.model.Plugin;
@@ -102,7 +100,8 @@ public class MojoExecution
   }
 
   /**
-   * Returns first MavenProject from projects being built that has this Mojo defined.
+   * Returns first MavenProject from projects being built that has this Mojo defined. Uses the
+   * {@link MojoExecutionIndex} of the session, hence lookups are constant time once the index is built.
    *
    * @param mavenSession     the MavenSession.
    * @param pluginGroupId    the plugin's groupId.
@@ -115,19 +114,12 @@ public class MojoExecution
                                                                 final String pluginGroupId,
                                                                 final String pluginArtifactId, final String goal)
   {
-    final ArrayList<MavenProject> projects = new ArrayList<MavenProject>(mavenSession.getSortedProjects());
-    MavenProject firstWithThisMojo = null;
-    for (MavenProject project : projects) {
-      if (null != findPlugin(project.getBuild(), pluginGroupId, pluginArtifactId, goal)) {
-        firstWithThisMojo = project;
-        break;
-      }
-    }
-    return firstWithThisMojo;
+    return MojoExecutionIndex.of(mavenSession).getFirstProjectWithMojo(pluginGroupId, pluginArtifactId, goal);
   }
 
   /**
-   * Returns last MavenProject from projects being built that has this Mojo defined.
+   * Returns last MavenProject from projects being built that has this Mojo defined. Uses the
+   * {@link MojoExecutionIndex} of the session, hence lookups are constant time once the index is built.
    *
    * @param mavenSession     the MavenSession.
    * @param pluginGroupId    the plugin's groupId.
@@ -140,16 +132,7 @@ public class MojoExecution
                                                                final String pluginGroupId,
                                                                final String pluginArtifactId, final String goal)
   {
-    final ArrayList<MavenProject> projects = new ArrayList<MavenProject>(mavenSession.getSortedProjects());
-    Collections.reverse(projects);
-    MavenProject lastWithThisMojo = null;
-    for (MavenProject project : projects) {
-      if (null != findPlugin(project.getBuild(), pluginGroupId, pluginArtifactId, goal)) {
-        lastWithThisMojo = project;
-        break;
-      }
-    }
-    return lastWithThisMojo;
+    return MojoExecutionIndex.of(mavenSession).getLastProjectWithMojo(pluginGroupId, pluginArtifactId, goal);
   }
 
   /**
@@ -0,0 +1,146 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.maven.mojo.execution;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.apache.maven.execution.MavenExecutionRequest;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.model.Plugin;
+import org.apache.maven.model.PluginExecution;
+import org.apache.maven.project.MavenProject;
+
+/**
+ * Index of the projects being built in a session, giving the position of every project and the first and last
+ * project having given plugin (or plugin goal execution) in constant time. It is built lazily, once per session (in
+ * one single pass over all the projects and their plugins), as the lookups are performed in every module, and linear
+ * scans would make whole reactor build quadratic.
+ * <p/>
+ * The index is kept as long as the request of its session is alive (the clones of session, as used in parallel
+ * builds, share the request), and is rebuilt when the session has different projects. It should be asked for once
+ * the project models are final (ie. after lifecycle participants modified them). This class is thread safe.
+ *
+ * @since 1.8.0
+ */
+public class MojoExecutionIndex
+{
+  /**
+   * The indexes keyed by request of their sessions, held weakly, to not keep the projects of finished sessions.
+   */
+  private static final Map<MavenExecutionRequest, MojoExecutionIndex> indexes =
+      new WeakHashMap<MavenExecutionRequest, MojoExecutionIndex>();
+
+  private final List<MavenProject> projects;
+
+  private final Map<MavenProject, Integer> positions;
+
+  private final Map<String, MavenProject> firsts;
+
+  private final Map<String, MavenProject> lasts;
+
+  MojoExecutionIndex(final List<MavenProject> projects) {
+    this.projects = projects;
+    this.positions = new IdentityHashMap<MavenProject, Integer>(projects.size());
+    this.firsts = new HashMap<String, MavenProject>();
+    this.lasts = new HashMap<String, MavenProject>();
+    int position = 0;
+    for (MavenProject project : projects) {
+      positions.put(project, position++);
+      if (project.getBuild() != null) {
+        for (Plugin plugin : project.getBuild().getPlugins()) {
+          index(key(plugin.getGroupId(), plugin.getArtifactId(), null), project);
+          for (PluginExecution execution : plugin.getExecutions()) {
+            for (String goal : execution.getGoals()) {
+              index(key(plugin.getGroupId(), plugin.getArtifactId(), goal), project);
+            }
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the index of projects of passed in session, building it if needed.
+   */
+  public static synchronized MojoExecutionIndex of(final MavenSession mavenSession) {
+    final MavenExecutionRequest request = mavenSession.getRequest();
+    final List<MavenProject> sortedProjects = mavenSession.getSortedProjects();
+    MojoExecutionIndex index = indexes.get(request);
+    if (index == null || index.projects != sortedProjects) {
+      index = new MojoExecutionIndex(sortedProjects);
+      indexes.put(request, index);
+    }
+    return index;
+  }
+
+  /**
+   * Returns the position of project in build order, or {@code -1} if project is not being built.
+   */
+  public int getPosition(final MavenProject project) {
+    final Integer position = positions.get(project);
+    return position != null ? position : -1;
+  }
+
+  /**
+   * Returns the count of projects being built.
+   */
+  public int size() {
+    return projects.size();
+  }
+
+  /**
+   * Returns the last project being built, or {@code null} if there are no projects.
+   */
+  public MavenProject getLastProject() {
+    return projects.isEmpty() ? null : projects.get(projects.size() - 1);
+  }
+
+  /**
+   * Returns first project being built that has the plugin defined, or {@code null}.
+   *
+   * @param goal the goal to have execution or {@code null} if just interested in plugin presence.
+   */
+  public MavenProject getFirstProjectWithMojo(final String pluginGroupId, final String pluginArtifactId,
+                                              final String goal)
+  {
+    return firsts.get(key(pluginGroupId, pluginArtifactId, goal));
+  }
+
+  /**
+   * Returns last project being built that has the plugin defined, or {@code null}.
+   *
+   * @param goal the goal to have execution or {@code null} if just interested in plugin presence.
+   */
+  public MavenProject getLastProjectWithMojo(final String pluginGroupId, final String pluginArtifactId,
+                                             final String goal)
+  {
+    return lasts.get(key(pluginGroupId, pluginArtifactId, goal));
+  }
+
+  // ==
+
+  private void index(final String key, final MavenProject project) {
+    if (!firsts.containsKey(key)) {
+      firsts.put(key, project);
+    }
+    lasts.put(key, project);
+  }
+
+  private static String key(final String pluginGroupId, final String pluginArtifactId, final String goal) {
+    return goal == null ? pluginGroupId + ":" + pluginArtifactId : pluginGroupId + ":" + pluginArtifactId + ":" + goal;
+  }
+}
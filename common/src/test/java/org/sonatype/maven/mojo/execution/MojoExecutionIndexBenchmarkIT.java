@@ -0,0 +1,70 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.maven.mojo.execution;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.project.MavenProject;
+import org.junit.Test;
+
+import static org.sonatype.maven.mojo.execution.MojoExecutionIndexTest.ARTIFACT_ID;
+import static org.sonatype.maven.mojo.execution.MojoExecutionIndexTest.GROUP_ID;
+import static org.sonatype.maven.mojo.execution.MojoExecutionIndexTest.project;
+import static org.sonatype.maven.mojo.execution.MojoExecutionIndexTest.scanFirst;
+import static org.sonatype.maven.mojo.execution.MojoExecutionIndexTest.scanLast;
+import static org.sonatype.maven.mojo.execution.MojoExecutionIndexTest.session;
+
+/**
+ * Microbenchmark of {@link MojoExecutionIndex}: every module of a 5000 modules reactor asking for the first and last
+ * project with a mojo (as staging mojos do) using linear scans and using the index. The mojo is executed in middle
+ * module only, so scans visit half of the modules. Timings are logged only, run it with "it" profile.
+ */
+public class MojoExecutionIndexBenchmarkIT
+    extends TestSupport
+{
+  private static final int MODULES = 5000;
+
+  @Test
+  public void linearScansVersusIndex() {
+    final List<MavenProject> projects = new ArrayList<MavenProject>();
+    for (int i = 0; i < MODULES; i++) {
+      projects.add(project("module" + i, i == MODULES / 2));
+    }
+    final MavenSession session = session(projects.toArray(new MavenProject[projects.size()]));
+    // warm up
+    scanFirst(session.getSortedProjects(), "deploy");
+    MojoExecution.getFirstProjectWithMojoInExecution(session, GROUP_ID, ARTIFACT_ID, "deploy");
+
+    final long scanStarted = System.nanoTime();
+    for (int i = 0; i < projects.size(); i++) {
+      scanFirst(session.getSortedProjects(), "deploy");
+      scanLast(session.getSortedProjects(), "deploy");
+    }
+    final long scanNanos = System.nanoTime() - scanStarted;
+
+    final long indexStarted = System.nanoTime();
+    for (int i = 0; i < projects.size(); i++) {
+      MojoExecution.getFirstProjectWithMojoInExecution(session, GROUP_ID, ARTIFACT_ID, "deploy");
+      MojoExecution.getLastProjectWithMojoInExecution(session, GROUP_ID, ARTIFACT_ID, "deploy");
+    }
+    final long indexNanos = System.nanoTime() - indexStarted;
+
+    log("{} modules: linear scans took {} ms, index took {} ms", MODULES,
+        TimeUnit.NANOSECONDS.toMillis(scanNanos), TimeUnit.NANOSECONDS.toMillis(indexNanos));
+  }
+}
@@ -0,0 +1,174 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.maven.mojo.execution;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import org.apache.maven.execution.DefaultMavenExecutionRequest;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.model.Build;
+import org.apache.maven.model.Model;
+import org.apache.maven.model.Plugin;
+import org.apache.maven.model.PluginExecution;
+import org.apache.maven.project.MavenProject;
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * UT for {@link MojoExecutionIndex}.
+ */
+public class MojoExecutionIndexTest
+    extends TestSupport
+{
+  static final String GROUP_ID = "org.sonatype.plugins";
+
+  static final String ARTIFACT_ID = "nexus-staging-maven-plugin";
+
+  @Test
+  public void firstAndLastProjects() {
+    final MavenProject a = project("a", false);
+    final MavenProject b = project("b", true);
+    final MavenProject c = project("c", false);
+    final MavenProject d = project("d", true);
+    final MavenProject e = project("e", false);
+    final MavenSession session = session(a, b, c, d, e);
+
+    assertThat(MojoExecution.getFirstProjectWithMojoInExecution(session, GROUP_ID, ARTIFACT_ID, null),
+        sameInstance(a));
+    assertThat(MojoExecution.getLastProjectWithMojoInExecution(session, GROUP_ID, ARTIFACT_ID, null),
+        sameInstance(e));
+    assertThat(MojoExecution.getFirstProjectWithMojoInExecution(session, GROUP_ID, ARTIFACT_ID, "deploy"),
+        sameInstance(b));
+    assertThat(MojoExecution.getLastProjectWithMojoInExecution(session, GROUP_ID, ARTIFACT_ID, "deploy"),
+        sameInstance(d));
+    assertThat(MojoExecution.getLastProjectWithMojoInExecution(session, GROUP_ID, ARTIFACT_ID, "release"),
+        nullValue());
+    assertThat(MojoExecution.getLastProjectWithMojoInExecution(session, GROUP_ID, "other", null), nullValue());
+
+    final MojoExecutionIndex index = MojoExecutionIndex.of(session);
+    assertThat(index.getPosition(c), equalTo(2));
+    assertThat(index.getPosition(project("x", false)), equalTo(-1));
+    assertThat(index.size(), equalTo(5));
+    assertThat(index.getLastProject(), sameInstance(e));
+  }
+
+  @Test
+  public void indexIsBuiltOncePerSession() {
+    final MavenSession session = session(project("a", true), project("b", true));
+    final MojoExecutionIndex index = MojoExecutionIndex.of(session);
+    assertThat(MojoExecutionIndex.of(session), sameInstance(index));
+
+    // clone of session shares the request and the projects
+    final MavenSession clone = mock(MavenSession.class);
+    when(clone.getRequest()).thenReturn(session.getRequest());
+    when(clone.getSortedProjects()).thenReturn(session.getSortedProjects());
+    assertThat(MojoExecutionIndex.of(clone), sameInstance(index));
+
+    // other session does not evict the index
+    final MavenSession other = session(project("a", true), project("b", true));
+    assertThat(MojoExecutionIndex.of(other) == index, equalTo(false));
+    assertThat(MojoExecutionIndex.of(session), sameInstance(index));
+  }
+
+  @Test
+  public void indexIsRebuiltWhenProjectsChange() {
+    final MavenSession session = session(project("a", true), project("b", true));
+    final MojoExecutionIndex index = MojoExecutionIndex.of(session);
+
+    final List<MavenProject> projects = new ArrayList<MavenProject>(session.getSortedProjects());
+    projects.add(project("c", true));
+    when(session.getSortedProjects()).thenReturn(projects);
+    final MojoExecutionIndex rebuilt = MojoExecutionIndex.of(session);
+    assertThat(rebuilt == index, equalTo(false));
+    assertThat(rebuilt.size(), equalTo(3));
+  }
+
+  /**
+   * Index gives same projects as linear scans do, with the mojo executed in some modules of a bigger reactor.
+   */
+  @Test
+  public void sameAsLinearScans() {
+    final List<MavenProject> projects = new ArrayList<MavenProject>();
+    for (int i = 0; i < 50; i++) {
+      projects.add(project("module" + i, i % 7 == 3));
+    }
+    final MavenSession session = session(projects.toArray(new MavenProject[projects.size()]));
+
+    assertThat(MojoExecution.getFirstProjectWithMojoInExecution(session, GROUP_ID, ARTIFACT_ID, "deploy"),
+        sameInstance(scanFirst(projects, "deploy")));
+    assertThat(MojoExecution.getLastProjectWithMojoInExecution(session, GROUP_ID, ARTIFACT_ID, "deploy"),
+        sameInstance(scanLast(projects, "deploy")));
+    assertThat(MojoExecution.getFirstProjectWithMojoInExecution(session, GROUP_ID, ARTIFACT_ID, null),
+        sameInstance(scanFirst(projects, null)));
+    assertThat(MojoExecution.getLastProjectWithMojoInExecution(session, GROUP_ID, ARTIFACT_ID, null),
+        sameInstance(scanLast(projects, null)));
+  }
+
+  // ==
+
+  static MavenProject scanFirst(final List<MavenProject> projects, final String goal) {
+    for (MavenProject project : new ArrayList<MavenProject>(projects)) {
+      if (MojoExecution.findPlugin(project.getBuild(), GROUP_ID, ARTIFACT_ID, goal) != null) {
+        return project;
+      }
+    }
+    return null;
+  }
+
+  static MavenProject scanLast(final List<MavenProject> projects, final String goal) {
+    final List<MavenProject> reversed = new ArrayList<MavenProject>(projects);
+    Collections.reverse(reversed);
+    return scanFirst(reversed, goal);
+  }
+
+  static MavenSession session(final MavenProject... projects) {
+    final List<MavenProject> sortedProjects = new ArrayList<MavenProject>();
+    Collections.addAll(sortedProjects, projects);
+    final MavenSession session = mock(MavenSession.class);
+    when(session.getRequest()).thenReturn(new DefaultMavenExecutionRequest());
+    when(session.getSortedProjects()).thenReturn(sortedProjects);
+    return session;
+  }
+
+  static MavenProject project(final String artifactId, final boolean deploy) {
+    final Model model = new Model();
+    model.setGroupId("org.foo");
+    model.setArtifactId(artifactId);
+    model.setVersion("1.0");
+    model.setBuild(new Build());
+    final Plugin compiler = new Plugin();
+    compiler.setArtifactId("maven-compiler-plugin");
+    model.getBuild().addPlugin(compiler);
+    final Plugin staging = new Plugin();
+    staging.setGroupId(GROUP_ID);
+    staging.setArtifactId(ARTIFACT_ID);
+    if (deploy) {
+      final PluginExecution execution = new PluginExecution();
+      execution.setId("injected-nexus-deploy");
+      execution.addGoal("deploy");
+      staging.addExecution(execution);
+    }
+    model.getBuild().addPlugin(staging);
+    return new MavenProject(model);
+  }
+}
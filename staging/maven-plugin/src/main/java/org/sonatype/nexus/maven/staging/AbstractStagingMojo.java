@@ -13,14 +13,19 @@
 package org.sonatype.nexus.maven.staging;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 import org.sonatype.maven.mojo.execution.MojoExecution;
 import org.sonatype.maven.mojo.logback.LogbackUtils;
 import org.sonatype.nexus.maven.staging.deploy.DeployMojo;
+import org.sonatype.nexus.maven.staging.remote.BackoffWaitPolicy;
 import org.sonatype.nexus.maven.staging.remote.Parameters;
+import org.sonatype.nexus.maven.staging.remote.RemoteNexusRegistry;
+import org.sonatype.nexus.maven.staging.remote.WaitPolicy;
 import org.sonatype.nexus.maven.staging.workflow.CloseStageRepositoryMojo;
 import org.sonatype.plexus.components.sec.dispatcher.SecDispatcher;
 
@@ -90,6 +95,12 @@ public abstract class AbstractStagingMojo
   @Component
   private SecDispatcher secDispatcher;
 
+  /**
+   * Registry of remote Nexus instances shared within the session.
+   */
+  @Component
+  private RemoteNexusRegistry remoteNexusRegistry;
+
   // user supplied parameters (staging related)
 
   /**
@@ -182,6 +193,34 @@ public abstract class AbstractStagingMojo
   @Parameter(property = "stagingProgressPauseDurationSeconds", defaultValue = "3")
   private int stagingProgressPauseDurationSeconds = 3;
 
+  /**
+   * Set the staging operation polling policy: "fixed" pauses {@code stagingProgressPauseDurationSeconds} between
+   * polls, while "adaptive" polls first after a short pause, and doubles the pause (randomly spread a bit) after every
+   * poll, up to {@code stagingProgressMaxPauseDurationSeconds}. Adaptive polling notices quick operations sooner,
+   * while polls long running operations less often.
+   *
+   * @since 1.8.0
+   */
+  @Parameter(property = "stagingProgressWaitPolicy", defaultValue = "fixed")
+  private String stagingProgressWaitPolicy = "fixed";
+
+  /**
+   * Set the maximum staging operation polling pause duration in seconds, used with "adaptive" polling policy.
+   *
+   * @since 1.8.0
+   */
+  @Parameter(property = "stagingProgressMaxPauseDurationSeconds", defaultValue = "30")
+  private int stagingProgressMaxPauseDurationSeconds = 30;
+
+  /**
+   * In parallel builds, the maximum time in minutes the last module waits for the other modules to finish building
+   * before performing the staging, after which the build fails. Default is {@code 0}, that waits without limit.
+   *
+   * @since 1.8.0
+   */
+  @Parameter(property = "reactorCompletionTimeoutMinutes", defaultValue = "0")
+  private int reactorCompletionTimeoutMinutes;
+
   /**
    * MAVEN 3+ ONLY. Automatically detect build failures. If {@code true} (default), any build failure
    * will prevent staging deployments. If {@code false}, build failures will not prevent staging deployments.
@@ -268,6 +307,10 @@ public abstract class AbstractStagingMojo
     return secDispatcher;
   }
 
+  protected RemoteNexusRegistry getRemoteNexusRegistry() {
+    return remoteNexusRegistry;
+  }
+
   protected String getPluginGav() {
     return pluginGroupId + ":" + pluginArtifactId + ":" + pluginVersion;
   }
@@ -290,6 +333,33 @@ public abstract class AbstractStagingMojo
     return stagingProgressPauseDurationSeconds;
   }
 
+  protected String getStagingProgressWaitPolicy() {
+    return stagingProgressWaitPolicy;
+  }
+
+  protected int getStagingProgressMaxPauseDurationSeconds() {
+    return stagingProgressMaxPauseDurationSeconds;
+  }
+
+  protected int getReactorCompletionTimeoutMinutes() {
+    return reactorCompletionTimeoutMinutes;
+  }
+
+  /**
+   * Creates the wait policy as configured, or returns {@code null} if fixed polling is configured, that is performed
+   * by the staging service itself.
+   */
+  protected WaitPolicy createStagingProgressWaitPolicy() {
+    if ("adaptive".equalsIgnoreCase(getStagingProgressWaitPolicy())) {
+      return new BackoffWaitPolicy(TimeUnit.SECONDS.toMillis(getStagingProgressMaxPauseDurationSeconds()));
+    }
+    else if ("fixed".equalsIgnoreCase(getStagingProgressWaitPolicy())) {
+      return null;
+    }
+    throw new IllegalArgumentException(
+        "Unknown stagingProgressWaitPolicy \"" + getStagingProgressWaitPolicy() + "\", use \"fixed\" or \"adaptive\"");
+  }
+
   protected boolean isSslInsecure() { return sslInsecure; }
 
   protected boolean isSslAllowAll() { return sslAllowAll; }
@@ -317,12 +387,24 @@ public abstract class AbstractStagingMojo
     return MojoExecution.getFirstProjectWithMojoInExecution(mavenSession, pluginGroupId, pluginArtifactId, null);
   }
 
+  /**
+   * Installs the {@link ReactorCompletionTracker} of the session, if not installed yet, to track the finished projects
+   * from the first module on, for the last one to wait for the others. To be invoked from {@code execute()}.
+   */
+  protected void installReactorCompletionTracker() {
+    try {
+      ReactorCompletionTracker.install(mavenSession);
+    }
+    catch (LinkageError e) {
+      // ignore and continue, maven2 has no execution listeners and cannot do parallel anyway
+    }
+  }
+
   /**
    * In case of "ordinary" (reactor) build, it returns {@code true} if the current project is the last one being
    * executed in this build that has this Mojo defined. In case of direct invocation of this Mojo over CLI, it
-   * returns {@code true} if the current project is the last one being executed in this build. Also, what this method
-   * returns depends on user parametrization, how this Mojo should behave when Maven is run with {@code -fae} "fail
-   * at end" switch and there are failures happened previously in build.
+   * returns {@code true} if the current project is the last one being executed in this build. When this method
+   * returns {@code true}, {@link #waitForOtherProjectsAndCheckBuildFailures()} should be invoked before staging.
    *
    * @return true if last project is being built.
    */
@@ -336,82 +418,100 @@ public abstract class AbstractStagingMojo
       result = MojoExecution.isCurrentTheLastProjectWithMojoInExecution(mavenSession, pluginGroupId, pluginArtifactId,
           mojoExecution.getMojoDescriptor().getGoal());
     }
-    if (result) {
-      try {
-        if (mavenSession.isParallel()) {
-          // In case of parallel build, we need to ensure everything else is built
-          waitForOtherProjectsIfNeeded();
-        }
-      } catch (NoSuchMethodError e) {
-        // ignore and continue, maven2 cannot do parallel anyway
+    if (!result) {
+      getLog().info("Execution skipped to the last project...");
+    }
+    return result;
+  }
+
+  /**
+   * To be invoked in the last project only (see {@link #isThisLastProjectWithThisMojoInExecution()}), waits for other
+   * projects to finish in case of parallel build, and returns {@code true} if staging should continue. What this
+   * method returns depends on user parametrization, how this Mojo should behave when Maven is run with {@code -fae}
+   * "fail at end" switch and there are failures happened previously in build.
+   *
+   * @return true if staging should continue.
+   */
+  protected boolean waitForOtherProjectsAndCheckBuildFailures()
+      throws MojoExecutionException
+  {
+    try {
+      if (mavenSession.isParallel()) {
+        // In case of parallel build, we need to ensure everything else is built
+        waitForOtherProjectsIfNeeded();
       }
+    } catch (NoSuchMethodError e) {
+      // ignore and continue, maven2 cannot do parallel anyway
+    }
 
-      try {
-        if (getMavenSession().getResult().hasExceptions()) {
-          if (detectBuildFailures) {
-            // log failures found and bail out
-            getLog().info("Earlier build failures detected. Staging will not continue.");
-            return false;
-          }
-          else if (!detectBuildFailures) {
-            // just log and continue
-            getLog().warn(
-                "Earlier build failures detected. Staging is configured to not detect build failures, continuing...");
-          }
+    try {
+      if (getMavenSession().getResult().hasExceptions()) {
+        if (detectBuildFailures) {
+          // log failures found and bail out
+          getLog().info("Earlier build failures detected. Staging will not continue.");
+          return false;
+        }
+        else if (!detectBuildFailures) {
+          // just log and continue
+          getLog().warn(
+              "Earlier build failures detected. Staging is configured to not detect build failures, continuing...");
         }
-        // we are okay, this was last module and everything else is/was already built
-        return true;
-      }
-      catch (NoSuchMethodError e) {
-        // This is Maven2.x and last project, Maven 2x does not expose MavenExecutionResult over API
-        getLog().info("Unable to detect build failures with Maven 2, continuing...");
-        return true;
       }
+      // we are okay, this was last module and everything else is/was already built
+      return true;
     }
-    else {
-      getLog().info("Execution skipped to the last project...");
-      return false;
+    catch (NoSuchMethodError e) {
+      // This is Maven2.x and last project, Maven 2x does not expose MavenExecutionResult over API
+      getLog().info("Unable to detect build failures with Maven 2, continuing...");
+      return true;
     }
   }
 
   /**
    * Method that blocks current thread until every other project has build result. Naturally, this method will
-   * never sleep and will immediately return in non-parallel builds (as "topologically last" project will be built as
+   * never wait and will immediately return in non-parallel builds (as "topologically last" project will be built as
    * last on single thread of execution). The importance of the method is in case of parallel builds, where
-   * "topologically last" project might be built with other modules on same level. In this case, we do want to sleep
-   * until every project is built (except "this" project).
+   * "topologically last" project might be built with other modules on same level. In this case, we do want to wait
+   * until every project is built (except "this" project), and we are woken up by {@link ReactorCompletionTracker}
+   * as soon as the last of them finished. Fails if they did not finish within
+   * {@code reactorCompletionTimeoutMinutes}.
    * <p/>Note: this method assumes Maven3 host, and should be called only if running within Maven3. Otherwise,
    * NoSuchMethodError will be thrown.
    */
-  protected void waitForOtherProjectsIfNeeded() {
+  protected void waitForOtherProjectsIfNeeded()
+      throws MojoExecutionException
+  {
     final MavenProject currentProject = getMavenSession().getCurrentProject();
-    // TODO: should we maximize how much to sleep?
-    // There could be IT module running in parallel for hours for example
-    // But this below will sleep indefinitely...
-    while (true) {
-      boolean done = true;
-      for (MavenProject project : getMavenSession().getProjects()) {
-        if (currentProject != project && getMavenSession().getResult().getBuildSummary(project) == null) {
-          done = false;
-          break;
-        } else if (currentProject == project) {
-          // we need to break, as "lastProjectWithThisMojo might != lastProjectInReactor"
-          // and in that case we would block here indefinitely
-          break;
-        }
+    final List<MavenProject> projects = new ArrayList<MavenProject>();
+    for (MavenProject project : getMavenSession().getProjects()) {
+      if (currentProject == project) {
+        // we need to break, as "lastProjectWithThisMojo might != lastProjectInReactor"
+        // and in that case we would block here indefinitely
+        break;
       }
-      if (!done) {
-        getLog().info("Waiting for other projects build to finish...");
-        try {
-          Thread.sleep(TimeUnit.SECONDS.toMillis(2l));
-        }
-        catch (InterruptedException e) {
-          // nothing?
+      projects.add(project);
+    }
+    final ReactorCompletionTracker tracker = ReactorCompletionTracker.install(getMavenSession());
+    final List<MavenProject> outstanding = tracker.getOutstanding(projects, getMavenSession().getResult());
+    if (outstanding.isEmpty()) {
+      return;
+    }
+    getLog().info("Waiting for other projects build to finish (" + outstanding.size() + " remaining)...");
+    try {
+      final List<MavenProject> unfinished = tracker.await(projects, getMavenSession().getResult(),
+          TimeUnit.MINUTES.toMillis(getReactorCompletionTimeoutMinutes()));
+      if (!unfinished.isEmpty()) {
+        final List<String> ids = new ArrayList<String>();
+        for (MavenProject project : unfinished) {
+          ids.add(project.getId());
         }
+        throw new MojoExecutionException("Timed out after " + getReactorCompletionTimeoutMinutes()
+            + " minutes waiting for other projects build to finish, unfinished: " + ids);
       }
-      else {
-        return;
-      }
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new MojoExecutionException("Interrupted while waiting for other projects build to finish", e);
     }
   }
 
@@ -483,6 +583,7 @@ public abstract class AbstractStagingMojo
       parameters.setStagingActionMessages(getStagingActionMessages());
       parameters.setStagingProgressTimeoutMinutes(getStagingProgressTimeoutMinutes());
       parameters.setStagingProgressPauseDurationSeconds(getStagingProgressPauseDurationSeconds());
+      parameters.setStagingProgressWaitPolicy(createStagingProgressWaitPolicy());
       parameters.setSslInsecure(isSslInsecure());
       parameters.setSslAllowAll(isSslAllowAll());
       if (getLog().isDebugEnabled()) {
@@ -12,14 +12,24 @@
  */
 package org.sonatype.nexus.maven.staging;
 
+import java.util.concurrent.TimeUnit;
+
 import com.sonatype.nexus.staging.client.StagingWorkflowV3Service.ProgressMonitor;
 
+import org.sonatype.nexus.maven.staging.remote.WaitPolicy;
+
 import com.google.common.base.Stopwatch;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * Default {@link ProgressMonitor} implementation.
+ * Default {@link ProgressMonitor} implementation. It is shared by all the operations of the staging service, that
+ * might run concurrently when staging multiple profiles, hence it's methods are synchronized, while the timing of
+ * operations (phases) is tracked per thread. Once an operation finished, it's duration and the count of probes are
+ * logged.
+ * <p/>
+ * If created with a {@link WaitPolicy}, it pauses in {@link #pause()} as long as the policy says, and the service
+ * should be configured to not pause on it's own.
  *
  * @since 1.4
  */
@@ -32,9 +42,21 @@ public class ProgressMonitorImpl
 
   protected boolean needsNewline;
 
+  private final WaitPolicy waitPolicy;
+
+  private final ThreadLocal<Phase> phase = new ThreadLocal<Phase>();
+
   public ProgressMonitorImpl() {
+    this(null);
+  }
+
+  /**
+   * @since 1.8.0
+   */
+  public ProgressMonitorImpl(final WaitPolicy waitPolicy) {
     this.logger = LoggerFactory.getLogger(getClass());
     this.stopwatch = new Stopwatch();
+    this.waitPolicy = waitPolicy;
   }
 
   protected void maybePrintln() {
@@ -45,7 +67,8 @@ public class ProgressMonitorImpl
   }
 
   @Override
-  public void start() {
+  public synchronized void start() {
+    phase.set(new Phase());
     stopwatch.reset().start();
     if (logger.isDebugEnabled()) {
       logger.debug("START");
@@ -60,7 +83,7 @@ public class ProgressMonitorImpl
   }
 
   @Override
-  public void tick() {
+  public synchronized void tick() {
     if (logger.isDebugEnabled()) {
       logger.debug("TICK at {}", stopwatch);
     }
@@ -70,23 +93,43 @@ public class ProgressMonitorImpl
     }
   }
 
+  /**
+   * Invoked by the service when the operation is still in progress, before it pauses. With wait policy, the pause is
+   * performed here. Not synchronized, as other operations must not wait for this one to pause.
+   */
   @Override
   public void pause() {
-    logger.debug("PAUSE at {}", stopwatch);
+    final Phase current = currentPhase();
+    current.probes++;
+    logger.debug("PAUSE at {} after {} probes", stopwatch, current.probes);
+    if (waitPolicy != null) {
+      final long pauseMillis = waitPolicy.pauseMillis(current.probes);
+      try {
+        Thread.sleep(pauseMillis);
+      }
+      catch (InterruptedException e) {
+        // let the service notice it
+        Thread.currentThread().interrupt();
+      }
+    }
   }
 
   @Override
-  public void info(final String message) {
+  public synchronized void info(final String message) {
+    final Phase current = currentPhase();
+    if (current.name == null) {
+      current.name = message;
+    }
     logger.debug(message);
   }
 
   @Override
-  public void error(final String message) {
+  public synchronized void error(final String message) {
     logger.debug(message);
   }
 
   @Override
-  public void stop() {
+  public synchronized void stop() {
     stopwatch.stop();
     if (logger.isDebugEnabled()) {
       logger.debug("STOP after {}", stopwatch);
@@ -95,17 +138,43 @@ public class ProgressMonitorImpl
       maybePrintln();
       System.out.println();
     }
+    final Phase current = currentPhase();
+    phase.remove();
+    logger.info(" * Operation{} finished in {} ms after {} probes", current.name != null ? " \"" + current.name + "\""
+        : "", current.stopwatch.elapsed(TimeUnit.MILLISECONDS), current.probes + 1);
   }
 
   @Override
-  public void timeout() {
+  public synchronized void timeout() {
     maybePrintln();
     logger.warn("TIMEOUT after {}", stopwatch);
   }
 
   @Override
-  public void interrupted() {
+  public synchronized void interrupted() {
     maybePrintln();
     logger.warn("INTERRUPTED after {}", stopwatch);
   }
+
+  private Phase currentPhase() {
+    Phase current = phase.get();
+    if (current == null) {
+      // service did not invoke start
+      current = new Phase();
+      phase.set(current);
+    }
+    return current;
+  }
+
+  /**
+   * Timing of the operation being waited for by current thread.
+   */
+  private static class Phase
+  {
+    private final Stopwatch stopwatch = new Stopwatch().start();
+
+    private String name;
+
+    private int probes;
+  }
 }
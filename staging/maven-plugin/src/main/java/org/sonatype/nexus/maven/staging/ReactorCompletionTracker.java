@@ -0,0 +1,256 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.maven.staging;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.maven.execution.ExecutionEvent;
+import org.apache.maven.execution.ExecutionListener;
+import org.apache.maven.execution.MavenExecutionRequest;
+import org.apache.maven.execution.MavenExecutionResult;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.project.MavenProject;
+
+/**
+ * Maven3 {@link ExecutionListener} tracking the projects of reactor that finished building (succeeded, failed or got
+ * skipped), letting the staging performed in last module wait for the others of a parallel build, and wake up as soon
+ * as the last of them finished. It is installed into the Maven execution request, wrapping the listener set there
+ * (and delegating all events to it).
+ * <p/>Note: this class assumes Maven3 host.
+ *
+ * @since 1.8.0
+ */
+public class ReactorCompletionTracker
+    implements ExecutionListener
+{
+  /**
+   * The longest time to wait without checking the build results, should an event get lost.
+   */
+  private static final long RECHECK_MILLIS = TimeUnit.SECONDS.toMillis(10L);
+
+  private final ExecutionListener delegate;
+
+  private final Set<String> finished = new HashSet<String>();
+
+  private final List<Runnable> sessionEndedCallbacks = new ArrayList<Runnable>();
+
+  private ReactorCompletionTracker(final ExecutionListener delegate) {
+    this.delegate = delegate;
+  }
+
+  /**
+   * Returns the tracker of the session, installing it if not installed yet.
+   */
+  public static synchronized ReactorCompletionTracker install(final MavenSession session) {
+    final MavenExecutionRequest request = session.getRequest();
+    final ExecutionListener listener = request.getExecutionListener();
+    if (listener instanceof ReactorCompletionTracker) {
+      return (ReactorCompletionTracker) listener;
+    }
+    final ReactorCompletionTracker tracker = new ReactorCompletionTracker(listener);
+    request.setExecutionListener(tracker);
+    return tracker;
+  }
+
+  /**
+   * Blocks until all passed in projects finished building, or passed in timeout elapses, and returns the projects
+   * not finished (hence empty list if all finished). Projects having build summary in passed in result are
+   * considered finished, as ones that finished before this tracker got installed.
+   *
+   * @param timeoutMillis the maximum time to wait, or zero to wait without limit.
+   */
+  public synchronized List<MavenProject> await(final List<MavenProject> projects, final MavenExecutionResult result,
+                                               final long timeoutMillis)
+      throws InterruptedException
+  {
+    final long deadline = timeoutMillis > 0 ? System.currentTimeMillis() + timeoutMillis : Long.MAX_VALUE;
+    while (true) {
+      final List<MavenProject> outstanding = getOutstanding(projects, result);
+      final long remaining = deadline - System.currentTimeMillis();
+      if (outstanding.isEmpty() || remaining <= 0) {
+        return outstanding;
+      }
+      wait(Math.min(remaining, RECHECK_MILLIS));
+    }
+  }
+
+  /**
+   * Returns the projects that did not finish building yet.
+   */
+  public synchronized List<MavenProject> getOutstanding(final List<MavenProject> projects,
+                                                        final MavenExecutionResult result)
+  {
+    final List<MavenProject> outstanding = new ArrayList<MavenProject>();
+    for (MavenProject project : projects) {
+      if (!finished.contains(project.getId()) && result.getBuildSummary(project) == null) {
+        outstanding.add(project);
+      }
+    }
+    return outstanding;
+  }
+
+  /**
+   * Registers a callback to be invoked when the session ends, before the wrapped listener is notified (hence before
+   * the build results are reported). Callbacks are invoked in order of registration, and should not throw.
+   */
+  public synchronized void onSessionEnded(final Runnable callback) {
+    sessionEndedCallbacks.add(callback);
+  }
+
+  private synchronized void finished(final ExecutionEvent event) {
+    if (event.getProject() != null) {
+      finished.add(event.getProject().getId());
+      notifyAll();
+    }
+  }
+
+  // == ExecutionListener
+
+  @Override
+  public void projectSkipped(final ExecutionEvent event) {
+    finished(event);
+    if (delegate != null) {
+      delegate.projectSkipped(event);
+    }
+  }
+
+  @Override
+  public void projectSucceeded(final ExecutionEvent event) {
+    finished(event);
+    if (delegate != null) {
+      delegate.projectSucceeded(event);
+    }
+  }
+
+  @Override
+  public void projectFailed(final ExecutionEvent event) {
+    finished(event);
+    if (delegate != null) {
+      delegate.projectFailed(event);
+    }
+  }
+
+  @Override
+  public void projectDiscoveryStarted(final ExecutionEvent event) {
+    if (delegate != null) {
+      delegate.projectDiscoveryStarted(event);
+    }
+  }
+
+  @Override
+  public void sessionStarted(final ExecutionEvent event) {
+    if (delegate != null) {
+      delegate.sessionStarted(event);
+    }
+  }
+
+  @Override
+  public void sessionEnded(final ExecutionEvent event) {
+    final List<Runnable> callbacks;
+    synchronized (this) {
+      callbacks = new ArrayList<Runnable>(sessionEndedCallbacks);
+      sessionEndedCallbacks.clear();
+    }
+    try {
+      for (Runnable callback : callbacks) {
+        callback.run();
+      }
+    }
+    finally {
+      if (delegate != null) {
+        delegate.sessionEnded(event);
+      }
+    }
+  }
+
+  @Override
+  public void projectStarted(final ExecutionEvent event) {
+    if (delegate != null) {
+      delegate.projectStarted(event);
+    }
+  }
+
+  @Override
+  public void mojoSkipped(final ExecutionEvent event) {
+    if (delegate != null) {
+      delegate.mojoSkipped(event);
+    }
+  }
+
+  @Override
+  public void mojoStarted(final ExecutionEvent event) {
+    if (delegate != null) {
+      delegate.mojoStarted(event);
+    }
+  }
+
+  @Override
+  public void mojoSucceeded(final ExecutionEvent event) {
+    if (delegate != null) {
+      delegate.mojoSucceeded(event);
+    }
+  }
+
+  @Override
+  public void mojoFailed(final ExecutionEvent event) {
+    if (delegate != null) {
+      delegate.mojoFailed(event);
+    }
+  }
+
+  @Override
+  public void forkStarted(final ExecutionEvent event) {
+    if (delegate != null) {
+      delegate.forkStarted(event);
+    }
+  }
+
+  @Override
+  public void forkSucceeded(final ExecutionEvent event) {
+    if (delegate != null) {
+      delegate.forkSucceeded(event);
+    }
+  }
+
+  @Override
+  public void forkFailed(final ExecutionEvent event) {
+    if (delegate != null) {
+      delegate.forkFailed(event);
+    }
+  }
+
+  @Override
+  public void forkedProjectStarted(final ExecutionEvent event) {
+    if (delegate != null) {
+      delegate.forkedProjectStarted(event);
+    }
+  }
+
+  @Override
+  public void forkedProjectSucceeded(final ExecutionEvent event) {
+    if (delegate != null) {
+      delegate.forkedProjectSucceeded(event);
+    }
+  }
+
+  @Override
+  public void forkedProjectFailed(final ExecutionEvent event) {
+    if (delegate != null) {
+      delegate.forkedProjectFailed(event);
+    }
+  }
+}
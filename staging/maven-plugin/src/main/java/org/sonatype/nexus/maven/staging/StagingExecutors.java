@@ -0,0 +1,50 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.maven.staging;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Creates the background threads of staging: named daemon threads, that never keep the build JVM alive.
+ * <p/>
+ * NOTE: pool threads are created lazily by the calling (build) thread, so they inherit its inheritable thread locals,
+ * like the MavenSession held by LegacySupport that ArtifactDeployer relies on. Hence pools should be created (and
+ * used first) by the thread whose session the work belongs to.
+ *
+ * @since 1.8.0
+ */
+public final class StagingExecutors
+{
+  private StagingExecutors() {
+    // no instances
+  }
+
+  /**
+   * Returns the factory of daemon threads named by passed in format (that may contain {@code %d} for thread
+   * number).
+   */
+  public static ThreadFactory threadFactory(final String nameFormat) {
+    return new ThreadFactoryBuilder().setNameFormat(nameFormat).setDaemon(true).build();
+  }
+
+  /**
+   * Returns a fixed pool of passed in count of daemon threads named by passed in format.
+   */
+  public static ExecutorService newFixedThreadPool(final int threads, final String nameFormat) {
+    return Executors.newFixedThreadPool(threads, threadFactory(nameFormat));
+  }
+}
@@ -12,11 +12,18 @@
  */
 package org.sonatype.nexus.maven.staging.deploy;
 
+import java.io.File;
 import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
 
 import org.sonatype.nexus.maven.staging.AbstractStagingMojo;
 import org.sonatype.nexus.maven.staging.deploy.strategy.DeployStrategy;
+import org.sonatype.nexus.maven.staging.install.InstallMode;
+import org.sonatype.nexus.maven.staging.remote.BackoffWaitPolicy;
 import org.sonatype.nexus.maven.staging.remote.Parameters;
+import org.sonatype.nexus.maven.staging.remote.ProfileMatchCache;
+import org.sonatype.nexus.maven.staging.upload.RetryPolicy;
 
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugins.annotations.Component;
@@ -80,6 +87,219 @@ public abstract class AbstractDeployMojo
   @Parameter(property = "skipStaging")
   private boolean skipStaging;
 
+  /**
+   * The count of threads used to upload the locally staged (or deferred) artifacts to remote Nexus. Artifacts
+   * sharing repository metadata are always uploaded by one thread, in order they were staged: with Aether deploy
+   * (see {@code aetherDeploy}) each thread performs the deploy request of one groupId and artifactId at a time, while
+   * with one by one deploy each thread deploys one artifact at a time. Default is {@code 1}, that uploads everything
+   * serially.
+   *
+   * @since 1.8.0
+   */
+  @Parameter(property = "stagingUploadThreads", defaultValue = "1")
+  private int stagingUploadThreads;
+
+  /**
+   * The count of staging profiles remotely staged concurrently, when locally staged artifacts belong to multiple
+   * staging profiles. Each profile is staged (uploaded and closed) into its own staging repository, and if any of
+   * them fails, all the staging repositories created so far are cleaned up, as with serial staging. Default is
+   * {@code 1}, that stages profiles one by one.
+   *
+   * @since 1.8.0
+   */
+  @Parameter(property = "stagingProfileThreads", defaultValue = "1")
+  private int stagingProfileThreads;
+
+  /**
+   * When {@code autoReleaseAfterClose} is set and multiple staging repositories are staged, release each of them as
+   * soon as it is closed, while the others are still being uploaded or closed, instead of releasing all of them once
+   * all are closed. It is faster, but a later failure cannot undo the already released staging repositories.
+   *
+   * @since 1.8.0
+   */
+  @Parameter(property = "autoReleaseEachAfterClose")
+  private boolean autoReleaseEachAfterClose;
+
+  /**
+   * When running in Maven 3.1 or newer, deploy the locally staged (or deferred) artifacts using one Aether deploy
+   * request per groupId and artifactId of every target repository, instead of deploying them one by one, so the
+   * repository metadata of each of them is updated only once. Requests are performed by {@code stagingUploadThreads}
+   * threads. Has no effect in older Maven versions. Set to {@code false} to force one by one deploy.
+   *
+   * @since 1.8.0
+   */
+  @Parameter(property = "aetherDeploy", defaultValue = "true")
+  private boolean aetherDeploy;
+
+  /**
+   * How are artifacts installed into local staging directory: "copy" (the default) copies them, "link" hard links
+   * them (and fails if not possible), while "auto" hard links them when source and staging directory are on same
+   * file store, and copies them otherwise. Linking makes local staging of huge artifacts almost free, both in time
+   * and disk space, but the staged files share content with the build outputs: if a module is rebuilt, or a plugin
+   * rewrites its output in place, before the staged files are uploaded (ie. by "deploy-staged" goal, or a resumed
+   * upload), the changed content is uploaded, not matching the checksums recorded while staging.
+   *
+   * @since 1.8.0
+   */
+  @Parameter(property = "stagingInstallMode", defaultValue = "copy")
+  private String stagingInstallMode;
+
+  /**
+   * Set this to {@code false} to not calculate the checksums (MD5, SHA-1, SHA-256 and SHA-512) of artifacts while
+   * they are locally staged. The checksums are calculated in the same pass that copies the artifact, and are
+   * recorded in the staging index, so the upload does not need to read the artifacts once more to checksum them.
+   * They are calculated only when an upload feature consumes them ({@code resumableStaging},
+   * {@code stagingPresenceCheckThreads} or {@code stagingBundleUpload}), as otherwise reading the artifacts (that
+   * are not even copied when linked, see {@code stagingInstallMode}) would be wasted.
+   *
+   * @since 1.8.0
+   */
+  @Parameter(property = "stagingInstallChecksums", defaultValue = "true")
+  private boolean stagingInstallChecksums;
+
+  /**
+   * The count of concurrent lookups checking, before upload, which locally staged artifacts are already present
+   * with same content (compared by checksums recorded while staging) in remote repository, so they are not uploaded
+   * again. Done when uploading into a staging repository given by {@code stagingRepositoryId}, and for deferred
+   * deploys. Snapshots are compared with their latest deployed timestamped version, so an unchanged snapshot is not
+   * deployed again. The lookups use the credentials, proxy and SSL settings ({@code sslInsecure} and
+   * {@code sslAllowAll}) used to talk to Nexus. Default is {@code 0}, that does not check presence at all.
+   *
+   * @since 1.8.0
+   */
+  @Parameter(property = "stagingPresenceCheckThreads", defaultValue = "0")
+  private int stagingPresenceCheckThreads;
+
+  /**
+   * Set this to {@code true} to upload the locally staged files as one single ZIP bundle, compressed while it is
+   * sent, in one single request, instead of uploading them one by one. Requires Nexus able to unpack bundles into
+   * staging repositories, and if Nexus refuses the bundle, the files are uploaded one by one. Locally staged
+   * artifacts (goals "deploy" and "deploy-staged") are bundled only when they are releases uploaded into a newly
+   * created staging repository, while the staged repository of goal "deploy-staged-repository" is bundled as-is.
+   *
+   * @since 1.8.0
+   */
+  @Parameter(property = "stagingBundleUpload")
+  private boolean stagingBundleUpload;
+
+  /**
+   * The interval in seconds of logging the progress of uploads (files and bytes sent, throughput and ETA). Set to
+   * {@code 0} to disable progress logging. A JSON summary of every upload is written into the working directory
+   * (by default {@code target/nexus-staging}) in any case.
+   *
+   * @since 1.8.0
+   */
+  @Parameter(property = "uploadProgressIntervalSeconds", defaultValue = "10")
+  private int uploadProgressIntervalSeconds;
+
+  /**
+   * The count of retries of a failed upload of one file, when it failed with a response status listed in
+   * {@code uploadRetryStatusCodes}, or without response (as on reset connection or timeout). Retries pause with
+   * exponential backoff (randomly spread a bit), starting at one second, up to
+   * {@code uploadRetryMaxPauseSeconds}. Default is {@code 0}, that does not retry at all (failing the upload right
+   * away, as former versions did), set it to ie. {@code 5} to ride out transient failures of Nexus or network.
+   *
+   * @since 1.8.0
+   */
+  @Parameter(property = "uploadRetries", defaultValue = "0")
+  private int uploadRetries;
+
+  /**
+   * The maximum pause in seconds before retrying a failed upload.
+   *
+   * @since 1.8.0
+   */
+  @Parameter(property = "uploadRetryMaxPauseSeconds", defaultValue = "30")
+  private int uploadRetryMaxPauseSeconds;
+
+  /**
+   * Comma separated list of HTTP response statuses failed uploads are retried on.
+   *
+   * @since 1.8.0
+   */
+  @Parameter(property = "uploadRetryStatusCodes", defaultValue = RetryPolicy.DEFAULT_RETRYABLE_STATUSES)
+  private String uploadRetryStatusCodes;
+
+  /**
+   * The count of consecutive failed uploads (of any file, without any successful upload in between), after which
+   * the whole upload is given up, if they lasted at least {@code uploadCircuitBreakerSeconds}. Failed uploads are
+   * not retried anymore then, and the remaining files are not uploaded at all.
+   *
+   * @since 1.8.0
+   */
+  @Parameter(property = "uploadCircuitBreakerFailures", defaultValue = "30")
+  private int uploadCircuitBreakerFailures;
+
+  /**
+   * The minimal time in seconds the consecutive failed uploads must last to give up the whole upload, see
+   * {@code uploadCircuitBreakerFailures}.
+   *
+   * @since 1.8.0
+   */
+  @Parameter(property = "uploadCircuitBreakerSeconds", defaultValue = "60")
+  private int uploadCircuitBreakerSeconds;
+
+  /**
+   * The maximal count of threads uploading to remote Nexus. When greater than the configured count of upload threads
+   * ({@code stagingUploadThreads} for both Aether and one by one deploy, and {@code zapperUploadThreads} for goal
+   * "deploy-staged-repository"), the count adapts to Nexus: starting at the configured count, a thread is added
+   * while the throughput of uploads rises and their latency stays flat, and threads are removed multiplicatively
+   * when Nexus responds with 429 or 5xx, times out, or its latency spikes. Default is {@code 0}, that keeps the count
+   * of upload threads fixed.
+   *
+   * @since 1.8.0
+   */
+  @Parameter(property = "uploadMaxThreads", defaultValue = "0")
+  private int uploadMaxThreads;
+
+  /**
+   * Set this to {@code true} to make remote staging resumable: every uploaded file is recorded in a journal within
+   * local staging directory, and on upload failure the staging repository is kept open. Repeated remote staging
+   * (ie. using "deploy-staged" goal) resumes the upload into the same staging repository, sending only the files
+   * that are missing from it or were changed since.
+   *
+   * @since 1.8.0
+   */
+  @Parameter(property = "resumableStaging")
+  private boolean resumableStaging;
+
+  /**
+   * The staging profiles matched by Nexus are cached for the whole reactor, assuming that artifacts having same
+   * coordinates (matched by this pattern) land in same profile: "gav" (the default) asks Nexus once per groupId,
+   * artifactId and version, "groupId" once per groupId, while "none" asks Nexus for every module. Note that the
+   * default only caches repeated GAVs: as the modules of a reactor have distinct artifactIds, it saves no request
+   * within a build, and pays off only with {@code stagingProfileMatchCacheTtlSeconds}, when same GAVs are deployed
+   * again (ie. a failed release is repeated). As Nexus matches profiles by repository target patterns, that might
+   * include the artifactId, set "groupId" (to share matches within a reactor) only when all the artifacts of a groupId
+   * land in same profile. Has no effect when {@code stagingProfileId} is set.
+   *
+   * @since 1.8.0
+   */
+  @Parameter(property = "stagingProfileMatchCache", defaultValue = "gav")
+  private String stagingProfileMatchCache;
+
+  /**
+   * The time in seconds the staging profiles matched by Nexus are persisted for (into
+   * {@code ~/.m2/nexus-staging/profile-matches.properties}), letting subsequent builds skip profile matching.
+   * Matches of profiles reported as not found by Nexus are invalidated. Default is {@code 0}, that does not persist
+   * matches at all.
+   *
+   * @since 1.8.0
+   */
+  @Parameter(property = "stagingProfileMatchCacheTtlSeconds", defaultValue = "0")
+  private int stagingProfileMatchCacheTtlSeconds;
+
+  /**
+   * Set this to {@code true} to connect to Nexus in background as soon as the build starts, so the connection is
+   * established and the staging profiles are resolved by the time the first module deploys, and connection or
+   * authentication problems are reported in the first seconds of the build. Evaluated by the build extension only
+   * (when the plugin is declared with {@code <extensions>true</extensions>}), and has no effect otherwise.
+   *
+   * @since 1.8.0
+   */
+  @Parameter(property = "stagingPrewarm")
+  private boolean stagingPrewarm;
+
   // ==
 
   /**
@@ -113,6 +333,22 @@ public abstract class AbstractDeployMojo
       parameters.setStagingProfileId(getStagingProfileId());
       parameters.setStagingRepositoryId(getStagingRepositoryId());
       parameters.setTags(getTags());
+      parameters.setStagingUploadThreads(getStagingUploadThreads());
+      parameters.setStagingProfileThreads(getStagingProfileThreads());
+      parameters.setAutoReleaseEachAfterClose(isAutoReleaseEachAfterClose());
+      parameters.setAetherDeploy(isAetherDeploy());
+      parameters.setInstallMode(InstallMode.parse(getStagingInstallMode()));
+      parameters.setInstallChecksums(isStagingInstallChecksums() && isStagingChecksumsConsumed());
+      parameters.setPresenceCheckThreads(getStagingPresenceCheckThreads());
+      parameters.setBundleUpload(isStagingBundleUpload());
+      parameters.setUploadProgressIntervalSeconds(getUploadProgressIntervalSeconds());
+      parameters.setUploadRetryPolicy(createUploadRetryPolicy());
+      parameters.setUploadMaxThreads(getUploadMaxThreads());
+      parameters.setReportDirectory(getWorkDirectoryRoot());
+      parameters.setResumableStaging(isResumableStaging());
+      parameters.setProfileMatchCacheScope(ProfileMatchCache.Scope.parse(getStagingProfileMatchCache()));
+      parameters.setProfileMatchCacheFile(getProfileMatchCacheFile());
+      parameters.setProfileMatchCacheTtlSeconds(getStagingProfileMatchCacheTtlSeconds());
 
       if (getLog().isDebugEnabled()) {
         getLog().debug(parameters.toString());
@@ -152,4 +388,107 @@ public abstract class AbstractDeployMojo
   protected boolean isSkipStaging() {
     return skipStaging;
   }
+
+  protected int getStagingUploadThreads() {
+    return stagingUploadThreads;
+  }
+
+  protected int getStagingProfileThreads() {
+    return stagingProfileThreads;
+  }
+
+  protected boolean isAutoReleaseEachAfterClose() {
+    return autoReleaseEachAfterClose;
+  }
+
+  protected boolean isAetherDeploy() {
+    return aetherDeploy;
+  }
+
+  protected String getStagingInstallMode() {
+    return stagingInstallMode;
+  }
+
+  protected boolean isStagingInstallChecksums() {
+    return stagingInstallChecksums;
+  }
+
+  /**
+   * Returns {@code true} if any upload feature consumes the checksums recorded while locally staging.
+   */
+  protected boolean isStagingChecksumsConsumed() {
+    return isResumableStaging() || getStagingPresenceCheckThreads() > 0 || isStagingBundleUpload();
+  }
+
+  protected int getStagingPresenceCheckThreads() {
+    return stagingPresenceCheckThreads;
+  }
+
+  protected boolean isStagingBundleUpload() {
+    return stagingBundleUpload;
+  }
+
+  protected int getUploadProgressIntervalSeconds() {
+    return uploadProgressIntervalSeconds;
+  }
+
+  protected int getUploadRetries() {
+    return uploadRetries;
+  }
+
+  protected int getUploadRetryMaxPauseSeconds() {
+    return uploadRetryMaxPauseSeconds;
+  }
+
+  protected String getUploadRetryStatusCodes() {
+    return uploadRetryStatusCodes;
+  }
+
+  protected int getUploadCircuitBreakerFailures() {
+    return uploadCircuitBreakerFailures;
+  }
+
+  protected int getUploadCircuitBreakerSeconds() {
+    return uploadCircuitBreakerSeconds;
+  }
+
+  protected int getUploadMaxThreads() {
+    return uploadMaxThreads;
+  }
+
+  /**
+   * Creates the retry policy of uploads as configured.
+   */
+  protected RetryPolicy createUploadRetryPolicy() {
+    if (getUploadRetries() <= 0) {
+      return RetryPolicy.NONE;
+    }
+    final long maxPauseMillis =
+        Math.max(RetryPolicy.DEFAULT_FIRST_PAUSE_MILLIS, TimeUnit.SECONDS.toMillis(getUploadRetryMaxPauseSeconds()));
+    return new RetryPolicy(getUploadRetries(),
+        new BackoffWaitPolicy(RetryPolicy.DEFAULT_FIRST_PAUSE_MILLIS, maxPauseMillis,
+            BackoffWaitPolicy.DEFAULT_MULTIPLIER, BackoffWaitPolicy.DEFAULT_JITTER, new Random()),
+        RetryPolicy.parseStatuses(getUploadRetryStatusCodes()),
+        Math.max(1, getUploadCircuitBreakerFailures()),
+        TimeUnit.SECONDS.toMillis(Math.max(0, getUploadCircuitBreakerSeconds())));
+  }
+
+  protected boolean isResumableStaging() {
+    return resumableStaging;
+  }
+
+  protected String getStagingProfileMatchCache() {
+    return stagingProfileMatchCache;
+  }
+
+  protected int getStagingProfileMatchCacheTtlSeconds() {
+    return stagingProfileMatchCacheTtlSeconds;
+  }
+
+  /**
+   * Returns the file persisting the staging profiles matched by Nexus.
+   */
+  protected File getProfileMatchCacheFile() {
+    return ProfileMatchCache.defaultFile();
+  }
 }
\ No newline at end of file
@@ -12,11 +12,19 @@
  */
 package org.sonatype.nexus.maven.staging.deploy;
 
+import java.io.File;
+import java.util.ArrayList;
 import java.util.List;
 
+import org.sonatype.nexus.maven.staging.ReactorCompletionTracker;
+import org.sonatype.nexus.maven.staging.remote.Parameters;
+import org.sonatype.nexus.maven.staging.remote.ProfileMatchCache;
+import org.sonatype.nexus.maven.staging.remote.RemoteNexusRegistry;
+
 import com.google.common.base.Strings;
 import org.apache.maven.AbstractMavenLifecycleParticipant;
 import org.apache.maven.MavenExecutionException;
+import org.apache.maven.artifact.Artifact;
 import org.apache.maven.execution.MavenSession;
 import org.apache.maven.model.Model;
 import org.apache.maven.model.Plugin;
@@ -24,6 +32,7 @@ import org.apache.maven.model.PluginContainer;
 import org.apache.maven.model.PluginExecution;
 import org.apache.maven.project.MavenProject;
 import org.codehaus.plexus.component.annotations.Component;
+import org.codehaus.plexus.component.annotations.Requirement;
 import org.codehaus.plexus.logging.LogEnabled;
 import org.codehaus.plexus.logging.Logger;
 import org.codehaus.plexus.util.xml.Xpp3Dom;
@@ -65,6 +74,9 @@ public class DeployLifecycleParticipant
 
   private Logger logger;
 
+  @Requirement
+  private RemoteNexusRegistry remoteNexusRegistry;
+
   protected String getPluginGroupId() {
     // TODO: GA is wired in, should be discovered!
     return _THIS_GROUP_ID;
@@ -148,6 +160,11 @@ public class DeployLifecycleParticipant
         logger.info("  ... total of " + skipped + " executions of maven-deploy-plugin replaced with "
             + getPluginArtifactId());
       }
+      if (session.getRequest() != null) {
+        // track finished projects from the very start, staging in last module of parallel build waits for them
+        ReactorCompletionTracker.install(session);
+      }
+      prewarmIfNeeded(session);
     }
     catch (IllegalStateException e) {
       // thrown by getPluginByGAFromContainer
@@ -155,6 +172,95 @@ public class DeployLifecycleParticipant
     }
   }
 
+  /**
+   * Starts connecting to Nexus in background, if asked for by {@code stagingPrewarm} in configuration of the plugin
+   * of the first module using it (or by user property). Configuration problems are logged, but never fail the build
+   * here, as the deploy will report them anyway.
+   */
+  protected void prewarmIfNeeded(final MavenSession session) {
+    if (remoteNexusRegistry == null || session.isOffline()) {
+      return;
+    }
+    Plugin nexusMavenPlugin = null;
+    final List<Artifact> artifacts = new ArrayList<Artifact>();
+    for (MavenProject project : session.getProjects()) {
+      final Plugin plugin = getBuildPluginsNexusMavenPlugin(project.getModel());
+      if (plugin != null) {
+        nexusMavenPlugin = nexusMavenPlugin == null ? plugin : nexusMavenPlugin;
+        if (project.getArtifact() != null) {
+          artifacts.add(project.getArtifact());
+        }
+      }
+    }
+    if (nexusMavenPlugin == null
+        || !Boolean.parseBoolean(getConfigurationValue(session, nexusMavenPlugin, "stagingPrewarm", null))) {
+      return;
+    }
+    try {
+      final MavenProject topLevelProject = session.getTopLevelProject() != null
+          ? session.getTopLevelProject() : session.getProjects().get(0);
+      final Parameters parameters = new Parameters(
+          getPluginGroupId() + ":" + getPluginArtifactId() + ":" + nexusMavenPlugin.getVersion(),
+          new File(topLevelProject.getBuild().getDirectory(), "nexus-staging/deferred"),
+          new File(topLevelProject.getBuild().getDirectory(), "nexus-staging/staging"));
+      parameters.setNexusUrl(getConfigurationValue(session, nexusMavenPlugin, "nexusUrl", null));
+      parameters.setServerId(getConfigurationValue(session, nexusMavenPlugin, "serverId", null));
+      parameters.setSslInsecure(Boolean.parseBoolean(
+          getConfigurationValue(session, nexusMavenPlugin, "sslInsecure", "maven.wagon.http.ssl.insecure")));
+      parameters.setSslAllowAll(Boolean.parseBoolean(
+          getConfigurationValue(session, nexusMavenPlugin, "sslAllowAll", "maven.wagon.http.ssl.allowall")));
+      parameters.setStagingProfileId(getConfigurationValue(session, nexusMavenPlugin, "stagingProfileId", null));
+      final String scope = getConfigurationValue(session, nexusMavenPlugin, "stagingProfileMatchCache", null);
+      if (scope != null) {
+        parameters.setProfileMatchCacheScope(ProfileMatchCache.Scope.parse(scope));
+      }
+      final String ttl = getConfigurationValue(session, nexusMavenPlugin, "stagingProfileMatchCacheTtlSeconds", null);
+      if (ttl != null) {
+        parameters.setProfileMatchCacheFile(ProfileMatchCache.defaultFile());
+        parameters.setProfileMatchCacheTtlSeconds(Integer.parseInt(ttl));
+      }
+      parameters.validateRemoting();
+      logger.info("Connecting to Nexus at " + parameters.getNexusUrl() + " in background...");
+      remoteNexusRegistry.prewarm(session, parameters, artifacts);
+    }
+    catch (RuntimeException e) {
+      logger.warn("Not connecting to Nexus in background: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Returns the value of scalar configuration of the plugin, where the user property (of same name unless passed in)
+   * wins, as with mojo parameters. Returns {@code null} if not configured.
+   */
+  protected String getConfigurationValue(final MavenSession session, final Plugin plugin, final String key,
+                                         final String property)
+  {
+    final String value = session.getUserProperties().getProperty(property != null ? property : key);
+    if (value != null) {
+      return value;
+    }
+    final Xpp3Dom configuration = (Xpp3Dom) plugin.getConfiguration();
+    if (configuration != null && configuration.getChild(key) != null) {
+      return Strings.emptyToNull(configuration.getChild(key).getValue());
+    }
+    return null;
+  }
+
+  /**
+   * Closes the connections to Nexus shared by the modules of the reactor. Invoked by Maven 3.2.1+ only, as older
+   * versions lack this callback (hence no {@code @Override}), in which case the registry closes them itself when the
+   * session ends.
+   *
+   * @since 1.8.0
+   */
+  public void afterSessionEnd(final MavenSession session)
+      throws MavenExecutionException
+  {
+    if (remoteNexusRegistry != null) {
+      remoteNexusRegistry.close(session);
+    }
+  }
+
   /**
    * Returns the nexus-staging-maven-plugin from build/plugins section of model or {@code null} if not present.
    */
@@ -16,6 +16,7 @@ import java.io.File;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.Callable;
 
 import org.sonatype.nexus.maven.staging.deploy.strategy.DeployPerModuleRequest;
 import org.sonatype.nexus.maven.staging.deploy.strategy.DeployStrategy;
@@ -33,6 +34,7 @@ import org.apache.maven.plugins.annotations.Component;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
 import org.apache.maven.project.artifact.ProjectArtifactMetadata;
 
 /**
@@ -53,6 +55,12 @@ public class DeployMojo
   @Component
   private ArtifactFactory artifactFactory;
 
+  /**
+   * Executor of asynchronous local staging.
+   */
+  @Component
+  private LocalStagingExecutor localStagingExecutor;
+
   /**
    * Project Artifact.
    */
@@ -106,6 +114,29 @@ public class DeployMojo
   @Parameter(property = "skipRemoteStaging")
   private boolean skipRemoteStaging;
 
+  /**
+   * Set this to {@code true} to stream the release artifacts to Nexus while the build goes on: the staging
+   * repository is created when first module is deployed, and each module is uploaded in background right after it
+   * was locally staged, so the last module only waits for the uploads to finish and closes the staging repository.
+   * On failure, the staging repository is dropped (unless kept by {@code keepStagingRepositoryOnFailure}), as with
+   * remote staging performed at build end. Has no effect when remote staging is skipped.
+   *
+   * @since 1.8.0
+   */
+  @Parameter(property = "streamingStaging")
+  private boolean streamingStaging;
+
+  /**
+   * Set this to {@code true} to perform local staging in background: the artifacts of the module are queued to be
+   * copied into local staging directory, and the mojo returns right away, letting the build thread go on with next
+   * module. The last module waits for the local staging of all modules to finish, and fails the build with the
+   * errors of all failed modules, before remote staging is performed. Has no effect when local staging is skipped.
+   *
+   * @since 1.8.0
+   */
+  @Parameter(property = "asyncLocalStaging")
+  private boolean asyncLocalStaging;
+
   public void execute()
       throws MojoExecutionException, MojoFailureException
   {
@@ -118,6 +149,7 @@ public class DeployMojo
     // deploying remotely (for example skipRemoteStaging equals true), but for stuff like profile selection,
     // matching, etc.
     failIfOffline();
+    installReactorCompletionTracker();
 
     // DEPLOY
     final ArrayList<DeployableArtifact> deployables = new ArrayList<DeployableArtifact>(2);
@@ -185,11 +217,28 @@ public class DeployMojo
       else
       // for releases, everything used: profile selection, full V2, etc
       {
-        deployStrategy = getDeployStrategy(Strategies.STAGING);
+        deployStrategy = getDeployStrategy(streamingStaging && !skipRemoteStaging
+            ? Strategies.STREAMING : Strategies.STAGING);
       }
 
-      request = new DeployPerModuleRequest(getMavenSession(), parameters, deployables);
-      deployStrategy.deployPerModule(request);
+      // the project is resolved here, as queued work runs when session already moved on to later modules
+      final MavenProject project = getMavenSession().getCurrentProject();
+      request = new DeployPerModuleRequest(getMavenSession(), project, parameters, deployables);
+      if (isAsyncLocalStaging()) {
+        getLog().info("Queueing local staging of " + deployables.size() + " artifacts.");
+        localStagingExecutor.submit(getMavenSession(), project.getId(),
+            new Callable<Void>()
+            {
+              @Override
+              public Void call() throws Exception {
+                deployStrategy.deployPerModule(request);
+                return null;
+              }
+            });
+      }
+      else {
+        deployStrategy.deployPerModule(request);
+      }
     }
     catch (ArtifactInstallationException e) {
       throw new MojoExecutionException(e.getMessage(), e);
@@ -199,7 +248,11 @@ public class DeployMojo
     }
 
     // if local staging skipped, we even can't do remote staging at all (as nothing is staged locally)
-    if (isThisLastProjectWithThisMojoInExecution()) {
+    if (isThisLastProjectWithThisMojoInExecution() && waitForOtherProjectsAndCheckBuildFailures()) {
+      if (isAsyncLocalStaging()) {
+        // remote staging needs all modules locally staged, this module included
+        localStagingExecutor.await();
+      }
       if (skipRemoteStaging) {
         getLog().info(
             "Artifacts locally gathered under directory " + getWorkDirectoryRoot().getAbsolutePath()
@@ -217,4 +270,11 @@ public class DeployMojo
       }
     }
   }
+
+  /**
+   * Returns {@code true} if local staging is performed in background. Direct deploy is always performed inline.
+   */
+  protected boolean isAsyncLocalStaging() {
+    return asyncLocalStaging && !skipLocalStaging;
+  }
 }
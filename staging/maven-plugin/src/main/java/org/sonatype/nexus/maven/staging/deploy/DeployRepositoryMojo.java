@@ -17,6 +17,7 @@ import java.io.File;
 import org.sonatype.nexus.maven.staging.deploy.strategy.DeployStrategy;
 import org.sonatype.nexus.maven.staging.deploy.strategy.FinalizeDeployRequest;
 import org.sonatype.nexus.maven.staging.deploy.strategy.Strategies;
+import org.sonatype.nexus.maven.staging.remote.Parameters;
 
 import com.google.common.base.Strings;
 import org.apache.maven.artifact.deployer.ArtifactDeploymentException;
@@ -59,11 +60,71 @@ public class DeployRepositoryMojo
   @Parameter(property = "repositoryDirectory", required = true)
   private File repositoryDirectory;
 
+  /**
+   * The count of files uploaded concurrently.
+   *
+   * @since 1.8.0
+   */
+  @Parameter(property = "zapperUploadThreads", defaultValue = "6")
+  private int zapperUploadThreads;
+
+  /**
+   * The maximum count of pooled HTTP connections.
+   *
+   * @since 1.8.0
+   */
+  @Parameter(property = "zapperMaxConnections", defaultValue = "200")
+  private int zapperMaxConnections;
+
+  /**
+   * The maximum count of pooled HTTP connections to Nexus. Default is {@code 0}, that allows as many connections as
+   * upload threads.
+   *
+   * @since 1.8.0
+   */
+  @Parameter(property = "zapperMaxConnectionsPerRoute", defaultValue = "0")
+  private int zapperMaxConnectionsPerRoute;
+
+  /**
+   * The size in bytes of socket send and receive buffers. Larger buffers speed up uploads over links with high
+   * latency. Default is {@code 0}, that uses the defaults of OS.
+   *
+   * @since 1.8.0
+   */
+  @Parameter(property = "zapperSocketBufferSize", defaultValue = "0")
+  private int zapperSocketBufferSize;
+
+  /**
+   * The size in bytes of buffers of HTTP connections.
+   *
+   * @since 1.8.0
+   */
+  @Parameter(property = "zapperConnectionBufferSize", defaultValue = "8192")
+  private int zapperConnectionBufferSize;
+
+  /**
+   * The timeout in seconds of connecting to Nexus. Default is {@code 0}, that waits forever.
+   *
+   * @since 1.8.0
+   */
+  @Parameter(property = "zapperConnectTimeoutSeconds", defaultValue = "0")
+  private int zapperConnectTimeoutSeconds;
+
+  /**
+   * The timeout in seconds of waiting for Nexus to respond (or to accept the data being uploaded). Default is
+   * {@code 0}, that waits forever.
+   *
+   * @since 1.8.0
+   */
+  @Parameter(property = "zapperReadTimeoutSeconds", defaultValue = "0")
+  private int zapperReadTimeoutSeconds;
+
   @Override
   public void execute()
       throws MojoExecutionException, MojoFailureException
   {
     failIfOffline();
+    installReactorCompletionTracker();
 
     if (repositoryDirectory == null) {
       throw new MojoFailureException(
@@ -79,7 +140,7 @@ public class DeployRepositoryMojo
           "Stage profile ID is not set, use \"-DstagingProfileId=XXXX\" on CLI to set it.");
     }
 
-    if (isThisLastProjectWithThisMojoInExecution()) {
+    if (isThisLastProjectWithThisMojoInExecution() && waitForOtherProjectsAndCheckBuildFailures()) {
       try {
         final DeployStrategy deployStrategy = getDeployStrategy(Strategies.IMAGE);
         final FinalizeDeployRequest request = new FinalizeDeployRequest(getMavenSession(), buildParameters());
@@ -92,6 +153,24 @@ public class DeployRepositoryMojo
     }
   }
 
+  /**
+   * Adds the transport tuning of Zapper to parameters.
+   */
+  @Override
+  protected Parameters buildParameters()
+      throws MojoExecutionException
+  {
+    final Parameters parameters = super.buildParameters();
+    parameters.setZapperUploadThreads(zapperUploadThreads);
+    parameters.setZapperMaxConnections(zapperMaxConnections);
+    parameters.setZapperMaxConnectionsPerRoute(zapperMaxConnectionsPerRoute);
+    parameters.setZapperSocketBufferSize(zapperSocketBufferSize);
+    parameters.setZapperConnectionBufferSize(zapperConnectionBufferSize);
+    parameters.setZapperConnectTimeoutSeconds(zapperConnectTimeoutSeconds);
+    parameters.setZapperReadTimeoutSeconds(zapperReadTimeoutSeconds);
+    return parameters;
+  }
+
   /**
    * This goal override the parent's AbstractStagingMojo#getStagingDirectoryRoot as this Mojo explicitly receives
    * (and validates) it in the #execute method.
@@ -37,8 +37,9 @@ public class DeployStagedMojo
       throws MojoExecutionException, MojoFailureException
   {
     failIfOffline();
+    installReactorCompletionTracker();
 
-    if (isThisLastProjectWithThisMojoInExecution()) {
+    if (isThisLastProjectWithThisMojoInExecution() && waitForOtherProjectsAndCheckBuildFailures()) {
       try {
         final DeployStrategy deployStrategy;
         if (getMavenSession().getCurrentProject().getArtifact().isSnapshot()) {
@@ -0,0 +1,161 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.maven.staging.deploy;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.sonatype.nexus.maven.staging.ReactorCompletionTracker;
+import org.sonatype.nexus.maven.staging.StagingExecutors;
+
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.codehaus.plexus.component.annotations.Component;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Executor of local staging shared by all the modules of the reactor, letting the deploy mojo queue the local
+ * staging of module and return right away, instead of blocking the build thread while artifacts are copied into
+ * local staging directory. The last module joins all the queued work with {@link #await()}, that fails with the
+ * errors of all failed modules. Work not joined by the end of the Maven session is discarded. This class is thread
+ * safe.
+ *
+ * @since 1.8.0
+ */
+@Component(role = LocalStagingExecutor.class)
+public class LocalStagingExecutor
+{
+  private final Logger log = LoggerFactory.getLogger(LocalStagingExecutor.class);
+
+  private final int threads;
+
+  private ExecutorService executor;
+
+  private final List<Pending> pending = new ArrayList<Pending>();
+
+  public LocalStagingExecutor() {
+    this(Runtime.getRuntime().availableProcessors());
+  }
+
+  public LocalStagingExecutor(final int threads) {
+    this.threads = Math.max(1, threads);
+  }
+
+  /**
+   * Queues the local staging work of passed in module.
+   */
+  public synchronized void submit(final MavenSession mavenSession, final String projectId, final Callable<Void> work) {
+    if (executor == null) {
+      executor = StagingExecutors.newFixedThreadPool(threads, "nexus-staging-local-%d");
+      discardOnSessionEnd(mavenSession);
+    }
+    pending.add(new Pending(projectId, executor.submit(work)));
+  }
+
+  /**
+   * Waits for all the queued work to finish, and fails if any of it failed, reporting the failures of all modules.
+   * The executor is shut down, and is recreated by next submit.
+   */
+  public void await()
+      throws MojoExecutionException
+  {
+    final List<Pending> submitted;
+    final ExecutorService submittedTo;
+    synchronized (this) {
+      submitted = new ArrayList<Pending>(pending);
+      submittedTo = executor;
+      pending.clear();
+      executor = null;
+    }
+    if (submittedTo == null) {
+      return;
+    }
+    log.debug("Waiting for local staging of {} modules", submitted.size());
+    final Map<String, Throwable> failures = new LinkedHashMap<String, Throwable>();
+    try {
+      for (Pending work : submitted) {
+        try {
+          work.future.get();
+        }
+        catch (ExecutionException e) {
+          failures.put(work.projectId, e.getCause());
+        }
+      }
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new MojoExecutionException("Interrupted while waiting for local staging", e);
+    }
+    finally {
+      submittedTo.shutdownNow();
+    }
+    if (!failures.isEmpty()) {
+      log.error("Local staging failed for {} modules:", failures.size());
+      for (Map.Entry<String, Throwable> failure : failures.entrySet()) {
+        log.error(" * {}: {}", failure.getKey(), failure.getValue().getMessage());
+      }
+      final Throwable first = failures.values().iterator().next();
+      throw new MojoExecutionException("Local staging failed for modules " + failures.keySet() + ": "
+          + first.getMessage(), first);
+    }
+  }
+
+  /**
+   * Discards all the queued work, and shuts down the executor.
+   */
+  public synchronized void discard() {
+    if (executor != null) {
+      if (!pending.isEmpty()) {
+        log.warn("Discarding local staging of {} modules", pending.size());
+      }
+      executor.shutdownNow();
+      executor = null;
+    }
+    pending.clear();
+  }
+
+  private void discardOnSessionEnd(final MavenSession mavenSession) {
+    try {
+      ReactorCompletionTracker.install(mavenSession).onSessionEnded(new Runnable()
+      {
+        @Override
+        public void run() {
+          discard();
+        }
+      });
+    }
+    catch (LinkageError e) {
+      // Maven2, executor threads are daemons anyway
+      log.debug("Unable to track build end: {}", e.getMessage());
+    }
+  }
+
+  private static class Pending
+  {
+    private final String projectId;
+
+    private final Future<Void> future;
+
+    private Pending(final String projectId, final Future<Void> future) {
+      this.projectId = projectId;
+      this.future = future;
+    }
+  }
+}
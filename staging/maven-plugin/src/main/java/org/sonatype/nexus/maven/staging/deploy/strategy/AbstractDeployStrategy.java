@@ -13,24 +13,43 @@
 package org.sonatype.nexus.maven.staging.deploy.strategy;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
-import java.io.PrintWriter;
-import java.util.Properties;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+import javax.annotation.Nullable;
+
+import org.sonatype.nexus.maven.staging.index.IndexEntry;
+import org.sonatype.nexus.maven.staging.index.StagingIndexReader;
+import org.sonatype.nexus.maven.staging.index.StagingIndexWriter;
+import org.sonatype.nexus.maven.staging.install.FileChecksums;
+import org.sonatype.nexus.maven.staging.install.FileInstaller;
+import org.sonatype.nexus.maven.staging.install.InstallMode;
+import org.sonatype.nexus.maven.staging.remote.Parameters;
+import org.sonatype.nexus.maven.staging.upload.AdaptiveConcurrency;
+import org.sonatype.nexus.maven.staging.upload.UploadProgress;
+import org.sonatype.nexus.maven.staging.upload.UploadRetrier;
+import org.sonatype.nexus.maven.staging.upload.UploadScheduler;
+import org.sonatype.nexus.maven.staging.upload.UploadScheduler.Upload;
+import org.sonatype.nexus.maven.staging.upload.UploadStatistics;
 
 import com.google.common.base.Strings;
-import com.google.common.io.Closeables;
+import com.google.common.base.Throwables;
+import com.google.common.collect.Sets;
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.artifact.DefaultArtifact;
 import org.apache.maven.artifact.deployer.ArtifactDeployer;
 import org.apache.maven.artifact.deployer.ArtifactDeploymentException;
 import org.apache.maven.artifact.handler.DefaultArtifactHandler;
 import org.apache.maven.artifact.installer.ArtifactInstallationException;
-import org.apache.maven.artifact.installer.ArtifactInstaller;
 import org.apache.maven.artifact.metadata.ArtifactMetadata;
 import org.apache.maven.artifact.repository.ArtifactRepository;
 import org.apache.maven.artifact.repository.ArtifactRepositoryFactory;
@@ -40,20 +59,25 @@ import org.apache.maven.artifact.repository.metadata.Plugin;
 import org.apache.maven.artifact.versioning.VersionRange;
 import org.apache.maven.execution.MavenSession;
 import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.project.MavenProject;
 import org.apache.maven.project.artifact.ProjectArtifactMetadata;
+import org.codehaus.plexus.PlexusConstants;
+import org.codehaus.plexus.PlexusContainer;
 import org.codehaus.plexus.component.annotations.Requirement;
+import org.codehaus.plexus.context.Context;
+import org.codehaus.plexus.context.ContextException;
+import org.codehaus.plexus.personality.plexus.lifecycle.phase.Contextualizable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
 public abstract class AbstractDeployStrategy
-    implements DeployStrategy
+    implements DeployStrategy, Contextualizable
 {
   protected final Logger log = LoggerFactory.getLogger(getClass());
 
-  @Requirement
-  private ArtifactInstaller artifactInstaller;
+  private PlexusContainer plexusContainer;
 
   @Requirement
   private ArtifactDeployer artifactDeployer;
@@ -64,6 +88,13 @@ public abstract class AbstractDeployStrategy
   @Requirement
   private ArtifactRepositoryLayout artifactRepositoryLayout;
 
+  @Override
+  public void contextualize(final Context context)
+      throws ContextException
+  {
+    this.plexusContainer = (PlexusContainer) context.get(PlexusConstants.PLEXUS_KEY);
+  }
+
   protected ArtifactRepository createDeploymentArtifactRepository(final String id, final String url) {
     return artifactRepositoryFactory.createDeploymentArtifactRepository(id, url, artifactRepositoryLayout, true);
   }
@@ -80,60 +111,129 @@ public abstract class AbstractDeployStrategy
   }
 
   /**
-   * Static lock object, used to synchronize access to non-thread safe methods of this strategy in case of
-   * parallel build (Maven3).
+   * The open index writers, keyed by staging directory. Each writer serializes the appends to its own index, so
+   * modules staging into different directories never contend.
    */
-  private static final Object parallelLock = new Object();
+  private final Map<File, StagingIndexWriter> indexWriters = new HashMap<File, StagingIndexWriter>();
 
   /**
    * Performs an "install" (not to be confused with "install into local repository!) into the staging repository. It
-   * will retain snapshot versions, and no metadata is created at all. In short: performs a simple file copy.
+   * will retain snapshot versions, and no metadata is created at all. In short: performs a simple file copy (or hard
+   * link, depending on {@link InstallMode}) of the artifact and it's POM.
    * <p/>
-   * This one single method is not thread safe, as it performs IO and appends to the "index" file. Hence, this
-   * one method is execute in a synchronized block of a static object's monitor, to prevent multiple parallel
-   * install actions to happen. As install is local FS operation, this method should quickly finish it's job
-   * as costly operations (like asking for Staging profile of REST API of remote Nexus) already happened, we
-   * do only local FS ops here.
+   * This method is thread safe, and is invoked concurrently in parallel builds (Maven3): the file copies run in
+   * parallel, while the "index" file appends are serialized by the index writer of the staging directory.
+   *
+   * @return the index entry of installed artifact.
    */
-  protected void install(final File source, final Artifact artifact, final ArtifactRepository stagingRepository,
-                         final File stagingDirectory, final ArtifactRepository remoteRepository)
+  protected IndexEntry install(final File source, final Artifact artifact, final ArtifactRepository stagingRepository,
+                         final File stagingDirectory, final ArtifactRepository remoteRepository,
+                         final InstallMode installMode)
       throws ArtifactInstallationException, MojoExecutionException
   {
-    synchronized (parallelLock) {
-      final String path = stagingRepository.pathOf(artifact);
-      try {
-        artifactInstaller.install(source, artifact, stagingRepository);
-
-        String pluginPrefix = null;
-        // String pluginName = null;
-        for (ArtifactMetadata artifactMetadata : artifact.getMetadataList()) {
-          if (artifactMetadata instanceof GroupRepositoryMetadata) {
-            final Plugin plugin =
-                ((GroupRepositoryMetadata) artifactMetadata).getMetadata().getPlugins().get(0);
-            pluginPrefix = plugin.getPrefix();
-            // pluginName = plugin.getName();
-          }
+    return install(source, artifact, stagingRepository, stagingDirectory, remoteRepository, installMode, false);
+  }
+
+  /**
+   * Performs an "install" into the staging repository as {@link #install(File, Artifact, ArtifactRepository, File,
+   * ArtifactRepository, InstallMode)} does, and if asked for, calculates the checksums of the artifact and it's POM
+   * in the same pass, recording them in the "index" file.
+   */
+  protected IndexEntry install(final File source, final Artifact artifact, final ArtifactRepository stagingRepository,
+                               final File stagingDirectory, final ArtifactRepository remoteRepository,
+                               final InstallMode installMode, final boolean checksums)
+      throws ArtifactInstallationException, MojoExecutionException
+  {
+    final String path = stagingRepository.pathOf(artifact);
+    try {
+      String pluginPrefix = null;
+      // String pluginName = null;
+      for (ArtifactMetadata artifactMetadata : artifact.getMetadataList()) {
+        if (artifactMetadata instanceof GroupRepositoryMetadata) {
+          final Plugin plugin =
+              ((GroupRepositoryMetadata) artifactMetadata).getMetadata().getPlugins().get(0);
+          pluginPrefix = plugin.getPrefix();
+          // pluginName = plugin.getName();
         }
+      }
 
-        // append the index file
-        final FileOutputStream fos = new FileOutputStream(new File(stagingDirectory, ".index"), true);
-        final OutputStreamWriter osw = new OutputStreamWriter(fos, "ISO-8859-1");
-        final PrintWriter pw = new PrintWriter(osw);
-        String pomFileName = null;
-        for (ArtifactMetadata artifactMetadata : artifact.getMetadataList()) {
-          if (artifactMetadata instanceof ProjectArtifactMetadata) {
-            pomFileName = (artifactMetadata).getLocalFilename(stagingRepository);
-          }
+      final FileInstaller fileInstaller = new FileInstaller(installMode);
+      final File target = new File(stagingDirectory, path);
+      final FileChecksums fileChecksums = install(fileInstaller, source, target, checksums);
+
+      // append the index file
+      String pomFileName = null;
+      FileChecksums pomChecksums = null;
+      for (ArtifactMetadata artifactMetadata : artifact.getMetadataList()) {
+        if (artifactMetadata instanceof ProjectArtifactMetadata) {
+          pomFileName = (artifactMetadata).getLocalFilename(stagingRepository);
+          pomChecksums = install(fileInstaller, ((ProjectArtifactMetadata) artifactMetadata).getFile(),
+              new File(target.getParentFile(), pomFileName), checksums);
         }
-        pw.println(String.format("%s=%s:%s:%s:%s:%s:%s:%s:%s:%s:%s", path, artifact.getGroupId(),
-            artifact.getArtifactId(), artifact.getVersion(),
-            Strings.isNullOrEmpty(artifact.getClassifier()) ? "n/a" : artifact.getClassifier(), artifact.getType(),
-            artifact.getArtifactHandler().getExtension(), Strings.isNullOrEmpty(pomFileName) ? "n/a" : pomFileName,
-            Strings.isNullOrEmpty(pluginPrefix) ? "n/a" : pluginPrefix,
-            remoteRepository != null ? remoteRepository.getId() : "n/a",
-            remoteRepository != null ? remoteRepository.getUrl() : "n/a"));
-        pw.flush();
-        pw.close();
+      }
+      final IndexEntry entry = new IndexEntry(path, artifact.getGroupId(),
+          artifact.getArtifactId(), artifact.getVersion(), Strings.emptyToNull(artifact.getClassifier()),
+          artifact.getType(), artifact.getArtifactHandler().getExtension(), Strings.emptyToNull(pomFileName),
+          Strings.emptyToNull(pluginPrefix), remoteRepository != null ? remoteRepository.getId() : null,
+          remoteRepository != null ? remoteRepository.getUrl() : null, fileChecksums, pomChecksums);
+      getIndexWriter(stagingDirectory).append(entry);
+      return entry;
+    }
+    catch (IOException e) {
+      throw new ArtifactInstallationException("Cannot locally stage and maintain the index file!", e);
+    }
+  }
+
+  /**
+   * Installs one file, returning it's checksums if asked for, {@code null} otherwise.
+   */
+  @Nullable
+  private FileChecksums install(final FileInstaller fileInstaller, final File source, final File target,
+                                final boolean checksums)
+      throws IOException
+  {
+    if (checksums) {
+      return fileInstaller.installWithChecksums(source, target);
+    }
+    fileInstaller.install(source, target);
+    return null;
+  }
+
+  /**
+   * Returns the index writer of the staging directory, opening it if needed. Writers are kept open until the
+   * staging directory is deployed up, or the JVM exits.
+   */
+  private StagingIndexWriter getIndexWriter(final File stagingDirectory)
+      throws IOException
+  {
+    synchronized (indexWriters) {
+      StagingIndexWriter indexWriter = indexWriters.get(stagingDirectory.getAbsoluteFile());
+      if (indexWriter != null && !indexWriter.getFile().isFile()) {
+        // directory was cleaned meanwhile (long living JVM), do not append to unlinked file
+        indexWriter.close();
+        indexWriter = null;
+      }
+      if (indexWriter == null) {
+        indexWriter = new StagingIndexWriter(stagingDirectory);
+        indexWriters.put(stagingDirectory.getAbsoluteFile(), indexWriter);
+      }
+      return indexWriter;
+    }
+  }
+
+  /**
+   * Forces the index of the staging directory to disk, to be invoked once all artifacts of a module were installed.
+   */
+  protected void syncIndex(final File stagingDirectory)
+      throws ArtifactInstallationException
+  {
+    final StagingIndexWriter indexWriter;
+    synchronized (indexWriters) {
+      indexWriter = indexWriters.get(stagingDirectory.getAbsoluteFile());
+    }
+    if (indexWriter != null) {
+      try {
+        indexWriter.sync();
       }
       catch (IOException e) {
         throw new ArtifactInstallationException("Cannot locally stage and maintain the index file!", e);
@@ -141,77 +241,373 @@ public abstract class AbstractDeployStrategy
     }
   }
 
-  // G:A:V:C:P:Ext:PomFileName:PluginPrefix:repoId:repoUrl
-  private final Pattern indexProps = Pattern.compile("([^:]*):([^:]*):([^:]*):([^:]*):([^:]*):([^:]*):([^:]*):([^:]*):([^:]*):(.*)");
+  /**
+   * Closes the index writer of the staging directory, if open.
+   */
+  private void closeIndexWriter(final File stagingDirectory)
+      throws IOException
+  {
+    final StagingIndexWriter indexWriter;
+    synchronized (indexWriters) {
+      indexWriter = indexWriters.remove(stagingDirectory.getAbsoluteFile());
+    }
+    if (indexWriter != null) {
+      indexWriter.close();
+    }
+  }
+
+  /**
+   * Deploys the locally staged artifacts, driven by the "index" file of the source directory. In Maven 3.1+ (unless
+   * disabled by {@link Parameters#isAetherDeploy()}) the artifacts are deployed by {@link AetherDeployer} with one
+   * request per GA, performed by {@link Parameters#getStagingUploadThreads()} workers (adapting up to
+   * {@link Parameters#getUploadMaxThreads()}), uploading every repository metadata (GA level, and G level for Maven
+   * Plugins) once, after the artifacts.
+   * Otherwise the old compat way is used, and artifacts are deployed one by one by
+   * {@link Parameters#getStagingUploadThreads()} workers (adapting up to {@link Parameters#getUploadMaxThreads()}):
+   * artifacts sharing repository metadata (same GA, or same G for Maven Plugins) are deployed serially in order they
+   * were staged, while the rest goes in parallel.
+   */
+  protected void deployUp(final MavenSession mavenSession, final Parameters parameters, final File sourceDirectory,
+                          final ArtifactRepository remoteRepository)
+      throws ArtifactDeploymentException, IOException
+  {
+    deployUp(mavenSession, parameters, sourceDirectory, remoteRepository, null, null);
+  }
+
+  /**
+   * Deploys the locally staged artifacts as {@link #deployUp(MavenSession, Parameters, File, ArtifactRepository)}
+   * does, but if resumable upload is passed in, only the artifacts not uploaded yet are deployed, and every uploaded
+   * file is recorded. If presence check is passed in, the artifacts already present in remote repository with same
+   * content are not deployed.
+   */
+  void deployUp(final MavenSession mavenSession, final Parameters parameters, final File sourceDirectory,
+                final ArtifactRepository remoteRepository, @Nullable final ResumableUpload resumableUpload,
+                @Nullable final PresenceCheck presenceCheck)
+      throws ArtifactDeploymentException, IOException
+  {
+    List<IndexEntry> entries = readStagedEntries(sourceDirectory);
+    if (resumableUpload != null) {
+      final int staged = entries.size();
+      entries = resumableUpload.pending(entries);
+      if (entries.size() < staged) {
+        log.info(" * Resuming upload, {} of {} files already uploaded", staged - entries.size(), staged);
+      }
+    }
+    deployEntries(mavenSession, parameters, sourceDirectory, remoteRepository, entries, sourceDirectory.getName(),
+        resumableUpload, presenceCheck);
+  }
 
-  protected void deployUp(final MavenSession mavenSession, final File sourceDirectory,
-                          ArtifactRepository remoteRepository)
+  /**
+   * Deploys passed in entries of the index of source directory, reporting the progress under passed in name. If
+   * presence check is passed in, the entries already present in remote repository are skipped.
+   */
+  void deployEntries(final MavenSession mavenSession, final Parameters parameters, final File sourceDirectory,
+                     final ArtifactRepository remoteRepository, final List<IndexEntry> stagedEntries,
+                     final String progressName, @Nullable final ResumableUpload resumableUpload,
+                     @Nullable final PresenceCheck presenceCheck)
       throws ArtifactDeploymentException, IOException
   {
-    // I'd need Aether RepoSystem and create one huge DeployRequest will _all_ artifacts (would be FAST as it would
-    // go parallel), but we need to work in Maven2 too, so old compat and slow method remains: deploy one by one...
-    final FileInputStream fis = new FileInputStream(new File(sourceDirectory, ".index"));
-    final Properties index = new Properties();
+    final UploadProgress progress = new UploadProgress(progressName);
+    startUploadProgress(parameters, progress);
     try {
-      index.load(fis);
+      deployEntries(mavenSession, parameters, sourceDirectory, remoteRepository, stagedEntries, progress,
+          resumableUpload, presenceCheck);
     }
     finally {
-      Closeables.closeQuietly(fis);
-    }
-    ArtifactRepository repoToUse = remoteRepository;
-    for (String includedFilePath : index.stringPropertyNames()) {
-      final File includedFile = new File(sourceDirectory, includedFilePath);
-      final String includedFileProps = index.getProperty(includedFilePath);
-      final Matcher matcher = indexProps.matcher(includedFileProps);
-      if (!matcher.matches()) {
-        throw new ArtifactDeploymentException("Internal error! Line \"" + includedFileProps
-            + "\" does not match pattern \"" + indexProps.toString() + "\"?");
-      }
+      finishUploadProgress(parameters, progress);
+    }
+  }
 
-      final String groupId = matcher.group(1);
-      final String artifactId = matcher.group(2);
-      final String version = matcher.group(3);
-      final String classifier = "n/a".equals(matcher.group(4)) ? null : matcher.group(4);
-      final String packaging = matcher.group(5);
-      final String extension = matcher.group(6);
-      final String pomFileName = "n/a".equals(matcher.group(7)) ? null : matcher.group(7);
-      final String pluginPrefix = "n/a".equals(matcher.group(8)) ? null : matcher.group(8);
-      final String repoId = "n/a".equals(matcher.group(9)) ? null : matcher.group(9);
-      final String repoUrl = "n/a".equals(matcher.group(10)) ? null : matcher.group(10);
-      if (remoteRepository == null) {
-          if (repoUrl != null && repoId != null) {
-            repoToUse = createDeploymentArtifactRepository(repoId, repoUrl);
-          } else {
-              throw new ArtifactDeploymentException("Internal error! Remote repository for deployment not defined.");
+  /**
+   * Deploys passed in entries of the index of source directory as
+   * {@link #deployEntries(MavenSession, Parameters, File, ArtifactRepository, List, String, ResumableUpload,
+   * PresenceCheck)} does, but reporting to passed in progress, that is started and finished by the caller, as when
+   * it spans multiple deploys.
+   */
+  void deployEntries(final MavenSession mavenSession, final Parameters parameters, final File sourceDirectory,
+                     final ArtifactRepository remoteRepository, final List<IndexEntry> stagedEntries,
+                     final UploadProgress progress, @Nullable final ResumableUpload resumableUpload,
+                     @Nullable final PresenceCheck presenceCheck)
+      throws ArtifactDeploymentException, IOException
+  {
+    List<IndexEntry> entries = stagedEntries;
+    if (presenceCheck != null && !entries.isEmpty()) {
+      final Set<IndexEntry> present = Sets.newIdentityHashSet();
+      present.addAll(presenceCheck.present(entries));
+      if (!present.isEmpty()) {
+        entries = new ArrayList<IndexEntry>(entries.size() - present.size());
+        for (IndexEntry entry : stagedEntries) {
+          if (!present.contains(entry)) {
+            entries.add(entry);
+          }
+        }
+        for (IndexEntry entry : present) {
+          progress.skipped(1, sizeOf(sourceDirectory, entry));
+          if (resumableUpload != null) {
+            resumableUpload.uploaded(entry);
           }
+        }
+      }
+    }
+    for (IndexEntry entry : entries) {
+      progress.expect(1, sizeOf(sourceDirectory, entry));
+    }
+    final UploadRetrier retrier = new UploadRetrier(parameters.getUploadRetryPolicy(), progress);
+    final Object aetherSession = parameters.isAetherDeploy() ? getAetherSession(mavenSession) : null;
+    if (aetherSession != null) {
+      if (!entries.isEmpty()) {
+        final AdaptiveConcurrency concurrency =
+            AdaptiveConcurrency.create(parameters.getStagingUploadThreads(), parameters.getUploadMaxThreads());
+        final UploadStatistics statistics =
+            new AetherDeployer(plexusContainer, aetherSession).deploy(sourceDirectory, entries,
+                remoteRepository, progress, resumableUpload, retrier, concurrency);
+        log.info(" * Uploaded {}", statistics);
+      }
+    }
+    else {
+      if (parameters.isAetherDeploy()) {
+        log.debug("Aether deploy not available (Maven 2 or Maven 3.0.x), deploying one by one");
       }
+      if (!entries.isEmpty()) {
+        deployUpCompat(mavenSession, parameters, sourceDirectory, remoteRepository, entries, progress,
+            resumableUpload, retrier);
+      }
+    }
+  }
+
+  /**
+   * Starts the upload progress, logging it at interval set in parameters.
+   */
+  protected void startUploadProgress(final Parameters parameters, final UploadProgress progress) {
+    progress.start(parameters.getUploadProgressIntervalSeconds());
+  }
+
+  /**
+   * Stops the upload progress, and writes its JSON summary into report directory, if set in parameters.
+   */
+  protected void finishUploadProgress(final Parameters parameters, final UploadProgress progress) {
+    progress.stop();
+    if (progress.getSkippedFiles() > 0) {
+      log.info(" * Skipped {} files already present in remote repository, saving {}", progress.getSkippedFiles(),
+          UploadStatistics.formatBytes(progress.getSkippedBytes()));
+    }
+    if (progress.getRetries() > 0) {
+      log.info(" * Retried failed uploads {} times, {} files succeeded after retry, pausing {} in total",
+          progress.getRetries(), progress.getRecoveredFiles(),
+          UploadProgress.formatMillis(progress.getRetryPauseMillis()));
+    }
+    log.debug(" * Upload latencies of {}: {}", progress.getName(), progress.getLatencies());
+    if (parameters.getReportDirectory() != null) {
+      final File summary = new File(parameters.getReportDirectory(), "upload-" + progress.getName() + ".json");
+      try {
+        progress.writeSummary(summary);
+        log.debug(" * Upload summary written to {}", summary.getAbsolutePath());
+      }
+      catch (IOException e) {
+        log.warn("Could not write upload summary {}: {}", summary.getAbsolutePath(), e.getMessage());
+      }
+    }
+  }
+
+  /**
+   * Returns the size of the artifact and it's POM (if any) of the entry.
+   */
+  private long sizeOf(final File sourceDirectory, final IndexEntry entry) {
+    final File file = new File(sourceDirectory, entry.getPath());
+    long size = file.length();
+    if (entry.getPomFileName() != null) {
+      size += new File(file.getParentFile(), entry.getPomFileName()).length();
+    }
+    return size;
+  }
 
-      // just a synthetic one, to properly set extension
-      final FakeArtifactHandler artifactHandler = new FakeArtifactHandler(packaging, extension);
-
-      final DefaultArtifact artifact =
-          new DefaultArtifact(groupId, artifactId, VersionRange.createFromVersion(version), null, packaging,
-              classifier, artifactHandler);
-      if (pomFileName != null) {
-        final File pomFile = new File(includedFile.getParentFile(), pomFileName);
-        final ProjectArtifactMetadata pom = new ProjectArtifactMetadata(artifact, pomFile);
-        artifact.addMetadata(pom);
-        if ("maven-plugin".equals(artifact.getType())) {
-          // So, we have a "main" artifact with type of "maven-plugin"
-          // Hence, this is a Maven Plugin, Group level MD needs to be added too
-          final GroupRepositoryMetadata groupMetadata = new GroupRepositoryMetadata(groupId);
-          // TODO: we "simulate" the name with artifactId, same what maven-plugin-plugin
-          // would do. Impact is minimal, as we don't know any tool that _uses_ the name
-          // from Plugin entries. Once the "index file" is properly solved,
-          // or, we are able to properly persist Artifact instances above
-          // (to preserve attached metadatas like this G level, and reuse
-          // deployer without reimplementing it), all this will become unneeded.
-          groupMetadata.addPluginMapping(pluginPrefix, artifactId, artifactId);
-          artifact.addMetadata(groupMetadata);
+  /**
+   * Deploys entries using {@link ArtifactDeployer}, that works in Maven2 too, but deploys one by one, retrying
+   * failed entries as retrier says, by as many threads as {@link AdaptiveConcurrency} allows.
+   */
+  private void deployUpCompat(final MavenSession mavenSession, final Parameters parameters,
+                              final File sourceDirectory, final ArtifactRepository remoteRepository,
+                              final List<IndexEntry> entries, final UploadProgress progress,
+                              @Nullable final ResumableUpload resumableUpload, final UploadRetrier retrier)
+      throws ArtifactDeploymentException, IOException
+  {
+    final Collection<List<IndexEntry>> lanes = lanesOf(entries);
+    final AdaptiveConcurrency concurrency =
+        AdaptiveConcurrency.create(parameters.getStagingUploadThreads(), parameters.getUploadMaxThreads());
+    final UploadScheduler uploadScheduler = new UploadScheduler(concurrency.getMaxLimit());
+    log.info(" * Uploading {} files ({} independent groups) using {} thread(s){}", entries.size(), lanes.size(),
+        concurrency.getLimit(), concurrency.isAdaptive() ? ", adapting up to " + concurrency.getMaxLimit() : "");
+    try {
+      final UploadStatistics statistics = uploadScheduler.upload(lanes, new Upload<IndexEntry>()
+      {
+        @Override
+        public long upload(final IndexEntry entry) throws Exception {
+          final long started = System.currentTimeMillis();
+          final long size = retrier.upload(entry.getPath(), concurrency.limited(new Callable<Long>()
+          {
+            @Override
+            public Long call() throws ArtifactDeploymentException {
+              return deployUp(mavenSession, sourceDirectory, remoteRepository, entry);
+            }
+          }));
+          progress.transferred(size);
+          progress.uploaded(System.currentTimeMillis() - started);
+          if (resumableUpload != null) {
+            resumableUpload.uploaded(entry);
+          }
+          return size;
         }
+      });
+      log.info(" * Uploaded {}", statistics);
+      if (concurrency.isAdaptive()) {
+        log.info(" * Upload concurrency ended at {}", concurrency);
+      }
+    }
+    catch (ExecutionException e) {
+      Throwables.propagateIfInstanceOf(e.getCause(), ArtifactDeploymentException.class);
+      Throwables.propagateIfInstanceOf(e.getCause(), IOException.class);
+      throw Throwables.propagate(e.getCause());
+    }
+  }
+
+  /**
+   * Returns the Eclipse Aether session of Maven 3.1+, or {@code null} if not running in such Maven. Reflection is
+   * used, as this plugin is compiled against Maven 3.0 API, that exposes Sonatype Aether session instead.
+   */
+  private Object getAetherSession(final MavenSession mavenSession) {
+    try {
+      final Class<?> sessionClass = Class.forName("org.eclipse.aether.RepositorySystemSession", false,
+          AbstractDeployStrategy.class.getClassLoader());
+      final Object session = MavenSession.class.getMethod("getRepositorySession").invoke(mavenSession);
+      if (plexusContainer != null && sessionClass.isInstance(session)) {
+        return session;
+      }
+    }
+    catch (Exception e) {
+      log.debug("No Eclipse Aether present", e);
+    }
+    catch (LinkageError e) {
+      log.debug("No Eclipse Aether present", e);
+    }
+    return null;
+  }
+
+  /**
+   * Deploys one single entry of the index, returns the count of bytes sent.
+   */
+  private long deployUp(final MavenSession mavenSession, final File sourceDirectory,
+                        final ArtifactRepository remoteRepository, final IndexEntry entry)
+      throws ArtifactDeploymentException
+  {
+    final File includedFile = new File(sourceDirectory, entry.getPath());
+    final ArtifactRepository repoToUse;
+    if (remoteRepository == null) {
+      if (entry.getRepoUrl() != null && entry.getRepoId() != null) {
+        repoToUse = createDeploymentArtifactRepository(entry.getRepoId(), entry.getRepoUrl());
+      }
+      else {
+        throw new ArtifactDeploymentException("Internal error! Remote repository for deployment not defined.");
+      }
+    }
+    else {
+      repoToUse = remoteRepository;
+    }
+
+    // just a synthetic one, to properly set extension
+    final FakeArtifactHandler artifactHandler =
+        new FakeArtifactHandler(entry.getPackaging(), entry.getExtension());
+
+    final DefaultArtifact artifact =
+        new DefaultArtifact(entry.getGroupId(), entry.getArtifactId(),
+            VersionRange.createFromVersion(entry.getVersion()), null, entry.getPackaging(), entry.getClassifier(),
+            artifactHandler);
+    if (entry.getPomFileName() != null) {
+      final File pomFile = new File(includedFile.getParentFile(), entry.getPomFileName());
+      final ProjectArtifactMetadata pom = new ProjectArtifactMetadata(artifact, pomFile);
+      artifact.addMetadata(pom);
+      if ("maven-plugin".equals(artifact.getType())) {
+        // So, we have a "main" artifact with type of "maven-plugin"
+        // Hence, this is a Maven Plugin, Group level MD needs to be added too
+        final GroupRepositoryMetadata groupMetadata = new GroupRepositoryMetadata(entry.getGroupId());
+        // TODO: we "simulate" the name with artifactId, same what maven-plugin-plugin
+        // would do. Impact is minimal, as we don't know any tool that _uses_ the name
+        // from Plugin entries. Once the "index file" is properly solved,
+        // or, we are able to properly persist Artifact instances above
+        // (to preserve attached metadatas like this G level, and reuse
+        // deployer without reimplementing it), all this will become unneeded.
+        groupMetadata.addPluginMapping(entry.getPluginPrefix(), entry.getArtifactId(), entry.getArtifactId());
+        artifact.addMetadata(groupMetadata);
+      }
+    }
+    artifactDeployer.deploy(includedFile, artifact, repoToUse, mavenSession.getLocalRepository());
+    return sizeOf(sourceDirectory, entry);
+  }
+
+  /**
+   * Returns the entries locally staged into source directory, in order they were staged, closing it's index first.
+   */
+  List<IndexEntry> readStagedEntries(final File sourceDirectory)
+      throws IOException
+  {
+    closeIndexWriter(sourceDirectory);
+    return readIndex(sourceDirectory);
+  }
+
+  /**
+   * Reads up the "index" file of the source directory, preserving the order in which artifacts were staged. If an
+   * artifact was staged multiple times (ie. repeated build without "clean"), the last record wins.
+   */
+  private List<IndexEntry> readIndex(final File sourceDirectory)
+      throws IOException
+  {
+    final LinkedHashMap<String, IndexEntry> index = new LinkedHashMap<String, IndexEntry>();
+    final StagingIndexReader reader = new StagingIndexReader(sourceDirectory);
+    try {
+      IndexEntry entry;
+      while ((entry = reader.read()) != null) {
+        index.put(entry.getPath(), entry);
+      }
+    }
+    finally {
+      reader.close();
+    }
+    return new ArrayList<IndexEntry>(index.values());
+  }
+
+  /**
+   * Splits the entries into lanes that might be deployed concurrently. Entries sharing the same repository metadata
+   * land in same lane, keeping their relative order: these are entries of same GA, or all the entries of the G
+   * having a Maven Plugin in it, as in that case the G level metadata is shared too.
+   */
+  private Collection<List<IndexEntry>> lanesOf(final List<IndexEntry> entries) {
+    final Set<String> pluginGroupIds = pluginGroupIdsOf(entries);
+    final LinkedHashMap<String, List<IndexEntry>> lanes = new LinkedHashMap<String, List<IndexEntry>>();
+    for (IndexEntry entry : entries) {
+      final String key =
+          pluginGroupIds.contains(entry.getGroupId())
+              ? entry.getGroupId()
+              : entry.getGroupId() + ":" + entry.getArtifactId();
+      List<IndexEntry> lane = lanes.get(key);
+      if (lane == null) {
+        lane = new ArrayList<IndexEntry>();
+        lanes.put(key, lane);
+      }
+      lane.add(entry);
+    }
+    return lanes.values();
+  }
+
+  /**
+   * Returns the groupIds having Maven Plugins deployed into them.
+   */
+  private Set<String> pluginGroupIdsOf(final List<IndexEntry> entries) {
+    final Set<String> pluginGroupIds = new HashSet<String>();
+    for (IndexEntry entry : entries) {
+      if ("maven-plugin".equals(entry.getPackaging())) {
+        pluginGroupIds.add(entry.getGroupId());
       }
-      artifactDeployer.deploy(includedFile, artifact, repoToUse, mavenSession.getLocalRepository());
     }
+    return pluginGroupIds;
   }
 
   // ==
@@ -243,12 +639,12 @@ public abstract class AbstractDeployStrategy
   // ==
 
   /**
-   * Returns the ArtifactRepository created from passed in maven session's current project's distribution management.
+   * Returns the ArtifactRepository created from passed in project's distribution management.
    */
-  protected ArtifactRepository getDeploymentRepository(final MavenSession mavenSession)
+  protected ArtifactRepository getDeploymentRepository(final MavenProject project)
       throws MojoExecutionException
   {
-    final ArtifactRepository repo = mavenSession.getCurrentProject().getDistributionManagementArtifactRepository();
+    final ArtifactRepository repo = project.getDistributionManagementArtifactRepository();
     if (repo == null) {
       String msg =
           "Deployment failed: repository element was not specified in the POM inside"
@@ -30,13 +30,18 @@ import com.sonatype.nexus.staging.client.StagingRuleFailuresException;
 import com.sonatype.nexus.staging.client.StagingWorkflowV2Service;
 
 import org.sonatype.nexus.client.core.exception.NexusClientErrorResponseException;
+import org.sonatype.nexus.client.core.exception.NexusClientNotFoundException;
 import org.sonatype.nexus.maven.staging.ErrorDumper;
 import org.sonatype.nexus.maven.staging.StagingAction;
 import org.sonatype.nexus.maven.staging.deploy.StagingRepository;
+import org.sonatype.nexus.maven.staging.index.StagingJournal;
 import org.sonatype.nexus.maven.staging.remote.Parameters;
+import org.sonatype.nexus.maven.staging.remote.ProfileMatchCache;
 import org.sonatype.nexus.maven.staging.remote.RemoteNexus;
-import org.sonatype.plexus.components.sec.dispatcher.SecDispatcher;
+import org.sonatype.nexus.maven.staging.remote.RemoteNexusRegistry;
+import org.sonatype.nexus.maven.staging.upload.UploadProgress;
 
+import com.google.common.base.Functions;
 import com.google.common.base.Strings;
 import com.google.common.io.Closeables;
 import org.apache.maven.artifact.Artifact;
@@ -50,12 +55,15 @@ public abstract class AbstractStagingDeployStrategy
     extends AbstractDeployStrategy
 {
   @Requirement
-  private SecDispatcher secDispatcher;
+  private RemoteNexusRegistry remoteNexusRegistry;
 
+  /**
+   * Returns the remote Nexus shared by all modules of the reactor having same Nexus URL, server ID and SSL flags.
+   */
   protected RemoteNexus createRemoteNexus(MavenSession mavenSession, Parameters parameters) {
     parameters.validateRemoting();
     parameters.validateStaging();
-    return new RemoteNexus(mavenSession, secDispatcher, parameters);
+    return remoteNexusRegistry.get(mavenSession, parameters);
   }
 
   // ==
@@ -76,10 +84,20 @@ public abstract class AbstractStagingDeployStrategy
       Profile stagingProfile;
       // if profile is not "targeted", perform a match and save the result
       if (Strings.isNullOrEmpty(parameters.getStagingProfileId())) {
+        final ProfileMatchCache profileMatchCache = remoteNexus.getProfileMatchCache();
+        final String cachedProfileId =
+            profileMatchCache.get(artifact.getGroupId(), artifact.getArtifactId(), artifact.getVersion());
+        if (cachedProfileId != null) {
+          log.info(
+              " * Using staging profile ID \"{}\" (matched by Nexus, cached).", cachedProfileId);
+          return cachedProfileId;
+        }
         final ProfileMatchingParameters params =
             new ProfileMatchingParameters(artifact.getGroupId(), artifact.getArtifactId(),
                 artifact.getVersion());
         stagingProfile = stagingService.matchProfile(params);
+        profileMatchCache.put(artifact.getGroupId(), artifact.getArtifactId(), artifact.getVersion(),
+            stagingProfile.id());
         log.info(
             " * Using staging profile ID \"{}\" (matched by Nexus).", stagingProfile.id());
       }
@@ -141,6 +159,104 @@ public abstract class AbstractStagingDeployStrategy
     }
   }
 
+  /**
+   * Returns the staging repository the journaled upload went into, if that upload might be resumed: the staging
+   * repository belongs to passed in profile, and is still open. Returns {@code null} if there is nothing to resume,
+   * and a new staging repository should be used instead.
+   */
+  @CheckForNull
+  protected StagingRepository resumeUpload(final Parameters parameters, final RemoteNexus remoteNexus,
+                                           final Profile stagingProfile, final StagingJournal journal)
+  {
+    final String repositoryId = journal.getRepositoryId();
+    if (repositoryId == null || !Strings.isNullOrEmpty(parameters.getStagingRepositoryId())) {
+      return null;
+    }
+    final StagingWorkflowV2Service stagingService = remoteNexus.getStagingWorkflowV2Service();
+    try {
+      final com.sonatype.nexus.staging.client.StagingRepository state =
+          stagingService.getStagingRepositoryStateOf(repositoryId);
+      if (state == null || state.getState() != com.sonatype.nexus.staging.client.StagingRepository.State.OPEN
+          || !stagingProfile.id().equals(state.getProfileId())) {
+        log.info(" * Staging repository with ID \"{}\" cannot be resumed (not open anymore).", repositoryId);
+        return null;
+      }
+      final String url = stagingService.startedRepositoryBaseUrl(stagingProfile, repositoryId);
+      log.info(" * Resuming upload into staging repository with ID \"{}\".", repositoryId);
+      log.info(" * Staging repository at {}", url);
+      return new StagingRepository(stagingProfile, repositoryId, url, true);
+    }
+    catch (NexusClientNotFoundException e) {
+      log.info(" * Staging repository with ID \"{}\" cannot be resumed (not found).", repositoryId);
+      return null;
+    }
+  }
+
+  /**
+   * Creates the resumable upload into passed in staging repository, journaled by passed in journal. The files already
+   * uploaded are verified against the checksums published by the staging repository.
+   */
+  ResumableUpload createResumableUpload(final Parameters parameters, final RemoteNexus remoteNexus,
+                                        final StagingRepository stagingRepository, final File stagingDirectory,
+                                        final StagingJournal journal)
+  {
+    final String contentUrl = concat(remoteNexus.getConnectionInfo().getBaseUrl().toString(),
+        "/content/repositories", stagingRepository.getRepositoryId());
+    return new ResumableUpload(stagingDirectory, journal,
+        new RemoteChecksums(contentUrl, HttpConnections.of(remoteNexus, parameters)));
+  }
+
+  /**
+   * Creates the presence check of artifacts to be uploaded into passed in staging repository, or returns
+   * {@code null} if the staging repository was created by us (hence is empty), or checks are disabled.
+   */
+  @CheckForNull
+  PresenceCheck createPresenceCheck(final Parameters parameters, final RemoteNexus remoteNexus,
+                                    final StagingRepository stagingRepository)
+  {
+    if (stagingRepository.isManaged() || parameters.getPresenceCheckThreads() < 1) {
+      return null;
+    }
+    final String contentUrl = concat(remoteNexus.getConnectionInfo().getBaseUrl().toString(),
+        "/content/repositories", stagingRepository.getRepositoryId());
+    final RemoteChecksums remoteChecksums =
+        new RemoteChecksums(contentUrl, HttpConnections.of(remoteNexus, parameters));
+    return new PresenceCheck(parameters.getPresenceCheckThreads(), Functions.constant(remoteChecksums));
+  }
+
+  /**
+   * Uploads passed in bundle content into the staging repository in one single request, reporting it to passed in
+   * progress. Returns {@code false} if Nexus refused the bundle (ie. it cannot unpack bundles), in which case nothing
+   * was stored, and the files should be uploaded one by one.
+   */
+  boolean bundleUp(final Parameters parameters, final RemoteNexus remoteNexus,
+                   final StagingRepository stagingRepository, final BundleUpload.Content content,
+                   final UploadProgress progress)
+      throws IOException
+  {
+    final String bundleUrl = concat(remoteNexus.getConnectionInfo().getBaseUrl().toString(),
+        "/service/local/repositories", stagingRepository.getRepositoryId(), "content-compressed");
+    final BundleUpload bundleUpload = new BundleUpload(bundleUrl, HttpConnections.of(remoteNexus, parameters));
+    log.info(" * Uploading {} files as one bundle", progress.getTotalFiles());
+    startUploadProgress(parameters, progress);
+    boolean refused = false;
+    try {
+      refused = !bundleUpload.upload(content, progress);
+      if (refused) {
+        log.info(" * Bundle upload not supported by Nexus, uploading files one by one");
+      }
+      return !refused;
+    }
+    finally {
+      if (refused) {
+        progress.stop();
+      }
+      else {
+        finishUploadProgress(parameters, progress);
+      }
+    }
+  }
+
   public static final String STAGING_REPOSITORY_PROPERTY_FILE_NAME_SUFFIX = ".properties";
 
   public static final String STAGING_REPOSITORY_ID = "stagingRepository.id";
@@ -257,11 +373,11 @@ public abstract class AbstractStagingDeployStrategy
     }
     else if (problem instanceof IOException) {
       msg = "IO failure during deploy";
-      keep = parameters.isKeepStagingRepositoryOnFailure();
+      keep = parameters.isKeepStagingRepositoryOnFailure() || parameters.isResumableStaging();
     }
     else if (problem instanceof InvalidRepositoryException) {
       msg = "Internal error: " + problem.getMessage();
-      keep = parameters.isKeepStagingRepositoryOnFailure();
+      keep = parameters.isKeepStagingRepositoryOnFailure() || parameters.isResumableStaging();
     }
     else {
       return;
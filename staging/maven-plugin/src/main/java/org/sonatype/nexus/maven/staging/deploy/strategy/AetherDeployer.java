@@ -0,0 +1,353 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.maven.staging.deploy.strategy;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+import javax.annotation.Nullable;
+
+import org.sonatype.nexus.maven.staging.index.IndexEntry;
+import org.sonatype.nexus.maven.staging.upload.AdaptiveConcurrency;
+import org.sonatype.nexus.maven.staging.upload.UploadProgress;
+import org.sonatype.nexus.maven.staging.upload.UploadRetrier;
+import org.sonatype.nexus.maven.staging.upload.UploadScheduler;
+import org.sonatype.nexus.maven.staging.upload.UploadScheduler.Upload;
+import org.sonatype.nexus.maven.staging.upload.UploadStatistics;
+
+import com.google.common.base.Throwables;
+import org.apache.maven.artifact.deployer.ArtifactDeploymentException;
+import org.apache.maven.artifact.repository.ArtifactRepository;
+import org.codehaus.plexus.PlexusContainer;
+import org.codehaus.plexus.component.repository.exception.ComponentLookupException;
+import org.eclipse.aether.DefaultRepositorySystemSession;
+import org.eclipse.aether.RepositorySystem;
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.aether.deployment.DeployRequest;
+import org.eclipse.aether.deployment.DeploymentException;
+import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.transfer.TransferCancelledException;
+import org.eclipse.aether.transfer.TransferEvent;
+import org.eclipse.aether.transfer.TransferListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Deploys index entries using one Eclipse Aether {@link DeployRequest} per GA of every target repository. This lets
+ * the resolver calculate checksums and merge {@code maven-metadata.xml} once per GA (and not once per every deployed
+ * artifact, as {@link org.apache.maven.artifact.deployer.ArtifactDeployer} does), while a failed request is retried
+ * as a whole (as {@link UploadRetrier} says), uploading the artifacts of one GA only once more. Requests of distinct
+ * GAs share no metadata, and are performed in parallel by {@link UploadScheduler}, as many at once as
+ * {@link AdaptiveConcurrency} allows. The G level metadata of Maven Plugins (not handled by Aether) is built from all
+ * the entries of the groupId, and is deployed once too (see {@link GroupPluginsMetadata}), after all the artifacts.
+ * <p/>
+ * Works in Maven 3.1+ only (the one having Eclipse Aether), hence this class must not be touched unless
+ * {@link AbstractDeployStrategy} detected the presence of Eclipse Aether session.
+ *
+ * @since 1.8.0
+ */
+class AetherDeployer
+{
+  private final Logger log = LoggerFactory.getLogger(AetherDeployer.class);
+
+  private final RepositorySystem repositorySystem;
+
+  private final RepositorySystemSession repositorySystemSession;
+
+  AetherDeployer(final PlexusContainer plexusContainer, final Object repositorySystemSession)
+      throws ArtifactDeploymentException
+  {
+    checkNotNull(plexusContainer);
+    try {
+      this.repositorySystem = plexusContainer.lookup(RepositorySystem.class);
+    }
+    catch (ComponentLookupException e) {
+      throw new ArtifactDeploymentException("Cannot look up Aether RepositorySystem", e);
+    }
+    this.repositorySystemSession = (RepositorySystemSession) checkNotNull(repositorySystemSession);
+  }
+
+  /**
+   * Deploys the entries to passed in remote repository, or to the repository recorded in entry, if remote
+   * repository is {@code null}. The transfers are reported to passed in progress, and the files of succeeded
+   * requests are recorded to resumable upload, if passed in. Requests of distinct GAs are performed concurrently, as
+   * many at once as passed in concurrency allows.
+   */
+  UploadStatistics deploy(final File sourceDirectory, final List<IndexEntry> entries,
+                          final ArtifactRepository remoteRepository, final UploadProgress progress,
+                          @Nullable final ResumableUpload resumableUpload, final UploadRetrier retrier,
+                          final AdaptiveConcurrency concurrency)
+      throws ArtifactDeploymentException
+  {
+    final Map<String, RemoteRepository> repositories = new HashMap<String, RemoteRepository>();
+    final Map<String, DeployRequest> requests = new LinkedHashMap<String, DeployRequest>();
+    final Map<String, GroupPluginsMetadata> groupMetadata = new LinkedHashMap<String, GroupPluginsMetadata>();
+    final List<DeployRequest> groupRequests = new ArrayList<DeployRequest>();
+    final List<Long> sizes = new ArrayList<Long>();
+    final Set<File> artifactFiles = new HashSet<File>();
+    final Set<File> pomFiles = new HashSet<File>();
+    for (IndexEntry entry : entries) {
+      final String repoId = remoteRepository != null ? remoteRepository.getId() : entry.getRepoId();
+      final String repoUrl = remoteRepository != null ? remoteRepository.getUrl() : entry.getRepoUrl();
+      if (repoId == null || repoUrl == null) {
+        throw new ArtifactDeploymentException("Internal error! Remote repository for deployment not defined.");
+      }
+      final String key = repoId + "@" + repoUrl;
+      RemoteRepository repository = repositories.get(key);
+      if (repository == null) {
+        repository = createRemoteRepository(repoId, repoUrl);
+        repositories.put(key, repository);
+      }
+      final String requestKey = key + "@" + entry.getGroupId() + ":" + entry.getArtifactId();
+      DeployRequest request = requests.get(requestKey);
+      if (request == null) {
+        request = new DeployRequest();
+        request.setRepository(repository);
+        requests.put(requestKey, request);
+      }
+
+      final File file = new File(sourceDirectory, entry.getPath());
+      final Artifact artifact = new DefaultArtifact(entry.getGroupId(), entry.getArtifactId(),
+          entry.getClassifier(), entry.getExtension(), entry.getVersion()).setFile(file);
+      request.addArtifact(artifact);
+      artifactFiles.add(file);
+      long size = file.length();
+      if (entry.getPomFileName() != null) {
+        final File pomFile = new File(file.getParentFile(), entry.getPomFileName());
+        request.addArtifact(new DefaultArtifact(entry.getGroupId(), entry.getArtifactId(), null, "pom",
+            entry.getVersion()).setFile(pomFile));
+        pomFiles.add(pomFile);
+        size += pomFile.length();
+        if ("maven-plugin".equals(entry.getPackaging()) && entry.getPluginPrefix() != null) {
+          // the G level metadata of all Maven Plugins of the groupId is deployed once, as last
+          final String groupKey = key + "@" + entry.getGroupId();
+          GroupPluginsMetadata metadata = groupMetadata.get(groupKey);
+          if (metadata == null) {
+            metadata = new GroupPluginsMetadata(entry.getGroupId());
+            groupMetadata.put(groupKey, metadata);
+            final DeployRequest groupRequest = new DeployRequest();
+            groupRequest.setRepository(repository);
+            groupRequest.addMetadata(metadata);
+            groupRequests.add(groupRequest);
+          }
+          // TODO: we "simulate" the name with artifactId, same what maven-plugin-plugin would do
+          metadata.addPlugin(entry.getPluginPrefix(), entry.getArtifactId(), entry.getArtifactId());
+        }
+      }
+      sizes.add(size);
+    }
+
+    final DefaultRepositorySystemSession session = new DefaultRepositorySystemSession(repositorySystemSession);
+    session.setTransferListener(
+        new ProgressTransferListener(repositorySystemSession.getTransferListener(), progress, artifactFiles,
+            pomFiles));
+
+    final UploadStatistics statistics = new UploadStatistics();
+    statistics.start();
+    try {
+      // requests of distinct GAs share no metadata, and go in parallel
+      final List<List<DeployRequest>> lanes = new ArrayList<List<DeployRequest>>(requests.size());
+      for (DeployRequest request : requests.values()) {
+        lanes.add(Collections.singletonList(request));
+      }
+      final UploadScheduler uploadScheduler = new UploadScheduler(concurrency.getMaxLimit());
+      log.info(" * Uploading {} files ({} independent groups) using Aether deploy and {} thread(s){}", entries.size(),
+          lanes.size(), concurrency.getLimit(),
+          concurrency.isAdaptive() ? ", adapting up to " + concurrency.getMaxLimit() : "");
+      uploadScheduler.upload(lanes, new Upload<DeployRequest>()
+      {
+        @Override
+        public long upload(final DeployRequest request) throws Exception {
+          deploy(session, request, resumableUpload, retrier, concurrency);
+          return 0L;
+        }
+      });
+      // the G level metadata, once all the plugins are up
+      for (DeployRequest groupRequest : groupRequests) {
+        deploy(session, groupRequest, resumableUpload, retrier, concurrency);
+      }
+      if (concurrency.isAdaptive()) {
+        log.info(" * Upload concurrency ended at {}", concurrency);
+      }
+    }
+    catch (ExecutionException e) {
+      Throwables.propagateIfInstanceOf(e.getCause(), ArtifactDeploymentException.class);
+      throw new ArtifactDeploymentException(e.getCause().getMessage(), e.getCause());
+    }
+    finally {
+      statistics.stop();
+    }
+    for (Long size : sizes) {
+      statistics.uploaded(size);
+    }
+    return statistics;
+  }
+
+  /**
+   * Deploys one single request within the limit of concurrency, retrying it as a whole as retrier says. The files of
+   * request are recorded to resumable upload (if any) only once the whole request succeeded, as the GA metadata is
+   * uploaded after the artifacts: a request failed in between must be performed once more when resumed.
+   */
+  private void deploy(final RepositorySystemSession session, final DeployRequest request,
+                      @Nullable final ResumableUpload resumableUpload, final UploadRetrier retrier,
+                      final AdaptiveConcurrency concurrency)
+      throws ArtifactDeploymentException
+  {
+    log.debug("Deploying {} artifacts and {} metadata to {}", request.getArtifacts().size(),
+        request.getMetadata().size(), request.getRepository());
+    try {
+      retrier.upload(describe(request), concurrency.limited(new Callable<Void>()
+      {
+        @Override
+        public Void call() throws DeploymentException {
+          repositorySystem.deploy(session, request);
+          return null;
+        }
+      }));
+    }
+    catch (RuntimeException e) {
+      throw e;
+    }
+    catch (Exception e) {
+      throw new ArtifactDeploymentException(e.getMessage(), e);
+    }
+    if (resumableUpload != null) {
+      for (Artifact artifact : request.getArtifacts()) {
+        try {
+          resumableUpload.uploaded(resumableUpload.pathOf(artifact.getFile()));
+        }
+        catch (IOException e) {
+          // the file will be uploaded once more if resumed
+          log.warn("Could not record upload of {}: {}", artifact.getFile(), e.getMessage());
+        }
+      }
+    }
+  }
+
+  private static String describe(final DeployRequest request) {
+    if (request.getArtifacts().isEmpty()) {
+      return request.getMetadata().iterator().next().toString();
+    }
+    final Artifact artifact = request.getArtifacts().iterator().next();
+    return artifact.getGroupId() + ":" + artifact.getArtifactId() + ":" + artifact.getVersion();
+  }
+
+  /**
+   * Creates the remote repository, applying the authentication and proxy selected by Maven (from settings).
+   */
+  private RemoteRepository createRemoteRepository(final String id, final String url) {
+    final RemoteRepository repository = new RemoteRepository.Builder(id, "default", url).build();
+    final RemoteRepository.Builder builder = new RemoteRepository.Builder(repository);
+    if (repositorySystemSession.getAuthenticationSelector() != null) {
+      builder.setAuthentication(repositorySystemSession.getAuthenticationSelector().getAuthentication(repository));
+    }
+    if (repositorySystemSession.getProxySelector() != null) {
+      builder.setProxy(repositorySystemSession.getProxySelector().getProxy(repository));
+    }
+    return builder.build();
+  }
+
+  /**
+   * Reports the bytes sent of artifacts and POMs and the finished artifact uploads to progress, while delegating all
+   * events to the listener of Maven, if any.
+   */
+  private static class ProgressTransferListener
+      implements TransferListener
+  {
+    private final TransferListener delegate;
+
+    private final UploadProgress progress;
+
+    private final Set<File> artifactFiles;
+
+    private final Set<File> pomFiles;
+
+    private final Set<File> uploadedFiles;
+
+    private ProgressTransferListener(final TransferListener delegate, final UploadProgress progress,
+                                     final Set<File> artifactFiles, final Set<File> pomFiles)
+    {
+      this.delegate = delegate;
+      this.progress = progress;
+      this.artifactFiles = artifactFiles;
+      this.pomFiles = pomFiles;
+      this.uploadedFiles = Collections.newSetFromMap(new ConcurrentHashMap<File, Boolean>());
+    }
+
+    @Override
+    public void transferInitiated(final TransferEvent event) throws TransferCancelledException {
+      if (delegate != null) {
+        delegate.transferInitiated(event);
+      }
+    }
+
+    @Override
+    public void transferStarted(final TransferEvent event) throws TransferCancelledException {
+      if (delegate != null) {
+        delegate.transferStarted(event);
+      }
+    }
+
+    @Override
+    public void transferProgressed(final TransferEvent event) throws TransferCancelledException {
+      final File file = event.getResource().getFile();
+      if (artifactFiles.contains(file) || pomFiles.contains(file)) {
+        progress.transferred(event.getDataLength());
+      }
+      if (delegate != null) {
+        delegate.transferProgressed(event);
+      }
+    }
+
+    @Override
+    public void transferCorrupted(final TransferEvent event) throws TransferCancelledException {
+      if (delegate != null) {
+        delegate.transferCorrupted(event);
+      }
+    }
+
+    @Override
+    public void transferSucceeded(final TransferEvent event) {
+      final File file = event.getResource().getFile();
+      // retried requests upload their files once more
+      if (artifactFiles.contains(file) && uploadedFiles.add(file)) {
+        progress.uploaded(System.currentTimeMillis() - event.getResource().getTransferStartTime());
+      }
+      if (delegate != null) {
+        delegate.transferSucceeded(event);
+      }
+    }
+
+    @Override
+    public void transferFailed(final TransferEvent event) {
+      if (delegate != null) {
+        delegate.transferFailed(event);
+      }
+    }
+  }
+}
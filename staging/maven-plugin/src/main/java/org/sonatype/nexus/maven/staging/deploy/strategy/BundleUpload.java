@@ -0,0 +1,225 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.maven.staging.deploy.strategy;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.ProtocolException;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.sonatype.nexus.maven.staging.upload.UploadProgress;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Closeables;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Uploads a whole staging directory as one single ZIP bundle, in one single request to the "content-compressed"
+ * resource of staging repository, that unpacks it into the repository. The bundle is compressed while it is sent
+ * (using chunked transfer encoding), without creating it on disk first. A Nexus not able to unpack bundles refuses
+ * it, letting the caller fall back to file by file upload. The request expects "100 Continue", so a server refusing
+ * it right away (without "100 Continue") spares sending the bundle, but a server (or proxy) that continues before
+ * it refuses gets the whole bundle streamed, as the refusal is seen only once the bundle was sent. Connections are
+ * opened by {@link HttpConnections}, honouring the SSL settings of Nexus client.
+ *
+ * @since 1.8.0
+ */
+class BundleUpload
+{
+  /**
+   * The content of a bundle.
+   */
+  interface Content
+  {
+    /**
+     * Writes the files of bundle, reporting them to progress as they are written.
+     */
+    void writeTo(ZipOutputStream zip, UploadProgress progress) throws IOException;
+  }
+
+  /**
+   * The responses of Nexus not supporting bundle upload into staging repository.
+   */
+  private static final ImmutableSet<Integer> REFUSED = ImmutableSet.of(
+      HttpURLConnection.HTTP_BAD_REQUEST,
+      HttpURLConnection.HTTP_NOT_FOUND,
+      HttpURLConnection.HTTP_BAD_METHOD,
+      HttpURLConnection.HTTP_UNSUPPORTED_TYPE,
+      HttpURLConnection.HTTP_NOT_IMPLEMENTED);
+
+  private static final int TIMEOUT_MILLIS = 300000;
+
+  private static final int CHUNK_SIZE = 64 * 1024;
+
+  private final Logger log = LoggerFactory.getLogger(BundleUpload.class);
+
+  private final String bundleUrl;
+
+  private final HttpConnections connections;
+
+  BundleUpload(final String bundleUrl, final HttpConnections connections) {
+    this.bundleUrl = checkNotNull(bundleUrl);
+    this.connections = checkNotNull(connections);
+  }
+
+  /**
+   * Uploads the bundle of passed in content. Returns {@code false} if Nexus refused the bundle, hence, nothing was
+   * stored (though the bundle might have been sent), and {@code true} if the bundle was uploaded.
+   */
+  boolean upload(final Content content, final UploadProgress progress) throws IOException {
+    final URL url = new URL(bundleUrl);
+    final HttpURLConnection connection = connections.open(url, TIMEOUT_MILLIS);
+    try {
+      connection.setRequestMethod("PUT");
+      connection.setDoOutput(true);
+      connection.setChunkedStreamingMode(CHUNK_SIZE);
+      connection.setRequestProperty("Content-Type", "application/zip");
+      connection.setRequestProperty("Expect", "100-continue");
+      final OutputStream output;
+      try {
+        output = connection.getOutputStream();
+      }
+      catch (ProtocolException e) {
+        // server responded without continue, before the bundle was sent, response tells why
+        return accepted(url, connection);
+      }
+      final ZipOutputStream zip = new ZipOutputStream(new BufferedOutputStream(output, CHUNK_SIZE));
+      boolean threw = true;
+      try {
+        content.writeTo(zip, progress);
+        zip.finish();
+        threw = false;
+      }
+      finally {
+        Closeables.close(zip, threw);
+      }
+      return accepted(url, connection);
+    }
+    finally {
+      connection.disconnect();
+    }
+  }
+
+  private boolean accepted(final URL url, final HttpURLConnection connection) throws IOException {
+    final int status = connection.getResponseCode();
+    if (status / 100 == 2) {
+      return true;
+    }
+    if (REFUSED.contains(status)) {
+      log.debug("Bundle upload refused with {} {} by {}", status, connection.getResponseMessage(), url);
+      return false;
+    }
+    throw new IOException("Unexpected response " + status + " " + connection.getResponseMessage() + " for " + url);
+  }
+
+  // ==
+
+  /**
+   * Writes a file into bundle on given path, reporting it to progress.
+   */
+  static void write(final ZipOutputStream zip, final String path, final File file, final UploadProgress progress)
+      throws IOException
+  {
+    final long started = System.currentTimeMillis();
+    zip.putNextEntry(new ZipEntry(path));
+    final InputStream input = new FileInputStream(file);
+    try {
+      ByteStreams.copy(input, zip);
+    }
+    finally {
+      input.close();
+    }
+    zip.closeEntry();
+    progress.transferred(file.length());
+    progress.uploaded(System.currentTimeMillis() - started);
+  }
+
+  /**
+   * Writes a generated (small) file into bundle on given path.
+   */
+  static void write(final ZipOutputStream zip, final String path, final byte[] content) throws IOException {
+    zip.putNextEntry(new ZipEntry(path));
+    zip.write(content);
+    zip.closeEntry();
+  }
+
+  /**
+   * The content of bundle being the directory with all of it's files, as-is.
+   */
+  static class DirectoryContent
+      implements Content
+  {
+    private final File directory;
+
+    DirectoryContent(final File directory) {
+      this.directory = checkNotNull(directory);
+    }
+
+    /**
+     * Adds the count and size of files in directory to progress.
+     */
+    void expect(final UploadProgress progress) {
+      expect(directory, progress);
+    }
+
+    @Override
+    public void writeTo(final ZipOutputStream zip, final UploadProgress progress) throws IOException {
+      writeTo(zip, "", directory, progress);
+    }
+
+    private void expect(final File dir, final UploadProgress progress) {
+      final File[] files = dir.listFiles();
+      if (files != null) {
+        for (File file : files) {
+          if (file.isDirectory()) {
+            expect(file, progress);
+          }
+          else {
+            progress.expect(1, file.length());
+          }
+        }
+      }
+    }
+
+    private void writeTo(final ZipOutputStream zip, final String prefix, final File dir,
+                         final UploadProgress progress)
+        throws IOException
+    {
+      final File[] files = dir.listFiles();
+      if (files == null) {
+        throw new IOException("Cannot list directory " + dir.getAbsolutePath());
+      }
+      Arrays.sort(files);
+      for (File file : files) {
+        if (file.isDirectory()) {
+          writeTo(zip, prefix + file.getName() + "/", file, progress);
+        }
+        else {
+          write(zip, prefix + file.getName(), file, progress);
+        }
+      }
+    }
+  }
+}
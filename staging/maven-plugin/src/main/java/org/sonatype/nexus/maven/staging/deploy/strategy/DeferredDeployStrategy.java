@@ -14,14 +14,29 @@ package org.sonatype.nexus.maven.staging.deploy.strategy;
 
 import java.io.File;
 import java.io.IOException;
+import java.net.MalformedURLException;
+import java.util.HashMap;
+import java.util.Map;
 
+import javax.annotation.Nullable;
+
+import org.sonatype.maven.mojo.settings.MavenSettings;
 import org.sonatype.nexus.maven.staging.deploy.DeployableArtifact;
+import org.sonatype.nexus.maven.staging.index.IndexEntry;
+import org.sonatype.nexus.maven.staging.remote.Parameters;
+import org.sonatype.plexus.components.sec.dispatcher.SecDispatcher;
+import org.sonatype.plexus.components.sec.dispatcher.SecDispatcherException;
 
+import com.google.common.base.Function;
 import org.apache.maven.artifact.deployer.ArtifactDeploymentException;
 import org.apache.maven.artifact.installer.ArtifactInstallationException;
 import org.apache.maven.artifact.repository.ArtifactRepository;
+import org.apache.maven.execution.MavenSession;
 import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.settings.Proxy;
+import org.apache.maven.settings.Server;
 import org.codehaus.plexus.component.annotations.Component;
+import org.codehaus.plexus.component.annotations.Requirement;
 
 /**
  * Deferred deploy strategy, that locally installs the stuff to be deployed (together with maintaining an "index" of
@@ -34,6 +49,9 @@ import org.codehaus.plexus.component.annotations.Component;
 public class DeferredDeployStrategy
     extends AbstractDeployStrategy
 {
+  @Requirement
+  private SecDispatcher secDispatcher;
+
   /**
    * Performs local install plus maintains the index file, that contains needed informations needed to perform remote
    * deploys.
@@ -49,12 +67,14 @@ public class DeferredDeployStrategy
       // deploys always to same stagingDirectory
       final File stagingDirectory = request.getParameters().getDeferredDirectoryRoot();
       final ArtifactRepository stagingRepository = getArtifactRepositoryForDirectory(stagingDirectory);
-      final ArtifactRepository deploymentRepository = getDeploymentRepository(request.getMavenSession());
+      final ArtifactRepository deploymentRepository = getDeploymentRepository(request.getProject());
       
       for (DeployableArtifact deployableArtifact : request.getDeployableArtifacts()) {
         install(deployableArtifact.getFile(), deployableArtifact.getArtifact(), stagingRepository,
-            stagingDirectory, deploymentRepository);
+            stagingDirectory, deploymentRepository, request.getParameters().getInstallMode(),
+            request.getParameters().isInstallChecksums());
       }
+      syncIndex(stagingDirectory);
     }
     else {
       log.info("Nothing to locally stage?");
@@ -83,7 +103,8 @@ public class DeferredDeployStrategy
       // we have normal deploy
       log.info(
           " * Bulk deploying locally gathered snapshot artifacts");
-      deployUp(request.getMavenSession(), stagingDirectory, null);
+      deployUp(request.getMavenSession(), request.getParameters(), stagingDirectory, null, null,
+          createPresenceCheck(request.getMavenSession(), request.getParameters()));
       log.info(" * Bulk deploy of locally gathered snapshot artifacts finished.");
     }
     catch (IOException e) {
@@ -93,4 +114,61 @@ public class DeferredDeployStrategy
 
     log.info("Remote deploy finished with success.");
   }
+
+  /**
+   * Creates the presence check of deferred artifacts, looking them up in the repository each of them is deployed to,
+   * with credentials and proxy of Maven settings, or returns {@code null} if checks are disabled.
+   */
+  @Nullable
+  private PresenceCheck createPresenceCheck(final MavenSession mavenSession, final Parameters parameters) {
+    if (parameters.getPresenceCheckThreads() < 1) {
+      return null;
+    }
+    return new PresenceCheck(parameters.getPresenceCheckThreads(), new Function<IndexEntry, RemoteChecksums>()
+    {
+      private final Map<String, RemoteChecksums> repositories = new HashMap<String, RemoteChecksums>();
+
+      @Nullable
+      @Override
+      public synchronized RemoteChecksums apply(final IndexEntry entry) {
+        if (entry.getRepoId() == null || entry.getRepoUrl() == null) {
+          return null;
+        }
+        final String key = entry.getRepoId() + "|" + entry.getRepoUrl();
+        if (!repositories.containsKey(key)) {
+          repositories.put(key,
+              createRemoteChecksums(mavenSession, parameters, entry.getRepoId(), entry.getRepoUrl()));
+        }
+        return repositories.get(key);
+      }
+    });
+  }
+
+  @Nullable
+  private RemoteChecksums createRemoteChecksums(final MavenSession mavenSession, final Parameters parameters,
+                                                final String repositoryId, final String repositoryUrl)
+  {
+    try {
+      Server server = MavenSettings.selectServer(mavenSession.getSettings(), repositoryId);
+      if (server != null) {
+        server = MavenSettings.decrypt(secDispatcher, server);
+      }
+      Proxy proxy = MavenSettings.selectProxy(mavenSession.getSettings(), repositoryUrl, true);
+      if (proxy != null) {
+        proxy = MavenSettings.decrypt(secDispatcher, proxy);
+      }
+      return new RemoteChecksums(repositoryUrl,
+          new HttpConnections(server, proxy, parameters.isSslInsecure(), parameters.isSslAllowAll()));
+    }
+    catch (SecDispatcherException e) {
+      log.debug("Cannot decipher credentials of repository {}, presence of artifacts is not checked: {}",
+          repositoryId, e.toString());
+      return null;
+    }
+    catch (MalformedURLException e) {
+      log.debug("Malformed URL of repository {}, presence of artifacts is not checked: {}", repositoryId,
+          e.toString());
+      return null;
+    }
+  }
 }
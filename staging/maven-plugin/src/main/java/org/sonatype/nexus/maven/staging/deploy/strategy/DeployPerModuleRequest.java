@@ -18,21 +18,34 @@ import org.sonatype.nexus.maven.staging.deploy.DeployableArtifact;
 import org.sonatype.nexus.maven.staging.remote.Parameters;
 
 import org.apache.maven.execution.MavenSession;
+import org.apache.maven.project.MavenProject;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
 public class DeployPerModuleRequest
     extends StrategyRequestSupport
 {
+  private final MavenProject project;
+
   private final List<DeployableArtifact> deployableArtifacts;
 
-  public DeployPerModuleRequest(final MavenSession mavenSession, final Parameters parameters,
-                                final List<DeployableArtifact> deployableArtifacts)
+  public DeployPerModuleRequest(final MavenSession mavenSession, final MavenProject project,
+                                final Parameters parameters, final List<DeployableArtifact> deployableArtifacts)
   {
     super(mavenSession, parameters);
+    this.project = checkNotNull(project);
     this.deployableArtifacts = checkNotNull(deployableArtifacts);
   }
 
+  /**
+   * Returns the module being deployed. Strategies must use this project instead of the current project of the
+   * session, as the request might be performed in background (see asynchronous local staging), while the session
+   * already moved on to a later module.
+   */
+  public MavenProject getProject() {
+    return project;
+  }
+
   public List<DeployableArtifact> getDeployableArtifacts() {
     return deployableArtifacts;
   }
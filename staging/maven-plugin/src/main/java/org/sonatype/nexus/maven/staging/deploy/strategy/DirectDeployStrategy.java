@@ -43,7 +43,7 @@ public class DirectDeployStrategy
       throws ArtifactInstallationException, ArtifactDeploymentException, MojoExecutionException
   {
     log.info("Performing direct deploys (maven-deploy-plugin like)...");
-    final ArtifactRepository deploymentRepository = getDeploymentRepository(request.getMavenSession());
+    final ArtifactRepository deploymentRepository = getDeploymentRepository(request.getProject());
     final ArtifactRepository localRepository = request.getMavenSession().getLocalRepository();
     for (DeployableArtifact deployableArtifact : request.getDeployableArtifacts()) {
       artifactDeployer.deploy(deployableArtifact.getFile(), deployableArtifact.getArtifact(),
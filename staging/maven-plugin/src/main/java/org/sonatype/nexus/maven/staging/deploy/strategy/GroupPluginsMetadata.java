@@ -0,0 +1,201 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.maven.staging.deploy.strategy;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.google.common.io.Closeables;
+import org.apache.maven.artifact.repository.metadata.Metadata;
+import org.apache.maven.artifact.repository.metadata.Plugin;
+import org.apache.maven.artifact.repository.metadata.io.xpp3.MetadataXpp3Reader;
+import org.apache.maven.artifact.repository.metadata.io.xpp3.MetadataXpp3Writer;
+import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
+import org.eclipse.aether.RepositoryException;
+import org.eclipse.aether.metadata.AbstractMetadata;
+import org.eclipse.aether.metadata.MergeableMetadata;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * The G level {@code maven-metadata.xml} listing the Maven Plugins of a groupId, as Eclipse Aether deploys only
+ * artifact (GA) and snapshot (GAV) level metadata. It carries the plugins of all deployed Maven Plugins of the
+ * groupId, so it is merged with the remote one and uploaded once, after the artifacts. As with
+ * {@link org.apache.maven.artifact.repository.metadata.GroupRepositoryMetadata}, plugins already present remotely
+ * with same prefix are left intact.
+ * <p/>
+ * Works in Maven 3.1+ only, see {@link AetherDeployer}.
+ *
+ * @since 1.8.0
+ */
+class GroupPluginsMetadata
+    extends AbstractMetadata
+    implements MergeableMetadata
+{
+  static final String MAVEN_METADATA_XML = "maven-metadata.xml";
+
+  private final String groupId;
+
+  private final Map<String, Plugin> plugins;
+
+  private final File file;
+
+  private boolean merged;
+
+  GroupPluginsMetadata(final String groupId) {
+    this(groupId, new LinkedHashMap<String, Plugin>(), null);
+  }
+
+  private GroupPluginsMetadata(final String groupId, final Map<String, Plugin> plugins, final File file) {
+    this.groupId = checkNotNull(groupId);
+    this.plugins = plugins;
+    this.file = file;
+  }
+
+  /**
+   * Adds the plugin, unless a plugin with same prefix was added already.
+   */
+  void addPlugin(final String prefix, final String artifactId, final String name) {
+    if (!plugins.containsKey(prefix)) {
+      final Plugin plugin = new Plugin();
+      plugin.setPrefix(prefix);
+      plugin.setArtifactId(artifactId);
+      plugin.setName(name);
+      plugins.put(prefix, plugin);
+    }
+  }
+
+  Map<String, Plugin> getPlugins() {
+    return Collections.unmodifiableMap(plugins);
+  }
+
+  @Override
+  public void merge(final File current, final File result)
+      throws RepositoryException
+  {
+    final Metadata metadata = current.isFile() ? read(current) : new Metadata();
+    for (Plugin plugin : plugins.values()) {
+      boolean present = false;
+      for (Plugin existing : metadata.getPlugins()) {
+        if (plugin.getPrefix().equals(existing.getPrefix())) {
+          present = true;
+          break;
+        }
+      }
+      if (!present) {
+        metadata.addPlugin(plugin);
+      }
+    }
+    write(metadata, result);
+    merged = true;
+  }
+
+  @Override
+  public boolean isMerged() {
+    return merged;
+  }
+
+  @Override
+  public String getGroupId() {
+    return groupId;
+  }
+
+  @Override
+  public String getArtifactId() {
+    return "";
+  }
+
+  @Override
+  public String getVersion() {
+    return "";
+  }
+
+  @Override
+  public String getType() {
+    return MAVEN_METADATA_XML;
+  }
+
+  @Override
+  public Nature getNature() {
+    return Nature.RELEASE_OR_SNAPSHOT;
+  }
+
+  @Override
+  public File getFile() {
+    return file;
+  }
+
+  @Override
+  public GroupPluginsMetadata setFile(final File file) {
+    return new GroupPluginsMetadata(groupId, plugins, file);
+  }
+
+  @Override
+  public Map<String, String> getProperties() {
+    return Collections.emptyMap();
+  }
+
+  @Override
+  public org.eclipse.aether.metadata.Metadata setProperties(final Map<String, String> properties) {
+    return this;
+  }
+
+  // ==
+
+  private static Metadata read(final File file)
+      throws RepositoryException
+  {
+    try {
+      final InputStream input = new FileInputStream(file);
+      try {
+        return new MetadataXpp3Reader().read(input, false);
+      }
+      finally {
+        Closeables.close(input, true);
+      }
+    }
+    catch (IOException e) {
+      throw new RepositoryException("Could not read metadata " + file + ": " + e.getMessage(), e);
+    }
+    catch (XmlPullParserException e) {
+      throw new RepositoryException("Could not parse metadata " + file + ": " + e.getMessage(), e);
+    }
+  }
+
+  private static void write(final Metadata metadata, final File file)
+      throws RepositoryException
+  {
+    try {
+      file.getParentFile().mkdirs();
+      final OutputStream output = new FileOutputStream(file);
+      boolean threw = true;
+      try {
+        new MetadataXpp3Writer().write(output, metadata);
+        threw = false;
+      }
+      finally {
+        Closeables.close(output, threw);
+      }
+    }
+    catch (IOException e) {
+      throw new RepositoryException("Could not write metadata " + file + ": " + e.getMessage(), e);
+    }
+  }
+}
@@ -0,0 +1,185 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.maven.staging.deploy.strategy;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.security.cert.CertificateException;
+import java.security.cert.X509Certificate;
+
+import javax.annotation.Nullable;
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.TrustManagerFactory;
+import javax.net.ssl.X509TrustManager;
+
+import org.sonatype.nexus.maven.staging.remote.Parameters;
+import org.sonatype.nexus.maven.staging.remote.RemoteNexus;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.BaseEncoding;
+import org.apache.maven.settings.Proxy;
+import org.apache.maven.settings.Server;
+
+/**
+ * Opens plain {@link HttpURLConnection}s to remote Nexus, preemptively authenticated with the credentials of Maven
+ * settings, through the proxy of Maven settings, if any. SSL is validated as by the Nexus client of
+ * {@link RemoteNexus}: when {@link Parameters#isSslInsecure()}, self signed certificates are accepted too, and when
+ * {@link Parameters#isSslAllowAll()}, any hostname is accepted. Default JVM SSL setup is used otherwise.
+ *
+ * @since 1.8.0
+ */
+final class HttpConnections
+{
+  private static final HostnameVerifier ALLOW_ALL = new HostnameVerifier()
+  {
+    @Override
+    public boolean verify(final String hostname, final SSLSession session) {
+      return true;
+    }
+  };
+
+  private final Server server;
+
+  private final Proxy proxy;
+
+  private final boolean sslInsecure;
+
+  private final boolean sslAllowAll;
+
+  private SSLSocketFactory insecureSocketFactory;
+
+  HttpConnections(@Nullable final Server server, @Nullable final Proxy proxy, final boolean sslInsecure,
+                  final boolean sslAllowAll)
+  {
+    this.server = server;
+    this.proxy = proxy;
+    this.sslInsecure = sslInsecure;
+    this.sslAllowAll = sslAllowAll;
+  }
+
+  /**
+   * Connections with the credentials, proxy and SSL validation used by passed in remote Nexus.
+   */
+  static HttpConnections of(final RemoteNexus remoteNexus, final Parameters parameters) {
+    return new HttpConnections(remoteNexus.getServer(), remoteNexus.getProxy(), parameters.isSslInsecure(),
+        parameters.isSslAllowAll());
+  }
+
+  HttpURLConnection open(final URL url, final int timeoutMillis)
+      throws IOException
+  {
+    final HttpURLConnection connection = (HttpURLConnection) (proxy != null
+        ? url.openConnection(new java.net.Proxy(java.net.Proxy.Type.HTTP,
+        new InetSocketAddress(proxy.getHost(), proxy.getPort())))
+        : url.openConnection());
+    if (connection instanceof HttpsURLConnection) {
+      if (sslInsecure) {
+        ((HttpsURLConnection) connection).setSSLSocketFactory(insecureSocketFactory());
+      }
+      if (sslAllowAll) {
+        ((HttpsURLConnection) connection).setHostnameVerifier(ALLOW_ALL);
+      }
+    }
+    connection.setConnectTimeout(timeoutMillis);
+    connection.setReadTimeout(timeoutMillis);
+    connection.setUseCaches(false);
+    if (server != null && server.getUsername() != null) {
+      connection.setRequestProperty("Authorization", basic(server.getUsername(), server.getPassword()));
+    }
+    if (proxy != null && proxy.getUsername() != null) {
+      connection.setRequestProperty("Proxy-Authorization", basic(proxy.getUsername(), proxy.getPassword()));
+    }
+    return connection;
+  }
+
+  /**
+   * Returns the socket factory trusting what JVM trusts, and self signed certificates too.
+   */
+  private synchronized SSLSocketFactory insecureSocketFactory() throws IOException {
+    if (insecureSocketFactory == null) {
+      try {
+        final TrustManagerFactory trustManagerFactory =
+            TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        trustManagerFactory.init((KeyStore) null);
+        X509TrustManager jvmTrustManager = null;
+        for (TrustManager trustManager : trustManagerFactory.getTrustManagers()) {
+          if (trustManager instanceof X509TrustManager) {
+            jvmTrustManager = (X509TrustManager) trustManager;
+          }
+        }
+        final SSLContext context = SSLContext.getInstance("TLS");
+        context.init(null, new TrustManager[]{new TrustSelfSigned(jvmTrustManager)}, null);
+        insecureSocketFactory = context.getSocketFactory();
+      }
+      catch (GeneralSecurityException e) {
+        throw new IOException("Cannot set up insecure SSL: " + e.getMessage(), e);
+      }
+    }
+    return insecureSocketFactory;
+  }
+
+  private static String basic(final String username, final String password) {
+    final String credentials = username + ":" + (password != null ? password : "");
+    return "Basic " + BaseEncoding.base64().encode(credentials.getBytes(Charsets.UTF_8));
+  }
+
+  /**
+   * Trusts servers trusted by JVM, and servers presenting a self signed certificate.
+   */
+  private static class TrustSelfSigned
+      implements X509TrustManager
+  {
+    private final X509TrustManager delegate;
+
+    private TrustSelfSigned(@Nullable final X509TrustManager delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public void checkClientTrusted(final X509Certificate[] chain, final String authType)
+        throws CertificateException
+    {
+      if (delegate == null) {
+        throw new CertificateException("No trust manager");
+      }
+      delegate.checkClientTrusted(chain, authType);
+    }
+
+    @Override
+    public void checkServerTrusted(final X509Certificate[] chain, final String authType)
+        throws CertificateException
+    {
+      if (chain != null && chain.length == 1) {
+        return;
+      }
+      if (delegate == null) {
+        throw new CertificateException("No trust manager");
+      }
+      delegate.checkServerTrusted(chain, authType);
+    }
+
+    @Override
+    public X509Certificate[] getAcceptedIssuers() {
+      return delegate != null ? delegate.getAcceptedIssuers() : new X509Certificate[0];
+    }
+  }
+}
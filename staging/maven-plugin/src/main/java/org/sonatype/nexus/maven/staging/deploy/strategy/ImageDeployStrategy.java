@@ -15,11 +15,14 @@ package org.sonatype.nexus.maven.staging.deploy.strategy;
 import java.io.File;
 import java.io.IOException;
 import java.util.Collections;
+import java.util.concurrent.TimeUnit;
 
 import com.sonatype.nexus.staging.client.Profile;
 
 import org.sonatype.nexus.maven.staging.deploy.StagingRepository;
+import org.sonatype.nexus.maven.staging.remote.Parameters;
 import org.sonatype.nexus.maven.staging.remote.RemoteNexus;
+import org.sonatype.nexus.maven.staging.upload.UploadProgress;
 import org.sonatype.nexus.maven.staging.zapper.Zapper;
 import org.sonatype.nexus.maven.staging.zapper.ZapperRequest;
 
@@ -61,7 +64,8 @@ public class ImageDeployStrategy
   }
 
   /**
-   * Remote deploys the "image", using {@link #zapUp(Server, Proxy, File, String)}.
+   * Remote deploys the "image", as one bundle if asked for and supported by Nexus, or using
+   * {@link #zapUp(Parameters, Server, Proxy, File, String, UploadProgress)}.
    */
   @Override
   public void finalizeDeploy(final FinalizeDeployRequest request)
@@ -74,9 +78,19 @@ public class ImageDeployStrategy
     final StagingRepository stagingRepository = beforeUpload(request.getParameters(), remoteNexus, stagingProfile);
     try {
       log.info(" * Uploading locally staged artifacts to profile {}", stagingProfile.name());
-      zapUp(remoteNexus.getServer(), remoteNexus.getProxy(), request.getParameters().getStagingDirectoryRoot(),
-          stagingRepository.getUrl());
-      log.info(" * Upload of locally staged artifacts finished.");
+      final File sourceDirectory = request.getParameters().getStagingDirectoryRoot();
+      if (!bundleUp(request.getParameters(), remoteNexus, stagingRepository, sourceDirectory, profileId)) {
+        final UploadProgress progress = new UploadProgress(profileId);
+        startUploadProgress(request.getParameters(), progress);
+        try {
+          zapUp(request.getParameters(), remoteNexus.getServer(), remoteNexus.getProxy(), sourceDirectory,
+              stagingRepository.getUrl(), progress);
+        }
+        finally {
+          finishUploadProgress(request.getParameters(), progress);
+        }
+        log.info(" * Upload of locally staged artifacts finished: {}", progress);
+      }
       afterUpload(request.getParameters(), remoteNexus, stagingRepository);
     }
     catch (Exception e) {
@@ -87,15 +101,49 @@ public class ImageDeployStrategy
     log.info("Remote staging finished with success.");
   }
 
+  /**
+   * Uploads the "image" as one bundle, if asked for. Returns {@code false} if not asked for, or Nexus refused the
+   * bundle, and the "image" should be uploaded file by file.
+   */
+  private boolean bundleUp(final Parameters parameters, final RemoteNexus remoteNexus,
+                           final StagingRepository stagingRepository, final File sourceDirectory,
+                           final String profileId)
+      throws IOException
+  {
+    if (!parameters.isBundleUpload()) {
+      return false;
+    }
+    final BundleUpload.DirectoryContent bundle = new BundleUpload.DirectoryContent(sourceDirectory);
+    final UploadProgress progress = new UploadProgress(profileId);
+    bundle.expect(progress);
+    if (bundleUp(parameters, remoteNexus, stagingRepository, bundle, progress)) {
+      log.info(" * Upload of locally staged artifacts finished: {}", progress);
+      return true;
+    }
+    return false;
+  }
+
   /**
    * Uploads the {@code sourceDirectory} to the {@code deployUrl} as a "whole". This means, that the "image"
    * (sourceDirectory) should be already prepared, as there will be no transformations applied to them, content and
-   * filenames will be deploy as-is.
+   * filenames will be deploy as-is. The upload is reported to passed in progress, and the transport is tuned as
+   * parameters say.
    */
-  protected void zapUp(final Server server, final Proxy proxy, final File sourceDirectory, final String deployUrl)
+  protected void zapUp(final Parameters parameters, final Server server, final Proxy proxy,
+                       final File sourceDirectory, final String deployUrl, final UploadProgress progress)
       throws IOException
   {
     final ZapperRequest request = new ZapperRequest(sourceDirectory, deployUrl);
+    request.setProgress(progress);
+    request.setUploadThreads(parameters.getZapperUploadThreads());
+    request.setMaxUploadThreads(parameters.getUploadMaxThreads());
+    request.setMaxConnections(parameters.getZapperMaxConnections());
+    request.setMaxConnectionsPerRoute(parameters.getZapperMaxConnectionsPerRoute());
+    request.setSocketBufferSize(parameters.getZapperSocketBufferSize());
+    request.setConnectionBufferSize(parameters.getZapperConnectionBufferSize());
+    request.setConnectTimeoutMillis((int) TimeUnit.SECONDS.toMillis(parameters.getZapperConnectTimeoutSeconds()));
+    request.setReadTimeoutMillis((int) TimeUnit.SECONDS.toMillis(parameters.getZapperReadTimeoutSeconds()));
+    request.setRetryPolicy(parameters.getUploadRetryPolicy());
     if (server != null) {
       request.setRemoteUsername(server.getUsername());
       request.setRemotePassword(server.getPassword());
@@ -0,0 +1,291 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.maven.staging.deploy.strategy;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.annotation.Nullable;
+
+import org.sonatype.nexus.maven.staging.StagingExecutors;
+import org.sonatype.nexus.maven.staging.index.IndexEntry;
+import org.sonatype.nexus.maven.staging.install.FileChecksums;
+
+import com.google.common.base.Function;
+import com.google.common.base.Predicate;
+import com.google.common.base.Strings;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.ArtifactUtils;
+import org.apache.maven.artifact.repository.metadata.Snapshot;
+import org.apache.maven.artifact.repository.metadata.SnapshotVersion;
+import org.apache.maven.artifact.repository.metadata.Versioning;
+import org.apache.maven.artifact.repository.metadata.io.xpp3.MetadataXpp3Reader;
+import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Pre-upload reconciliation: finds the locally staged entries that are already present, with same content, in the
+ * remote repository, by fetching the SHA1 checksums of their files from remote repository (running at most given
+ * count of lookups concurrently) and comparing them with the checksums recorded in the index when they were staged.
+ * Entries staged without checksums are never reported as present. Snapshots are compared with the latest timestamped
+ * snapshot of their GAV (as listed in GAV level repository metadata), and are reported as present only if all the
+ * entries of their GAV are present, as redeploying part of a GAV would give a new timestamp to part of it only.
+ *
+ * @since 1.8.0
+ */
+class PresenceCheck
+{
+  private static final String SNAPSHOT_SUFFIX = "-" + Artifact.SNAPSHOT_VERSION;
+
+  private final Logger log = LoggerFactory.getLogger(PresenceCheck.class);
+
+  private final int threads;
+
+  private final Function<? super IndexEntry, RemoteChecksums> remoteChecksums;
+
+  private final AtomicBoolean failureReported = new AtomicBoolean();
+
+  /**
+   * @param threads         the count of concurrent lookups, must be greater than zero.
+   * @param remoteChecksums the remote repository of entry, might return {@code null} if entry cannot be checked.
+   */
+  PresenceCheck(final int threads, final Function<? super IndexEntry, RemoteChecksums> remoteChecksums) {
+    checkArgument(threads > 0, "Threads must be greater than zero");
+    this.threads = threads;
+    this.remoteChecksums = checkNotNull(remoteChecksums);
+  }
+
+  /**
+   * Returns the entries already present in remote repository, keeping their order. Entries that could not be
+   * checked (due to network problems for example) are not reported as present.
+   */
+  List<IndexEntry> present(final List<IndexEntry> entries) {
+    final Map<String, List<IndexEntry>> units = unitsOf(entries);
+    final List<List<IndexEntry>> presentUnits = matching(threads, "presence", units.values(),
+        new Predicate<List<IndexEntry>>()
+        {
+          @Override
+          public boolean apply(final List<IndexEntry> unit) {
+            return isPresent(unit);
+          }
+        });
+    final List<IndexEntry> result = new ArrayList<IndexEntry>();
+    for (List<IndexEntry> unit : presentUnits) {
+      result.addAll(unit);
+    }
+    return result;
+  }
+
+  /**
+   * Returns the items matching the predicate, keeping their order, evaluating the predicate (performing remote
+   * lookups) by at most passed in count of threads. On failure or interruption, no item is reported as matching.
+   */
+  static <T> List<T> matching(final int threads, final String name, final Collection<T> items,
+                              final Predicate<? super T> predicate)
+  {
+    checkArgument(threads > 0, "Threads must be greater than zero");
+    if (items.isEmpty()) {
+      return Collections.emptyList();
+    }
+    final ExecutorService executor =
+        StagingExecutors.newFixedThreadPool(Math.min(threads, items.size()), "nexus-staging-" + name + "-%d");
+    try {
+      final List<Future<Boolean>> checks = new ArrayList<Future<Boolean>>(items.size());
+      for (final T item : items) {
+        checks.add(executor.submit(new Callable<Boolean>()
+        {
+          @Override
+          public Boolean call() {
+            return predicate.apply(item);
+          }
+        }));
+      }
+      final List<T> result = new ArrayList<T>();
+      int i = 0;
+      for (T item : items) {
+        if (checks.get(i++).get()) {
+          result.add(item);
+        }
+      }
+      return result;
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return Collections.emptyList();
+    }
+    catch (ExecutionException e) {
+      LoggerFactory.getLogger(PresenceCheck.class).warn("Remote {} lookups failed: {}", name,
+          e.getCause().toString());
+      return Collections.emptyList();
+    }
+    finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Reports a failed check, on warn level for the first failure only, as the rest is most probably failing for same
+   * reason.
+   */
+  private void failed(final String path, final Throwable failure) {
+    if (failureReported.compareAndSet(false, true)) {
+      log.warn("Could not check presence of {} in remote repository, uploading it (further failures are logged on"
+          + " debug level): {}", path, failure.toString());
+    }
+    else {
+      log.debug("Could not check presence of {}: {}", path, failure.toString());
+    }
+  }
+
+  /**
+   * Groups the entries into units checked (and skipped) together: all the entries of a snapshot GAV form one unit,
+   * while every release entry is a unit on it's own.
+   */
+  private Map<String, List<IndexEntry>> unitsOf(final List<IndexEntry> entries) {
+    final Map<String, List<IndexEntry>> units = new LinkedHashMap<String, List<IndexEntry>>();
+    for (IndexEntry entry : entries) {
+      final String key;
+      if (ArtifactUtils.isSnapshot(entry.getVersion())) {
+        key = entry.getRepoId() + "|" + entry.getRepoUrl() + "|" + dirOf(entry.getPath());
+      }
+      else {
+        key = String.valueOf(units.size());
+      }
+      List<IndexEntry> unit = units.get(key);
+      if (unit == null) {
+        unit = new ArrayList<IndexEntry>();
+        units.put(key, unit);
+      }
+      unit.add(entry);
+    }
+    return units;
+  }
+
+  private boolean isPresent(final List<IndexEntry> unit) {
+    final IndexEntry first = unit.get(0);
+    final RemoteChecksums remote = remoteChecksums.apply(first);
+    if (remote == null) {
+      return false;
+    }
+    try {
+      Versioning versioning = null;
+      if (ArtifactUtils.isSnapshot(first.getVersion())) {
+        versioning = versioningOf(remote, dirOf(first.getPath()) + "maven-metadata.xml");
+        if (versioning == null) {
+          return false;
+        }
+      }
+      for (IndexEntry entry : unit) {
+        if (!isPresent(remote, versioning, entry)) {
+          return false;
+        }
+      }
+      log.debug("Skipping {}, present in remote repository", first.getPath());
+      return true;
+    }
+    catch (IOException e) {
+      // upload it, no harm done
+      failed(first.getPath(), e);
+      return false;
+    }
+  }
+
+  private boolean isPresent(final RemoteChecksums remote, @Nullable final Versioning versioning,
+                            final IndexEntry entry)
+      throws IOException
+  {
+    final String dir = dirOf(entry.getPath());
+    final String path = versioning != null
+        ? snapshotPathOf(versioning, entry, entry.getClassifier(), entry.getExtension())
+        : entry.getPath();
+    if (!isPresent(remote, path, entry.getChecksums())) {
+      return false;
+    }
+    if (entry.getPomFileName() != null) {
+      final String pomPath = versioning != null
+          ? snapshotPathOf(versioning, entry, null, "pom")
+          : dir + entry.getPomFileName();
+      return isPresent(remote, pomPath, entry.getPomChecksums());
+    }
+    return true;
+  }
+
+  private boolean isPresent(final RemoteChecksums remote, @Nullable final String path,
+                            @Nullable final FileChecksums checksums)
+      throws IOException
+  {
+    return path != null && checksums != null && checksums.getSha1().equals(remote.sha1Of(path));
+  }
+
+  @Nullable
+  private Versioning versioningOf(final RemoteChecksums remote, final String path) throws IOException {
+    final byte[] content = remote.get(path);
+    if (content == null) {
+      return null;
+    }
+    try {
+      return new MetadataXpp3Reader().read(new ByteArrayInputStream(content), false).getVersioning();
+    }
+    catch (XmlPullParserException e) {
+      throw new IOException("Malformed repository metadata " + path + ": " + e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Returns the path of latest deployed timestamped snapshot file, or {@code null} if metadata does not list it.
+   */
+  @Nullable
+  static String snapshotPathOf(final Versioning versioning, final IndexEntry entry, @Nullable final String classifier,
+                               final String extension)
+  {
+    String version = null;
+    for (SnapshotVersion snapshotVersion : versioning.getSnapshotVersions()) {
+      if (Strings.nullToEmpty(snapshotVersion.getClassifier()).equals(Strings.nullToEmpty(classifier))
+          && extension.equals(snapshotVersion.getExtension())) {
+        version = snapshotVersion.getVersion();
+        break;
+      }
+    }
+    if (version == null) {
+      // Maven 2 metadata, not listing files one by one
+      final Snapshot snapshot = versioning.getSnapshot();
+      if (snapshot == null || snapshot.getTimestamp() == null
+          || !entry.getVersion().endsWith(SNAPSHOT_SUFFIX)) {
+        return null;
+      }
+      version = entry.getVersion().substring(0, entry.getVersion().length() - SNAPSHOT_SUFFIX.length())
+          + "-" + snapshot.getTimestamp() + "-" + snapshot.getBuildNumber();
+    }
+    return dirOf(entry.getPath()) + entry.getArtifactId() + "-" + version
+        + (Strings.isNullOrEmpty(classifier) ? "" : "-" + classifier) + "." + extension;
+  }
+
+  private static String dirOf(final String path) {
+    return path.substring(0, path.lastIndexOf('/') + 1);
+  }
+}
@@ -0,0 +1,89 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.maven.staging.deploy.strategy;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+import javax.annotation.Nullable;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.ByteStreams;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Fetches the SHA1 checksums of files present in a remote (staging) repository, by getting the {@code .sha1} files
+ * deployed along with them, and other small files like repository metadata, using {@link HttpConnections}.
+ *
+ * @since 1.8.0
+ */
+class RemoteChecksums
+{
+  private static final int TIMEOUT_MILLIS = 30000;
+
+  private final String repositoryUrl;
+
+  private final HttpConnections connections;
+
+  RemoteChecksums(final String repositoryUrl, final HttpConnections connections) {
+    this.repositoryUrl = checkNotNull(repositoryUrl).endsWith("/") ? repositoryUrl : repositoryUrl + "/";
+    this.connections = checkNotNull(connections);
+  }
+
+  /**
+   * Returns the SHA1 of file on passed in path as published by remote repository, or {@code null} if the file (or
+   * it's checksum) is not present in remote repository.
+   */
+  @Nullable
+  String sha1Of(final String path) throws IOException {
+    final byte[] content = get(path + ".sha1");
+    if (content == null) {
+      return null;
+    }
+    // checksum files might contain the file name too, separated by whitespace
+    final String[] tokens = new String(content, Charsets.US_ASCII).trim().split("\\s+");
+    return tokens.length > 0 && tokens[0].length() > 0 ? tokens[0].toLowerCase() : null;
+  }
+
+  /**
+   * Returns the content of (small) file on passed in path in remote repository, or {@code null} if the file is not
+   * present in remote repository.
+   */
+  @Nullable
+  byte[] get(final String path) throws IOException {
+    final URL url = new URL(repositoryUrl + path);
+    final HttpURLConnection connection = connections.open(url, TIMEOUT_MILLIS);
+    try {
+      final int status = connection.getResponseCode();
+      if (status == HttpURLConnection.HTTP_NOT_FOUND) {
+        return null;
+      }
+      if (status != HttpURLConnection.HTTP_OK) {
+        throw new IOException("Unexpected response " + status + " " + connection.getResponseMessage() + " for " + url);
+      }
+      final InputStream input = connection.getInputStream();
+      try {
+        return ByteStreams.toByteArray(input);
+      }
+      finally {
+        input.close();
+      }
+    }
+    finally {
+      connection.disconnect();
+    }
+  }
+}
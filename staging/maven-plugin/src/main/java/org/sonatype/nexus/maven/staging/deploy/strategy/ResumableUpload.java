@@ -0,0 +1,146 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.maven.staging.deploy.strategy;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.sonatype.nexus.maven.staging.index.IndexEntry;
+import org.sonatype.nexus.maven.staging.index.StagingJournal;
+
+import com.google.common.base.Predicate;
+import com.google.common.collect.Sets;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Resumable upload of a staging directory: filters out the entries that were uploaded already (recorded in
+ * {@link StagingJournal}, unchanged locally, and present with same checksum in remote repository), and records the
+ * entries as they get uploaded, reusing the checksums recorded in the index when they were staged.
+ *
+ * @since 1.8.0
+ */
+class ResumableUpload
+{
+  /**
+   * The count of concurrent lookups verifying journaled uploads.
+   */
+  static final int VERIFY_THREADS = 8;
+
+  private final Logger log = LoggerFactory.getLogger(ResumableUpload.class);
+
+  private final File sourceDirectory;
+
+  private final StagingJournal journal;
+
+  private final RemoteChecksums remoteChecksums;
+
+  /**
+   * The SHA1 of files recorded in the index when they were staged, keyed by path.
+   */
+  private final Map<String, String> stagedSha1s = new ConcurrentHashMap<String, String>();
+
+  ResumableUpload(final File sourceDirectory, final StagingJournal journal, final RemoteChecksums remoteChecksums) {
+    this.sourceDirectory = checkNotNull(sourceDirectory);
+    this.journal = checkNotNull(journal);
+    this.remoteChecksums = checkNotNull(remoteChecksums);
+  }
+
+  /**
+   * Returns the entries that still need to be uploaded, keeping their order. The journaled uploads are verified
+   * against remote repository concurrently.
+   */
+  List<IndexEntry> pending(final List<IndexEntry> entries) {
+    for (IndexEntry entry : entries) {
+      if (entry.getChecksums() != null) {
+        stagedSha1s.put(entry.getPath(), entry.getChecksums().getSha1());
+      }
+      if (entry.getPomChecksums() != null) {
+        stagedSha1s.put(pomPathOf(entry), entry.getPomChecksums().getSha1());
+      }
+    }
+    if (journal.size() == 0) {
+      return entries;
+    }
+    final Set<IndexEntry> uploaded = Sets.newIdentityHashSet();
+    uploaded.addAll(PresenceCheck.matching(VERIFY_THREADS, "resume", entries, new Predicate<IndexEntry>()
+    {
+      @Override
+      public boolean apply(final IndexEntry entry) {
+        return isUploaded(entry.getPath()) && (entry.getPomFileName() == null || isUploaded(pomPathOf(entry)));
+      }
+    }));
+    final List<IndexEntry> result = new ArrayList<IndexEntry>(entries.size() - uploaded.size());
+    for (IndexEntry entry : entries) {
+      if (uploaded.contains(entry)) {
+        log.debug("Skipping {}, already uploaded", entry.getPath());
+      }
+      else {
+        result.add(entry);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Records the artifact and it's POM (if any) of the entry as uploaded.
+   */
+  void uploaded(final IndexEntry entry) throws IOException {
+    uploaded(entry.getPath());
+    if (entry.getPomFileName() != null) {
+      uploaded(pomPathOf(entry));
+    }
+  }
+
+  /**
+   * Records the file on given path (relative to source directory) as uploaded.
+   */
+  void uploaded(final String path) throws IOException {
+    journal.uploaded(path, new File(sourceDirectory, path), stagedSha1s.get(path));
+  }
+
+  /**
+   * Returns the path of the file relative to source directory.
+   */
+  String pathOf(final File file) {
+    final String base = sourceDirectory.getAbsolutePath() + File.separator;
+    final String absolute = file.getAbsolutePath();
+    checkArgument(absolute.startsWith(base), "File %s not in %s", file, sourceDirectory);
+    return absolute.substring(base.length()).replace(File.separatorChar, '/');
+  }
+
+  private boolean isUploaded(final String path) {
+    try {
+      final String sha1 = journal.uploadedSha1(path, new File(sourceDirectory, path));
+      return sha1 != null && sha1.equals(remoteChecksums.sha1Of(path));
+    }
+    catch (IOException e) {
+      // upload it once more, no harm done
+      log.debug("Could not verify upload of {}: {}", path, e.toString());
+      return false;
+    }
+  }
+
+  private static String pomPathOf(final IndexEntry entry) {
+    final int slash = entry.getPath().lastIndexOf('/');
+    return entry.getPath().substring(0, slash + 1) + entry.getPomFileName();
+  }
+}
@@ -0,0 +1,185 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.maven.staging.deploy.strategy;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.zip.ZipOutputStream;
+
+import javax.annotation.Nullable;
+
+import org.sonatype.nexus.maven.staging.index.IndexEntry;
+import org.sonatype.nexus.maven.staging.install.FileChecksums;
+import org.sonatype.nexus.maven.staging.upload.UploadProgress;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.Hashing;
+import org.apache.maven.artifact.ArtifactUtils;
+import org.apache.maven.artifact.repository.metadata.Metadata;
+import org.apache.maven.artifact.repository.metadata.Plugin;
+import org.apache.maven.artifact.repository.metadata.Versioning;
+import org.apache.maven.artifact.repository.metadata.io.xpp3.MetadataXpp3Writer;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * The content of bundle uploading locally staged artifacts, as they would be deployed by Maven into an empty
+ * repository: the artifacts and their POMs with their MD5 and SHA1 checksums (recorded in index while staging, or
+ * calculated now), and the GA level (and G level for Maven Plugins) repository metadata listing them. As the
+ * metadata is not merged with remote one, only releases are bundled, and only into staging repositories created for
+ * the upload.
+ *
+ * @since 1.8.0
+ */
+class StagedBundle
+    implements BundleUpload.Content
+{
+  private final File sourceDirectory;
+
+  private final List<IndexEntry> entries;
+
+  StagedBundle(final File sourceDirectory, final List<IndexEntry> entries) {
+    this.sourceDirectory = checkNotNull(sourceDirectory);
+    this.entries = ImmutableList.copyOf(entries);
+  }
+
+  /**
+   * Returns {@code true} if entries can be bundled, that is, none of them is a snapshot.
+   */
+  static boolean isBundleable(final List<IndexEntry> entries) {
+    for (IndexEntry entry : entries) {
+      if (ArtifactUtils.isSnapshot(entry.getVersion())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Adds the count and size of staged files to progress.
+   */
+  void expect(final UploadProgress progress) {
+    for (IndexEntry entry : entries) {
+      final File file = new File(sourceDirectory, entry.getPath());
+      progress.expect(1, file.length());
+      if (entry.getPomFileName() != null) {
+        progress.expect(1, new File(file.getParentFile(), entry.getPomFileName()).length());
+      }
+    }
+  }
+
+  @Override
+  public void writeTo(final ZipOutputStream zip, final UploadProgress progress) throws IOException {
+    final String lastUpdated = lastUpdated();
+    final Map<String, Metadata> metadatas = new LinkedHashMap<String, Metadata>();
+    for (IndexEntry entry : entries) {
+      final File file = new File(sourceDirectory, entry.getPath());
+      write(zip, entry.getPath(), file, entry.getChecksums(), progress);
+      if (entry.getPomFileName() != null) {
+        final String dir = entry.getPath().substring(0, entry.getPath().lastIndexOf('/') + 1);
+        write(zip, dir + entry.getPomFileName(), new File(file.getParentFile(), entry.getPomFileName()),
+            entry.getPomChecksums(), progress);
+        addVersion(metadatas, entry, lastUpdated);
+        if ("maven-plugin".equals(entry.getPackaging()) && entry.getPluginPrefix() != null) {
+          addPlugin(metadatas, entry);
+        }
+      }
+    }
+    for (Map.Entry<String, Metadata> metadata : metadatas.entrySet()) {
+      write(zip, metadata.getKey(), toBytes(metadata.getValue()));
+    }
+  }
+
+  private void write(final ZipOutputStream zip, final String path, final File file,
+                     @Nullable final FileChecksums checksums, final UploadProgress progress)
+      throws IOException
+  {
+    BundleUpload.write(zip, path, file, progress);
+    final FileChecksums fileChecksums = checksums != null ? checksums : FileChecksums.of(file);
+    BundleUpload.write(zip, path + ".md5", fileChecksums.getMd5().getBytes(Charsets.US_ASCII));
+    BundleUpload.write(zip, path + ".sha1", fileChecksums.getSha1().getBytes(Charsets.US_ASCII));
+  }
+
+  private void write(final ZipOutputStream zip, final String path, final byte[] content) throws IOException {
+    BundleUpload.write(zip, path, content);
+    BundleUpload.write(zip, path + ".md5", Hashing.md5().hashBytes(content).toString().getBytes(Charsets.US_ASCII));
+    BundleUpload.write(zip, path + ".sha1",
+        Hashing.sha1().hashBytes(content).toString().getBytes(Charsets.US_ASCII));
+  }
+
+  private void addVersion(final Map<String, Metadata> metadatas, final IndexEntry entry, final String lastUpdated) {
+    final String path = entry.getGroupId().replace('.', '/') + "/" + entry.getArtifactId() + "/maven-metadata.xml";
+    Metadata metadata = metadatas.get(path);
+    if (metadata == null) {
+      metadata = new Metadata();
+      metadatas.put(path, metadata);
+    }
+    if (metadata.getVersioning() == null) {
+      // might be G level metadata of a Maven Plugin already, if groupId and artifactId form another groupId
+      metadata.setGroupId(entry.getGroupId());
+      metadata.setArtifactId(entry.getArtifactId());
+      metadata.setVersioning(new Versioning());
+    }
+    final Versioning versioning = metadata.getVersioning();
+    if (!versioning.getVersions().contains(entry.getVersion())) {
+      versioning.addVersion(entry.getVersion());
+    }
+    versioning.setLatest(entry.getVersion());
+    versioning.setRelease(entry.getVersion());
+    versioning.setLastUpdated(lastUpdated);
+  }
+
+  private void addPlugin(final Map<String, Metadata> metadatas, final IndexEntry entry) {
+    final String path = entry.getGroupId().replace('.', '/') + "/maven-metadata.xml";
+    Metadata metadata = metadatas.get(path);
+    if (metadata == null) {
+      metadata = new Metadata();
+      metadatas.put(path, metadata);
+    }
+    for (Plugin plugin : metadata.getPlugins()) {
+      if (entry.getPluginPrefix().equals(plugin.getPrefix())) {
+        return;
+      }
+    }
+    // name "simulated" with artifactId, as the compat deploy does
+    final Plugin plugin = new Plugin();
+    plugin.setPrefix(entry.getPluginPrefix());
+    plugin.setArtifactId(entry.getArtifactId());
+    plugin.setName(entry.getArtifactId());
+    metadata.addPlugin(plugin);
+  }
+
+  private static byte[] toBytes(final Metadata metadata) throws IOException {
+    final ByteArrayOutputStream output = new ByteArrayOutputStream();
+    final Writer writer = new OutputStreamWriter(output, Charsets.UTF_8);
+    new MetadataXpp3Writer().write(writer, metadata);
+    writer.close();
+    return output.toByteArray();
+  }
+
+  private static String lastUpdated() {
+    final SimpleDateFormat format = new SimpleDateFormat("yyyyMMddHHmmss");
+    format.setTimeZone(TimeZone.getTimeZone("UTC"));
+    return format.format(new Date());
+  }
+}
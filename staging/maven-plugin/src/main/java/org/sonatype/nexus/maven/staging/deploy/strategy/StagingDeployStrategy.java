@@ -13,8 +13,17 @@
 package org.sonatype.nexus.maven.staging.deploy.strategy;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import javax.annotation.Nullable;
 
 import com.sonatype.nexus.staging.api.dto.StagingActionDTO;
 import com.sonatype.nexus.staging.client.Profile;
@@ -27,10 +36,14 @@ import org.sonatype.nexus.client.core.exception.NexusClientErrorResponseExceptio
 import org.sonatype.nexus.client.core.exception.NexusClientNotFoundException;
 import org.sonatype.nexus.maven.staging.ErrorDumper;
 import org.sonatype.nexus.maven.staging.StagingAction;
+import org.sonatype.nexus.maven.staging.StagingExecutors;
 import org.sonatype.nexus.maven.staging.deploy.DeployableArtifact;
 import org.sonatype.nexus.maven.staging.deploy.StagingRepository;
+import org.sonatype.nexus.maven.staging.index.IndexEntry;
+import org.sonatype.nexus.maven.staging.index.StagingJournal;
 import org.sonatype.nexus.maven.staging.remote.Parameters;
 import org.sonatype.nexus.maven.staging.remote.RemoteNexus;
+import org.sonatype.nexus.maven.staging.upload.UploadProgress;
 
 import com.google.common.base.Function;
 import com.google.common.collect.Collections2;
@@ -78,8 +91,10 @@ public class StagingDeployStrategy
       for (DeployableArtifact deployableArtifact : request.getDeployableArtifacts()) {
         final ArtifactRepository stagingRepository = getArtifactRepositoryForDirectory(stagingDirectory);
         install(deployableArtifact.getFile(), deployableArtifact.getArtifact(), stagingRepository,
-            stagingDirectory, null);
+            stagingDirectory, null, request.getParameters().getInstallMode(),
+            request.getParameters().isInstallChecksums());
       }
+      syncIndex(stagingDirectory);
     }
     else {
       log.info("Nothing to locally stage?");
@@ -106,59 +121,249 @@ public class StagingDeployStrategy
       request.setRemoteNexus(createRemoteNexus(request.getMavenSession(), request.getParameters()));
     }
     final RemoteNexus remoteNexus = request.getRemoteNexus();
-    final List<StagingRepository> zappedStagingRepositories = new ArrayList<StagingRepository>();
+    final List<File> profileDirectories = new ArrayList<File>();
     for (File profileDirectory : localStageRepositories) {
-      if (!profileDirectory.isDirectory()) {
-        continue;
+      if (profileDirectory.isDirectory()) {
+        profileDirectories.add(profileDirectory);
+      }
+    }
+    // repositories are added as soon as created, as all of them are to be cleaned up if any profile fails
+    final List<StagingRepository> zappedStagingRepositories =
+        Collections.synchronizedList(new ArrayList<StagingRepository>());
+    // closes (and releases) run in background, overlapping with upload of next profiles
+    final StagingPipeline pipeline = new StagingPipeline(Math.max(1, profileDirectories.size()));
+    try {
+      final int threads = Math.min(request.getParameters().getStagingProfileThreads(), profileDirectories.size());
+      if (threads <= 1) {
+        for (File profileDirectory : profileDirectories) {
+          if (pipeline.isFailed()) {
+            break;
+          }
+          try {
+            stageProfile(request, remoteNexus, profileDirectory.getName(), zappedStagingRepositories, pipeline);
+          }
+          catch (Exception e) {
+            pipeline.failed(profileDirectory.getName(), e);
+          }
+        }
+      }
+      else {
+        stageProfilesConcurrently(request, remoteNexus, profileDirectories, zappedStagingRepositories, threads,
+            pipeline);
       }
+      pipeline.await();
+    }
+    finally {
+      pipeline.shutdown();
+    }
+    if (pipeline.isFailed()) {
+      throw stagingFailed(request.getParameters(), remoteNexus, zappedStagingRepositories,
+          pipeline.getFailedProfileId(), pipeline.getFailure());
+    }
+    log.info("Remote staged {} repositories, finished with success.", profileDirectories.size());
 
-      // we do remote staging
-      final String profileId = profileDirectory.getName();
-      log.info("");
-      log.info(" * Remote staging into staging profile ID \"{}\"", profileId);
+    if (!request.getParameters().isSkipStagingRepositoryClose() && request.getParameters().isAutoReleaseAfterClose()
+        && !request.getParameters().isAutoReleaseEachAfterClose()) {
+      releaseAfterClose(request.getParameters(), remoteNexus, zappedStagingRepositories);
+    }
+  }
 
-      try {
-        final Profile stagingProfile = remoteNexus.getStagingWorkflowV2Service().selectProfile(profileId);
-        final StagingRepository stagingRepository = beforeUpload(request.getParameters(), remoteNexus, stagingProfile);
-        zappedStagingRepositories.add(stagingRepository);
-        log.info(" * Uploading locally staged artifacts to profile {}", stagingProfile.name());
-        deployUp(request.getMavenSession(), getStagingDirectory(request.getParameters().getStagingDirectoryRoot(),
-            profileId),
-            createDeploymentArtifactRepository(remoteNexus.getServer().getId(), stagingRepository.getUrl()));
-        log.info(" * Upload of locally staged artifacts finished.");
-        afterUpload(request.getParameters(), remoteNexus, stagingRepository);
+  /**
+   * Uploads the profiles using a pool of {@code threads} workers. Once the pipeline failed, the profiles not yet
+   * started are skipped, but the ones being uploaded are waited for, so no staging repository is created after the
+   * cleanup.
+   */
+  private void stageProfilesConcurrently(final FinalizeDeployRequest request, final RemoteNexus remoteNexus,
+                                         final List<File> profileDirectories,
+                                         final List<StagingRepository> zappedStagingRepositories, final int threads,
+                                         final StagingPipeline pipeline)
+  {
+    log.info(" * Remote staging {} profiles using {} threads", profileDirectories.size(), threads);
+    final ExecutorService executor = StagingExecutors.newFixedThreadPool(threads, "nexus-staging-profile-%d");
+    try {
+      final List<Future<Void>> futures = new ArrayList<Future<Void>>(profileDirectories.size());
+      for (File profileDirectory : profileDirectories) {
+        final String profileId = profileDirectory.getName();
+        futures.add(executor.submit(new Callable<Void>()
+        {
+          @Override
+          public Void call() {
+            if (!pipeline.isFailed()) {
+              try {
+                stageProfile(request, remoteNexus, profileId, zappedStagingRepositories, pipeline);
+              }
+              catch (Exception e) {
+                pipeline.failed(profileId, e);
+              }
+            }
+            return null;
+          }
+        }));
+      }
+      for (Future<Void> future : futures) {
+        try {
+          future.get();
+        }
+        catch (ExecutionException e) {
+          // profiles record their own failures, this is a bug
+          pipeline.failed(null, e.getCause());
+        }
+        catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          for (Future<Void> pending : futures) {
+            pending.cancel(true);
+          }
+          pipeline.failed(null, new InterruptedIOException("Remote staging interrupted"));
+          return;
+        }
+      }
+    }
+    finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Remotely stages one profile: creates (or resumes) the staging repository, and uploads the locally staged
+   * artifacts into it. The staging repository is added to passed in list as soon as it is created. Once uploaded,
+   * the staging repository is closed (and released, if asked for) by the pipeline, in background.
+   */
+  private void stageProfile(final FinalizeDeployRequest request, final RemoteNexus remoteNexus,
+                            final String profileId, final List<StagingRepository> zappedStagingRepositories,
+                            final StagingPipeline pipeline)
+      throws Exception
+  {
+    log.info("");
+    log.info(" * Remote staging into staging profile ID \"{}\"", profileId);
+
+    StagingJournal journal = null;
+    try {
+      final File stagingDirectory = getStagingDirectory(request.getParameters().getStagingDirectoryRoot(), profileId);
+      final Profile stagingProfile = remoteNexus.getStagingWorkflowV2Service().selectProfile(profileId);
+      StagingRepository stagingRepository = null;
+      if (request.getParameters().isResumableStaging()) {
+        journal = StagingJournal.open(stagingDirectory);
+        stagingRepository = resumeUpload(request.getParameters(), remoteNexus, stagingProfile, journal);
       }
-      catch (NexusClientNotFoundException e) {
-        afterUploadFailure(request.getParameters(), remoteNexus, zappedStagingRepositories, e);
-        log.error("Remote staging finished with a failure: {}", e.getMessage());
-        log.error("");
-        log.error("Possible causes of 404 Not Found error:");
-        log.error(
-            " * your local workspace is \"dirty\" with previous runs, that locally staged artifacts? Run \"mvn clean\"...");
-        log.error(
-            " * remote Nexus got the profile with ID \"{}\" removed during this build? Get to Nexus admin...",
-            profileId);
-        throw new ArtifactDeploymentException("Remote staging failed: " + e.getMessage(), e);
+      if (stagingRepository == null) {
+        stagingRepository = beforeUpload(request.getParameters(), remoteNexus, stagingProfile);
       }
-      catch (NexusClientAccessForbiddenException e) {
-        afterUploadFailure(request.getParameters(), remoteNexus, zappedStagingRepositories, e);
-        log.error("Remote staging finished with a failure: {}", e.getMessage());
-        log.error("");
-        log.error("Possible causes of 403 Forbidden:");
-        log.error(
-            " * you have no permissions to stage against profile with ID \"{}\"? Get to Nexus admin...", profileId);
-        throw new ArtifactDeploymentException("Remote staging failed: " + e.getMessage(), e);
+      zappedStagingRepositories.add(stagingRepository);
+      ResumableUpload resumableUpload = null;
+      if (journal != null) {
+        journal.start(stagingRepository.getRepositoryId());
+        resumableUpload = createResumableUpload(request.getParameters(), remoteNexus, stagingRepository,
+            stagingDirectory, journal);
       }
-      catch (Exception e) {
-        afterUploadFailure(request.getParameters(), remoteNexus, zappedStagingRepositories, e);
-        log.error("Remote staging finished with a failure: {}", e.getMessage());
-        throw new ArtifactDeploymentException("Remote staging failed: " + e.getMessage(), e);
+      log.info(" * Uploading locally staged artifacts to profile {}", stagingProfile.name());
+      if (!bundleUp(request.getParameters(), remoteNexus, stagingRepository, stagingDirectory, journal != null)) {
+        deployUp(request.getMavenSession(), request.getParameters(), stagingDirectory,
+            createDeploymentArtifactRepository(remoteNexus.getServer().getId(), stagingRepository.getUrl()),
+            resumableUpload, createPresenceCheck(request.getParameters(), remoteNexus, stagingRepository));
       }
+      log.info(" * Upload of locally staged artifacts to profile {} finished.", stagingProfile.name());
+      pipeline.submit(profileId, closeStage(request.getParameters(), remoteNexus, stagingRepository, journal,
+          zappedStagingRepositories));
     }
-    log.info("Remote staged {} repositories, finished with success.", zappedStagingRepositories.size());
+    finally {
+      closeQuietly(journal);
+    }
+  }
 
-    if (!request.getParameters().isSkipStagingRepositoryClose() && request.getParameters().isAutoReleaseAfterClose()) {
-      releaseAfterClose(request.getParameters(), remoteNexus, zappedStagingRepositories);
+  /**
+   * Uploads the locally staged artifacts as one bundle, if asked for and possible: only releases are bundled, and
+   * only into a staging repository created for this upload (not given by ID, nor resumed). Returns {@code false} if
+   * the artifacts should be uploaded one by one.
+   */
+  private boolean bundleUp(final Parameters parameters, final RemoteNexus remoteNexus,
+                           final StagingRepository stagingRepository, final File stagingDirectory,
+                           final boolean resumable)
+      throws IOException
+  {
+    if (!parameters.isBundleUpload()) {
+      return false;
+    }
+    if (!stagingRepository.isManaged() || resumable) {
+      log.info(" * Bundle upload possible into new staging repositories only, uploading files one by one");
+      return false;
+    }
+    final List<IndexEntry> entries = readStagedEntries(stagingDirectory);
+    if (!StagedBundle.isBundleable(entries)) {
+      log.info(" * Bundle upload possible with releases only, uploading files one by one");
+      return false;
+    }
+    final StagedBundle bundle = new StagedBundle(stagingDirectory, entries);
+    final UploadProgress progress = new UploadProgress(stagingDirectory.getName());
+    bundle.expect(progress);
+    return bundleUp(parameters, remoteNexus, stagingRepository, bundle, progress);
+  }
+
+  /**
+   * Returns the stage closing the uploaded staging repository, and releasing it right away if asked for. A released
+   * staging repository is removed from passed in list, as it cannot be cleaned up anymore.
+   */
+  protected Callable<Void> closeStage(final Parameters parameters, final RemoteNexus remoteNexus,
+                                      final StagingRepository stagingRepository,
+                                      @Nullable final StagingJournal journal,
+                                      final List<StagingRepository> zappedStagingRepositories)
+  {
+    return new Callable<Void>()
+    {
+      @Override
+      public Void call() throws Exception {
+        afterUpload(parameters, remoteNexus, stagingRepository);
+        if (journal != null) {
+          journal.delete();
+        }
+        if (!parameters.isSkipStagingRepositoryClose() && parameters.isAutoReleaseAfterClose()
+            && parameters.isAutoReleaseEachAfterClose()) {
+          releaseAfterClose(parameters, remoteNexus, Collections.singletonList(stagingRepository));
+          zappedStagingRepositories.remove(stagingRepository);
+        }
+        return null;
+      }
+    };
+  }
+
+  /**
+   * Cleans up after failed remote staging of a profile, and returns the exception to be thrown.
+   */
+  protected ArtifactDeploymentException stagingFailed(final Parameters parameters, final RemoteNexus remoteNexus,
+                                                      final List<StagingRepository> zappedStagingRepositories,
+                                                      final String profileId, final Throwable e)
+      throws MojoExecutionException
+  {
+    // iterate over a snapshot, the list is synchronized
+    afterUploadFailure(parameters, remoteNexus, new ArrayList<StagingRepository>(zappedStagingRepositories), e);
+    log.error("Remote staging finished with a failure: {}", e.getMessage());
+    if (e instanceof NexusClientNotFoundException) {
+      // the profile might be gone, do not let next builds reuse the match
+      remoteNexus.getProfileMatchCache().invalidate(profileId);
+      log.error("");
+      log.error("Possible causes of 404 Not Found error:");
+      log.error(" * your local workspace is \"dirty\" with previous runs, that locally staged artifacts?"
+          + " Run \"mvn clean\"...");
+      log.error(
+          " * remote Nexus got the profile with ID \"{}\" removed during this build? Get to Nexus admin...",
+          profileId);
+    }
+    else if (e instanceof NexusClientAccessForbiddenException) {
+      log.error("");
+      log.error("Possible causes of 403 Forbidden:");
+      log.error(
+          " * you have no permissions to stage against profile with ID \"{}\"? Get to Nexus admin...", profileId);
+    }
+    return new ArtifactDeploymentException("Remote staging failed: " + e.getMessage(), e);
+  }
+
+  private void closeQuietly(final StagingJournal journal) {
+    if (journal != null) {
+      try {
+        journal.close();
+      }
+      catch (IOException e) {
+        log.warn("Could not close staging journal {}: {}", journal.getFile(), e.getMessage());
+      }
     }
   }
 
@@ -0,0 +1,142 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.maven.staging.deploy.strategy;
+
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.sonatype.nexus.maven.staging.StagingExecutors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Pipeline of remote staging of multiple profiles: while the caller uploads profiles, the staging repositories
+ * already uploaded are closed (and released, if asked for) in background, so the server side close of one profile
+ * overlaps with the upload of the next one.
+ * <p/>
+ * The pipeline records the first failure of any stage (upload or close) of any profile, letting the caller skip
+ * the profiles not yet uploaded. Cleanup is left to the caller, once {@link #await()} returned, hence when no
+ * background stage runs anymore.
+ *
+ * @since 1.8.0
+ */
+class StagingPipeline
+{
+  private final Logger log = LoggerFactory.getLogger(StagingPipeline.class);
+
+  private final ExecutorService executor;
+
+  private final List<Future<?>> futures;
+
+  private String failedProfileId;
+
+  private Throwable failure;
+
+  StagingPipeline(final int threads) {
+    this(threads, "nexus-staging-close-%d");
+  }
+
+  StagingPipeline(final int threads, final String threadNameFormat) {
+    checkArgument(threads > 0, "Pipeline threads must be greater than zero");
+    this.executor = StagingExecutors.newFixedThreadPool(threads, threadNameFormat);
+    this.futures = new ArrayList<Future<?>>();
+  }
+
+  /**
+   * Runs the stage of the profile in background, unless the pipeline failed already.
+   */
+  void submit(final String profileId, final Callable<Void> stage) {
+    if (isFailed()) {
+      return;
+    }
+    final Future<?> future = executor.submit(new Runnable()
+    {
+      @Override
+      public void run() {
+        if (isFailed()) {
+          return;
+        }
+        try {
+          stage.call();
+        }
+        catch (Exception e) {
+          failed(profileId, e);
+        }
+      }
+    });
+    synchronized (futures) {
+      futures.add(future);
+    }
+  }
+
+  /**
+   * Records the failure of a stage of the profile. Only the first failure is kept, the subsequent ones are logged.
+   */
+  synchronized void failed(final String profileId, final Throwable problem) {
+    if (failure == null) {
+      failedProfileId = profileId;
+      failure = problem;
+    }
+    else {
+      log.error("Remote staging of profile ID \"{}\" failed too: {}", profileId, problem.getMessage());
+    }
+  }
+
+  synchronized boolean isFailed() {
+    return failure != null;
+  }
+
+  synchronized Throwable getFailure() {
+    return failure;
+  }
+
+  synchronized String getFailedProfileId() {
+    return failedProfileId;
+  }
+
+  /**
+   * Waits for all the background stages to finish.
+   */
+  void await() {
+    final List<Future<?>> submitted;
+    synchronized (futures) {
+      submitted = new ArrayList<Future<?>>(futures);
+    }
+    for (Future<?> future : submitted) {
+      try {
+        future.get();
+      }
+      catch (ExecutionException e) {
+        // stages record their own failures, this is a bug
+        failed(null, e.getCause());
+      }
+      catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        failed(null, new InterruptedIOException("Remote staging interrupted"));
+        return;
+      }
+    }
+  }
+
+  void shutdown() {
+    executor.shutdownNow();
+  }
+}
@@ -38,6 +38,15 @@ public interface Strategies
    */
   String STAGING = "staging";
 
+  /**
+   * Same as staging, but the staging repository is created as soon as first module is deployed, and each module is
+   * uploaded in background right after it was locally staged, while the build goes on. The last module only waits
+   * for the uploads to finish and closes the staging repository.
+   *
+   * @since 1.8.0
+   */
+  String STREAMING = "streaming";
+
   /**
    * Performs an "image" upload (directory contents are uploades as-is, as "image" of stuff you prepared), and
    * employs
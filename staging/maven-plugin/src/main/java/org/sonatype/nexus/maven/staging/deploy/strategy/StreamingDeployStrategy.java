@@ -0,0 +1,291 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.maven.staging.deploy.strategy;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import com.sonatype.nexus.staging.client.Profile;
+
+import org.sonatype.nexus.maven.staging.ReactorCompletionTracker;
+import org.sonatype.nexus.maven.staging.deploy.DeployableArtifact;
+import org.sonatype.nexus.maven.staging.deploy.StagingRepository;
+import org.sonatype.nexus.maven.staging.index.IndexEntry;
+import org.sonatype.nexus.maven.staging.remote.Parameters;
+import org.sonatype.nexus.maven.staging.remote.RemoteNexus;
+import org.sonatype.nexus.maven.staging.upload.UploadProgress;
+
+import org.apache.maven.artifact.deployer.ArtifactDeploymentException;
+import org.apache.maven.artifact.installer.ArtifactInstallationException;
+import org.apache.maven.artifact.repository.ArtifactRepository;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.codehaus.plexus.component.annotations.Component;
+
+/**
+ * Streaming staging deploy strategy. Same as {@link StagingDeployStrategy}, but the staging repository is created
+ * when first module is deployed, and the artifacts of each module are uploaded into it in background, right after
+ * they were locally staged, while the next modules build. The last module waits for the uploads to finish, and
+ * closes (and releases, if asked for) the staging repositories.
+ * <p/>
+ * Uploads into one staging repository are performed by one thread, in order modules were staged. If an upload
+ * fails, the next modules are still locally staged, but not uploaded anymore, and the last module cleans up as
+ * staging strategy would. If the build ends without the last module deploying (ie. a module failed), the staging
+ * repositories are cleaned up at session end, as after an IO failure. The upload progress of a staging repository
+ * spans all the modules streamed into it, and is reported once, when the uploads finished.
+ *
+ * @since 1.8.0
+ */
+@Component(role = DeployStrategy.class, hint = Strategies.STREAMING)
+public class StreamingDeployStrategy
+    extends StagingDeployStrategy
+{
+  /**
+   * The staging repositories being streamed into, keyed by profile ID.
+   */
+  private final Map<String, Stream> streams = new LinkedHashMap<String, Stream>();
+
+  /**
+   * Performs local staging as staging strategy does, and queues the locally staged artifacts for upload into the
+   * staging repository of the matched profile, creating that one if needed.
+   */
+  @Override
+  public void deployPerModule(final DeployPerModuleRequest request)
+      throws ArtifactInstallationException, ArtifactDeploymentException, MojoExecutionException
+  {
+    log.info(
+        "Performing local staging with streaming remote staging (local stagingDirectory=\"{}\")...",
+        request.getParameters().getStagingDirectoryRoot().getAbsolutePath());
+    if (request.getDeployableArtifacts().isEmpty()) {
+      log.info("Nothing to locally stage?");
+      return;
+    }
+    // we match only for 1st in list!
+    final RemoteNexus remoteNexus = createRemoteNexus(request.getMavenSession(), request.getParameters());
+    request.setRemoteNexus(remoteNexus); // to reuse if this module is last and will perform finalizeDeploy too
+    final String profileId =
+        selectStagingProfile(request.getParameters(), remoteNexus,
+            request.getDeployableArtifacts().get(0).getArtifact());
+    final File stagingDirectory = getStagingDirectory(request.getParameters().getStagingDirectoryRoot(), profileId);
+    final List<IndexEntry> entries = new ArrayList<IndexEntry>(request.getDeployableArtifacts().size());
+    for (DeployableArtifact deployableArtifact : request.getDeployableArtifacts()) {
+      final ArtifactRepository stagingRepository = getArtifactRepositoryForDirectory(stagingDirectory);
+      entries.add(install(deployableArtifact.getFile(), deployableArtifact.getArtifact(), stagingRepository,
+          stagingDirectory, null, request.getParameters().getInstallMode(),
+          request.getParameters().isInstallChecksums()));
+    }
+    syncIndex(stagingDirectory);
+
+    final Stream stream = openStream(request, remoteNexus, profileId);
+    if (stream.pipeline.isFailed()) {
+      log.warn(" * Remote staging into staging profile ID \"{}\" failed already, artifacts are not uploaded.",
+          profileId);
+      return;
+    }
+    log.info(" * Queued {} artifacts for upload into staging repository with ID \"{}\".", entries.size(),
+        stream.stagingRepository.getRepositoryId());
+    final MavenSession mavenSession = request.getMavenSession();
+    final Parameters parameters = request.getParameters();
+    stream.pipeline.submit(profileId, new Callable<Void>()
+    {
+      @Override
+      public Void call() throws Exception {
+        deployEntries(mavenSession, parameters, stagingDirectory, stream.remoteRepository, entries, stream.progress,
+            null, createPresenceCheck(parameters, stream.remoteNexus, stream.stagingRepository));
+        return null;
+      }
+    });
+  }
+
+  /**
+   * Waits for the uploads of all staging repositories to finish, and closes them. If nothing was streamed (ie.
+   * there is no module deployed in this session), performs remote staging as staging strategy does.
+   */
+  @Override
+  public void finalizeDeploy(final FinalizeDeployRequest request)
+      throws ArtifactDeploymentException, MojoExecutionException
+  {
+    final List<Stream> finished = takeStreams();
+    if (finished.isEmpty()) {
+      super.finalizeDeploy(request);
+      return;
+    }
+    log.info("Performing remote staging (waiting for streamed uploads to finish)...");
+    final Parameters parameters = request.getParameters();
+    final RemoteNexus remoteNexus = finished.get(0).remoteNexus;
+    final List<StagingRepository> zappedStagingRepositories =
+        Collections.synchronizedList(getStagingRepositories(finished));
+    String failedProfileId = null;
+    Throwable failure = null;
+    for (Stream stream : finished) {
+      stream.pipeline.await();
+      stream.pipeline.shutdown();
+      finishUploadProgress(parameters, stream.progress);
+      if (failure == null && stream.pipeline.isFailed()) {
+        failedProfileId = stream.pipeline.getFailedProfileId();
+        failure = stream.pipeline.getFailure();
+      }
+    }
+    if (failure == null) {
+      for (Stream stream : finished) {
+        log.info(" * Upload of locally staged artifacts to profile {} finished.",
+            stream.stagingRepository.getProfile().name());
+        try {
+          closeStage(parameters, remoteNexus, stream.stagingRepository, null, zappedStagingRepositories).call();
+        }
+        catch (Exception e) {
+          failedProfileId = stream.profileId;
+          failure = e;
+          break;
+        }
+      }
+    }
+    if (failure != null) {
+      throw stagingFailed(parameters, remoteNexus, zappedStagingRepositories, failedProfileId, failure);
+    }
+    log.info("Remote staged {} repositories, finished with success.", finished.size());
+
+    if (!parameters.isSkipStagingRepositoryClose() && parameters.isAutoReleaseAfterClose()
+        && !parameters.isAutoReleaseEachAfterClose()) {
+      releaseAfterClose(parameters, remoteNexus, zappedStagingRepositories);
+    }
+  }
+
+  // ==
+
+  /**
+   * Returns the stream of passed in profile, creating the staging repository for it if this is the first module of
+   * the profile.
+   */
+  private Stream openStream(final DeployPerModuleRequest request, final RemoteNexus remoteNexus,
+                            final String profileId)
+      throws MojoExecutionException
+  {
+    synchronized (streams) {
+      Stream stream = streams.get(profileId);
+      if (stream == null) {
+        if (streams.isEmpty()) {
+          cleanupOnSessionEnd(request.getMavenSession());
+        }
+        log.info(" * Remote staging into staging profile ID \"{}\" while the build goes on", profileId);
+        final Profile stagingProfile = remoteNexus.getStagingWorkflowV2Service().selectProfile(profileId);
+        final StagingRepository stagingRepository =
+            beforeUpload(request.getParameters(), remoteNexus, stagingProfile);
+        stream = new Stream(profileId, request.getParameters(), remoteNexus, stagingRepository,
+            createDeploymentArtifactRepository(remoteNexus.getServer().getId(), stagingRepository.getUrl()),
+            new StagingPipeline(1, "nexus-staging-stream-%d"), new UploadProgress(profileId));
+        startUploadProgress(request.getParameters(), stream.progress);
+        streams.put(profileId, stream);
+      }
+      return stream;
+    }
+  }
+
+  /**
+   * Makes the streams left unfinished by the session cleaned up when session ends. Requires Maven3, as it relies on
+   * execution events.
+   */
+  private void cleanupOnSessionEnd(final MavenSession mavenSession) {
+    try {
+      ReactorCompletionTracker.install(mavenSession).onSessionEnded(new Runnable()
+      {
+        @Override
+        public void run() {
+          abandon();
+        }
+      });
+    }
+    catch (LinkageError e) {
+      log.warn("Unable to track build end, staging repositories are not cleaned up if the build fails: {}",
+          e.getMessage());
+    }
+  }
+
+  /**
+   * Cleans up after a build that ended without finishing the streams (as the last module never deployed), as after
+   * an IO failure: staging repositories are dropped, unless kept by configuration.
+   */
+  private void abandon() {
+    final List<Stream> abandoned = takeStreams();
+    if (abandoned.isEmpty()) {
+      return;
+    }
+    for (Stream stream : abandoned) {
+      stream.pipeline.shutdown();
+      finishUploadProgress(stream.parameters, stream.progress);
+    }
+    final Stream first = abandoned.get(0);
+    try {
+      afterUploadFailure(first.parameters, first.remoteNexus, getStagingRepositories(abandoned),
+          new IOException("Build ended before remote staging finished"));
+    }
+    catch (Exception e) {
+      log.error("Could not clean up after unfinished remote staging: {}", e.getMessage());
+    }
+  }
+
+  private List<Stream> takeStreams() {
+    synchronized (streams) {
+      final List<Stream> result = new ArrayList<Stream>(streams.values());
+      streams.clear();
+      return result;
+    }
+  }
+
+  private List<StagingRepository> getStagingRepositories(final List<Stream> streams) {
+    final List<StagingRepository> result = new ArrayList<StagingRepository>(streams.size());
+    for (Stream stream : streams) {
+      result.add(stream.stagingRepository);
+    }
+    return result;
+  }
+
+  /**
+   * Staging repository being streamed into, with the pipeline uploading into it, and the progress of all the uploads.
+   */
+  private static class Stream
+  {
+    private final String profileId;
+
+    private final Parameters parameters;
+
+    private final RemoteNexus remoteNexus;
+
+    private final StagingRepository stagingRepository;
+
+    private final ArtifactRepository remoteRepository;
+
+    private final StagingPipeline pipeline;
+
+    private final UploadProgress progress;
+
+    private Stream(final String profileId, final Parameters parameters, final RemoteNexus remoteNexus,
+                   final StagingRepository stagingRepository, final ArtifactRepository remoteRepository,
+                   final StagingPipeline pipeline, final UploadProgress progress)
+    {
+      this.profileId = profileId;
+      this.parameters = parameters;
+      this.remoteNexus = remoteNexus;
+      this.stagingRepository = stagingRepository;
+      this.remoteRepository = remoteRepository;
+      this.pipeline = pipeline;
+      this.progress = progress;
+    }
+  }
+}
@@ -0,0 +1,168 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.maven.staging.index;
+
+import javax.annotation.Nullable;
+
+import org.sonatype.nexus.maven.staging.install.FileChecksums;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * One record of the staging "index" file, describing one locally staged (or deferred) artifact, with all the data
+ * needed to deploy it remotely.
+ *
+ * @since 1.8.0
+ */
+public class IndexEntry
+{
+  private final String path;
+
+  private final String groupId;
+
+  private final String artifactId;
+
+  private final String version;
+
+  private final String classifier;
+
+  private final String packaging;
+
+  private final String extension;
+
+  private final String pomFileName;
+
+  private final String pluginPrefix;
+
+  private final String repoId;
+
+  private final String repoUrl;
+
+  private final FileChecksums checksums;
+
+  private final FileChecksums pomChecksums;
+
+  public IndexEntry(final String path, final String groupId, final String artifactId, final String version,
+                    final String classifier, final String packaging, final String extension,
+                    final String pomFileName, final String pluginPrefix, final String repoId, final String repoUrl)
+  {
+    this(path, groupId, artifactId, version, classifier, packaging, extension, pomFileName, pluginPrefix, repoId,
+        repoUrl, null, null);
+  }
+
+  public IndexEntry(final String path, final String groupId, final String artifactId, final String version,
+                    final String classifier, final String packaging, final String extension,
+                    final String pomFileName, final String pluginPrefix, final String repoId, final String repoUrl,
+                    @Nullable final FileChecksums checksums, @Nullable final FileChecksums pomChecksums)
+  {
+    this.path = checkNotNull(path);
+    this.groupId = checkNotNull(groupId);
+    this.artifactId = checkNotNull(artifactId);
+    this.version = checkNotNull(version);
+    this.classifier = classifier;
+    this.packaging = checkNotNull(packaging);
+    this.extension = checkNotNull(extension);
+    this.pomFileName = pomFileName;
+    this.pluginPrefix = pluginPrefix;
+    this.repoId = repoId;
+    this.repoUrl = repoUrl;
+    this.checksums = checksums;
+    this.pomChecksums = pomChecksums;
+  }
+
+  /**
+   * The path of the artifact, relative to the staging directory.
+   */
+  public String getPath() {
+    return path;
+  }
+
+  public String getGroupId() {
+    return groupId;
+  }
+
+  public String getArtifactId() {
+    return artifactId;
+  }
+
+  public String getVersion() {
+    return version;
+  }
+
+  /**
+   * The classifier, or {@code null} if none.
+   */
+  public String getClassifier() {
+    return classifier;
+  }
+
+  public String getPackaging() {
+    return packaging;
+  }
+
+  public String getExtension() {
+    return extension;
+  }
+
+  /**
+   * The file name of the POM staged next to artifact, or {@code null} if no POM belongs to artifact.
+   */
+  public String getPomFileName() {
+    return pomFileName;
+  }
+
+  /**
+   * The plugin prefix, or {@code null} if artifact is not a Maven Plugin.
+   */
+  public String getPluginPrefix() {
+    return pluginPrefix;
+  }
+
+  /**
+   * The ID of the repository to deploy to, or {@code null} if not recorded (staging).
+   */
+  public String getRepoId() {
+    return repoId;
+  }
+
+  /**
+   * The URL of the repository to deploy to, or {@code null} if not recorded (staging).
+   */
+  public String getRepoUrl() {
+    return repoUrl;
+  }
+
+  /**
+   * The checksums of the artifact calculated when it was staged, or {@code null} if not recorded (ie. staged by older
+   * plugin version).
+   */
+  @Nullable
+  public FileChecksums getChecksums() {
+    return checksums;
+  }
+
+  /**
+   * The checksums of the POM calculated when it was staged, or {@code null} if there is no POM or they were not
+   * recorded.
+   */
+  @Nullable
+  public FileChecksums getPomChecksums() {
+    return pomChecksums;
+  }
+
+  @Override
+  public String toString() {
+    return path + "=" + groupId + ":" + artifactId + ":" + version + ":" + classifier + ":" + packaging + ":"
+        + extension;
+  }
+}
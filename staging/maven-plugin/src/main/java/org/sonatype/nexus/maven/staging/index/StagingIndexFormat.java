@@ -0,0 +1,64 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.maven.staging.index;
+
+import java.io.File;
+
+/**
+ * Constants of the staging "index" file format. Layout of current (binary) format:
+ * <pre>
+ *   header: magic (int) | format version (byte)
+ *   record: payload length (int) | field count (byte) | fields...
+ *   field:  present (boolean) | value (modified UTF-8, length prefixed)
+ * </pre>
+ * Readers must skip fields of a record they do not know about (using the payload length), hence new fields may be
+ * appended to records without a format version change. The fields of a record are path, groupId, artifactId,
+ * version, classifier, packaging, extension, POM file name, plugin prefix, repository ID and URL, followed by MD5,
+ * SHA-1, SHA-256 and SHA-512 of the artifact and of the POM (the latter eight were appended later, older records
+ * have only the first eleven). Old format is line based text, one
+ * {@code path=G:A:V:C:P:Ext:PomFileName:PluginPrefix:repoId:repoUrl} line per record, using "n/a" for nulls.
+ *
+ * @since 1.8.0
+ */
+final class StagingIndexFormat
+{
+  private StagingIndexFormat() {
+    // no instances
+  }
+
+  static final String FILE_NAME = ".index";
+
+  static final int MAGIC = 0x4E585349; // "NXSI"
+
+  static final byte VERSION = 1;
+
+  static final int HEADER_LENGTH = 5;
+
+  /**
+   * The count of fields of records written by this version.
+   */
+  static final int RECORD_FIELDS = 19;
+
+  /**
+   * The count of fields every record has, the ones up to repository URL.
+   */
+  static final int REQUIRED_FIELDS = 11;
+
+  static final String LEGACY_CHARSET = "ISO-8859-1";
+
+  static final String LEGACY_NULL = "n/a";
+
+  static File indexFile(final File stagingDirectory) {
+    return new File(stagingDirectory, FILE_NAME);
+  }
+}
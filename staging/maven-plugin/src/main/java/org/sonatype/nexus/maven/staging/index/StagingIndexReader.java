@@ -0,0 +1,225 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.maven.staging.index;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+
+import org.sonatype.nexus.maven.staging.install.FileChecksums;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static org.sonatype.nexus.maven.staging.index.StagingIndexFormat.HEADER_LENGTH;
+import static org.sonatype.nexus.maven.staging.index.StagingIndexFormat.LEGACY_CHARSET;
+import static org.sonatype.nexus.maven.staging.index.StagingIndexFormat.LEGACY_NULL;
+import static org.sonatype.nexus.maven.staging.index.StagingIndexFormat.MAGIC;
+import static org.sonatype.nexus.maven.staging.index.StagingIndexFormat.RECORD_FIELDS;
+import static org.sonatype.nexus.maven.staging.index.StagingIndexFormat.REQUIRED_FIELDS;
+import static org.sonatype.nexus.maven.staging.index.StagingIndexFormat.VERSION;
+import static org.sonatype.nexus.maven.staging.index.StagingIndexFormat.indexFile;
+
+/**
+ * Streaming reader of the staging "index" file, returning one record at a time, in order they were appended. Reads
+ * both, the current binary format and the old line based one (written by older versions of this plugin, as in case
+ * of two-shot "deploy-staged" invocation). A partially written last record (ie. the build was killed while staging
+ * locally) is ignored.
+ *
+ * @since 1.8.0
+ */
+public class StagingIndexReader
+    implements Closeable
+{
+  private final Logger log = LoggerFactory.getLogger(StagingIndexReader.class);
+
+  private final File file;
+
+  private final DataInputStream input;
+
+  private final BufferedReader legacyReader;
+
+  public StagingIndexReader(final File stagingDirectory) throws IOException {
+    this.file = indexFile(stagingDirectory);
+    final BufferedInputStream stream = new BufferedInputStream(new FileInputStream(file));
+    try {
+      if (isBinary(stream)) {
+        this.input = new DataInputStream(stream);
+        this.legacyReader = null;
+      }
+      else {
+        this.input = null;
+        this.legacyReader = new BufferedReader(new InputStreamReader(stream, LEGACY_CHARSET));
+      }
+    }
+    catch (IOException e) {
+      stream.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Returns {@code true} if the staging directory has index file in it.
+   */
+  public static boolean exists(final File stagingDirectory) {
+    return indexFile(stagingDirectory).isFile();
+  }
+
+  /**
+   * Returns {@code true} if the index file of staging directory is in current (binary) format, {@code false} if it
+   * is in old format or does not exist.
+   */
+  static boolean isBinary(final File stagingDirectory) throws IOException {
+    final File file = indexFile(stagingDirectory);
+    if (!file.isFile()) {
+      return false;
+    }
+    final BufferedInputStream stream = new BufferedInputStream(new FileInputStream(file));
+    try {
+      return isBinary(stream);
+    }
+    finally {
+      stream.close();
+    }
+  }
+
+  /**
+   * Checks the header, and positions the stream after it when binary, or resets it to start when not.
+   */
+  private static boolean isBinary(final BufferedInputStream stream) throws IOException {
+    stream.mark(HEADER_LENGTH);
+    final DataInputStream dataInput = new DataInputStream(stream);
+    try {
+      if (dataInput.readInt() == MAGIC) {
+        final byte version = dataInput.readByte();
+        if (version > VERSION) {
+          throw new IOException("Unsupported staging index format version " + version
+              + ", was the index written by a newer plugin version?");
+        }
+        return true;
+      }
+    }
+    catch (EOFException e) {
+      // too short to be binary
+    }
+    stream.reset();
+    return false;
+  }
+
+  /**
+   * Returns the next record, or {@code null} if no more records.
+   */
+  public IndexEntry read() throws IOException {
+    return legacyReader != null ? readLegacy() : readBinary();
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (legacyReader != null) {
+      legacyReader.close();
+    }
+    else {
+      input.close();
+    }
+  }
+
+  // ==
+
+  private IndexEntry readBinary() throws IOException {
+    final byte[] payload;
+    try {
+      payload = new byte[input.readInt()];
+    }
+    catch (EOFException e) {
+      return null;
+    }
+    try {
+      input.readFully(payload);
+    }
+    catch (EOFException e) {
+      log.warn("Ignoring partially written last record of staging index {}", file.getAbsolutePath());
+      return null;
+    }
+    final DataInputStream record = new DataInputStream(new ByteArrayInputStream(payload));
+    final int fields = record.readUnsignedByte();
+    if (fields < REQUIRED_FIELDS) {
+      throw new IOException("Corrupt staging index " + file.getAbsolutePath() + ": record has " + fields
+          + " fields, expected at least " + REQUIRED_FIELDS);
+    }
+    final String[] values = new String[REQUIRED_FIELDS];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = readField(record);
+    }
+    // checksums are present since all record fields, fields past the known ones (written by newer versions) are ignored
+    final FileChecksums checksums = fields >= RECORD_FIELDS ? readChecksums(record) : null;
+    final FileChecksums pomChecksums = fields >= RECORD_FIELDS ? readChecksums(record) : null;
+    return new IndexEntry(values[0], values[1], values[2], values[3], values[4], values[5], values[6], values[7],
+        values[8], values[9], values[10], checksums, pomChecksums);
+  }
+
+  private static FileChecksums readChecksums(final DataInputStream record) throws IOException {
+    final String md5 = readField(record);
+    final String sha1 = readField(record);
+    final String sha256 = readField(record);
+    final String sha512 = readField(record);
+    if (md5 == null || sha1 == null || sha256 == null || sha512 == null) {
+      return null;
+    }
+    return new FileChecksums(md5, sha1, sha256, sha512);
+  }
+
+  private static String readField(final DataInputStream record) throws IOException {
+    return record.readBoolean() ? record.readUTF() : null;
+  }
+
+  /**
+   * Reads next line of old format: {@code path=G:A:V:C:P:Ext:PomFileName:PluginPrefix:repoId:repoUrl}, where last
+   * field (URL) may contain colons.
+   */
+  private IndexEntry readLegacy() throws IOException {
+    String line;
+    while ((line = legacyReader.readLine()) != null) {
+      final int separator = line.indexOf('=');
+      if (line.trim().isEmpty() || line.startsWith("#") || separator < 0) {
+        continue;
+      }
+      final String[] fields = new String[11];
+      fields[0] = line.substring(0, separator).trim();
+      int start = separator + 1;
+      for (int i = 1; i < 10; i++) {
+        final int end = line.indexOf(':', start);
+        if (end < 0) {
+          throw new IOException("Corrupt staging index " + file.getAbsolutePath() + ": line \"" + line
+              + "\" has too few fields");
+        }
+        fields[i] = line.substring(start, end);
+        start = end + 1;
+      }
+      fields[10] = line.substring(start);
+      return new IndexEntry(fields[0], fields[1], fields[2], fields[3], nullIfNa(fields[4]), fields[5],
+          fields[6], nullIfNa(fields[7]), nullIfNa(fields[8]), nullIfNa(fields[9]), nullIfNa(fields[10]));
+    }
+    return null;
+  }
+
+  private static String nullIfNa(final String value) {
+    return LEGACY_NULL.equals(value) ? null : value;
+  }
+}
@@ -0,0 +1,224 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.maven.staging.index;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import org.sonatype.nexus.maven.staging.install.FileChecksums;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.google.common.base.Preconditions.checkState;
+import static org.sonatype.nexus.maven.staging.index.StagingIndexFormat.HEADER_LENGTH;
+import static org.sonatype.nexus.maven.staging.index.StagingIndexFormat.MAGIC;
+import static org.sonatype.nexus.maven.staging.index.StagingIndexFormat.RECORD_FIELDS;
+import static org.sonatype.nexus.maven.staging.index.StagingIndexFormat.VERSION;
+import static org.sonatype.nexus.maven.staging.index.StagingIndexFormat.indexFile;
+
+/**
+ * Append-only writer of the staging "index" file, keeping one open channel for the staging directory. Every record
+ * is written with one single channel write (no buffering is involved), while the data is forced to disk only when
+ * {@link #sync()} is invoked, that should happen at the end of module staging. An existing index in old format
+ * (left over by older plugin version) is converted to current format first, while a partially written last record
+ * of existing index (ie. the build was killed while staging locally) is cut off, to not have records appended after
+ * it.
+ * <p/>
+ * Instances are safe to be used by multiple threads.
+ *
+ * @since 1.8.0
+ */
+public class StagingIndexWriter
+    implements Closeable
+{
+  private final Logger log = LoggerFactory.getLogger(StagingIndexWriter.class);
+
+  private final File file;
+
+  private final FileChannel channel;
+
+  public StagingIndexWriter(final File stagingDirectory) throws IOException {
+    this.file = indexFile(stagingDirectory);
+    if (file.isFile() && file.length() > 0 && !StagingIndexReader.isBinary(stagingDirectory)) {
+      convertLegacy(stagingDirectory);
+    }
+    this.channel = new RandomAccessFile(file, "rw").getChannel();
+    try {
+      if (channel.size() == 0) {
+        final ByteArrayOutputStream header = new ByteArrayOutputStream();
+        writeHeader(new DataOutputStream(header));
+        write(ByteBuffer.wrap(header.toByteArray()));
+      }
+      else {
+        truncatePartialRecord();
+        channel.position(channel.size());
+      }
+    }
+    catch (IOException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  public File getFile() {
+    return file;
+  }
+
+  /**
+   * Appends the record to the index.
+   */
+  public synchronized void append(final IndexEntry entry) throws IOException {
+    checkState(channel.isOpen(), "Staging index %s already closed", file);
+    final ByteArrayOutputStream record = new ByteArrayOutputStream(256);
+    final DataOutputStream dataOutput = new DataOutputStream(record);
+    dataOutput.writeInt(0); // placeholder for payload length
+    writeRecord(dataOutput, entry);
+    dataOutput.flush();
+    final ByteBuffer buffer = ByteBuffer.wrap(record.toByteArray());
+    buffer.putInt(0, buffer.limit() - 4);
+    write(buffer);
+  }
+
+  /**
+   * Forces all the appended records to disk.
+   */
+  public synchronized void sync() throws IOException {
+    if (channel.isOpen()) {
+      channel.force(false);
+    }
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    if (channel.isOpen()) {
+      try {
+        channel.force(false);
+      }
+      finally {
+        channel.close();
+      }
+    }
+  }
+
+  // ==
+
+  /**
+   * Walks the records using their length prefix, and cuts the index after the last complete one.
+   */
+  private void truncatePartialRecord() throws IOException {
+    final long size = channel.size();
+    final ByteBuffer length = ByteBuffer.allocate(4);
+    long position = HEADER_LENGTH;
+    while (position < size) {
+      length.clear();
+      while (length.hasRemaining() && channel.read(length, position + length.position()) > 0) {
+        // read up the length prefix
+      }
+      if (length.hasRemaining()) {
+        break;
+      }
+      final long end = position + 4 + length.getInt(0);
+      if (length.getInt(0) < 0 || end > size) {
+        break;
+      }
+      position = end;
+    }
+    if (position < size) {
+      log.warn("Discarding partially written last record of staging index {}", file.getAbsolutePath());
+      channel.truncate(position);
+    }
+  }
+
+  private void write(final ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+  }
+
+  private static void writeHeader(final DataOutputStream dataOutput) throws IOException {
+    dataOutput.writeInt(MAGIC);
+    dataOutput.writeByte(VERSION);
+  }
+
+  private static void writeRecord(final DataOutputStream dataOutput, final IndexEntry entry) throws IOException {
+    dataOutput.writeByte(RECORD_FIELDS);
+    writeField(dataOutput, entry.getPath());
+    writeField(dataOutput, entry.getGroupId());
+    writeField(dataOutput, entry.getArtifactId());
+    writeField(dataOutput, entry.getVersion());
+    writeField(dataOutput, entry.getClassifier());
+    writeField(dataOutput, entry.getPackaging());
+    writeField(dataOutput, entry.getExtension());
+    writeField(dataOutput, entry.getPomFileName());
+    writeField(dataOutput, entry.getPluginPrefix());
+    writeField(dataOutput, entry.getRepoId());
+    writeField(dataOutput, entry.getRepoUrl());
+    writeChecksums(dataOutput, entry.getChecksums());
+    writeChecksums(dataOutput, entry.getPomChecksums());
+  }
+
+  private static void writeChecksums(final DataOutputStream dataOutput, final FileChecksums checksums)
+      throws IOException
+  {
+    writeField(dataOutput, checksums != null ? checksums.getMd5() : null);
+    writeField(dataOutput, checksums != null ? checksums.getSha1() : null);
+    writeField(dataOutput, checksums != null ? checksums.getSha256() : null);
+    writeField(dataOutput, checksums != null ? checksums.getSha512() : null);
+  }
+
+  private static void writeField(final DataOutputStream dataOutput, final String value) throws IOException {
+    dataOutput.writeBoolean(value != null);
+    if (value != null) {
+      dataOutput.writeUTF(value);
+    }
+  }
+
+  /**
+   * Rewrites the index of old format into current format, replacing it.
+   */
+  private void convertLegacy(final File stagingDirectory) throws IOException {
+    final File converted = new File(stagingDirectory, file.getName() + ".converted");
+    final StagingIndexReader reader = new StagingIndexReader(stagingDirectory);
+    try {
+      final DataOutputStream dataOutput = new DataOutputStream(new FileOutputStream(converted));
+      try {
+        writeHeader(dataOutput);
+        final ByteArrayOutputStream record = new ByteArrayOutputStream(256);
+        IndexEntry entry;
+        while ((entry = reader.read()) != null) {
+          record.reset();
+          writeRecord(new DataOutputStream(record), entry);
+          dataOutput.writeInt(record.size());
+          record.writeTo(dataOutput);
+        }
+      }
+      finally {
+        dataOutput.close();
+      }
+    }
+    finally {
+      reader.close();
+    }
+    if (!file.delete() || !converted.renameTo(file)) {
+      throw new IOException("Cannot convert staging index " + file.getAbsolutePath() + " to new format");
+    }
+  }
+}
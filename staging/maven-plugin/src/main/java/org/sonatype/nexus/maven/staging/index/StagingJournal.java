@@ -0,0 +1,245 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.maven.staging.index;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Closeables;
+import com.google.common.io.Files;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Journal of the remote staging upload, kept next to the staging "index" file. It records the staging repository
+ * being uploaded to, and for every file that was successfully uploaded into it it's path, size, last modification
+ * and SHA1 checksum. Using it, an interrupted upload might be resumed into the same staging repository, sending only
+ * the files not uploaded yet, or changed since.
+ * <p/>
+ * The journal is a plain text file, each record being one line appended (and flushed) as soon as the upload of the
+ * file finished, so a killed build loses at most the records of files being uploaded in that moment. The first line
+ * holds the staging repository ID, records are lines of form {@code <sha1> <size> <lastModified> <path>}. Unparseable
+ * lines (ie. a partially written last line) are ignored, as the worst outcome of it is a file uploaded once more.
+ * <p/>
+ * Instances are safe to be used by multiple threads.
+ *
+ * @since 1.8.0
+ */
+public class StagingJournal
+    implements Closeable
+{
+  public static final String FILE_NAME = ".journal";
+
+  private static final String REPOSITORY_PREFIX = "repository=";
+
+  private static final Logger log = LoggerFactory.getLogger(StagingJournal.class);
+
+  private final File file;
+
+  private final Map<String, Record> records;
+
+  private String repositoryId;
+
+  private OutputStream output;
+
+  private StagingJournal(final File file) {
+    this.file = file;
+    this.records = new HashMap<String, Record>();
+  }
+
+  /**
+   * Opens the journal of the staging directory, reading up the existing records, if any.
+   */
+  public static StagingJournal open(final File stagingDirectory) throws IOException {
+    final StagingJournal journal = new StagingJournal(new File(stagingDirectory, FILE_NAME));
+    if (journal.file.isFile()) {
+      journal.load();
+    }
+    return journal;
+  }
+
+  public File getFile() {
+    return file;
+  }
+
+  /**
+   * Returns the ID of the staging repository the journaled upload went into, or {@code null} if none.
+   */
+  public synchronized String getRepositoryId() {
+    return repositoryId;
+  }
+
+  /**
+   * Returns the count of files recorded as uploaded.
+   */
+  public synchronized int size() {
+    return records.size();
+  }
+
+  /**
+   * Starts (or continues) journaling the upload into given staging repository. If the journal belongs to some other
+   * repository, all it's records are discarded, as none of those files are present in passed in repository.
+   */
+  public synchronized void start(final String repositoryId) throws IOException {
+    checkNotNull(repositoryId);
+    if (repositoryId.equals(this.repositoryId)) {
+      return;
+    }
+    closeOutput();
+    records.clear();
+    this.repositoryId = repositoryId;
+    output = new FileOutputStream(file, false);
+    write(REPOSITORY_PREFIX + repositoryId + "\n");
+  }
+
+  /**
+   * Returns the SHA1 of file as recorded when it was uploaded, if the file was recorded, and is unchanged since (same
+   * size, and same last modification or same content). Otherwise returns {@code null}.
+   */
+  public String uploadedSha1(final String path, final File file) throws IOException {
+    final Record record;
+    synchronized (this) {
+      record = records.get(path);
+    }
+    if (record == null || !file.isFile() || record.size != file.length()) {
+      return null;
+    }
+    if (record.lastModified == file.lastModified() || record.sha1.equals(sha1(file))) {
+      return record.sha1;
+    }
+    return null;
+  }
+
+  /**
+   * Records the file on given path as uploaded.
+   */
+  public void uploaded(final String path, final File file) throws IOException {
+    uploaded(path, file, null);
+  }
+
+  /**
+   * Records the file on given path as uploaded, with it's SHA1 if known (ie. calculated while it was staged), to not
+   * read the file once more to calculate it.
+   */
+  public void uploaded(final String path, final File file, @Nullable final String sha1) throws IOException {
+    final Record record = new Record(sha1 != null ? sha1 : sha1(file), file.length(), file.lastModified());
+    synchronized (this) {
+      if (output == null) {
+        throw new IOException("Staging journal " + this.file + " not started");
+      }
+      write(record.sha1 + " " + record.size + " " + record.lastModified + " " + path + "\n");
+      records.put(path, record);
+    }
+  }
+
+  /**
+   * Closes the journal, and deletes it's file, to be invoked when the upload (and staging repository close, if any)
+   * finished with success.
+   */
+  public synchronized void delete() throws IOException {
+    close();
+    records.clear();
+    repositoryId = null;
+    if (file.exists() && !file.delete()) {
+      throw new IOException("Cannot delete staging journal " + file);
+    }
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    closeOutput();
+  }
+
+  // ==
+
+  private void load() throws IOException {
+    final BufferedReader reader =
+        new BufferedReader(new InputStreamReader(new FileInputStream(file), Charsets.UTF_8));
+    try {
+      final String header = reader.readLine();
+      if (header == null || !header.startsWith(REPOSITORY_PREFIX)) {
+        log.warn("Ignoring staging journal {} having no repository", file);
+        return;
+      }
+      repositoryId = header.substring(REPOSITORY_PREFIX.length());
+      String line;
+      while ((line = reader.readLine()) != null) {
+        final String[] fields = line.split(" ", 4);
+        if (fields.length != 4) {
+          log.debug("Ignoring invalid line of staging journal {}: {}", file, line);
+          continue;
+        }
+        try {
+          records.put(fields[3], new Record(fields[0], Long.parseLong(fields[1]), Long.parseLong(fields[2])));
+        }
+        catch (NumberFormatException e) {
+          log.debug("Ignoring invalid line of staging journal {}: {}", file, line);
+        }
+      }
+    }
+    finally {
+      reader.close();
+    }
+    // continue appending
+    output = new FileOutputStream(file, true);
+  }
+
+  private void write(final String line) throws IOException {
+    output.write(line.getBytes(Charsets.UTF_8));
+    output.flush();
+  }
+
+  private void closeOutput() throws IOException {
+    if (output != null) {
+      try {
+        Closeables.close(output, false);
+      }
+      finally {
+        output = null;
+      }
+    }
+  }
+
+  private static String sha1(final File file) throws IOException {
+    return Files.hash(file, Hashing.sha1()).toString();
+  }
+
+  private static class Record
+  {
+    private final String sha1;
+
+    private final long size;
+
+    private final long lastModified;
+
+    private Record(final String sha1, final long size, final long lastModified) {
+      this.sha1 = sha1;
+      this.size = size;
+      this.lastModified = lastModified;
+    }
+  }
+}
@@ -0,0 +1,154 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.maven.staging.install;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import com.google.common.base.Objects;
+import com.google.common.io.BaseEncoding;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * The checksums of a locally staged file, as published by Maven repositories: MD5, SHA-1, SHA-256 and SHA-512, in
+ * lower case hexadecimal form. All of them are calculated in one single pass over the file content, preferably while
+ * the file is being installed, so the file is not read once more just to be checksummed.
+ *
+ * @since 1.8.0
+ */
+public class FileChecksums
+{
+  static final int BUFFER_SIZE = 64 * 1024;
+
+  private final String md5;
+
+  private final String sha1;
+
+  private final String sha256;
+
+  private final String sha512;
+
+  public FileChecksums(final String md5, final String sha1, final String sha256, final String sha512) {
+    this.md5 = checkNotNull(md5);
+    this.sha1 = checkNotNull(sha1);
+    this.sha256 = checkNotNull(sha256);
+    this.sha512 = checkNotNull(sha512);
+  }
+
+  public String getMd5() {
+    return md5;
+  }
+
+  public String getSha1() {
+    return sha1;
+  }
+
+  public String getSha256() {
+    return sha256;
+  }
+
+  public String getSha512() {
+    return sha512;
+  }
+
+  /**
+   * Calculates the checksums of the file, reading it once.
+   */
+  public static FileChecksums of(final File file) throws IOException {
+    final Calculator calculator = new Calculator();
+    final InputStream input = new FileInputStream(file);
+    try {
+      final byte[] buffer = new byte[BUFFER_SIZE];
+      int read;
+      while ((read = input.read(buffer)) >= 0) {
+        calculator.update(buffer, 0, read);
+      }
+    }
+    finally {
+      input.close();
+    }
+    return calculator.finish();
+  }
+
+  @Override
+  public boolean equals(final Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    final FileChecksums that = (FileChecksums) o;
+    return md5.equals(that.md5) && sha1.equals(that.sha1) && sha256.equals(that.sha256)
+        && sha512.equals(that.sha512);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hashCode(md5, sha1, sha256, sha512);
+  }
+
+  @Override
+  public String toString() {
+    return "md5=" + md5 + ", sha1=" + sha1 + ", sha256=" + sha256 + ", sha512=" + sha512;
+  }
+
+  // ==
+
+  /**
+   * Calculates all the checksums of the content passed in as it is read (or written).
+   */
+  static class Calculator
+  {
+    private final MessageDigest md5;
+
+    private final MessageDigest sha1;
+
+    private final MessageDigest sha256;
+
+    private final MessageDigest sha512;
+
+    Calculator() {
+      try {
+        this.md5 = MessageDigest.getInstance("MD5");
+        this.sha1 = MessageDigest.getInstance("SHA-1");
+        this.sha256 = MessageDigest.getInstance("SHA-256");
+        this.sha512 = MessageDigest.getInstance("SHA-512");
+      }
+      catch (NoSuchAlgorithmException e) {
+        // all of them are mandatory for every JRE
+        throw new IllegalStateException(e);
+      }
+    }
+
+    void update(final byte[] buffer, final int offset, final int length) {
+      md5.update(buffer, offset, length);
+      sha1.update(buffer, offset, length);
+      sha256.update(buffer, offset, length);
+      sha512.update(buffer, offset, length);
+    }
+
+    FileChecksums finish() {
+      return new FileChecksums(hex(md5), hex(sha1), hex(sha256), hex(sha512));
+    }
+
+    private static String hex(final MessageDigest digest) {
+      return BaseEncoding.base16().lowerCase().encode(digest.digest());
+    }
+  }
+}
@@ -0,0 +1,184 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.maven.staging.install;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Installs files into local staging directory, by hard linking or copying them, as set by {@link InstallMode}.
+ * Linking makes the install of large files (like distribution archives) almost free, both in time and disk space,
+ * but it is possible only when source and target directories are on same file store.
+ *
+ * @since 1.8.0
+ */
+public class FileInstaller
+{
+  private final Logger log = LoggerFactory.getLogger(FileInstaller.class);
+
+  private final InstallMode installMode;
+
+  public FileInstaller(final InstallMode installMode) {
+    this.installMode = checkNotNull(installMode);
+  }
+
+  public InstallMode getInstallMode() {
+    return installMode;
+  }
+
+  /**
+   * Installs the source file to target, replacing target if exists, and returns the count of bytes installed.
+   */
+  public long install(final File source, final File target) throws IOException {
+    if (prepare(source, target) && !link(source, target)) {
+      copy(source, target);
+    }
+    return source.length();
+  }
+
+  /**
+   * Installs the source file to target as {@link #install(File, File)} does, and returns the checksums of the file.
+   * When copied, the checksums are calculated while copying, when linked, the file is read once to calculate them.
+   */
+  public FileChecksums installWithChecksums(final File source, final File target) throws IOException {
+    if (prepare(source, target) && !link(source, target)) {
+      return copyWithChecksums(source, target);
+    }
+    return FileChecksums.of(source);
+  }
+
+  // ==
+
+  /**
+   * Checks the source and creates the parent directory of target, returns {@code false} if source and target are
+   * same file, hence there is nothing to install.
+   */
+  private boolean prepare(final File source, final File target) throws IOException {
+    if (!source.isFile()) {
+      throw new IOException("Cannot install " + source.getAbsolutePath() + ", it is not a file");
+    }
+    final File parent = target.getParentFile();
+    if (!parent.isDirectory() && !parent.mkdirs() && !parent.isDirectory()) {
+      throw new IOException("Cannot create directory " + parent.getAbsolutePath());
+    }
+    return !source.getCanonicalFile().equals(target.getCanonicalFile());
+  }
+
+  /**
+   * Links the source to target if install mode allows it, returns {@code true} if linked, {@code false} if source
+   * should be copied instead.
+   */
+  private boolean link(final File source, final File target) throws IOException {
+    if (installMode == InstallMode.COPY
+        || (installMode != InstallMode.LINK && !isSameFileStore(source, target.getParentFile()))) {
+      return false;
+    }
+    try {
+      createLink(source, target);
+      return true;
+    }
+    catch (IOException e) {
+      if (installMode == InstallMode.LINK) {
+        throw e;
+      }
+      log.debug("Cannot link {}, copying it", source, e);
+    }
+    catch (UnsupportedOperationException e) {
+      if (installMode == InstallMode.LINK) {
+        throw new IOException("File store does not support hard links: " + e.getMessage(), e);
+      }
+      log.debug("Cannot link {}, copying it", source, e);
+    }
+    return false;
+  }
+
+  private boolean isSameFileStore(final File source, final File targetDirectory) {
+    try {
+      return Files.getFileStore(source.toPath()).equals(Files.getFileStore(targetDirectory.toPath()));
+    }
+    catch (IOException e) {
+      log.debug("Cannot determine file store of {} or {}", source, targetDirectory, e);
+      return false;
+    }
+  }
+
+  private void createLink(final File source, final File target) throws IOException {
+    final Path targetPath = target.toPath();
+    Files.deleteIfExists(targetPath);
+    Files.createLink(targetPath, source.toPath());
+  }
+
+  private void copy(final File source, final File target) throws IOException {
+    // deleting first, as target might be a link of some other file
+    Files.deleteIfExists(target.toPath());
+    final FileChannel in = new FileInputStream(source).getChannel();
+    try {
+      final FileChannel out = new FileOutputStream(target).getChannel();
+      try {
+        final long size = in.size();
+        long position = 0;
+        while (position < size) {
+          position += in.transferTo(position, size - position, out);
+        }
+      }
+      finally {
+        out.close();
+      }
+      target.setLastModified(source.lastModified());
+    }
+    finally {
+      in.close();
+    }
+  }
+
+  /**
+   * Copies the source to target through a buffer, calculating the checksums of the content on the way.
+   */
+  private FileChecksums copyWithChecksums(final File source, final File target) throws IOException {
+    // deleting first, as target might be a link of some other file
+    Files.deleteIfExists(target.toPath());
+    final FileChecksums.Calculator calculator = new FileChecksums.Calculator();
+    final InputStream in = new FileInputStream(source);
+    try {
+      final OutputStream out = new FileOutputStream(target);
+      try {
+        final byte[] buffer = new byte[FileChecksums.BUFFER_SIZE];
+        int read;
+        while ((read = in.read(buffer)) >= 0) {
+          calculator.update(buffer, 0, read);
+          out.write(buffer, 0, read);
+        }
+      }
+      finally {
+        out.close();
+      }
+      target.setLastModified(source.lastModified());
+    }
+    finally {
+      in.close();
+    }
+    return calculator.finish();
+  }
+}
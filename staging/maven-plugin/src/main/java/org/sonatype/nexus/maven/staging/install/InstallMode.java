@@ -0,0 +1,49 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.maven.staging.install;
+
+/**
+ * The way the files are installed into local staging directory.
+ *
+ * @since 1.8.0
+ */
+public enum InstallMode
+{
+  /**
+   * Files are copied (using zero-copy channel transfer where OS supports it).
+   */
+  COPY,
+
+  /**
+   * Files are hard linked, failing if source and target are not on same file store, or the file store does not
+   * support hard links.
+   */
+  LINK,
+
+  /**
+   * Files are hard linked when possible, and copied otherwise.
+   */
+  AUTO;
+
+  /**
+   * Parses the mode from its case insensitive name.
+   */
+  public static InstallMode parse(final String value) {
+    for (InstallMode mode : values()) {
+      if (mode.name().equalsIgnoreCase(value)) {
+        return mode;
+      }
+    }
+    throw new IllegalArgumentException("Unknown install mode \"" + value + "\", supported are link, copy and auto");
+  }
+}
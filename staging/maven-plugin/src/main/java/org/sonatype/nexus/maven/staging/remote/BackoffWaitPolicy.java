@@ -0,0 +1,84 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.maven.staging.remote;
+
+import java.util.Random;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * {@link WaitPolicy} with exponential backoff and jitter: the first pause is short (so quick operations are noticed
+ * almost immediately), and every subsequent pause is longer by given multiplier, up to the cap (so long operations do
+ * not make remote Nexus busy with probes). Each pause is randomly spread by the jitter ratio, to not have concurrent
+ * waits probe in lockstep.
+ *
+ * @since 1.8.0
+ */
+public class BackoffWaitPolicy
+    implements WaitPolicy
+{
+  public static final long DEFAULT_FIRST_PAUSE_MILLIS = 250L;
+
+  public static final double DEFAULT_MULTIPLIER = 2.0d;
+
+  public static final double DEFAULT_JITTER = 0.2d;
+
+  private final long firstPauseMillis;
+
+  private final long maxPauseMillis;
+
+  private final double multiplier;
+
+  private final double jitter;
+
+  private final Random random;
+
+  public BackoffWaitPolicy(final long maxPauseMillis) {
+    this(DEFAULT_FIRST_PAUSE_MILLIS, maxPauseMillis, DEFAULT_MULTIPLIER, DEFAULT_JITTER, new Random());
+  }
+
+  public BackoffWaitPolicy(final long firstPauseMillis, final long maxPauseMillis, final double multiplier,
+                           final double jitter, final Random random)
+  {
+    checkArgument(firstPauseMillis >= 0, "First pause must not be negative");
+    checkArgument(maxPauseMillis >= firstPauseMillis, "Maximum pause must not be less than first pause");
+    checkArgument(multiplier >= 1.0d, "Multiplier must be at least 1");
+    checkArgument(jitter >= 0.0d && jitter < 1.0d, "Jitter must be in [0, 1) range");
+    this.firstPauseMillis = firstPauseMillis;
+    this.maxPauseMillis = maxPauseMillis;
+    this.multiplier = multiplier;
+    this.jitter = jitter;
+    this.random = checkNotNull(random);
+  }
+
+  @Override
+  public long pauseMillis(final int probes) {
+    final double pause = Math.min(maxPauseMillis, firstPauseMillis * Math.pow(multiplier, Math.max(0, probes - 1)));
+    final double spread;
+    synchronized (random) {
+      spread = 1.0d + jitter * (2.0d * random.nextDouble() - 1.0d);
+    }
+    return Math.min(maxPauseMillis, Math.round(pause * spread));
+  }
+
+  @Override
+  public String toString() {
+    return "BackoffWaitPolicy{" +
+        "firstPauseMillis=" + firstPauseMillis +
+        ", maxPauseMillis=" + maxPauseMillis +
+        ", multiplier=" + multiplier +
+        ", jitter=" + jitter +
+        '}';
+  }
+}
@@ -18,6 +18,9 @@ import java.util.Map;
 
 import org.sonatype.nexus.maven.staging.StagingAction;
 import org.sonatype.nexus.maven.staging.StagingActionMessages;
+import org.sonatype.nexus.maven.staging.install.InstallMode;
+import org.sonatype.nexus.maven.staging.upload.RetryPolicy;
+import org.sonatype.nexus.maven.staging.zapper.ZapperRequest;
 
 import com.google.common.base.Strings;
 
@@ -53,6 +56,8 @@ public class Parameters
 
   private boolean autoReleaseAfterClose;
 
+  private boolean autoReleaseEachAfterClose;
+
   private boolean autoDropAfterRelease;
 
   private String stagingProfileId;
@@ -67,10 +72,56 @@ public class Parameters
 
   private int stagingProgressPauseDurationSeconds;
 
+  private WaitPolicy stagingProgressWaitPolicy;
+
   private boolean sslInsecure;
 
   private boolean sslAllowAll;
 
+  private int stagingUploadThreads = 1;
+
+  private int stagingProfileThreads = 1;
+
+  private boolean aetherDeploy = true;
+
+  private InstallMode installMode = InstallMode.COPY;
+
+  private boolean installChecksums = true;
+
+  private int presenceCheckThreads;
+
+  private boolean bundleUpload;
+
+  private int zapperUploadThreads = ZapperRequest.DEFAULT_UPLOAD_THREADS;
+
+  private int zapperMaxConnections = ZapperRequest.DEFAULT_MAX_CONNECTIONS;
+
+  private int zapperMaxConnectionsPerRoute;
+
+  private int zapperSocketBufferSize;
+
+  private int zapperConnectionBufferSize = ZapperRequest.DEFAULT_CONNECTION_BUFFER_SIZE;
+
+  private int zapperConnectTimeoutSeconds;
+
+  private int zapperReadTimeoutSeconds;
+
+  private int uploadProgressIntervalSeconds = 10;
+
+  private RetryPolicy uploadRetryPolicy = RetryPolicy.NONE;
+
+  private int uploadMaxThreads;
+
+  private File reportDirectory;
+
+  private boolean resumableStaging;
+
+  private ProfileMatchCache.Scope profileMatchCacheScope = ProfileMatchCache.Scope.GAV;
+
+  private File profileMatchCacheFile;
+
+  private int profileMatchCacheTtlSeconds;
+
   /**
    * Ctor, validates the minimal set of required parameters.
    */
@@ -179,6 +230,18 @@ public class Parameters
     this.autoReleaseAfterClose = autoReleaseAfterClose;
   }
 
+  /**
+   * Whether each staging repository is released as soon as it is closed (when {@link #isAutoReleaseAfterClose()}),
+   * instead of releasing all of them once all are closed.
+   */
+  public boolean isAutoReleaseEachAfterClose() {
+    return autoReleaseEachAfterClose;
+  }
+
+  public void setAutoReleaseEachAfterClose(final boolean autoReleaseEachAfterClose) {
+    this.autoReleaseEachAfterClose = autoReleaseEachAfterClose;
+  }
+
   public boolean isAutoDropAfterRelease() {
     return autoDropAfterRelease;
   }
@@ -235,6 +298,18 @@ public class Parameters
     this.stagingProgressPauseDurationSeconds = stagingProgressPauseDurationSeconds;
   }
 
+  /**
+   * The policy of pausing between probes while waiting for staging operations, or {@code null} if the staging
+   * service should pause {@link #getStagingProgressPauseDurationSeconds()} between probes.
+   */
+  public WaitPolicy getStagingProgressWaitPolicy() {
+    return stagingProgressWaitPolicy;
+  }
+
+  public void setStagingProgressWaitPolicy(final WaitPolicy stagingProgressWaitPolicy) {
+    this.stagingProgressWaitPolicy = stagingProgressWaitPolicy;
+  }
+
   public boolean isSslInsecure() {
     return sslInsecure;
   }
@@ -251,8 +326,233 @@ public class Parameters
     this.sslAllowAll = sslAllowAll;
   }
 
+  /**
+   * The count of threads uploading locally staged artifacts, used by both Aether and one by one deploy.
+   */
+  public int getStagingUploadThreads() {
+    return stagingUploadThreads;
+  }
+
+  public void setStagingUploadThreads(final int stagingUploadThreads) {
+    this.stagingUploadThreads = stagingUploadThreads;
+  }
+
+  public int getStagingProfileThreads() {
+    return stagingProfileThreads;
+  }
+
+  public void setStagingProfileThreads(final int stagingProfileThreads) {
+    this.stagingProfileThreads = stagingProfileThreads;
+  }
+
+  public boolean isAetherDeploy() {
+    return aetherDeploy;
+  }
+
+  public void setAetherDeploy(final boolean aetherDeploy) {
+    this.aetherDeploy = aetherDeploy;
+  }
+
+  public InstallMode getInstallMode() {
+    return installMode;
+  }
+
+  public void setInstallMode(final InstallMode installMode) {
+    this.installMode = checkNotNull(installMode);
+  }
+
+  /**
+   * Whether checksums of artifacts are calculated while they are locally staged, and recorded in the index.
+   */
+  public boolean isInstallChecksums() {
+    return installChecksums;
+  }
+
+  public void setInstallChecksums(final boolean installChecksums) {
+    this.installChecksums = installChecksums;
+  }
+
+  /**
+   * The count of concurrent lookups checking which artifacts are already present in remote repository before
+   * upload, or {@code 0} if presence should not be checked.
+   */
+  public int getPresenceCheckThreads() {
+    return presenceCheckThreads;
+  }
+
+  public void setPresenceCheckThreads(final int presenceCheckThreads) {
+    this.presenceCheckThreads = presenceCheckThreads;
+  }
+
+  /**
+   * Whether staged files are uploaded as one bundle in one single request, when Nexus supports it.
+   */
+  public boolean isBundleUpload() {
+    return bundleUpload;
+  }
+
+  public void setBundleUpload(final boolean bundleUpload) {
+    this.bundleUpload = bundleUpload;
+  }
+
+  /**
+   * The count of files uploaded concurrently by Zapper.
+   */
+  public int getZapperUploadThreads() {
+    return zapperUploadThreads;
+  }
+
+  public void setZapperUploadThreads(final int zapperUploadThreads) {
+    this.zapperUploadThreads = zapperUploadThreads;
+  }
+
+  /**
+   * The maximum count of pooled HTTP connections of Zapper.
+   */
+  public int getZapperMaxConnections() {
+    return zapperMaxConnections;
+  }
+
+  public void setZapperMaxConnections(final int zapperMaxConnections) {
+    this.zapperMaxConnections = zapperMaxConnections;
+  }
+
+  /**
+   * The maximum count of pooled HTTP connections of Zapper to one host, or {@code 0} to use as many as upload
+   * threads.
+   */
+  public int getZapperMaxConnectionsPerRoute() {
+    return zapperMaxConnectionsPerRoute;
+  }
+
+  public void setZapperMaxConnectionsPerRoute(final int zapperMaxConnectionsPerRoute) {
+    this.zapperMaxConnectionsPerRoute = zapperMaxConnectionsPerRoute;
+  }
+
+  /**
+   * The size in bytes of socket buffers of Zapper, or {@code 0} to use the defaults of OS.
+   */
+  public int getZapperSocketBufferSize() {
+    return zapperSocketBufferSize;
+  }
+
+  public void setZapperSocketBufferSize(final int zapperSocketBufferSize) {
+    this.zapperSocketBufferSize = zapperSocketBufferSize;
+  }
+
+  /**
+   * The size in bytes of HTTP connection buffers of Zapper.
+   */
+  public int getZapperConnectionBufferSize() {
+    return zapperConnectionBufferSize;
+  }
+
+  public void setZapperConnectionBufferSize(final int zapperConnectionBufferSize) {
+    this.zapperConnectionBufferSize = zapperConnectionBufferSize;
+  }
+
+  /**
+   * The connect timeout of Zapper in seconds, or {@code 0} for no timeout.
+   */
+  public int getZapperConnectTimeoutSeconds() {
+    return zapperConnectTimeoutSeconds;
+  }
+
+  public void setZapperConnectTimeoutSeconds(final int zapperConnectTimeoutSeconds) {
+    this.zapperConnectTimeoutSeconds = zapperConnectTimeoutSeconds;
+  }
+
+  /**
+   * The read timeout of Zapper in seconds, or {@code 0} for no timeout.
+   */
+  public int getZapperReadTimeoutSeconds() {
+    return zapperReadTimeoutSeconds;
+  }
+
+  public void setZapperReadTimeoutSeconds(final int zapperReadTimeoutSeconds) {
+    this.zapperReadTimeoutSeconds = zapperReadTimeoutSeconds;
+  }
+
+  public int getUploadProgressIntervalSeconds() {
+    return uploadProgressIntervalSeconds;
+  }
+
+  public void setUploadProgressIntervalSeconds(final int uploadProgressIntervalSeconds) {
+    this.uploadProgressIntervalSeconds = uploadProgressIntervalSeconds;
+  }
+
+  /**
+   * The retry policy of failed uploads, never {@code null}.
+   */
+  public RetryPolicy getUploadRetryPolicy() {
+    return uploadRetryPolicy;
+  }
+
+  public void setUploadRetryPolicy(final RetryPolicy uploadRetryPolicy) {
+    this.uploadRetryPolicy = checkNotNull(uploadRetryPolicy);
+  }
+
+  /**
+   * The maximal count of upload threads, when greater than the configured count of upload threads making the count
+   * adaptive, see {@link org.sonatype.nexus.maven.staging.upload.AdaptiveConcurrency}.
+   */
+  public int getUploadMaxThreads() {
+    return uploadMaxThreads;
+  }
+
+  public void setUploadMaxThreads(final int uploadMaxThreads) {
+    this.uploadMaxThreads = uploadMaxThreads;
+  }
+
+  /**
+   * The directory where upload reports are written, or {@code null} if no reports should be written.
+   */
+  public File getReportDirectory() {
+    return reportDirectory;
+  }
+
+  public void setReportDirectory(final File reportDirectory) {
+    this.reportDirectory = reportDirectory;
+  }
+
+  /**
+   * Whether the remote staging uploads are journaled, and the staging repository kept open on upload failure, so a
+   * repeated remote staging resumes the upload into same staging repository.
+   */
+  public boolean isResumableStaging() {
+    return resumableStaging;
+  }
+
+  public void setResumableStaging(final boolean resumableStaging) {
+    this.resumableStaging = resumableStaging;
+  }
+
   // ==
 
+  public ProfileMatchCache.Scope getProfileMatchCacheScope() {
+    return profileMatchCacheScope;
+  }
+
+  public void setProfileMatchCacheScope(final ProfileMatchCache.Scope profileMatchCacheScope) {
+    this.profileMatchCacheScope = checkNotNull(profileMatchCacheScope);
+  }
+
+  public File getProfileMatchCacheFile() {
+    return profileMatchCacheFile;
+  }
+
+  public void setProfileMatchCacheFile(final File profileMatchCacheFile) {
+    this.profileMatchCacheFile = profileMatchCacheFile;
+  }
+
+  public int getProfileMatchCacheTtlSeconds() {
+    return profileMatchCacheTtlSeconds;
+  }
+
+  public void setProfileMatchCacheTtlSeconds(final int profileMatchCacheTtlSeconds) {
+    this.profileMatchCacheTtlSeconds = profileMatchCacheTtlSeconds;
+  }
+
   @Override
   public String toString() {
     return "Parameters{" +
@@ -265,6 +565,7 @@ public class Parameters
         ", keepStagingRepositoryOnFailure=" + keepStagingRepositoryOnFailure +
         ", skipStagingRepositoryClose=" + skipStagingRepositoryClose +
         ", autoReleaseAfterClose=" + autoReleaseAfterClose +
+        ", autoReleaseEachAfterClose=" + autoReleaseEachAfterClose +
         ", autoDropAfterRelease=" + autoDropAfterRelease +
         ", stagingProfileId='" + stagingProfileId + '\'' +
         ", stagingRepositoryId='" + stagingRepositoryId + '\'' +
@@ -272,8 +573,31 @@ public class Parameters
         ", tags=" + tags +
         ", stagingProgressTimeoutMinutes=" + stagingProgressTimeoutMinutes +
         ", stagingProgressPauseDurationSeconds=" + stagingProgressPauseDurationSeconds +
+        ", stagingProgressWaitPolicy=" + stagingProgressWaitPolicy +
         ", sslInsecure=" + sslInsecure +
         ", sslAllowAll=" + sslAllowAll +
+        ", stagingUploadThreads=" + stagingUploadThreads +
+        ", stagingProfileThreads=" + stagingProfileThreads +
+        ", aetherDeploy=" + aetherDeploy +
+        ", installMode=" + installMode +
+        ", installChecksums=" + installChecksums +
+        ", presenceCheckThreads=" + presenceCheckThreads +
+        ", bundleUpload=" + bundleUpload +
+        ", zapperUploadThreads=" + zapperUploadThreads +
+        ", zapperMaxConnections=" + zapperMaxConnections +
+        ", zapperMaxConnectionsPerRoute=" + zapperMaxConnectionsPerRoute +
+        ", zapperSocketBufferSize=" + zapperSocketBufferSize +
+        ", zapperConnectionBufferSize=" + zapperConnectionBufferSize +
+        ", zapperConnectTimeoutSeconds=" + zapperConnectTimeoutSeconds +
+        ", zapperReadTimeoutSeconds=" + zapperReadTimeoutSeconds +
+        ", uploadProgressIntervalSeconds=" + uploadProgressIntervalSeconds +
+        ", uploadRetryPolicy=" + uploadRetryPolicy +
+        ", uploadMaxThreads=" + uploadMaxThreads +
+        ", reportDirectory=" + reportDirectory +
+        ", resumableStaging=" + resumableStaging +
+        ", profileMatchCacheScope=" + profileMatchCacheScope +
+        ", profileMatchCacheFile=" + profileMatchCacheFile +
+        ", profileMatchCacheTtlSeconds=" + profileMatchCacheTtlSeconds +
         '}';
   }
 }
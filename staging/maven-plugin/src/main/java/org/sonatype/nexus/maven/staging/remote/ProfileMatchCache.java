@@ -0,0 +1,271 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.maven.staging.remote;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Properties;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+
+import com.google.common.io.Closeables;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Cache of staging profiles matched by Nexus, to not ask Nexus to match the profile for every module of the reactor,
+ * as almost always all the modules (having same groupId) land in same profile. The in-memory layer is shared by all
+ * the modules deploying to same Nexus (see {@link RemoteNexusRegistry}), while the optional on-disk layer lets
+ * subsequent builds reuse the matches until they expire. A match is invalidated (in both layers) as soon as Nexus
+ * reports the profile as not found. This class is thread safe.
+ *
+ * @since 1.8.0
+ */
+public class ProfileMatchCache
+{
+  /**
+   * The GAV pattern matches are cached with: artifacts having same key are assumed to land in same profile.
+   */
+  public enum Scope
+  {
+    /**
+     * Nothing is cached, Nexus is asked to match the profile for every module.
+     */
+    NONE,
+
+    /**
+     * Matches are cached per groupId.
+     */
+    GROUPID,
+
+    /**
+     * Matches are cached per groupId, artifactId and version, hence only repeated GAVs hit the cache (the modules of
+     * a reactor do not share their matches).
+     */
+    GAV;
+
+    /**
+     * Parses the scope from its case insensitive name.
+     */
+    public static Scope parse(final String value) {
+      for (Scope scope : values()) {
+        if (scope.name().equalsIgnoreCase(value)) {
+          return scope;
+        }
+      }
+      throw new IllegalArgumentException(
+          "Unknown profile match cache scope \"" + value + "\", supported are none, groupId and gav");
+    }
+
+    String keyOf(final String groupId, final String artifactId, final String version) {
+      switch (this) {
+        case GROUPID:
+          return groupId + ":*:*";
+        case GAV:
+          return groupId + ":" + artifactId + ":" + version;
+        default:
+          throw new IllegalStateException("Scope " + this + " has no keys");
+      }
+    }
+  }
+
+  /**
+   * The path of the file matches are persisted into by default, relative to user home.
+   */
+  public static final String DEFAULT_FILE_PATH = ".m2/nexus-staging/profile-matches.properties";
+
+  private final Logger log = LoggerFactory.getLogger(ProfileMatchCache.class);
+
+  private final String nexusUrl;
+
+  private final Scope scope;
+
+  private final File file;
+
+  private final long ttlMillis;
+
+  private final Map<String, String> matches = new HashMap<String, String>();
+
+  /**
+   * Creates the cache of profiles matched by Nexus on passed in URL. Matches are persisted into passed in file, and
+   * reused for passed in TTL, if file is not {@code null} and TTL is greater than zero.
+   */
+  public ProfileMatchCache(final String nexusUrl, final Scope scope, @Nullable final File file, final long ttlMillis)
+  {
+    this.nexusUrl = checkNotNull(nexusUrl);
+    this.scope = checkNotNull(scope);
+    checkArgument(ttlMillis >= 0, "TTL must not be negative");
+    this.file = ttlMillis > 0 ? file : null;
+    this.ttlMillis = ttlMillis;
+  }
+
+  /**
+   * Returns the file matches are persisted into by default, {@link #DEFAULT_FILE_PATH} in user home.
+   */
+  public static File defaultFile() {
+    return new File(System.getProperty("user.home"), DEFAULT_FILE_PATH);
+  }
+
+  public Scope getScope() {
+    return scope;
+  }
+
+  /**
+   * Returns the ID of profile matched for passed in GAV, or {@code null} if not cached (or expired).
+   */
+  @CheckForNull
+  public synchronized String get(final String groupId, final String artifactId, final String version) {
+    if (scope == Scope.NONE) {
+      return null;
+    }
+    final String key = scope.keyOf(groupId, artifactId, version);
+    String profileId = matches.get(key);
+    if (profileId == null && file != null) {
+      profileId = load().get(key);
+      if (profileId != null) {
+        log.debug("Profile match {} -> {} reused from {}", key, profileId, file);
+        matches.put(key, profileId);
+      }
+    }
+    return profileId;
+  }
+
+  /**
+   * Caches the ID of profile matched by Nexus for passed in GAV.
+   */
+  public synchronized void put(final String groupId, final String artifactId, final String version,
+                               final String profileId)
+  {
+    checkNotNull(profileId);
+    if (scope == Scope.NONE) {
+      return;
+    }
+    final String key = scope.keyOf(groupId, artifactId, version);
+    matches.put(key, profileId);
+    if (file != null) {
+      final Properties persisted = read();
+      persisted.setProperty(nexusUrl + " " + key, profileId + "," + System.currentTimeMillis());
+      write(persisted);
+    }
+  }
+
+  /**
+   * Forgets all the matches of passed in profile, as when Nexus reports it as not found.
+   */
+  public synchronized void invalidate(final String profileId) {
+    checkNotNull(profileId);
+    removeProfile(matches, profileId);
+    if (file != null) {
+      final Properties persisted = read();
+      if (removeProfile(persisted, profileId)) {
+        write(persisted);
+      }
+    }
+    log.debug("Profile matches of {} invalidated", profileId);
+  }
+
+  // ==
+
+  /**
+   * Returns the not expired persisted matches of Nexus, keyed by GAV pattern.
+   */
+  private Map<String, String> load() {
+    final Map<String, String> result = new HashMap<String, String>();
+    final String prefix = nexusUrl + " ";
+    final long now = System.currentTimeMillis();
+    for (Entry<Object, Object> entry : read().entrySet()) {
+      final String key = (String) entry.getKey();
+      final String value = (String) entry.getValue();
+      final int comma = value.lastIndexOf(',');
+      if (!key.startsWith(prefix) || comma < 1) {
+        continue;
+      }
+      try {
+        if (now - Long.parseLong(value.substring(comma + 1)) < ttlMillis) {
+          result.put(key.substring(prefix.length()), value.substring(0, comma));
+        }
+      }
+      catch (NumberFormatException e) {
+        // ignore corrupt entry
+      }
+    }
+    return result;
+  }
+
+  private boolean removeProfile(final Map<?, ?> map, final String profileId) {
+    boolean removed = false;
+    for (Iterator<?> iterator = map.values().iterator(); iterator.hasNext(); ) {
+      final String value = (String) iterator.next();
+      if (value.equals(profileId) || value.startsWith(profileId + ",")) {
+        iterator.remove();
+        removed = true;
+      }
+    }
+    return removed;
+  }
+
+  private Properties read() {
+    final Properties properties = new Properties();
+    if (file.isFile()) {
+      try {
+        final InputStream input = new FileInputStream(file);
+        try {
+          properties.load(input);
+        }
+        finally {
+          Closeables.close(input, true);
+        }
+      }
+      catch (IOException e) {
+        log.warn("Could not read profile match cache {}: {}", file, e.getMessage());
+      }
+    }
+    return properties;
+  }
+
+  /**
+   * Writes the matches into temporary file and renames it, so concurrent builds never see half written cache.
+   */
+  private void write(final Properties properties) {
+    try {
+      file.getParentFile().mkdirs();
+      final File tmp = File.createTempFile(file.getName(), ".tmp", file.getParentFile());
+      final OutputStream output = new FileOutputStream(tmp);
+      try {
+        properties.store(output, "nexus-staging-maven-plugin profile matches");
+      }
+      finally {
+        Closeables.close(output, false);
+      }
+      if (!tmp.renameTo(file) && !(file.delete() && tmp.renameTo(file))) {
+        tmp.delete();
+        throw new IOException("Could not rename " + tmp + " to " + file);
+      }
+    }
+    catch (IOException e) {
+      log.warn("Could not write profile match cache {}: {}", file, e.getMessage());
+    }
+  }
+}
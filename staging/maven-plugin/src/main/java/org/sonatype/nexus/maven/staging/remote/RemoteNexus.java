@@ -15,6 +15,7 @@ package org.sonatype.nexus.maven.staging.remote;
 import java.net.MalformedURLException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import com.sonatype.nexus.staging.client.StagingWorkflowV2Service;
 import com.sonatype.nexus.staging.client.StagingWorkflowV3Service;
@@ -60,6 +61,8 @@ public class RemoteNexus
 
   private final StagingWorkflowV2Service stagingWorkflowService;
 
+  private final ProfileMatchCache profileMatchCache;
+
   public RemoteNexus(final MavenSession mavenSession,
                      final SecDispatcher secDispatcher,
                      final Parameters parameters)
@@ -101,6 +104,8 @@ public class RemoteNexus
     // create client and needed subsystem
     this.nexusClient = createNexusClient(parameters);
     this.stagingWorkflowService = createStagingWorkflowV2Service(parameters, nexusClient);
+    this.profileMatchCache = new ProfileMatchCache(nexusUrl, parameters.getProfileMatchCacheScope(),
+        parameters.getProfileMatchCacheFile(), TimeUnit.SECONDS.toMillis(parameters.getProfileMatchCacheTtlSeconds()));
   }
 
   /**
@@ -146,6 +151,37 @@ public class RemoteNexus
     return stagingWorkflowService;
   }
 
+  /**
+   * Returns the cache of staging profiles matched by this Nexus.
+   *
+   * @since 1.8.0
+   */
+  public ProfileMatchCache getProfileMatchCache() {
+    return profileMatchCache;
+  }
+
+  /**
+   * Reapplies the staging progress parameters, as when this instance is shared by mojos having different ones, or
+   * was created in advance with incomplete ones.
+   *
+   * @since 1.8.0
+   */
+  public void reconfigure(final Parameters parameters) {
+    if (stagingWorkflowService instanceof StagingWorkflowV3Service) {
+      configureStagingWorkflowV3Service(parameters, (StagingWorkflowV3Service) stagingWorkflowService);
+    }
+  }
+
+  /**
+   * Closes the Nexus client, releasing its pooled connections. This instance must not be used once closed.
+   *
+   * @since 1.8.0
+   */
+  public void close() {
+    log.debug("Closing connection to Nexus at {}", getConnectionInfo().getBaseUrl());
+    getNexusClient().close();
+  }
+
   // ==
 
   protected NexusClient createNexusClient(final Parameters parameters) {
@@ -216,13 +252,7 @@ public class RemoteNexus
     try {
       StagingWorkflowV3Service service = nexusClient.getSubsystem(StagingWorkflowV3Service.class);
       log.debug("Using staging v3 service");
-
-      service.setProgressMonitor(new ProgressMonitorImpl());
-      service.setProgressTimeoutMinutes(parameters.getStagingProgressTimeoutMinutes());
-      service.setProgressPauseDurationSeconds(parameters.getStagingProgressPauseDurationSeconds());
-      log.debug("Using progressTimeoutMinutes={}, progressPauseDurationSeconds={}",
-          parameters.getStagingProgressTimeoutMinutes(), parameters.getStagingProgressPauseDurationSeconds());
-
+      configureStagingWorkflowV3Service(parameters, service);
       workflowService = service;
     }
     catch (Exception e) {
@@ -247,4 +277,26 @@ public class RemoteNexus
 
     return workflowService;
   }
+
+  /**
+   * Applies the staging progress parameters to the v3 staging service.
+   */
+  protected void configureStagingWorkflowV3Service(final Parameters parameters,
+                                                   final StagingWorkflowV3Service service)
+  {
+    service.setProgressTimeoutMinutes(parameters.getStagingProgressTimeoutMinutes());
+    if (parameters.getStagingProgressWaitPolicy() != null) {
+      // monitor pauses as policy says, service should just probe
+      service.setProgressMonitor(new ProgressMonitorImpl(parameters.getStagingProgressWaitPolicy()));
+      service.setProgressPauseDurationSeconds(0);
+      log.debug("Using progressTimeoutMinutes={}, waitPolicy={}",
+          parameters.getStagingProgressTimeoutMinutes(), parameters.getStagingProgressWaitPolicy());
+    }
+    else {
+      service.setProgressMonitor(new ProgressMonitorImpl());
+      service.setProgressPauseDurationSeconds(parameters.getStagingProgressPauseDurationSeconds());
+      log.debug("Using progressTimeoutMinutes={}, progressPauseDurationSeconds={}",
+          parameters.getStagingProgressTimeoutMinutes(), parameters.getStagingProgressPauseDurationSeconds());
+    }
+  }
 }
@@ -0,0 +1,296 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.maven.staging.remote;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.annotation.Nullable;
+
+import com.sonatype.nexus.staging.client.ProfileMatchingParameters;
+
+import org.sonatype.nexus.maven.staging.ReactorCompletionTracker;
+import org.sonatype.nexus.maven.staging.StagingExecutors;
+import org.sonatype.plexus.components.sec.dispatcher.SecDispatcher;
+
+import com.google.common.base.Objects;
+import com.google.common.base.Strings;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.execution.MavenSession;
+import org.codehaus.plexus.component.annotations.Component;
+import org.codehaus.plexus.component.annotations.Requirement;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Registry of {@link RemoteNexus} instances shared by all the modules of the reactor (and the remote staging at the
+ * end of it), so the credentials are deciphered, the connection is established and the Nexus status is fetched only
+ * once, and all the modules use the same pooled client. Instances are keyed by Maven session, Nexus URL, server ID,
+ * SSL flags and profile match cache settings, while the staging progress parameters are reapplied on every request,
+ * so each mojo runs with it's own.
+ * <p/>
+ * Instances may be created in advance in background (see {@link #prewarm(MavenSession, Parameters, List)}). The
+ * instances of a session are closed when the session ends (on Maven3, see {@link ReactorCompletionTracker}), or when
+ * {@link #close()} is invoked. This class is thread safe.
+ *
+ * @since 1.8.0
+ */
+@Component(role = RemoteNexusRegistry.class)
+public class RemoteNexusRegistry
+{
+  private final Logger log = LoggerFactory.getLogger(RemoteNexusRegistry.class);
+
+  @Requirement
+  private SecDispatcher secDispatcher;
+
+  private final Map<Key, RemoteNexus> remoteNexuses = new LinkedHashMap<Key, RemoteNexus>();
+
+  private final Set<MavenSession> trackedSessions = new HashSet<MavenSession>();
+
+  public RemoteNexusRegistry() {
+    // plexus
+  }
+
+  public RemoteNexusRegistry(final SecDispatcher secDispatcher) {
+    this.secDispatcher = checkNotNull(secDispatcher);
+  }
+
+  /**
+   * Returns the remote Nexus for passed in parameters, creating it if needed. Concurrent requests of not yet created
+   * instance wait for the one creating it.
+   */
+  public synchronized RemoteNexus get(final MavenSession mavenSession, final Parameters parameters) {
+    final Key key = new Key(mavenSession, parameters);
+    RemoteNexus remoteNexus = remoteNexuses.get(key);
+    if (remoteNexus == null) {
+      remoteNexus = create(key, mavenSession, parameters);
+    }
+    else {
+      log.debug("Reusing connection to Nexus at {}", parameters.getNexusUrl());
+      remoteNexus.reconfigure(parameters);
+    }
+    return remoteNexus;
+  }
+
+  /**
+   * Connects to Nexus in background, so connection is established, Nexus status fetched and the staging profiles
+   * resolved (and cached) by the time the first module deploys, and any connection or authentication problem is
+   * reported early in the build. Modules asking for the instance while it is being created wait for it.
+   *
+   * @param parameters the parameters to connect with, only the remoting and profile matching ones are used.
+   * @param artifacts  the artifacts to match staging profiles for, unless staging profile ID is set in parameters.
+   */
+  public Future<RemoteNexus> prewarm(final MavenSession mavenSession, final Parameters parameters,
+                                     final List<Artifact> artifacts)
+  {
+    final ExecutorService executor =
+        Executors.newSingleThreadExecutor(StagingExecutors.threadFactory("nexus-staging-prewarm-%d"));
+    try {
+      return executor.submit(new Callable<RemoteNexus>()
+      {
+        @Override
+        public RemoteNexus call() throws Exception {
+          try {
+            final RemoteNexus remoteNexus = prewarmRemoteNexus(mavenSession, parameters);
+            prewarmProfiles(remoteNexus, parameters, artifacts);
+            return remoteNexus;
+          }
+          catch (Exception e) {
+            log.error("Could not connect to Nexus at {} in advance: {}", parameters.getNexusUrl(), e.getMessage());
+            throw e;
+          }
+        }
+      });
+    }
+    finally {
+      executor.shutdown();
+    }
+  }
+
+  /**
+   * Closes all the remote Nexus instances, of all sessions.
+   */
+  public void close() {
+    closeInstances(null);
+  }
+
+  /**
+   * Closes the remote Nexus instances of passed in session, to be invoked at the end of the session.
+   */
+  public void close(final MavenSession mavenSession) {
+    closeInstances(checkNotNull(mavenSession));
+  }
+
+  /**
+   * Closes the remote Nexus instances of passed in session, or all of them if {@code null}.
+   */
+  private void closeInstances(@Nullable final MavenSession mavenSession) {
+    final List<RemoteNexus> closing = new ArrayList<RemoteNexus>();
+    synchronized (this) {
+      for (Iterator<Entry<Key, RemoteNexus>> iterator = remoteNexuses.entrySet().iterator(); iterator.hasNext(); ) {
+        final Entry<Key, RemoteNexus> entry = iterator.next();
+        if (mavenSession == null || entry.getKey().mavenSession == mavenSession) {
+          closing.add(entry.getValue());
+          iterator.remove();
+        }
+      }
+      if (mavenSession == null) {
+        trackedSessions.clear();
+      }
+      else {
+        trackedSessions.remove(mavenSession);
+      }
+    }
+    for (RemoteNexus remoteNexus : closing) {
+      try {
+        remoteNexus.close();
+      }
+      catch (RuntimeException e) {
+        log.warn("Could not close connection to Nexus: {}", e.getMessage());
+      }
+    }
+  }
+
+  private synchronized RemoteNexus prewarmRemoteNexus(final MavenSession mavenSession, final Parameters parameters) {
+    final Key key = new Key(mavenSession, parameters);
+    RemoteNexus remoteNexus = remoteNexuses.get(key);
+    if (remoteNexus == null) {
+      remoteNexus = create(key, mavenSession, parameters);
+    }
+    return remoteNexus;
+  }
+
+  private RemoteNexus create(final Key key, final MavenSession mavenSession, final Parameters parameters) {
+    final RemoteNexus remoteNexus = createRemoteNexus(mavenSession, parameters);
+    remoteNexuses.put(key, remoteNexus);
+    if (trackedSessions.add(mavenSession)) {
+      closeOnSessionEnd(mavenSession);
+    }
+    return remoteNexus;
+  }
+
+  /**
+   * Makes the instances of the session closed when session ends, so they (with the session, deciphered credentials
+   * and pooled connections) are not reused by a later session of same JVM. Requires Maven3, as it relies on execution
+   * events.
+   */
+  private void closeOnSessionEnd(final MavenSession mavenSession) {
+    try {
+      ReactorCompletionTracker.install(mavenSession).onSessionEnded(new Runnable()
+      {
+        @Override
+        public void run() {
+          close(mavenSession);
+        }
+      });
+    }
+    catch (LinkageError e) {
+      // Maven2, one session per JVM
+      log.debug("Unable to track session end: {}", e.getMessage());
+    }
+  }
+
+  private void prewarmProfiles(final RemoteNexus remoteNexus, final Parameters parameters,
+                               final List<Artifact> artifacts)
+  {
+    if (!Strings.isNullOrEmpty(parameters.getStagingProfileId())) {
+      remoteNexus.getStagingWorkflowV2Service().selectProfile(parameters.getStagingProfileId());
+      return;
+    }
+    final ProfileMatchCache profileMatchCache = remoteNexus.getProfileMatchCache();
+    if (profileMatchCache.getScope() == ProfileMatchCache.Scope.NONE) {
+      return;
+    }
+    for (Artifact artifact : artifacts) {
+      if (profileMatchCache.get(artifact.getGroupId(), artifact.getArtifactId(), artifact.getVersion()) == null) {
+        final String profileId = remoteNexus.getStagingWorkflowV2Service().matchProfile(
+            new ProfileMatchingParameters(artifact.getGroupId(), artifact.getArtifactId(), artifact.getVersion()))
+            .id();
+        profileMatchCache.put(artifact.getGroupId(), artifact.getArtifactId(), artifact.getVersion(), profileId);
+        log.debug("Staging profile ID \"{}\" matched in advance for {}", profileId, artifact);
+      }
+    }
+  }
+
+  protected RemoteNexus createRemoteNexus(final MavenSession mavenSession, final Parameters parameters) {
+    return new RemoteNexus(mavenSession, secDispatcher, parameters);
+  }
+
+  // ==
+
+  private static class Key
+  {
+    private final MavenSession mavenSession;
+
+    private final String nexusUrl;
+
+    private final String serverId;
+
+    private final boolean sslInsecure;
+
+    private final boolean sslAllowAll;
+
+    private final ProfileMatchCache.Scope profileMatchCacheScope;
+
+    private final File profileMatchCacheFile;
+
+    private final int profileMatchCacheTtlSeconds;
+
+    private Key(final MavenSession mavenSession, final Parameters parameters) {
+      this.mavenSession = checkNotNull(mavenSession);
+      this.nexusUrl = parameters.getNexusUrl();
+      this.serverId = parameters.getServerId();
+      this.sslInsecure = parameters.isSslInsecure();
+      this.sslAllowAll = parameters.isSslAllowAll();
+      this.profileMatchCacheScope = parameters.getProfileMatchCacheScope();
+      // file is not used without TTL
+      this.profileMatchCacheTtlSeconds = parameters.getProfileMatchCacheTtlSeconds();
+      this.profileMatchCacheFile = profileMatchCacheTtlSeconds > 0 ? parameters.getProfileMatchCacheFile() : null;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      final Key that = (Key) o;
+      return mavenSession == that.mavenSession && Objects.equal(nexusUrl, that.nexusUrl)
+          && Objects.equal(serverId, that.serverId) && sslInsecure == that.sslInsecure
+          && sslAllowAll == that.sslAllowAll && profileMatchCacheScope == that.profileMatchCacheScope
+          && Objects.equal(profileMatchCacheFile, that.profileMatchCacheFile)
+          && profileMatchCacheTtlSeconds == that.profileMatchCacheTtlSeconds;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hashCode(System.identityHashCode(mavenSession), nexusUrl, serverId, sslInsecure, sslAllowAll,
+          profileMatchCacheScope, profileMatchCacheFile, profileMatchCacheTtlSeconds);
+    }
+  }
+}
@@ -0,0 +1,28 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.maven.staging.remote;
+
+/**
+ * Policy of waiting for a staging operation (close, release, promote, drop) performed asynchronously by remote Nexus:
+ * it tells how long to pause before probing the state of staging repositories once again.
+ *
+ * @since 1.8.0
+ */
+public interface WaitPolicy
+{
+  /**
+   * Returns the pause in milliseconds before the next probe, given the count of probes that found the operation
+   * still in progress (hence {@code 1} for the pause after the first probe).
+   */
+  long pauseMillis(int probes);
+}
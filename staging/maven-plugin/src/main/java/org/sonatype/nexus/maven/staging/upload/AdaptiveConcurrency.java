@@ -0,0 +1,294 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.maven.staging.upload;
+
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+
+import com.google.common.base.Throwables;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Limit of concurrent uploads adapting to the remote, as congestion control of TCP does (additive increase,
+ * multiplicative decrease): the limit is raised by one while the throughput of uploads rises and their latency stays
+ * flat, and is cut multiplicatively when the remote signals overload, by responding with 429 or 5xx, by timing out,
+ * or by a latency spike. Uploads wrapped by {@link #limited(Callable)} wait until they fit into the current limit, so
+ * the workers performing them should be pooled for {@link #getMaxLimit()}. With equal minimal and maximal limit, the
+ * limit is fixed and nothing is measured.
+ * <p/>
+ * Decisions are made once per window of completed uploads (at least as many as the limit is), comparing the median
+ * latency of the window with the lowest median seen (the latency of an idle remote), and the throughput of the window
+ * with the one of former window. Overload cuts the limit right away, but uploads started before a cut are not
+ * measured anymore, as they report the overload caused by the former limit. The decisions are logged on debug level.
+ * <p/>
+ * Instances are thread safe, and are meant for one upload run.
+ *
+ * @since 1.8.0
+ */
+public class AdaptiveConcurrency
+{
+  /**
+   * Window latency up to this multiple of the lowest latency is considered flat, allowing to raise the limit.
+   */
+  public static final double LATENCY_FLAT = 1.5d;
+
+  /**
+   * Window latency over this multiple of the lowest latency is considered a spike, cutting the limit.
+   */
+  public static final double LATENCY_SPIKE = 2.5d;
+
+  /**
+   * The multiplier of limit on overload signalled by remote.
+   */
+  public static final double OVERLOAD_DECREASE = 0.5d;
+
+  /**
+   * The multiplier of limit on latency spike.
+   */
+  public static final double LATENCY_DECREASE = 0.75d;
+
+  private static final int MIN_WINDOW = 5;
+
+  private final Logger log = LoggerFactory.getLogger(AdaptiveConcurrency.class);
+
+  private final int minLimit;
+
+  private final int maxLimit;
+
+  private int limit;
+
+  private int lowestLimit;
+
+  private int highestLimit;
+
+  private int inFlight;
+
+  private int windowPeakInFlight;
+
+  private long windowStarted;
+
+  private final List<Long> windowLatencies = new ArrayList<Long>();
+
+  private double lastThroughput = -1.0d;
+
+  private long lowestLatency = -1L;
+
+  private boolean cut;
+
+  private long lastCut;
+
+  public AdaptiveConcurrency(final int minLimit, final int initialLimit, final int maxLimit) {
+    checkArgument(minLimit > 0, "Minimal limit must be greater than zero");
+    checkArgument(minLimit <= initialLimit && initialLimit <= maxLimit,
+        "Initial limit must be between minimal and maximal limit");
+    this.minLimit = minLimit;
+    this.maxLimit = maxLimit;
+    this.limit = initialLimit;
+    this.lowestLimit = initialLimit;
+    this.highestLimit = initialLimit;
+    this.windowStarted = System.nanoTime();
+  }
+
+  /**
+   * Creates the limit starting at {@code threads}, adapting between one and {@code maxThreads} if greater than
+   * {@code threads}, and fixed otherwise.
+   */
+  public static AdaptiveConcurrency create(final int threads, final int maxThreads) {
+    checkArgument(threads > 0, "Upload threads must be greater than zero");
+    return maxThreads > threads ? new AdaptiveConcurrency(1, threads, maxThreads)
+        : new AdaptiveConcurrency(threads, threads, threads);
+  }
+
+  public boolean isAdaptive() {
+    return minLimit < maxLimit;
+  }
+
+  public int getMaxLimit() {
+    return maxLimit;
+  }
+
+  public synchronized int getLimit() {
+    return limit;
+  }
+
+  /**
+   * The lowest limit so far.
+   */
+  public synchronized int getLowestLimit() {
+    return lowestLimit;
+  }
+
+  /**
+   * The highest limit so far.
+   */
+  public synchronized int getHighestLimit() {
+    return highestLimit;
+  }
+
+  /**
+   * Wraps the upload to wait for its turn within the limit, and to be measured.
+   */
+  public <T> Callable<T> limited(final Callable<T> upload) {
+    checkNotNull(upload);
+    return new Callable<T>()
+    {
+      @Override
+      public T call() throws Exception {
+        acquire();
+        final long started = System.nanoTime();
+        boolean measured = false;
+        String overload = null;
+        try {
+          final T result = upload.call();
+          measured = true;
+          return result;
+        }
+        catch (Exception e) {
+          overload = overloadOf(e);
+          measured = overload != null;
+          throw e;
+        }
+        finally {
+          release(started, measured, overload);
+        }
+      }
+    };
+  }
+
+  synchronized void acquire() throws InterruptedIOException {
+    try {
+      while (inFlight >= limit) {
+        wait();
+      }
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Upload interrupted");
+    }
+    inFlight++;
+    windowPeakInFlight = Math.max(windowPeakInFlight, inFlight);
+  }
+
+  private synchronized void release(final long started, final boolean measured, @Nullable final String overload) {
+    inFlight--;
+    if (measured && isAdaptive()) {
+      sampled(started, System.nanoTime(), overload);
+    }
+    notifyAll();
+  }
+
+  /**
+   * Records a completed upload, succeeded if no overload given, and adapts the limit once the window is full.
+   */
+  synchronized void sampled(final long started, final long finished, @Nullable final String overload) {
+    if (cut && started - lastCut <= 0) {
+      // measures the former limit
+      return;
+    }
+    if (overload != null) {
+      decrease(OVERLOAD_DECREASE, finished, "remote overloaded (" + overload + ")");
+      return;
+    }
+    windowLatencies.add(finished - started);
+    if (windowLatencies.size() < Math.max(limit, MIN_WINDOW)) {
+      return;
+    }
+    final long latency = median(windowLatencies);
+    final double throughput = windowLatencies.size() * (double) TimeUnit.SECONDS.toNanos(1)
+        / Math.max(1L, finished - windowStarted);
+    if (lowestLatency < 0 || latency < lowestLatency || limit == minLimit) {
+      // at minimal limit, remote is as idle as it gets
+      lowestLatency = latency;
+    }
+    final String measures = String.format("latency %s ms (lowest %s ms), throughput %.1f/s (former %.1f/s)",
+        TimeUnit.NANOSECONDS.toMillis(latency), TimeUnit.NANOSECONDS.toMillis(lowestLatency), throughput,
+        Math.max(0.0d, lastThroughput));
+    if (latency > lowestLatency * LATENCY_SPIKE) {
+      decrease(LATENCY_DECREASE, finished, "latency spike, " + measures);
+      return;
+    }
+    if (limit < maxLimit && windowPeakInFlight >= limit && latency <= lowestLatency * LATENCY_FLAT
+        && throughput > lastThroughput) {
+      changeLimit(limit + 1, "throughput rising with flat latency, " + measures);
+    }
+    else {
+      log.debug("Upload concurrency stays {}: {}", limit, measures);
+    }
+    lastThroughput = throughput;
+    startWindow(finished);
+  }
+
+  private void decrease(final double multiplier, final long now, final String reason) {
+    cut = true;
+    lastCut = now;
+    lastThroughput = -1.0d;
+    changeLimit(Math.max(minLimit, (int) (limit * multiplier)), reason);
+    startWindow(now);
+  }
+
+  private void changeLimit(final int newLimit, final String reason) {
+    log.debug("Upload concurrency {} -> {}: {}", limit, newLimit, reason);
+    limit = newLimit;
+    lowestLimit = Math.min(lowestLimit, limit);
+    highestLimit = Math.max(highestLimit, limit);
+  }
+
+  private void startWindow(final long now) {
+    windowStarted = now;
+    windowLatencies.clear();
+    windowPeakInFlight = inFlight;
+  }
+
+  private static long median(final List<Long> latencies) {
+    final List<Long> sorted = new ArrayList<Long>(latencies);
+    Collections.sort(sorted);
+    return sorted.get(sorted.size() / 2);
+  }
+
+  /**
+   * Returns the overload signalled by the failure, or {@code null} if the failure does not signal overload.
+   */
+  @Nullable
+  static String overloadOf(final Throwable failure) {
+    final int status = RetryPolicy.statusOf(failure);
+    if (status == 429 || status >= 500) {
+      return "status " + status;
+    }
+    for (Throwable cause : Throwables.getCausalChain(failure)) {
+      if (cause instanceof SocketTimeoutException) {
+        return "timeout";
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public synchronized String toString() {
+    if (!isAdaptive()) {
+      return limit + " thread(s)";
+    }
+    return limit + " thread(s) (adapted between " + lowestLimit + " and " + highestLimit + ", at most " + maxLimit
+        + ")";
+  }
+}
@@ -0,0 +1,109 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.maven.staging.upload;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread safe histogram of per-file upload latencies, using fixed buckets.
+ *
+ * @since 1.8.0
+ */
+public class LatencyHistogram
+{
+  /**
+   * Upper bounds (inclusive) of the buckets in milliseconds, the last bucket (above last bound) is implicit.
+   */
+  private static final long[] BOUNDS = {10, 50, 100, 250, 500, 1000, 2500, 5000, 10000, 30000, 60000};
+
+  private final AtomicLongArray counts = new AtomicLongArray(BOUNDS.length + 1);
+
+  private final AtomicLong count = new AtomicLong();
+
+  private final AtomicLong sum = new AtomicLong();
+
+  private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+
+  private final AtomicLong max = new AtomicLong();
+
+  /**
+   * Records one latency.
+   */
+  public void record(final long millis) {
+    int bucket = 0;
+    while (bucket < BOUNDS.length && millis > BOUNDS[bucket]) {
+      bucket++;
+    }
+    counts.incrementAndGet(bucket);
+    count.incrementAndGet();
+    sum.addAndGet(millis);
+    long current;
+    while (millis < (current = min.get()) && !min.compareAndSet(current, millis)) {
+      // retry
+    }
+    while (millis > (current = max.get()) && !max.compareAndSet(current, millis)) {
+      // retry
+    }
+  }
+
+  public long getCount() {
+    return count.get();
+  }
+
+  public long getMin() {
+    return count.get() == 0 ? 0 : min.get();
+  }
+
+  public long getMax() {
+    return max.get();
+  }
+
+  public long getMean() {
+    final long c = count.get();
+    return c == 0 ? 0 : sum.get() / c;
+  }
+
+  /**
+   * Returns the count of bucket, where bucket index goes from 0 to {@link #getBucketCount()} (exclusive).
+   */
+  public long getBucket(final int bucket) {
+    return counts.get(bucket);
+  }
+
+  /**
+   * Returns the label of bucket, its upper bound in milliseconds, or "+Inf" for last bucket.
+   */
+  public String getBucketLabel(final int bucket) {
+    return bucket < BOUNDS.length ? String.valueOf(BOUNDS[bucket]) : "+Inf";
+  }
+
+  public int getBucketCount() {
+    return BOUNDS.length + 1;
+  }
+
+  @Override
+  public String toString() {
+    final StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < getBucketCount(); i++) {
+      if (getBucket(i) > 0) {
+        if (sb.length() > 0) {
+          sb.append(", ");
+        }
+        sb.append(i < BOUNDS.length ? "<=" + BOUNDS[i] : ">" + BOUNDS[BOUNDS.length - 1]).append("ms: ")
+            .append(getBucket(i));
+      }
+    }
+    return sb.toString();
+  }
+}
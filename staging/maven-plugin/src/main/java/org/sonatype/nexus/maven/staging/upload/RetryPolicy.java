@@ -0,0 +1,183 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.maven.staging.upload;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.sonatype.nexus.maven.staging.remote.BackoffWaitPolicy;
+import org.sonatype.nexus.maven.staging.remote.WaitPolicy;
+
+import com.google.common.base.Splitter;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableSet;
+import org.apache.http.client.HttpResponseException;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Policy of retrying failed uploads, that are idempotent PUTs: how many times a failed upload is retried, the pauses
+ * between retries, the HTTP response statuses worth retrying (a transport failure without response, like a reset
+ * connection or a timeout, is always retried), and when to give up all uploads as remote is consistently failing:
+ * after given count of consecutive failures (of any upload, without any success in between) lasting at least given
+ * time. See {@link UploadRetrier} applying the policy.
+ *
+ * @since 1.8.0
+ */
+public class RetryPolicy
+{
+  public static final long DEFAULT_FIRST_PAUSE_MILLIS = 1000L;
+
+  public static final String DEFAULT_RETRYABLE_STATUSES = "408,429,500,502,503,504";
+
+  /**
+   * Policy not retrying anything.
+   */
+  public static final RetryPolicy NONE = new RetryPolicy(0, new BackoffWaitPolicy(0L, 0L, 1.0d, 0.0d, new Random()),
+      ImmutableSet.<Integer>of(), Integer.MAX_VALUE, Long.MAX_VALUE);
+
+  /**
+   * The response status as reported in exception messages of Wagon ("Return code is: 502") and of Maven Resolver
+   * native transport ("status code: 502").
+   */
+  private static final Pattern STATUS = Pattern.compile("(?:Return code is|status code):\\s*(\\d{3})");
+
+  private final int maxRetries;
+
+  private final WaitPolicy backoff;
+
+  private final Set<Integer> retryableStatuses;
+
+  private final int circuitBreakerFailures;
+
+  private final long circuitBreakerMillis;
+
+  public RetryPolicy(final int maxRetries, final WaitPolicy backoff, final Set<Integer> retryableStatuses,
+                     final int circuitBreakerFailures, final long circuitBreakerMillis)
+  {
+    checkArgument(maxRetries >= 0, "Retries must not be negative");
+    checkArgument(circuitBreakerFailures > 0, "Circuit breaker failures must be greater than zero");
+    checkArgument(circuitBreakerMillis >= 0, "Circuit breaker time must not be negative");
+    this.maxRetries = maxRetries;
+    this.backoff = checkNotNull(backoff);
+    this.retryableStatuses = ImmutableSet.copyOf(retryableStatuses);
+    this.circuitBreakerFailures = circuitBreakerFailures;
+    this.circuitBreakerMillis = circuitBreakerMillis;
+  }
+
+  /**
+   * The count of retries of one failed upload, {@code 0} disables retries.
+   */
+  public int getMaxRetries() {
+    return maxRetries;
+  }
+
+  public Set<Integer> getRetryableStatuses() {
+    return retryableStatuses;
+  }
+
+  /**
+   * The count of consecutive failures to give up after, if they lasted at least {@link #getCircuitBreakerMillis()}.
+   */
+  public int getCircuitBreakerFailures() {
+    return circuitBreakerFailures;
+  }
+
+  public long getCircuitBreakerMillis() {
+    return circuitBreakerMillis;
+  }
+
+  /**
+   * Returns the pause before given retry (the first retry is 1).
+   */
+  public long pauseMillis(final int retry) {
+    return backoff.pauseMillis(retry);
+  }
+
+  /**
+   * Returns {@code true} if the upload failed with this exception is worth retrying: remote responded with one of
+   * retryable statuses, or the transport failed without response. Local failures (missing files) and interruptions
+   * are not retried.
+   */
+  public boolean isRetryable(final Throwable failure) {
+    final int status = statusOf(failure);
+    if (status > 0) {
+      return retryableStatuses.contains(status);
+    }
+    boolean transport = false;
+    for (Throwable cause : Throwables.getCausalChain(failure)) {
+      if (cause instanceof UploadRetrier.GaveUpException || cause instanceof FileNotFoundException
+          || (cause instanceof InterruptedIOException && !(cause instanceof SocketTimeoutException))) {
+        return false;
+      }
+      transport = transport || cause instanceof IOException;
+    }
+    return transport;
+  }
+
+  /**
+   * Returns the HTTP response status the upload failed with, or {@code -1} if not known, as when transport failed
+   * without response.
+   */
+  public static int statusOf(final Throwable failure) {
+    for (Throwable cause : Throwables.getCausalChain(failure)) {
+      if (cause instanceof HttpResponseException) {
+        return ((HttpResponseException) cause).getStatusCode();
+      }
+      if (cause.getMessage() != null) {
+        final Matcher matcher = STATUS.matcher(cause.getMessage());
+        if (matcher.find()) {
+          return Integer.parseInt(matcher.group(1));
+        }
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Parses comma separated list of HTTP response statuses.
+   */
+  public static Set<Integer> parseStatuses(final String statuses) {
+    final Set<Integer> result = new TreeSet<Integer>();
+    if (statuses != null) {
+      for (String status : Splitter.on(',').trimResults().omitEmptyStrings().split(statuses)) {
+        try {
+          result.add(Integer.valueOf(status));
+        }
+        catch (NumberFormatException e) {
+          throw new IllegalArgumentException("Invalid HTTP status \"" + status + "\" in \"" + statuses + "\"");
+        }
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public String toString() {
+    return "RetryPolicy{" +
+        "maxRetries=" + maxRetries +
+        ", backoff=" + backoff +
+        ", retryableStatuses=" + retryableStatuses +
+        ", circuitBreakerFailures=" + circuitBreakerFailures +
+        ", circuitBreakerMillis=" + circuitBreakerMillis +
+        '}';
+  }
+}
@@ -0,0 +1,323 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.maven.staging.upload;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.sonatype.nexus.maven.staging.StagingExecutors;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Stopwatch;
+import com.google.common.io.Files;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Progress of one bulk upload: bytes sent, files done out of total, current throughput, ETA and a histogram of
+ * per-file latencies. Uploaders report to it as they go (concurrently), while progress is logged at given interval
+ * from a background thread, so a stalled upload is still visible in log. Once done, a JSON summary may be written.
+ *
+ * @since 1.8.0
+ */
+public class UploadProgress
+{
+  private final Logger log = LoggerFactory.getLogger(UploadProgress.class);
+
+  private final String name;
+
+  private final Stopwatch stopwatch;
+
+  private final AtomicLong totalFiles;
+
+  private final AtomicLong totalBytes;
+
+  private final AtomicLong files;
+
+  private final AtomicLong bytes;
+
+  private final AtomicLong skippedFiles;
+
+  private final AtomicLong skippedBytes;
+
+  private final AtomicLong retries;
+
+  private final AtomicLong retryPauseMillis;
+
+  private final AtomicLong recoveredFiles;
+
+  private final LatencyHistogram latencies;
+
+  private ScheduledExecutorService reporter;
+
+  private long lastReportBytes;
+
+  private long lastReportMillis;
+
+  private volatile double currentBytesPerSecond;
+
+  public UploadProgress(final String name) {
+    this.name = checkNotNull(name);
+    this.stopwatch = new Stopwatch();
+    this.totalFiles = new AtomicLong();
+    this.totalBytes = new AtomicLong();
+    this.files = new AtomicLong();
+    this.bytes = new AtomicLong();
+    this.skippedFiles = new AtomicLong();
+    this.skippedBytes = new AtomicLong();
+    this.retries = new AtomicLong();
+    this.retryPauseMillis = new AtomicLong();
+    this.recoveredFiles = new AtomicLong();
+    this.latencies = new LatencyHistogram();
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Adds files to be uploaded to totals. Might be invoked after start too, as some uploaders know what they upload
+   * only once upload began.
+   */
+  public void expect(final long files, final long bytes) {
+    totalFiles.addAndGet(files);
+    totalBytes.addAndGet(bytes);
+  }
+
+  /**
+   * Records files not uploaded at all, as they are already present in remote repository. Skipped files are not
+   * part of totals.
+   */
+  public void skipped(final long files, final long bytes) {
+    skippedFiles.addAndGet(files);
+    skippedBytes.addAndGet(bytes);
+  }
+
+  /**
+   * Records one retry of a failed upload, done after given pause.
+   */
+  public void retried(final long pauseMillis) {
+    retries.incrementAndGet();
+    retryPauseMillis.addAndGet(pauseMillis);
+  }
+
+  /**
+   * Records one upload succeeded after being retried.
+   */
+  public void recovered() {
+    recoveredFiles.incrementAndGet();
+  }
+
+  /**
+   * Starts measuring, and logging of progress at given interval, if it is greater than zero.
+   */
+  public synchronized void start(final int intervalSeconds) {
+    stopwatch.reset().start();
+    if (intervalSeconds > 0) {
+      reporter = Executors.newSingleThreadScheduledExecutor(StagingExecutors.threadFactory("nexus-staging-progress"));
+      reporter.scheduleAtFixedRate(new Runnable()
+      {
+        @Override
+        public void run() {
+          report();
+        }
+      }, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+  }
+
+  public synchronized void stop() {
+    if (reporter != null) {
+      reporter.shutdownNow();
+      reporter = null;
+    }
+    if (stopwatch.isRunning()) {
+      stopwatch.stop();
+    }
+  }
+
+  /**
+   * Records bytes sent, invoked as the bytes go out.
+   */
+  public void transferred(final long count) {
+    bytes.addAndGet(count);
+  }
+
+  /**
+   * Records one finished file upload, that took given milliseconds.
+   */
+  public void uploaded(final long millis) {
+    files.incrementAndGet();
+    latencies.record(millis);
+  }
+
+  public long getTotalFiles() {
+    return totalFiles.get();
+  }
+
+  public long getTotalBytes() {
+    return totalBytes.get();
+  }
+
+  public long getFiles() {
+    return files.get();
+  }
+
+  public long getBytes() {
+    return bytes.get();
+  }
+
+  public long getSkippedFiles() {
+    return skippedFiles.get();
+  }
+
+  /**
+   * Returns the bytes saved by not uploading the files already present in remote repository.
+   */
+  public long getSkippedBytes() {
+    return skippedBytes.get();
+  }
+
+  public long getRetries() {
+    return retries.get();
+  }
+
+  /**
+   * Returns the total of pauses before retries, summed over all uploads (that may pause concurrently).
+   */
+  public long getRetryPauseMillis() {
+    return retryPauseMillis.get();
+  }
+
+  /**
+   * Returns the count of uploads that succeeded after being retried.
+   */
+  public long getRecoveredFiles() {
+    return recoveredFiles.get();
+  }
+
+  public long getElapsedMillis() {
+    return stopwatch.elapsed(TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Returns the average throughput in bytes per second since start, or 0 if nothing was measured.
+   */
+  public double getBytesPerSecond() {
+    final long millis = getElapsedMillis();
+    return millis == 0 ? 0 : getBytes() * 1000d / millis;
+  }
+
+  /**
+   * Returns the throughput in bytes per second of last reporting interval, or average throughput if not known.
+   */
+  public double getCurrentBytesPerSecond() {
+    return currentBytesPerSecond > 0 ? currentBytesPerSecond : getBytesPerSecond();
+  }
+
+  /**
+   * Returns the estimated milliseconds needed to finish the upload, or -1 if cannot tell.
+   */
+  public long getEtaMillis() {
+    final double rate = getCurrentBytesPerSecond();
+    final long remaining = getTotalBytes() - getBytes();
+    if (rate <= 0 || remaining < 0) {
+      return -1;
+    }
+    return (long) (remaining * 1000d / rate);
+  }
+
+  public LatencyHistogram getLatencies() {
+    return latencies;
+  }
+
+  /**
+   * Logs current progress, invoked periodically from background thread.
+   */
+  synchronized void report() {
+    final long now = getElapsedMillis();
+    final long sent = getBytes();
+    if (now > lastReportMillis) {
+      currentBytesPerSecond = (sent - lastReportBytes) * 1000d / (now - lastReportMillis);
+    }
+    lastReportMillis = now;
+    lastReportBytes = sent;
+    log.info(" * Upload progress: {}", this);
+  }
+
+  @Override
+  public String toString() {
+    final long total = getTotalBytes();
+    final long eta = getEtaMillis();
+    return String.format(Locale.ENGLISH, "%s/%s files, %s of %s (%d%%), %s/s, ETA %s", getFiles(), getTotalFiles(),
+        UploadStatistics.formatBytes(getBytes()), UploadStatistics.formatBytes(total),
+        total == 0 ? 100 : Math.min(100, getBytes() * 100 / total),
+        UploadStatistics.formatBytes((long) getCurrentBytesPerSecond()), eta < 0 ? "n/a" : formatMillis(eta));
+  }
+
+  /**
+   * Writes the summary of the upload as JSON into given file.
+   */
+  public void writeSummary(final File file) throws IOException {
+    final StringBuilder json = new StringBuilder();
+    json.append("{\n");
+    json.append("  \"name\": \"").append(name.replace("\\", "\\\\").replace("\"", "\\\"")).append("\",\n");
+    json.append("  \"files\": ").append(getFiles()).append(",\n");
+    json.append("  \"totalFiles\": ").append(getTotalFiles()).append(",\n");
+    json.append("  \"bytes\": ").append(getBytes()).append(",\n");
+    json.append("  \"totalBytes\": ").append(getTotalBytes()).append(",\n");
+    json.append("  \"skippedFiles\": ").append(getSkippedFiles()).append(",\n");
+    json.append("  \"skippedBytes\": ").append(getSkippedBytes()).append(",\n");
+    json.append("  \"retries\": ").append(getRetries()).append(",\n");
+    json.append("  \"retryPauseMillis\": ").append(getRetryPauseMillis()).append(",\n");
+    json.append("  \"recoveredFiles\": ").append(getRecoveredFiles()).append(",\n");
+    json.append("  \"elapsedMillis\": ").append(getElapsedMillis()).append(",\n");
+    json.append("  \"bytesPerSecond\": ").append((long) getBytesPerSecond()).append(",\n");
+    json.append("  \"latencyMillis\": {\n");
+    json.append("    \"min\": ").append(latencies.getMin()).append(",\n");
+    json.append("    \"mean\": ").append(latencies.getMean()).append(",\n");
+    json.append("    \"max\": ").append(latencies.getMax()).append(",\n");
+    json.append("    \"histogram\": {");
+    for (int i = 0; i < latencies.getBucketCount(); i++) {
+      json.append(i == 0 ? "\n" : ",\n");
+      json.append("      \"").append(latencies.getBucketLabel(i)).append("\": ").append(latencies.getBucket(i));
+    }
+    json.append("\n    }\n");
+    json.append("  }\n");
+    json.append("}\n");
+    file.getParentFile().mkdirs();
+    Files.write(json.toString(), file, Charsets.UTF_8);
+  }
+
+  // ==
+
+  /**
+   * Formats duration for humans, as "42s", "3m 05s" or "1h 20m".
+   */
+  public static String formatMillis(final long millis) {
+    final long seconds = millis / 1000;
+    if (seconds < 60) {
+      return seconds + "s";
+    }
+    if (seconds < 3600) {
+      return String.format(Locale.ENGLISH, "%dm %02ds", seconds / 60, seconds % 60);
+    }
+    return String.format(Locale.ENGLISH, "%dh %02dm", seconds / 3600, (seconds % 3600) / 60);
+  }
+}
@@ -0,0 +1,144 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.maven.staging.upload;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Performs uploads retrying them as {@link RetryPolicy} says, and gives up all uploads once remote is consistently
+ * failing (circuit breaker): then, the failed upload is not retried anymore, and every subsequent upload fails
+ * immediately with {@link GaveUpException}. The retries are recorded to {@link UploadProgress}, if passed in.
+ * <p/>
+ * One instance should be used for the whole bulk upload, as the circuit breaker is fed by all uploads. Thread safe.
+ *
+ * @since 1.8.0
+ */
+public class UploadRetrier
+{
+  /**
+   * Thrown when the circuit breaker is open, as remote was consistently failing.
+   */
+  public static class GaveUpException
+      extends IOException
+  {
+    public GaveUpException(final String message, final Throwable cause) {
+      super(message, cause);
+    }
+  }
+
+  private final Logger log = LoggerFactory.getLogger(UploadRetrier.class);
+
+  private final RetryPolicy policy;
+
+  private final UploadProgress progress;
+
+  private int consecutiveFailures;
+
+  private long firstFailureMillis;
+
+  private GaveUpException gaveUp;
+
+  public UploadRetrier(final RetryPolicy policy, @Nullable final UploadProgress progress) {
+    this.policy = checkNotNull(policy);
+    this.progress = progress;
+  }
+
+  public RetryPolicy getPolicy() {
+    return policy;
+  }
+
+  /**
+   * Returns {@code true} if the circuit breaker is open, and all uploads are given up.
+   */
+  public synchronized boolean isGaveUp() {
+    return gaveUp != null;
+  }
+
+  /**
+   * Performs the described upload, retrying it as policy says, and returns its result.
+   */
+  public <T> T upload(final String description, final Callable<T> upload) throws Exception {
+    int retry = 0;
+    while (true) {
+      checkNotGaveUp();
+      try {
+        final T result = upload.call();
+        succeeded();
+        if (retry > 0) {
+          log.info(" * Upload of {} succeeded after {} retries", description, retry);
+          if (progress != null) {
+            progress.recovered();
+          }
+        }
+        return result;
+      }
+      catch (Exception e) {
+        if (!policy.isRetryable(e)) {
+          throw e;
+        }
+        failed(description, e);
+        if (retry >= policy.getMaxRetries() || isGaveUp()) {
+          throw e;
+        }
+        retry++;
+        final long pause = policy.pauseMillis(retry);
+        log.warn(" * Upload of {} failed ({}), retry {} of {} in {} ms", description, e.getMessage(), retry,
+            policy.getMaxRetries(), pause);
+        if (progress != null) {
+          progress.retried(pause);
+        }
+        try {
+          Thread.sleep(pause);
+        }
+        catch (InterruptedException ie) {
+          Thread.currentThread().interrupt();
+          throw new InterruptedIOException("Upload interrupted");
+        }
+      }
+    }
+  }
+
+  private synchronized void checkNotGaveUp() throws GaveUpException {
+    if (gaveUp != null) {
+      throw new GaveUpException(gaveUp.getMessage(), gaveUp.getCause());
+    }
+  }
+
+  private synchronized void succeeded() {
+    consecutiveFailures = 0;
+  }
+
+  private synchronized void failed(final String description, final Exception failure) {
+    final long now = System.currentTimeMillis();
+    if (consecutiveFailures++ == 0) {
+      firstFailureMillis = now;
+    }
+    if (gaveUp == null && consecutiveFailures >= policy.getCircuitBreakerFailures()
+        && now - firstFailureMillis >= policy.getCircuitBreakerMillis()) {
+      gaveUp = new GaveUpException(String.format("Giving up, remote failed %s consecutive uploads in %s s, last %s: %s",
+          consecutiveFailures, TimeUnit.MILLISECONDS.toSeconds(now - firstFailureMillis), description,
+          failure.getMessage()), failure);
+      log.error(" * {}", gaveUp.getMessage());
+    }
+  }
+}
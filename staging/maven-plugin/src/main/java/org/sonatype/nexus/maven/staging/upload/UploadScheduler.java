@@ -0,0 +1,157 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.maven.staging.upload;
+
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.sonatype.nexus.maven.staging.StagingExecutors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Bounded worker pool performing bulk uploads. The work is handed over as "lanes": items within one lane are
+ * uploaded serially and in given order (as when they share a {@code maven-metadata.xml} that would be corrupted by
+ * concurrent merges), while distinct lanes are uploaded concurrently by at most {@code threads} workers. With one
+ * thread, everything is uploaded on the calling thread, exactly as without this class.
+ * <p/>
+ * The first failure cancels all the not yet finished lanes, and is reported as cause of thrown
+ * {@link ExecutionException}.
+ *
+ * @since 1.8.0
+ */
+public class UploadScheduler
+{
+  /**
+   * The upload of one single item.
+   */
+  public interface Upload<T>
+  {
+    /**
+     * Uploads the item, and returns the count of bytes sent.
+     */
+    long upload(T item) throws Exception;
+  }
+
+  private final Logger log = LoggerFactory.getLogger(UploadScheduler.class);
+
+  private final int threads;
+
+  public UploadScheduler(final int threads) {
+    checkArgument(threads > 0, "Upload threads must be greater than zero");
+    this.threads = threads;
+  }
+
+  public int getThreads() {
+    return threads;
+  }
+
+  /**
+   * Uploads all items of all lanes, and returns the statistics of the whole upload.
+   */
+  public <T> UploadStatistics upload(final Collection<? extends List<T>> lanes, final Upload<T> upload)
+      throws ExecutionException
+  {
+    checkNotNull(lanes);
+    checkNotNull(upload);
+    final UploadStatistics statistics = new UploadStatistics();
+    statistics.start();
+    try {
+      if (threads == 1 || lanes.size() < 2) {
+        for (List<T> lane : lanes) {
+          uploadLane(lane, upload, statistics);
+        }
+      }
+      else {
+        uploadConcurrently(lanes, upload, statistics);
+      }
+    }
+    finally {
+      statistics.stop();
+    }
+    return statistics;
+  }
+
+  protected <T> void uploadConcurrently(final Collection<? extends List<T>> lanes, final Upload<T> upload,
+                                        final UploadStatistics statistics)
+      throws ExecutionException
+  {
+    final int poolSize = Math.min(threads, lanes.size());
+    log.debug("Uploading {} lanes using {} threads", lanes.size(), poolSize);
+    final ExecutorService executor = StagingExecutors.newFixedThreadPool(poolSize, "nexus-staging-upload-%d");
+    try {
+      final CompletionService<Void> completionService = new ExecutorCompletionService<Void>(executor);
+      final List<Future<Void>> futures = new ArrayList<Future<Void>>(lanes.size());
+      for (final List<T> lane : lanes) {
+        futures.add(completionService.submit(new Callable<Void>()
+        {
+          @Override
+          public Void call() throws Exception {
+            uploadLane(lane, upload, statistics);
+            return null;
+          }
+        }));
+      }
+      try {
+        for (int i = 0; i < futures.size(); i++) {
+          // fail fast: the first failed lane is reported, no matter of its submission order
+          completionService.take().get();
+        }
+      }
+      catch (ExecutionException e) {
+        // lanes report their failures already wrapped
+        throw e.getCause() instanceof ExecutionException ? (ExecutionException) e.getCause() : e;
+      }
+      catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new ExecutionException(new InterruptedIOException("Upload interrupted"));
+      }
+      finally {
+        for (Future<Void> future : futures) {
+          future.cancel(true);
+        }
+      }
+    }
+    finally {
+      executor.shutdownNow();
+    }
+  }
+
+  protected <T> void uploadLane(final List<T> lane, final Upload<T> upload, final UploadStatistics statistics)
+      throws ExecutionException
+  {
+    for (T item : lane) {
+      if (Thread.currentThread().isInterrupted()) {
+        throw new ExecutionException(new InterruptedIOException("Upload interrupted"));
+      }
+      try {
+        statistics.uploaded(upload.upload(item));
+      }
+      catch (Exception e) {
+        throw new ExecutionException(e);
+      }
+    }
+  }
+}
@@ -0,0 +1,97 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.maven.staging.upload;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.base.Stopwatch;
+
+/**
+ * Aggregated statistics of one bulk upload: count of files and bytes sent, and the wall clock time it took. Instances
+ * are thread safe, as they are updated by all the upload workers concurrently.
+ *
+ * @since 1.8.0
+ */
+public class UploadStatistics
+{
+  private final Stopwatch stopwatch;
+
+  private final AtomicLong files;
+
+  private final AtomicLong bytes;
+
+  public UploadStatistics() {
+    this.stopwatch = new Stopwatch();
+    this.files = new AtomicLong();
+    this.bytes = new AtomicLong();
+  }
+
+  public void start() {
+    stopwatch.reset().start();
+  }
+
+  public void stop() {
+    if (stopwatch.isRunning()) {
+      stopwatch.stop();
+    }
+  }
+
+  /**
+   * Records one finished file upload of given size.
+   */
+  public void uploaded(final long size) {
+    files.incrementAndGet();
+    bytes.addAndGet(size);
+  }
+
+  public long getFiles() {
+    return files.get();
+  }
+
+  public long getBytes() {
+    return bytes.get();
+  }
+
+  public long getElapsedMillis() {
+    return stopwatch.elapsed(TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Returns the throughput in bytes per second, or 0 if nothing was measured.
+   */
+  public double getBytesPerSecond() {
+    final long millis = getElapsedMillis();
+    if (millis == 0) {
+      return 0;
+    }
+    return getBytes() * 1000d / millis;
+  }
+
+  @Override
+  public String toString() {
+    return String.format(Locale.ENGLISH, "%s files (%s) in %s (%s/s)", getFiles(), formatBytes(getBytes()),
+        stopwatch, formatBytes((long) getBytesPerSecond()));
+  }
+
+  // ==
+
+  public static String formatBytes(final long bytes) {
+    if (bytes < 1024) {
+      return bytes + " B";
+    }
+    final int exp = (int) (Math.log(bytes) / Math.log(1024));
+    return String.format(Locale.ENGLISH, "%.1f %sB", bytes / Math.pow(1024, exp), "KMGTPE".charAt(exp - 1));
+  }
+}
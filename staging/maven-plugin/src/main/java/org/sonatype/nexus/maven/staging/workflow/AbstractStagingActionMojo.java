@@ -73,7 +73,9 @@ public abstract class AbstractStagingActionMojo
     return getStagingActionMessages().getMessageForAction(action);
   }
 
-  protected boolean shouldExecute() {
+  protected boolean shouldExecute()
+      throws MojoExecutionException
+  {
     return true;
   }
 
@@ -90,7 +92,7 @@ public abstract class AbstractStagingActionMojo
   {
     try {
       final Parameters parameters = buildParameters();
-      final RemoteNexus remoteNexus = new RemoteNexus(getMavenSession(), getSecDispatcher(), parameters);
+      final RemoteNexus remoteNexus = getRemoteNexusRegistry().get(getMavenSession(), parameters);
       return remoteNexus.getStagingWorkflowV2Service();
     }
     catch (Exception e) {
@@ -124,9 +124,13 @@ public abstract class AbstractStagingBuildActionMojo
    * project). This should cover both cases: "direct CLI invocation" will still work (see NXCM-4399) but also works
    * in
    * "bound to phase" case, as in that case, user has to ensure he bounds this goal to a leaf module's lifecycle.
+   * Invoked from {@code execute()} in every module, hence installs the reactor completion tracker too.
    */
   @Override
-  protected boolean shouldExecute() {
-    return isThisLastProjectWithThisMojoInExecution();
+  protected boolean shouldExecute()
+      throws MojoExecutionException
+  {
+    installReactorCompletionTracker();
+    return isThisLastProjectWithThisMojoInExecution() && waitForOtherProjectsAndCheckBuildFailures();
   }
 }
@@ -0,0 +1,336 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.maven.staging.zapper;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.annotation.Nullable;
+
+import org.sonatype.nexus.maven.staging.StagingExecutors;
+import org.sonatype.nexus.maven.staging.upload.AdaptiveConcurrency;
+import org.sonatype.nexus.maven.staging.upload.UploadRetrier;
+import org.sonatype.nexus.maven.staging.upload.UploadRetrier.GaveUpException;
+import org.sonatype.spice.zapper.IOSourceListable;
+import org.sonatype.spice.zapper.ZFile;
+
+import org.apache.http.HttpHost;
+import org.apache.http.client.CredentialsProvider;
+import org.apache.http.client.HttpResponseException;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpPut;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.client.utils.URIUtils;
+import org.apache.http.entity.InputStreamEntity;
+import org.apache.http.impl.auth.BasicScheme;
+import org.apache.http.impl.client.BasicAuthCache;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.util.EntityUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Concurrent upload of all the files of a {@link IOSourceListable}, each with its own PUT to the remote URL, with as
+ * many requests in flight as {@link AdaptiveConcurrency} allows. Files are uploaded in phases: checksums and
+ * signatures are sent after the files they belong to, and {@code maven-metadata.xml} files (and their checksums)
+ * after everything else, so the remote never exposes metadata or checksums of not yet uploaded files.
+ * <p/>
+ * A failed file is retried as {@link UploadRetrier} says, and if still failing, it does not abort the upload: the files
+ * depending on it (its checksums and signatures, and metadata of the directories containing it) are skipped, all the
+ * other files are uploaded, and the failures are reported together at the end, by one {@link IOException}. Only once
+ * the retrier gives up, as remote is consistently failing, the remaining files are skipped too.
+ *
+ * @since 1.8.0
+ */
+class DirectoryUpload
+{
+  /**
+   * Extensions of files belonging to another file, named by stripping the extension.
+   */
+  private static final String[] SIDECAR_EXTENSIONS = {".md5", ".sha1", ".sha256", ".sha512", ".asc"};
+
+  /**
+   * Phase of repository metadata, past any realistic chain of sidecar extensions of other files.
+   */
+  private static final int METADATA_PHASE = 16;
+
+  /**
+   * The count of failures detailed in the reported exception message.
+   */
+  private static final int REPORTED_FAILURES = 20;
+
+  private final Logger log = LoggerFactory.getLogger(DirectoryUpload.class);
+
+  private final CloseableHttpClient httpClient;
+
+  private final CredentialsProvider preemptiveCredentialsProvider;
+
+  private final String remoteUrl;
+
+  private final AdaptiveConcurrency concurrency;
+
+  private final UploadRetrier retrier;
+
+  DirectoryUpload(final CloseableHttpClient httpClient,
+                  @Nullable final CredentialsProvider preemptiveCredentialsProvider,
+                  final String remoteUrl,
+                  final AdaptiveConcurrency concurrency,
+                  final UploadRetrier retrier)
+  {
+    this.httpClient = checkNotNull(httpClient);
+    this.preemptiveCredentialsProvider = preemptiveCredentialsProvider;
+    this.remoteUrl = checkNotNull(remoteUrl);
+    this.concurrency = checkNotNull(concurrency);
+    this.retrier = checkNotNull(retrier);
+  }
+
+  /**
+   * Uploads all files of the source, and closes it.
+   */
+  public void upload(final IOSourceListable source) throws IOException {
+    final Map<String, Exception> failures = Collections.synchronizedMap(new TreeMap<String, Exception>());
+    final Set<String> skipped = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    final AtomicReference<GaveUpException> gaveUp = new AtomicReference<GaveUpException>();
+    int total = 0;
+    final ExecutorService executor =
+        StagingExecutors.newFixedThreadPool(concurrency.getMaxLimit(), "nexus-staging-zapper-%d");
+    try {
+      final SortedMap<Integer, List<ZFile>> phases = phases(source.listFiles());
+      for (Map.Entry<Integer, List<ZFile>> phase : phases.entrySet()) {
+        log.debug("Uploading phase {} of {} files using {}", phase.getKey(), phase.getValue().size(),
+            concurrency);
+        // files depend on files of former phases only, all of them done by now
+        final Set<String> failed;
+        synchronized (failures) {
+          failed = new HashSet<String>(failures.keySet());
+        }
+        final List<Future<Void>> futures = new ArrayList<Future<Void>>(phase.getValue().size());
+        for (final ZFile zfile : phase.getValue()) {
+          total++;
+          final String path = zfile.getIdentifier().stringValue();
+          if (gaveUp.get() != null) {
+            skipped.add(path);
+            continue;
+          }
+          if (dependsOnFailed(path, failed, skipped)) {
+            log.debug("Skipping {}, as the upload of the files it belongs to failed", path);
+            skipped.add(path);
+            continue;
+          }
+          futures.add(executor.submit(new Callable<Void>()
+          {
+            @Override
+            public Void call() {
+              try {
+                retrier.upload(path, concurrency.limited(new Callable<Void>()
+                {
+                  @Override
+                  public Void call() throws IOException {
+                    put(source, zfile);
+                    return null;
+                  }
+                }));
+              }
+              catch (GaveUpException e) {
+                // not even tried, as remote is failing consistently
+                gaveUp.compareAndSet(null, e);
+                skipped.add(path);
+              }
+              catch (Exception e) {
+                log.warn("Upload of {} failed: {}", path, e.toString());
+                failures.put(path, e);
+              }
+              return null;
+            }
+          }));
+        }
+        for (Future<Void> future : futures) {
+          future.get();
+        }
+      }
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Upload interrupted");
+    }
+    catch (ExecutionException e) {
+      // tasks collect their failures, this is unexpected
+      throw new IOException("Upload failed", e.getCause());
+    }
+    finally {
+      executor.shutdownNow();
+      source.close(failures.isEmpty());
+      if (concurrency.isAdaptive()) {
+        log.info(" * Upload concurrency ended at {}", concurrency);
+      }
+    }
+    if (!failures.isEmpty()) {
+      throw failure(total, failures, skipped, gaveUp.get());
+    }
+  }
+
+  /**
+   * Uploads one file.
+   */
+  protected void put(final IOSourceListable source, final ZFile zfile) throws IOException {
+    final HttpPut put = new HttpPut(remoteUrl + zfile.getIdentifier().stringValue());
+    put.setEntity(new InputStreamEntity(source.readSegment(zfile.getIdentifier(), zfile), zfile.getLength()));
+    final CloseableHttpResponse response = httpClient.execute(put, createContext(put.getURI()));
+    try {
+      final int status = response.getStatusLine().getStatusCode();
+      if (status < 200 || status > 299) {
+        throw new HttpResponseException(status,
+            "Unexpected response " + response.getStatusLine() + " to PUT " + put.getURI());
+      }
+    }
+    finally {
+      EntityUtils.consumeQuietly(response.getEntity());
+      response.close();
+    }
+  }
+
+  /**
+   * Creates the request context, with preemptive authentication as Zapper client does: the request entities are
+   * streamed from the source, and cannot be resent on authentication challenge.
+   */
+  private HttpClientContext createContext(final URI uri) {
+    final HttpClientContext context = HttpClientContext.create();
+    if (preemptiveCredentialsProvider != null) {
+      final HttpHost host = URIUtils.extractHost(uri);
+      final BasicAuthCache authCache = new BasicAuthCache();
+      authCache.put(host, new BasicScheme());
+      context.setCredentialsProvider(preemptiveCredentialsProvider);
+      context.setAuthCache(authCache);
+    }
+    return context;
+  }
+
+  // ==
+
+  /**
+   * Groups the files by phase, in upload order.
+   */
+  static SortedMap<Integer, List<ZFile>> phases(final List<ZFile> zfiles) {
+    final SortedMap<Integer, List<ZFile>> phases = new TreeMap<Integer, List<ZFile>>();
+    for (ZFile zfile : zfiles) {
+      final int phase = phaseOf(zfile.getIdentifier().stringValue());
+      List<ZFile> files = phases.get(phase);
+      if (files == null) {
+        files = new ArrayList<ZFile>();
+        phases.put(phase, files);
+      }
+      files.add(zfile);
+    }
+    return phases;
+  }
+
+  /**
+   * Returns the phase of the file: the count of its sidecar extensions, offset by {@link #METADATA_PHASE} for
+   * repository metadata.
+   */
+  static int phaseOf(final String path) {
+    int phase = 0;
+    String primary = path;
+    while (primaryOf(primary) != null) {
+      primary = primaryOf(primary);
+      phase++;
+    }
+    return isMetadata(primary) ? METADATA_PHASE + phase : phase;
+  }
+
+  /**
+   * Returns the path of the file this sidecar file belongs to, or {@code null} if not a sidecar file.
+   */
+  @Nullable
+  static String primaryOf(final String path) {
+    for (String extension : SIDECAR_EXTENSIONS) {
+      if (path.endsWith(extension) && path.length() > extension.length()) {
+        return path.substring(0, path.length() - extension.length());
+      }
+    }
+    return null;
+  }
+
+  private static boolean isMetadata(final String path) {
+    return path.substring(path.lastIndexOf('/') + 1).startsWith("maven-metadata");
+  }
+
+  /**
+   * Returns {@code true} if the file must not be uploaded, as the upload of a file it belongs to failed or was
+   * skipped. Metadata belongs to all the files of its directory and subdirectories.
+   */
+  private static boolean dependsOnFailed(final String path, final Set<String> failed, final Set<String> skipped) {
+    if (failed.isEmpty()) {
+      return false;
+    }
+    final String primary = primaryOf(path);
+    if (primary != null) {
+      return failed.contains(primary) || skipped.contains(primary);
+    }
+    if (isMetadata(path)) {
+      final String directory = path.substring(0, path.lastIndexOf('/') + 1);
+      for (String failedPath : failed) {
+        if (failedPath.startsWith(directory)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private static IOException failure(final int total, final Map<String, Exception> failures,
+                                     final Set<String> skipped, @Nullable final GaveUpException gaveUp)
+  {
+    final StringBuilder message = new StringBuilder();
+    message.append("Failed to upload ").append(failures.size()).append(" of ").append(total).append(" files");
+    if (!skipped.isEmpty()) {
+      message.append(" (").append(skipped.size()).append(" more files were skipped)");
+    }
+    message.append(':');
+    if (gaveUp != null) {
+      message.append("\n  ").append(gaveUp.getMessage());
+    }
+    int reported = 0;
+    for (Map.Entry<String, Exception> failure : failures.entrySet()) {
+      if (reported++ < REPORTED_FAILURES) {
+        message.append("\n  ").append(failure.getKey()).append(": ").append(failure.getValue().getMessage());
+      }
+    }
+    if (failures.size() > REPORTED_FAILURES) {
+      message.append("\n  ... and ").append(failures.size() - REPORTED_FAILURES).append(" more");
+    }
+    final List<Exception> causes = new ArrayList<Exception>(failures.values());
+    final IOException result = new IOException(message.toString(), causes.get(0));
+    for (Exception cause : causes.subList(1, causes.size())) {
+      result.addSuppressed(cause);
+    }
+    return result;
+  }
+}
@@ -0,0 +1,122 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.maven.staging.zapper;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.sonatype.nexus.maven.staging.upload.UploadProgress;
+import org.sonatype.spice.zapper.IOSourceListable;
+import org.sonatype.spice.zapper.Path;
+import org.sonatype.spice.zapper.Range;
+import org.sonatype.spice.zapper.ZFile;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * {@link IOSourceListable} decorator reporting to {@link UploadProgress}: the bytes as they are read by Zapper
+ * (and sent out), and files once all their segments were read.
+ *
+ * @since 1.8.0
+ */
+class ProgressIOSource
+    implements IOSourceListable
+{
+  /**
+   * Per file state: the count of bytes not yet read, and when the first segment was read.
+   */
+  private static class FileState
+  {
+    private final AtomicLong remaining;
+
+    private volatile long started;
+
+    private FileState(final long length) {
+      this.remaining = new AtomicLong(length);
+    }
+  }
+
+  private final IOSourceListable delegate;
+
+  private final UploadProgress progress;
+
+  private final ConcurrentMap<String, FileState> files;
+
+  ProgressIOSource(final IOSourceListable delegate, final UploadProgress progress) {
+    this.delegate = checkNotNull(delegate);
+    this.progress = checkNotNull(progress);
+    this.files = new ConcurrentHashMap<String, FileState>();
+  }
+
+  @Override
+  public List<ZFile> listFiles() throws IOException {
+    final List<ZFile> zfiles = delegate.listFiles();
+    long bytes = 0;
+    for (ZFile zfile : zfiles) {
+      files.put(zfile.getIdentifier().stringValue(), new FileState(zfile.getLength()));
+      bytes += zfile.getLength();
+    }
+    progress.expect(zfiles.size(), bytes);
+    return zfiles;
+  }
+
+  @Override
+  public ZFile createZFile(final Path path) throws IOException {
+    return delegate.createZFile(path);
+  }
+
+  @Override
+  public InputStream readSegment(final Path path, final Range range) throws IOException {
+    final FileState state = files.get(path.stringValue());
+    if (state != null && state.started == 0) {
+      state.started = System.currentTimeMillis();
+    }
+    return new FilterInputStream(delegate.readSegment(path, range))
+    {
+      @Override
+      public int read() throws IOException {
+        final int b = super.read();
+        if (b >= 0) {
+          transferred(state, 1);
+        }
+        return b;
+      }
+
+      @Override
+      public int read(final byte[] b, final int off, final int len) throws IOException {
+        final int count = super.read(b, off, len);
+        if (count > 0) {
+          transferred(state, count);
+        }
+        return count;
+      }
+    };
+  }
+
+  @Override
+  public void close(final boolean success) throws IOException {
+    delegate.close(success);
+  }
+
+  private void transferred(final FileState state, final long count) {
+    progress.transferred(count);
+    if (state != null && state.remaining.addAndGet(-count) == 0) {
+      progress.uploaded(System.currentTimeMillis() - state.started);
+    }
+  }
+}
@@ -14,18 +14,30 @@ package org.sonatype.nexus.maven.staging.zapper;
 
 import java.io.IOException;
 
-import org.sonatype.spice.zapper.Client;
+import javax.annotation.Nullable;
+
+import org.sonatype.nexus.maven.staging.upload.AdaptiveConcurrency;
+import org.sonatype.nexus.maven.staging.upload.UploadRetrier;
 import org.sonatype.spice.zapper.IOSourceListable;
-import org.sonatype.spice.zapper.Parameters;
-import org.sonatype.spice.zapper.ParametersBuilder;
-import org.sonatype.spice.zapper.client.hc4.Hc4ClientBuilder;
 import org.sonatype.spice.zapper.fs.DirectoryIOSource;
 
 import com.google.common.base.Strings;
 import org.apache.http.HttpHost;
 import org.apache.http.auth.AuthScope;
 import org.apache.http.auth.UsernamePasswordCredentials;
+import org.apache.http.client.CredentialsProvider;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.config.ConnectionConfig;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.config.SocketConfig;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
 import org.apache.http.impl.client.BasicCredentialsProvider;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.codehaus.plexus.component.annotations.Component;
 
 /**
@@ -38,6 +50,8 @@ import org.codehaus.plexus.component.annotations.Component;
 public class ZapperImpl
     implements Zapper
 {
+  private static final String USER_AGENT = "Zapper/1.0-HC4";
+
   @Override
   public void deployDirectory(final ZapperRequest zapperRequest)
       throws IOException
@@ -72,22 +86,20 @@ public class ZapperImpl
         credentialsProvider.setCredentials(AuthScope.ANY, remoteCredentials);
       }
 
-      final Parameters parameters = ParametersBuilder.defaults().build();
-      final Hc4ClientBuilder clientBuilder = new Hc4ClientBuilder(parameters, zapperRequest.getRemoteUrl());
-      if (credentialsProvider != null) {
-        clientBuilder.withPreemptiveRealm(credentialsProvider);
-      }
-      if (proxyServer != null) {
-        clientBuilder.withProxy(proxyServer);
+      final CloseableHttpClient httpClient = createHttpClient(zapperRequest, proxyServer, credentialsProvider);
+      IOSourceListable deployables = new DirectoryIOSource(zapperRequest.getStageRepository());
+      if (zapperRequest.getProgress() != null) {
+        deployables = new ProgressIOSource(deployables, zapperRequest.getProgress());
       }
-      final Client client = clientBuilder.build();
-      final IOSourceListable deployables = new DirectoryIOSource(zapperRequest.getStageRepository());
 
+      final AdaptiveConcurrency concurrency =
+          AdaptiveConcurrency.create(zapperRequest.getUploadThreads(), zapperRequest.getMaxUploadThreads());
       try {
-        client.upload(deployables);
+        new DirectoryUpload(httpClient, credentialsProvider, zapperRequest.getRemoteUrl(), concurrency,
+            new UploadRetrier(zapperRequest.getRetryPolicy(), zapperRequest.getProgress())).upload(deployables);
       }
       finally {
-        client.close();
+        httpClient.close();
       }
     }
     catch (IOException e) {
@@ -97,4 +109,51 @@ public class ZapperImpl
       throw new IOException("Unable to deploy!", e);
     }
   }
+
+  /**
+   * Creates the HTTP client as {@link org.sonatype.spice.zapper.client.hc4.Hc4ClientBuilder} does, but tuned as
+   * requested.
+   */
+  private CloseableHttpClient createHttpClient(final ZapperRequest zapperRequest,
+                                               @Nullable final HttpHost proxyServer,
+                                               @Nullable final CredentialsProvider credentialsProvider)
+  {
+    final Registry<ConnectionSocketFactory> socketFactories = RegistryBuilder.<ConnectionSocketFactory>create()
+        .register("http", PlainConnectionSocketFactory.getSocketFactory())
+        .register("https", SSLConnectionSocketFactory.getSystemSocketFactory())
+        .build();
+    final PoolingHttpClientConnectionManager connectionManager =
+        new PoolingHttpClientConnectionManager(socketFactories);
+    connectionManager.setMaxTotal(zapperRequest.getMaxConnections());
+    connectionManager.setDefaultMaxPerRoute(zapperRequest.getMaxConnectionsPerRoute() > 0
+        ? zapperRequest.getMaxConnectionsPerRoute()
+        : Math.max(zapperRequest.getUploadThreads(), zapperRequest.getMaxUploadThreads()));
+
+    final SocketConfig.Builder socketConfig = SocketConfig.custom()
+        .setTcpNoDelay(zapperRequest.isTcpNoDelay())
+        .setSoKeepAlive(zapperRequest.isSocketKeepAlive())
+        .setSoTimeout(zapperRequest.getReadTimeoutMillis());
+    if (zapperRequest.getSocketBufferSize() > 0) {
+      socketConfig.setSndBufSize(zapperRequest.getSocketBufferSize());
+      socketConfig.setRcvBufSize(zapperRequest.getSocketBufferSize());
+    }
+    connectionManager.setDefaultSocketConfig(socketConfig.build());
+    connectionManager.setDefaultConnectionConfig(
+        ConnectionConfig.custom().setBufferSize(zapperRequest.getConnectionBufferSize()).build());
+
+    final HttpClientBuilder httpClientBuilder = HttpClientBuilder.create()
+        .setConnectionManager(connectionManager)
+        .setUserAgent(USER_AGENT)
+        .setDefaultRequestConfig(RequestConfig.custom()
+            .setConnectTimeout(zapperRequest.getConnectTimeoutMillis())
+            .setSocketTimeout(zapperRequest.getReadTimeoutMillis())
+            .build());
+    if (proxyServer != null) {
+      httpClientBuilder.setProxy(proxyServer);
+    }
+    if (credentialsProvider != null) {
+      httpClientBuilder.setDefaultCredentialsProvider(credentialsProvider);
+    }
+    return httpClientBuilder.build();
+  }
 }
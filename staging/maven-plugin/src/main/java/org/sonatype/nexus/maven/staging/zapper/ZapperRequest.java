@@ -14,6 +14,9 @@ package org.sonatype.nexus.maven.staging.zapper;
 
 import java.io.File;
 
+import org.sonatype.nexus.maven.staging.upload.RetryPolicy;
+import org.sonatype.nexus.maven.staging.upload.UploadProgress;
+
 /**
  * A "zap" request.
  *
@@ -22,6 +25,21 @@ import java.io.File;
  */
 public class ZapperRequest
 {
+  /**
+   * @since 1.8.0
+   */
+  public static final int DEFAULT_UPLOAD_THREADS = 6;
+
+  /**
+   * @since 1.8.0
+   */
+  public static final int DEFAULT_MAX_CONNECTIONS = 200;
+
+  /**
+   * @since 1.8.0
+   */
+  public static final int DEFAULT_CONNECTION_BUFFER_SIZE = 8 * 1024;
+
   private final File stageRepository;
 
   private final String remoteUrl;
@@ -40,6 +58,30 @@ public class ZapperRequest
 
   private String proxyPassword;
 
+  private UploadProgress progress;
+
+  private int uploadThreads = DEFAULT_UPLOAD_THREADS;
+
+  private int maxUploadThreads;
+
+  private int maxConnections = DEFAULT_MAX_CONNECTIONS;
+
+  private int maxConnectionsPerRoute;
+
+  private int socketBufferSize;
+
+  private int connectionBufferSize = DEFAULT_CONNECTION_BUFFER_SIZE;
+
+  private int connectTimeoutMillis;
+
+  private int readTimeoutMillis;
+
+  private boolean tcpNoDelay = true;
+
+  private boolean socketKeepAlive = true;
+
+  private RetryPolicy retryPolicy = RetryPolicy.NONE;
+
   public ZapperRequest(File stageRepository, String remoteUrl) {
     this.stageRepository = stageRepository;
     this.remoteUrl = remoteUrl.endsWith("/") ? remoteUrl : remoteUrl + "/";
@@ -101,6 +143,166 @@ public class ZapperRequest
     this.proxyPassword = proxyPassword;
   }
 
+  /**
+   * The progress to report upload to, or {@code null}.
+   *
+   * @since 1.8.0
+   */
+  public UploadProgress getProgress() {
+    return progress;
+  }
+
+  public void setProgress(UploadProgress progress) {
+    this.progress = progress;
+  }
+
+  /**
+   * The count of files uploaded concurrently.
+   *
+   * @since 1.8.0
+   */
+  public int getUploadThreads() {
+    return uploadThreads;
+  }
+
+  public void setUploadThreads(int uploadThreads) {
+    this.uploadThreads = uploadThreads;
+  }
+
+  /**
+   * The maximal count of files uploaded concurrently, when greater than upload threads making the count adaptive, or
+   * {@code 0} to keep the count fixed.
+   *
+   * @since 1.8.0
+   */
+  public int getMaxUploadThreads() {
+    return maxUploadThreads;
+  }
+
+  public void setMaxUploadThreads(int maxUploadThreads) {
+    this.maxUploadThreads = maxUploadThreads;
+  }
+
+  /**
+   * The maximum count of pooled HTTP connections in total.
+   *
+   * @since 1.8.0
+   */
+  public int getMaxConnections() {
+    return maxConnections;
+  }
+
+  public void setMaxConnections(int maxConnections) {
+    this.maxConnections = maxConnections;
+  }
+
+  /**
+   * The maximum count of pooled HTTP connections to one host, or {@code 0} to use as many as (maximal) upload
+   * threads.
+   *
+   * @since 1.8.0
+   */
+  public int getMaxConnectionsPerRoute() {
+    return maxConnectionsPerRoute;
+  }
+
+  public void setMaxConnectionsPerRoute(int maxConnectionsPerRoute) {
+    this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+  }
+
+  /**
+   * The size in bytes of socket send and receive buffers (SO_SNDBUF and SO_RCVBUF), or {@code 0} to use the
+   * defaults of OS.
+   *
+   * @since 1.8.0
+   */
+  public int getSocketBufferSize() {
+    return socketBufferSize;
+  }
+
+  public void setSocketBufferSize(int socketBufferSize) {
+    this.socketBufferSize = socketBufferSize;
+  }
+
+  /**
+   * The size in bytes of the buffer of HTTP connection.
+   *
+   * @since 1.8.0
+   */
+  public int getConnectionBufferSize() {
+    return connectionBufferSize;
+  }
+
+  public void setConnectionBufferSize(int connectionBufferSize) {
+    this.connectionBufferSize = connectionBufferSize;
+  }
+
+  /**
+   * The connect timeout in milliseconds, or {@code 0} for no timeout.
+   *
+   * @since 1.8.0
+   */
+  public int getConnectTimeoutMillis() {
+    return connectTimeoutMillis;
+  }
+
+  public void setConnectTimeoutMillis(int connectTimeoutMillis) {
+    this.connectTimeoutMillis = connectTimeoutMillis;
+  }
+
+  /**
+   * The read (socket) timeout in milliseconds, or {@code 0} for no timeout.
+   *
+   * @since 1.8.0
+   */
+  public int getReadTimeoutMillis() {
+    return readTimeoutMillis;
+  }
+
+  public void setReadTimeoutMillis(int readTimeoutMillis) {
+    this.readTimeoutMillis = readTimeoutMillis;
+  }
+
+  /**
+   * Whether TCP_NODELAY is set on sockets, defaults to {@code true}.
+   *
+   * @since 1.8.0
+   */
+  public boolean isTcpNoDelay() {
+    return tcpNoDelay;
+  }
+
+  public void setTcpNoDelay(boolean tcpNoDelay) {
+    this.tcpNoDelay = tcpNoDelay;
+  }
+
+  /**
+   * Whether SO_KEEPALIVE is set on sockets, defaults to {@code true}, so idle pooled connections dropped by
+   * firewalls are detected.
+   *
+   * @since 1.8.0
+   */
+  public boolean isSocketKeepAlive() {
+    return socketKeepAlive;
+  }
+
+  public void setSocketKeepAlive(boolean socketKeepAlive) {
+    this.socketKeepAlive = socketKeepAlive;
+  }
+
+  /**
+   * The retry policy of failed file uploads, defaults to no retries.
+   *
+   * @since 1.8.0
+   */
+  public RetryPolicy getRetryPolicy() {
+    return retryPolicy;
+  }
+
+  public void setRetryPolicy(RetryPolicy retryPolicy) {
+    this.retryPolicy = retryPolicy;
+  }
+
   public File getStageRepository() {
     return stageRepository;
   }
@@ -0,0 +1,132 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.maven.staging;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.io.ByteStreams;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Local HTTP server standing in for Nexus in tests, serving requests concurrently on loopback interface, with
+ * programmable latency. The responses are decided by passed in {@link Responder}, the server drains the request
+ * bodies, and keeps count of requests in flight.
+ */
+public class LocalHttpServer
+{
+  /**
+   * Decides the response status of a request. May read the request body, the unread rest of it is drained.
+   */
+  public interface Responder
+  {
+    int respond(HttpExchange exchange) throws IOException, InterruptedException;
+  }
+
+  private final HttpServer server;
+
+  private final ExecutorService executor;
+
+  private final AtomicInteger inFlight = new AtomicInteger();
+
+  private final AtomicInteger maxInFlight = new AtomicInteger();
+
+  private volatile long latencyMillis;
+
+  private LocalHttpServer(final Responder responder) throws IOException {
+    this.executor = Executors.newCachedThreadPool();
+    this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.setExecutor(executor);
+    server.createContext("/", new HttpHandler()
+    {
+      @Override
+      public void handle(final HttpExchange exchange) throws IOException {
+        final int current = inFlight.incrementAndGet();
+        boolean done = false;
+        try {
+          synchronized (maxInFlight) {
+            maxInFlight.set(Math.max(maxInFlight.get(), current));
+          }
+          final int status = responder.respond(exchange);
+          // closing the exchange with unread body resets the connection
+          ByteStreams.copy(exchange.getRequestBody(), ByteStreams.nullOutputStream());
+          Thread.sleep(latencyMillis);
+          // done before responding, as client may send next request right after
+          inFlight.decrementAndGet();
+          done = true;
+          exchange.sendResponseHeaders(status, -1);
+        }
+        catch (InterruptedException e) {
+          exchange.sendResponseHeaders(500, -1);
+        }
+        finally {
+          if (!done) {
+            inFlight.decrementAndGet();
+          }
+          exchange.close();
+        }
+      }
+    });
+  }
+
+  /**
+   * Starts a server responding with passed in responder.
+   */
+  public static LocalHttpServer start(final Responder responder) throws IOException {
+    final LocalHttpServer result = new LocalHttpServer(responder);
+    result.server.start();
+    return result;
+  }
+
+  public void stop() {
+    server.stop(0);
+    executor.shutdownNow();
+  }
+
+  public int getPort() {
+    return server.getAddress().getPort();
+  }
+
+  /**
+   * Returns the URL of passed in path (starting with slash) on this server.
+   */
+  public String url(final String path) {
+    return "http://127.0.0.1:" + getPort() + path;
+  }
+
+  /**
+   * Sets the latency added to every request, after it was read.
+   */
+  public void setLatencyMillis(final long latencyMillis) {
+    this.latencyMillis = latencyMillis;
+  }
+
+  /**
+   * The count of requests being served right now.
+   */
+  public int getInFlight() {
+    return inFlight.get();
+  }
+
+  /**
+   * The highest count of requests served concurrently so far.
+   */
+  public int getMaxInFlight() {
+    return maxInFlight.get();
+  }
+}
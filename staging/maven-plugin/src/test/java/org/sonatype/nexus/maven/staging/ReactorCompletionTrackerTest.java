@@ -0,0 +1,156 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.maven.staging;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import com.google.common.base.Stopwatch;
+import org.apache.maven.execution.BuildSuccess;
+import org.apache.maven.execution.DefaultMavenExecutionRequest;
+import org.apache.maven.execution.DefaultMavenExecutionResult;
+import org.apache.maven.execution.ExecutionEvent;
+import org.apache.maven.execution.ExecutionListener;
+import org.apache.maven.execution.MavenExecutionRequest;
+import org.apache.maven.execution.MavenExecutionResult;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.project.MavenProject;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ReactorCompletionTrackerTest
+    extends TestSupport
+{
+  @Mock
+  private MavenSession session;
+
+  @Mock
+  private ExecutionListener delegate;
+
+  private MavenExecutionRequest request;
+
+  private MavenExecutionResult result;
+
+  private MavenProject a;
+
+  private MavenProject b;
+
+  @Before
+  public void setUp() {
+    request = new DefaultMavenExecutionRequest();
+    request.setExecutionListener(delegate);
+    result = new DefaultMavenExecutionResult();
+    when(session.getRequest()).thenReturn(request);
+    a = project("a");
+    b = project("b");
+  }
+
+  private MavenProject project(final String artifactId) {
+    final MavenProject project = new MavenProject();
+    project.setGroupId("org.foo");
+    project.setArtifactId(artifactId);
+    project.setVersion("1.0");
+    return project;
+  }
+
+  private ExecutionEvent event(final MavenProject project) {
+    final ExecutionEvent event = mock(ExecutionEvent.class);
+    when(event.getProject()).thenReturn(project);
+    return event;
+  }
+
+  @Test
+  public void installWrapsListenerOnce() {
+    final ReactorCompletionTracker tracker = ReactorCompletionTracker.install(session);
+    assertThat(request.getExecutionListener(), sameInstance((ExecutionListener) tracker));
+    assertThat(ReactorCompletionTracker.install(session), sameInstance(tracker));
+
+    final ExecutionEvent event = event(a);
+    tracker.projectSucceeded(event);
+    verify(delegate).projectSucceeded(event);
+  }
+
+  @Test
+  public void projectsWithBuildSummaryAreFinished() throws Exception {
+    result.addBuildSummary(new BuildSuccess(a, 10L));
+    final ReactorCompletionTracker tracker = ReactorCompletionTracker.install(session);
+    assertThat(tracker.getOutstanding(Arrays.asList(a, b), result), contains(b));
+    tracker.projectSkipped(event(b));
+    assertThat(tracker.await(Arrays.asList(a, b), result, 0L), empty());
+  }
+
+  @Test
+  public void wakesUpWhenLastProjectFinishes() throws Exception {
+    final ReactorCompletionTracker tracker = ReactorCompletionTracker.install(session);
+    final Thread peers = new Thread()
+    {
+      @Override
+      public void run() {
+        try {
+          Thread.sleep(100L);
+          tracker.projectSucceeded(event(a));
+          Thread.sleep(100L);
+          tracker.projectFailed(event(b));
+        }
+        catch (InterruptedException e) {
+          // ignore
+        }
+      }
+    };
+    final Stopwatch stopwatch = new Stopwatch().start();
+    peers.start();
+    final List<MavenProject> outstanding = tracker.await(Arrays.asList(a, b), result, 0L);
+    assertThat(outstanding, empty());
+    // woken by event, not by periodic recheck
+    assertThat(stopwatch.elapsed(TimeUnit.MILLISECONDS), lessThan(5000L));
+    peers.join();
+  }
+
+  @Test
+  public void timesOutWithUnfinishedProjects() throws Exception {
+    final ReactorCompletionTracker tracker = ReactorCompletionTracker.install(session);
+    tracker.projectSucceeded(event(a));
+    assertThat(tracker.await(Arrays.asList(a, b), result, 50L), contains(b));
+  }
+
+  @Test
+  public void sessionEndedCallbacksRunOnceBeforeDelegate() {
+    final ReactorCompletionTracker tracker = ReactorCompletionTracker.install(session);
+    final Runnable callback = mock(Runnable.class);
+    tracker.onSessionEnded(callback);
+
+    final ExecutionEvent event = event(null);
+    tracker.sessionEnded(event);
+    final InOrder inOrder = inOrder(callback, delegate);
+    inOrder.verify(callback).run();
+    inOrder.verify(delegate).sessionEnded(event);
+
+    tracker.sessionEnded(event);
+    verify(callback).run();
+  }
+}
@@ -0,0 +1,114 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.maven.staging.deploy;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.sonatype.nexus.maven.staging.ReactorCompletionTracker;
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import org.apache.maven.execution.DefaultMavenExecutionRequest;
+import org.apache.maven.execution.ExecutionEvent;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class LocalStagingExecutorTest
+    extends TestSupport
+{
+  @Mock
+  private MavenSession session;
+
+  private LocalStagingExecutor executor;
+
+  @Before
+  public void setUp() {
+    when(session.getRequest()).thenReturn(new DefaultMavenExecutionRequest());
+    executor = new LocalStagingExecutor(2);
+  }
+
+  private Callable<Void> work(final AtomicInteger done, final Exception failure) {
+    return new Callable<Void>()
+    {
+      @Override
+      public Void call() throws Exception {
+        Thread.sleep(20L);
+        if (failure != null) {
+          throw failure;
+        }
+        done.incrementAndGet();
+        return null;
+      }
+    };
+  }
+
+  @Test
+  public void awaitJoinsAllWork() throws Exception {
+    final AtomicInteger done = new AtomicInteger();
+    for (int i = 0; i < 10; i++) {
+      executor.submit(session, "org.foo:m" + i + ":jar:1.0", work(done, null));
+    }
+    executor.await();
+    assertThat(done.get(), equalTo(10));
+    // nothing pending anymore
+    executor.await();
+  }
+
+  @Test
+  public void awaitReportsAllFailures() throws Exception {
+    final AtomicInteger done = new AtomicInteger();
+    final IOException first = new IOException("disk full");
+    executor.submit(session, "org.foo:a:jar:1.0", work(done, null));
+    executor.submit(session, "org.foo:b:jar:1.0", work(done, first));
+    executor.submit(session, "org.foo:c:jar:1.0", work(done, new IOException("disk still full")));
+    try {
+      executor.await();
+      fail("Failures should be reported");
+    }
+    catch (MojoExecutionException e) {
+      assertThat(e.getMessage(), containsString("org.foo:b:jar:1.0, org.foo:c:jar:1.0"));
+      assertThat(e.getCause(), instanceOf(IOException.class));
+      assertThat(e.getCause().getMessage(), equalTo("disk full"));
+    }
+    assertThat(done.get(), equalTo(1));
+  }
+
+  @Test
+  public void sessionEndDiscardsPendingWork() throws Exception {
+    final CountDownLatch blocked = new CountDownLatch(1);
+    executor.submit(session, "org.foo:a:jar:1.0", new Callable<Void>()
+    {
+      @Override
+      public Void call() throws Exception {
+        blocked.await();
+        return null;
+      }
+    });
+    ReactorCompletionTracker.install(session).sessionEnded(mock(ExecutionEvent.class));
+    // discarded, nothing to wait for
+    executor.await();
+  }
+}
@@ -0,0 +1,188 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.maven.staging.deploy.strategy;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.sonatype.nexus.maven.staging.index.IndexEntry;
+import org.sonatype.nexus.maven.staging.index.StagingJournal;
+import org.sonatype.nexus.maven.staging.install.FileChecksums;
+import org.sonatype.nexus.maven.staging.upload.AdaptiveConcurrency;
+import org.sonatype.nexus.maven.staging.upload.RetryPolicy;
+import org.sonatype.nexus.maven.staging.upload.UploadProgress;
+import org.sonatype.nexus.maven.staging.upload.UploadRetrier;
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+import org.apache.maven.artifact.deployer.ArtifactDeploymentException;
+import org.codehaus.plexus.PlexusContainer;
+import org.eclipse.aether.DefaultRepositorySystemSession;
+import org.eclipse.aether.RepositorySystem;
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.deployment.DeployRequest;
+import org.eclipse.aether.deployment.DeployResult;
+import org.eclipse.aether.deployment.DeploymentException;
+import org.eclipse.aether.transfer.TransferEvent;
+import org.eclipse.aether.transfer.TransferResource;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class AetherDeployerTest
+    extends TestSupport
+{
+  private File sourceDirectory;
+
+  private List<IndexEntry> entries;
+
+  private RepositorySystem repositorySystem;
+
+  private AetherDeployer aetherDeployer;
+
+  private RemoteChecksums remoteChecksums;
+
+  @Before
+  public void prepare() throws Exception {
+    sourceDirectory = util.createTempDir();
+    final File jar = new File(sourceDirectory, "org/foo/a/1.0/a-1.0.jar");
+    jar.getParentFile().mkdirs();
+    Files.write("jar", jar, Charsets.UTF_8);
+    final File pom = new File(jar.getParentFile(), "a-1.0.pom");
+    Files.write("pom", pom, Charsets.UTF_8);
+    entries = Collections.singletonList(new IndexEntry("org/foo/a/1.0/a-1.0.jar", "org.foo", "a", "1.0", null,
+        "jar", "jar", "a-1.0.pom", null, "staging", "http://localhost/staging", FileChecksums.of(jar),
+        FileChecksums.of(pom)));
+
+    repositorySystem = mock(RepositorySystem.class);
+    final PlexusContainer plexusContainer = mock(PlexusContainer.class);
+    when(plexusContainer.lookup(RepositorySystem.class)).thenReturn(repositorySystem);
+    aetherDeployer = new AetherDeployer(plexusContainer, new DefaultRepositorySystemSession());
+
+    // whatever was uploaded is present remotely with same content
+    remoteChecksums = mock(RemoteChecksums.class);
+    when(remoteChecksums.sha1Of(anyString())).thenAnswer(new Answer<String>()
+    {
+      @Override
+      public String answer(final InvocationOnMock invocation) throws Throwable {
+        final File file = new File(sourceDirectory, (String) invocation.getArguments()[0]);
+        return file.isFile() ? Files.hash(file, Hashing.sha1()).toString() : null;
+      }
+    });
+  }
+
+  /**
+   * Mimics Aether, that uploads the artifacts first, reporting each of them as succeeded transfer, and the GA
+   * metadata after them, failing to do so on first invocation.
+   */
+  private AtomicInteger failMetadataOnce() throws Exception {
+    final AtomicInteger invocations = new AtomicInteger();
+    when(repositorySystem.deploy(any(RepositorySystemSession.class), any(DeployRequest.class))).thenAnswer(
+        new Answer<DeployResult>()
+        {
+          @Override
+          public DeployResult answer(final InvocationOnMock invocation) throws Throwable {
+            final RepositorySystemSession session = (RepositorySystemSession) invocation.getArguments()[0];
+            final DeployRequest request = (DeployRequest) invocation.getArguments()[1];
+            for (Artifact artifact : request.getArtifacts()) {
+              final TransferResource resource = new TransferResource(request.getRepository().getUrl(),
+                  artifact.getFile().getName(), artifact.getFile(), null);
+              session.getTransferListener().transferSucceeded(
+                  new TransferEvent.Builder(session, resource).setType(TransferEvent.EventType.SUCCEEDED).build());
+            }
+            if (invocations.incrementAndGet() == 1) {
+              throw new DeploymentException("Failed to deploy metadata: Connection reset");
+            }
+            return new DeployResult(request);
+          }
+        });
+    return invocations;
+  }
+
+  private void deploy(final ResumableUpload resumableUpload, final List<IndexEntry> entries)
+      throws ArtifactDeploymentException
+  {
+    aetherDeployer.deploy(sourceDirectory, entries, null, new UploadProgress("test"), resumableUpload,
+        new UploadRetrier(RetryPolicy.NONE, null), AdaptiveConcurrency.create(1, 1));
+  }
+
+  @Test
+  public void requestFailedOnMetadataIsPerformedOnceMoreWhenResumed() throws Exception {
+    final AtomicInteger invocations = failMetadataOnce();
+    final StagingJournal journal = StagingJournal.open(sourceDirectory);
+    try {
+      journal.start("repo-1");
+      final ResumableUpload resumableUpload = new ResumableUpload(sourceDirectory, journal, remoteChecksums);
+      try {
+        deploy(resumableUpload, resumableUpload.pending(entries));
+        fail("Metadata upload failure must fail the deploy");
+      }
+      catch (ArtifactDeploymentException e) {
+        // expected
+      }
+    }
+    finally {
+      journal.close();
+    }
+
+    // resumed: artifacts are present remotely, but the GA was not fully deployed
+    final StagingJournal resumedJournal = StagingJournal.open(sourceDirectory);
+    try {
+      resumedJournal.start("repo-1");
+      final ResumableUpload resumableUpload = new ResumableUpload(sourceDirectory, resumedJournal, remoteChecksums);
+      final List<IndexEntry> pending = resumableUpload.pending(entries);
+      assertThat(pending, contains(entries.get(0)));
+
+      deploy(resumableUpload, pending);
+      assertThat(invocations.get(), equalTo(2));
+      assertThat(resumableUpload.pending(entries), empty());
+    }
+    finally {
+      resumedJournal.close();
+    }
+  }
+
+  @Test
+  public void succeededRequestIsJournaled() throws Exception {
+    when(repositorySystem.deploy(any(RepositorySystemSession.class), any(DeployRequest.class)))
+        .thenReturn(new DeployResult(new DeployRequest()));
+    final StagingJournal journal = StagingJournal.open(sourceDirectory);
+    try {
+      journal.start("repo-1");
+      final ResumableUpload resumableUpload = new ResumableUpload(sourceDirectory, journal, remoteChecksums);
+      deploy(resumableUpload, resumableUpload.pending(entries));
+
+      assertThat(journal.size(), equalTo(2));
+      assertThat(resumableUpload.pending(entries), empty());
+    }
+    finally {
+      journal.close();
+    }
+  }
+}
@@ -0,0 +1,265 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.maven.staging.deploy.strategy;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import org.sonatype.nexus.maven.staging.LocalHttpServer;
+import org.sonatype.nexus.maven.staging.LocalHttpServer.Responder;
+import org.sonatype.nexus.maven.staging.index.IndexEntry;
+import org.sonatype.nexus.maven.staging.install.FileChecksums;
+import org.sonatype.nexus.maven.staging.upload.UploadProgress;
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Files;
+import com.sun.net.httpserver.HttpExchange;
+import org.apache.maven.settings.Server;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.fail;
+
+public class BundleUploadTest
+    extends TestSupport
+{
+  private LocalHttpServer server;
+
+  private volatile int status;
+
+  private volatile String authorization;
+
+  private final Map<String, byte[]> received = new LinkedHashMap<String, byte[]>();
+
+  @Before
+  public void startServer() throws Exception {
+    status = 201;
+    server = LocalHttpServer.start(new Responder()
+    {
+      @Override
+      public int respond(final HttpExchange exchange) throws IOException {
+        authorization = exchange.getRequestHeaders().getFirst("Authorization");
+        if (status == 201) {
+          final ZipInputStream zip = new ZipInputStream(exchange.getRequestBody());
+          ZipEntry entry;
+          while ((entry = zip.getNextEntry()) != null) {
+            received.put(entry.getName(), ByteStreams.toByteArray(zip));
+          }
+        }
+        return status;
+      }
+    });
+  }
+
+  @After
+  public void stopServer() {
+    server.stop();
+  }
+
+  private BundleUpload bundleUpload() {
+    return bundleUpload(server.getPort());
+  }
+
+  private BundleUpload bundleUpload(final int port) {
+    final Server credentials = new Server();
+    credentials.setUsername("user");
+    credentials.setPassword("pass");
+    return new BundleUpload("http://127.0.0.1:" + port + "/service/local/repositories/repo-1/content-compressed",
+        new HttpConnections(credentials, null, false, false));
+  }
+
+  /**
+   * Serves one single request by responding with passed in status right away, without "100 Continue", as a server
+   * refusing the request before reading it's body does (the JDK server always sends "100 Continue").
+   */
+  private ServerSocket refusingServer(final int status) throws IOException {
+    final ServerSocket serverSocket = new ServerSocket(0, 1, InetAddress.getByName("127.0.0.1"));
+    final Thread thread = new Thread(new Runnable()
+    {
+      @Override
+      public void run() {
+        try {
+          final Socket socket = serverSocket.accept();
+          try {
+            skipHeaders(socket.getInputStream());
+            final OutputStream output = socket.getOutputStream();
+            output.write(("HTTP/1.1 " + status + " Refused\r\nContent-Length: 0\r\nConnection: close\r\n\r\n")
+                .getBytes(Charsets.US_ASCII));
+            output.flush();
+          }
+          finally {
+            socket.close();
+          }
+        }
+        catch (IOException e) {
+          // client fails too
+        }
+      }
+    }, "refusing-server");
+    thread.setDaemon(true);
+    thread.start();
+    return serverSocket;
+  }
+
+  private static void skipHeaders(final InputStream input) throws IOException {
+    int matched = 0;
+    int b;
+    while (matched < 4 && (b = input.read()) != -1) {
+      matched = b == "\r\n\r\n".charAt(matched) ? matched + 1 : (b == '\r' ? 1 : 0);
+    }
+  }
+
+  /**
+   * Content failing the test if written.
+   */
+  private static BundleUpload.Content unwritten(final AtomicBoolean written) {
+    return new BundleUpload.Content()
+    {
+      @Override
+      public void writeTo(final ZipOutputStream zip, final UploadProgress progress) {
+        written.set(true);
+      }
+    };
+  }
+
+  private File write(final File directory, final String path, final String content) throws IOException {
+    final File file = new File(directory, path);
+    file.getParentFile().mkdirs();
+    Files.write(content, file, Charsets.UTF_8);
+    return file;
+  }
+
+  @Test
+  public void uploadsDirectoryAsIs() throws Exception {
+    final File directory = util.createTempDir();
+    write(directory, "org/foo/a/1.0/a-1.0.jar", "jar");
+    write(directory, "org/foo/a/1.0/a-1.0.jar.sha1", "sha1");
+    write(directory, "org/foo/a/maven-metadata.xml", "metadata");
+    final BundleUpload.DirectoryContent content = new BundleUpload.DirectoryContent(directory);
+    final UploadProgress progress = new UploadProgress("test");
+    content.expect(progress);
+
+    assertThat(bundleUpload().upload(content, progress), is(true));
+
+    assertThat(authorization, equalTo("Basic dXNlcjpwYXNz"));
+    assertThat(new ArrayList<String>(received.keySet()), contains("org/foo/a/1.0/a-1.0.jar",
+        "org/foo/a/1.0/a-1.0.jar.sha1", "org/foo/a/maven-metadata.xml"));
+    assertThat(new String(received.get("org/foo/a/1.0/a-1.0.jar"), Charsets.UTF_8), equalTo("jar"));
+    assertThat(progress.getFiles(), equalTo(3L));
+    assertThat(progress.getBytes(), equalTo(progress.getTotalBytes()));
+  }
+
+  @Test
+  public void uploadsStagedArtifactsWithChecksumsAndMetadata() throws Exception {
+    final File directory = util.createTempDir();
+    final File jar = write(directory, "org/foo/a/1.0/a-1.0.jar", "jar");
+    write(directory, "org/foo/a/1.0/a-1.0.pom", "pom");
+    final List<IndexEntry> entries = Arrays.asList(new IndexEntry("org/foo/a/1.0/a-1.0.jar", "org.foo", "a", "1.0",
+        null, "maven-plugin", "jar", "a-1.0.pom", "foo", null, null, FileChecksums.of(jar), null));
+
+    assertThat(bundleUpload().upload(new StagedBundle(directory, entries), new UploadProgress("test")), is(true));
+
+    assertThat(new ArrayList<String>(received.keySet()), contains(
+        "org/foo/a/1.0/a-1.0.jar", "org/foo/a/1.0/a-1.0.jar.md5", "org/foo/a/1.0/a-1.0.jar.sha1",
+        "org/foo/a/1.0/a-1.0.pom", "org/foo/a/1.0/a-1.0.pom.md5", "org/foo/a/1.0/a-1.0.pom.sha1",
+        "org/foo/a/maven-metadata.xml", "org/foo/a/maven-metadata.xml.md5", "org/foo/a/maven-metadata.xml.sha1",
+        "org/foo/maven-metadata.xml", "org/foo/maven-metadata.xml.md5", "org/foo/maven-metadata.xml.sha1"));
+    assertThat(new String(received.get("org/foo/a/1.0/a-1.0.jar.sha1"), Charsets.US_ASCII),
+        equalTo(FileChecksums.of(jar).getSha1()));
+    assertThat(new String(received.get("org/foo/a/maven-metadata.xml"), Charsets.UTF_8),
+        containsString("<release>1.0</release>"));
+    assertThat(new String(received.get("org/foo/maven-metadata.xml"), Charsets.UTF_8),
+        containsString("<prefix>foo</prefix>"));
+  }
+
+  @Test
+  public void refusedWhenNexusCannotUnpack() throws Exception {
+    status = 404;
+    final File directory = util.createTempDir();
+    write(directory, "org/foo/a/1.0/a-1.0.jar", "jar");
+
+    assertThat(bundleUpload().upload(new BundleUpload.DirectoryContent(directory), new UploadProgress("test")),
+        is(false));
+  }
+
+  @Test
+  public void refusedWithoutContinueBeforeBundleIsSent() throws Exception {
+    final ServerSocket refusingServer = refusingServer(404);
+    try {
+      final AtomicBoolean written = new AtomicBoolean();
+
+      assertThat(bundleUpload(refusingServer.getLocalPort()).upload(unwritten(written), new UploadProgress("test")),
+          is(false));
+      assertThat(written.get(), is(false));
+    }
+    finally {
+      refusingServer.close();
+    }
+  }
+
+  @Test
+  public void failsWithoutContinueOnServerError() throws Exception {
+    final ServerSocket refusingServer = refusingServer(503);
+    try {
+      final AtomicBoolean written = new AtomicBoolean();
+      try {
+        bundleUpload(refusingServer.getLocalPort()).upload(unwritten(written), new UploadProgress("test"));
+        fail("Server error must fail the upload");
+      }
+      catch (IOException e) {
+        assertThat(e.getMessage(), containsString("503"));
+      }
+      assertThat(written.get(), is(false));
+    }
+    finally {
+      refusingServer.close();
+    }
+  }
+
+  @Test(expected = IOException.class)
+  public void failsOnServerError() throws Exception {
+    status = 500;
+    final File directory = util.createTempDir();
+    write(directory, "org/foo/a/1.0/a-1.0.jar", "jar");
+
+    bundleUpload().upload(new BundleUpload.DirectoryContent(directory), new UploadProgress("test"));
+  }
+
+  @Test
+  public void snapshotsNotBundleable() {
+    assertThat(StagedBundle.isBundleable(Arrays.asList(new IndexEntry("org/foo/a/1.0-SNAPSHOT/a-1.0-SNAPSHOT.jar",
+        "org.foo", "a", "1.0-SNAPSHOT", null, "jar", "jar", null, null, null, null))), is(false));
+  }
+}
@@ -0,0 +1,160 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.maven.staging.deploy.strategy;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+
+import org.sonatype.nexus.maven.staging.deploy.DeployableArtifact;
+import org.sonatype.nexus.maven.staging.deploy.LocalStagingExecutor;
+import org.sonatype.nexus.maven.staging.deploy.strategy.AbstractDeployStrategy.FakeArtifactHandler;
+import org.sonatype.nexus.maven.staging.index.IndexEntry;
+import org.sonatype.nexus.maven.staging.index.StagingIndexReader;
+import org.sonatype.nexus.maven.staging.install.InstallMode;
+import org.sonatype.nexus.maven.staging.remote.Parameters;
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.repository.ArtifactRepository;
+import org.apache.maven.artifact.versioning.VersionRange;
+import org.apache.maven.execution.DefaultMavenExecutionRequest;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.project.MavenProject;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests of {@link DeferredDeployStrategy} local staging performed in background, after the session moved on to a
+ * later module.
+ */
+public class DeferredDeployStrategyTest
+    extends TestSupport
+{
+  private static class TestDeferredDeployStrategy
+      extends DeferredDeployStrategy
+  {
+    private final ArtifactRepository stagingRepository;
+
+    private TestDeferredDeployStrategy(final ArtifactRepository stagingRepository) {
+      this.stagingRepository = stagingRepository;
+    }
+
+    @Override
+    protected ArtifactRepository getArtifactRepositoryForDirectory(final File stagingDirectory) {
+      stagingDirectory.mkdirs();
+      return stagingRepository;
+    }
+  }
+
+  private ArtifactRepository repository(final String id, final String url) {
+    final ArtifactRepository repository = mock(ArtifactRepository.class);
+    when(repository.getId()).thenReturn(id);
+    when(repository.getUrl()).thenReturn(url);
+    when(repository.pathOf(any(Artifact.class))).thenAnswer(new Answer<String>()
+    {
+      @Override
+      public String answer(final InvocationOnMock invocation) throws Throwable {
+        final Artifact artifact = (Artifact) invocation.getArguments()[0];
+        return artifact.getGroupId().replace('.', '/') + "/" + artifact.getArtifactId() + "/"
+            + artifact.getVersion() + "/" + artifact.getArtifactId() + "-" + artifact.getVersion() + ".jar";
+      }
+    });
+    return repository;
+  }
+
+  private MavenProject project(final String artifactId, final ArtifactRepository deploymentRepository) {
+    final MavenProject project = mock(MavenProject.class);
+    when(project.getId()).thenReturn("org.foo:" + artifactId + ":jar:1.0-SNAPSHOT");
+    when(project.getDistributionManagementArtifactRepository()).thenReturn(deploymentRepository);
+    return project;
+  }
+
+  private DeployableArtifact deployable(final File file, final String artifactId) {
+    final Artifact artifact = new DefaultArtifact("org.foo", artifactId, VersionRange.createFromVersion("1.0-SNAPSHOT"),
+        null, "jar", null, new FakeArtifactHandler("jar", "jar"));
+    return new DeployableArtifact(file, artifact);
+  }
+
+  @Test
+  public void queuedModulesUseTheirOwnDeploymentRepository() throws Exception {
+    final File deferredDirectory = util.createTempDir();
+    final File source = util.createTempFile();
+    Files.write("content", source, Charsets.UTF_8);
+    final Parameters parameters = new Parameters("org.sonatype.plugins:nexus-staging-maven-plugin:1.0",
+        deferredDirectory, util.createTempDir());
+    parameters.setInstallMode(InstallMode.COPY);
+
+    final MavenSession session = mock(MavenSession.class);
+    when(session.getRequest()).thenReturn(new DefaultMavenExecutionRequest());
+    final MavenProject module1 = project("m1", repository("snapshots1", "http://localhost/snapshots1"));
+    final MavenProject module2 = project("m2", repository("snapshots2", "http://localhost/snapshots2"));
+    // by the time the queued work runs, the session is on a module without distribution management
+    when(session.getCurrentProject()).thenReturn(project("m3", null));
+
+    final TestDeferredDeployStrategy strategy = new TestDeferredDeployStrategy(repository("nexus", "file:/"));
+    final LocalStagingExecutor executor = new LocalStagingExecutor(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    executor.submit(session, "blocker", new Callable<Void>()
+    {
+      @Override
+      public Void call() throws Exception {
+        release.await();
+        return null;
+      }
+    });
+    for (MavenProject module : new MavenProject[]{module1, module2}) {
+      final String artifactId = module == module1 ? "m1" : "m2";
+      final DeployPerModuleRequest request = new DeployPerModuleRequest(session, module, parameters,
+          Collections.singletonList(deployable(source, artifactId)));
+      executor.submit(session, module.getId(), new Callable<Void>()
+      {
+        @Override
+        public Void call() throws Exception {
+          strategy.deployPerModule(request);
+          return null;
+        }
+      });
+    }
+    release.countDown();
+    executor.await();
+
+    final Map<String, String> repositories = new HashMap<String, String>();
+    final StagingIndexReader reader = new StagingIndexReader(deferredDirectory);
+    try {
+      IndexEntry entry;
+      while ((entry = reader.read()) != null) {
+        repositories.put(entry.getArtifactId(), entry.getRepoId() + "|" + entry.getRepoUrl());
+      }
+    }
+    finally {
+      reader.close();
+    }
+    assertThat(repositories.size(), equalTo(2));
+    assertThat(repositories.get("m1"), equalTo("snapshots1|http://localhost/snapshots1"));
+    assertThat(repositories.get("m2"), equalTo("snapshots2|http://localhost/snapshots2"));
+  }
+}
@@ -0,0 +1,110 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.maven.staging.deploy.strategy;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.Reader;
+import java.io.Writer;
+
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import org.apache.maven.artifact.repository.metadata.Metadata;
+import org.apache.maven.artifact.repository.metadata.Plugin;
+import org.apache.maven.artifact.repository.metadata.io.xpp3.MetadataXpp3Reader;
+import org.apache.maven.artifact.repository.metadata.io.xpp3.MetadataXpp3Writer;
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+
+public class GroupPluginsMetadataTest
+    extends TestSupport
+{
+  private Metadata read(final File file) throws Exception {
+    final Reader reader = new FileReader(file);
+    try {
+      return new MetadataXpp3Reader().read(reader);
+    }
+    finally {
+      reader.close();
+    }
+  }
+
+  private Plugin plugin(final String prefix, final String artifactId) {
+    final Plugin plugin = new Plugin();
+    plugin.setPrefix(prefix);
+    plugin.setArtifactId(artifactId);
+    plugin.setName(artifactId);
+    return plugin;
+  }
+
+  @Test
+  public void createsMetadataWhenNoneRemotely() throws Exception {
+    final GroupPluginsMetadata metadata = new GroupPluginsMetadata("org.foo");
+    metadata.addPlugin("foo", "foo-maven-plugin", "foo-maven-plugin");
+    metadata.addPlugin("foo", "other-maven-plugin", "other-maven-plugin");
+    metadata.addPlugin("bar", "bar-maven-plugin", "bar-maven-plugin");
+
+    final File result = new File(util.createTempDir(), "org/foo/maven-metadata.xml");
+    metadata.merge(new File(result.getParentFile(), "missing.xml"), result);
+
+    assertThat(metadata.isMerged(), is(true));
+    final Metadata merged = read(result);
+    assertThat(merged.getPlugins(), hasSize(2));
+    assertThat(merged.getPlugins().get(0).getArtifactId(), equalTo("foo-maven-plugin"));
+    assertThat(merged.getPlugins().get(1).getArtifactId(), equalTo("bar-maven-plugin"));
+  }
+
+  @Test
+  public void keepsRemotePluginsWithSamePrefix() throws Exception {
+    final File file = new File(util.createTempDir(), "maven-metadata.xml");
+    final Metadata remote = new Metadata();
+    remote.addPlugin(plugin("foo", "old-foo-maven-plugin"));
+    final Writer writer = new FileWriter(file);
+    try {
+      new MetadataXpp3Writer().write(writer, remote);
+    }
+    finally {
+      writer.close();
+    }
+
+    final GroupPluginsMetadata metadata = new GroupPluginsMetadata("org.foo");
+    metadata.addPlugin("foo", "foo-maven-plugin", "foo-maven-plugin");
+    metadata.addPlugin("bar", "bar-maven-plugin", "bar-maven-plugin");
+    // as Aether does: merged in place
+    metadata.merge(file, file);
+
+    final Metadata merged = read(file);
+    assertThat(merged.getPlugins(), hasSize(2));
+    assertThat(merged.getPlugins().get(0).getArtifactId(), equalTo("old-foo-maven-plugin"));
+    assertThat(merged.getPlugins().get(1).getArtifactId(), equalTo("bar-maven-plugin"));
+  }
+
+  @Test
+  public void setFileKeepsPlugins() {
+    final GroupPluginsMetadata metadata = new GroupPluginsMetadata("org.foo");
+    metadata.addPlugin("foo", "foo-maven-plugin", "foo-maven-plugin");
+    final File file = new File("maven-metadata.xml");
+    final Object withFile = metadata.setFile(file);
+    assertThat(withFile, instanceOf(GroupPluginsMetadata.class));
+    assertThat(((GroupPluginsMetadata) withFile).getFile(), equalTo(file));
+    assertThat(((GroupPluginsMetadata) withFile).getPlugins().keySet(), contains("foo"));
+    assertThat(metadata.getType(), equalTo("maven-metadata.xml"));
+  }
+}
@@ -0,0 +1,134 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.maven.staging.deploy.strategy;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.sonatype.nexus.maven.staging.deploy.strategy.AbstractDeployStrategy.FakeArtifactHandler;
+import org.sonatype.nexus.maven.staging.index.IndexEntry;
+import org.sonatype.nexus.maven.staging.index.StagingIndexReader;
+import org.sonatype.nexus.maven.staging.install.InstallMode;
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.repository.ArtifactRepository;
+import org.apache.maven.artifact.versioning.VersionRange;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Stress test of concurrent local staging: many threads install into same staging directory, and the index must
+ * contain every artifact exactly once, with intact records, while every staged file must be intact too.
+ */
+public class LocalStagingConcurrencyTest
+    extends TestSupport
+{
+  private static final int THREADS = 16;
+
+  private static final int ARTIFACTS_PER_THREAD = 250;
+
+  private static class TestDeployStrategy
+      extends AbstractDeployStrategy
+  {
+    @Override
+    public void deployPerModule(final DeployPerModuleRequest request) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void finalizeDeploy(final FinalizeDeployRequest request) {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  @Test
+  public void concurrentInstall() throws Exception {
+    final File stagingDirectory = util.createTempDir();
+    final File source = util.createTempFile();
+    Files.write("content", source, Charsets.UTF_8);
+    final ArtifactRepository stagingRepository = mock(ArtifactRepository.class);
+    when(stagingRepository.pathOf(any(Artifact.class))).thenAnswer(new Answer<String>()
+    {
+      @Override
+      public String answer(final InvocationOnMock invocation) throws Throwable {
+        final Artifact artifact = (Artifact) invocation.getArguments()[0];
+        return artifact.getGroupId().replace('.', '/') + "/" + artifact.getArtifactId() + "/"
+            + artifact.getVersion() + "/" + artifact.getArtifactId() + "-" + artifact.getVersion() + ".jar";
+      }
+    });
+
+    final TestDeployStrategy strategy = new TestDeployStrategy();
+
+    final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    try {
+      final List<Future<Void>> futures = new ArrayList<Future<Void>>();
+      for (int t = 0; t < THREADS; t++) {
+        final int thread = t;
+        futures.add(executor.submit(new Callable<Void>()
+        {
+          @Override
+          public Void call() throws Exception {
+            for (int i = 0; i < ARTIFACTS_PER_THREAD; i++) {
+              final Artifact artifact = new DefaultArtifact("org.foo.t" + thread, "a" + i,
+                  VersionRange.createFromVersion("1.0"), null, "jar", null, new FakeArtifactHandler("jar", "jar"));
+              strategy.install(source, artifact, stagingRepository, stagingDirectory, null,
+                  thread % 2 == 0 ? InstallMode.COPY : InstallMode.AUTO);
+            }
+            strategy.syncIndex(stagingDirectory);
+            return null;
+          }
+        }));
+      }
+      for (Future<Void> future : futures) {
+        future.get();
+      }
+    }
+    finally {
+      executor.shutdownNow();
+    }
+
+    final Set<String> paths = new HashSet<String>();
+    final StagingIndexReader reader = new StagingIndexReader(stagingDirectory);
+    try {
+      IndexEntry entry;
+      while ((entry = reader.read()) != null) {
+        assertThat(entry.getPath(), equalTo(entry.getGroupId().replace('.', '/') + "/" + entry.getArtifactId()
+            + "/1.0/" + entry.getArtifactId() + "-1.0.jar"));
+        assertThat(entry.getPath() + " duplicated", paths.add(entry.getPath()), equalTo(true));
+        assertThat(Files.toString(new File(stagingDirectory, entry.getPath()), Charsets.UTF_8), equalTo("content"));
+      }
+    }
+    finally {
+      reader.close();
+    }
+    assertThat(paths.size(), equalTo(THREADS * ARTIFACTS_PER_THREAD));
+  }
+}
@@ -0,0 +1,121 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.maven.staging.deploy.strategy;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.sonatype.nexus.maven.staging.index.IndexEntry;
+import org.sonatype.nexus.maven.staging.install.FileChecksums;
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Functions;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.mockito.Mockito.when;
+
+public class PresenceCheckTest
+    extends TestSupport
+{
+  @Mock
+  private RemoteChecksums remote;
+
+  private PresenceCheck presenceCheck;
+
+  @Before
+  public void prepare() {
+    presenceCheck = new PresenceCheck(2, Functions.constant(remote));
+  }
+
+  private FileChecksums checksums(final String sha1) {
+    return new FileChecksums("md5", sha1, "sha256", "sha512");
+  }
+
+  private IndexEntry entry(final String version, final String fileVersion, final String classifier,
+                           final String sha1, final String pomSha1)
+  {
+    return new IndexEntry("org/foo/a/" + version + "/a-" + fileVersion + (classifier != null ? "-" + classifier : "")
+        + ".jar", "org.foo", "a", version, classifier, "jar", "jar", classifier == null ? "a-" + fileVersion + ".pom"
+        : null, null, "snapshots", "http://localhost/snapshots/", checksums(sha1),
+        classifier == null ? checksums(pomSha1) : null);
+  }
+
+  @Test
+  public void releasesPresentWithSameChecksum() throws Exception {
+    final IndexEntry same = entry("1.0", "1.0", null, "aaa", "bbb");
+    final IndexEntry changed = entry("1.0", "1.0", "sources", "ccc", null);
+    final IndexEntry missing = new IndexEntry("org/foo/b/1.0/b-1.0.jar", "org.foo", "b", "1.0", null, "jar", "jar",
+        null, null, null, null, checksums("ddd"), null);
+    when(remote.sha1Of("org/foo/a/1.0/a-1.0.jar")).thenReturn("aaa");
+    when(remote.sha1Of("org/foo/a/1.0/a-1.0.pom")).thenReturn("bbb");
+    when(remote.sha1Of("org/foo/a/1.0/a-1.0-sources.jar")).thenReturn("xxx");
+
+    assertThat(presenceCheck.present(Arrays.asList(same, changed, missing)), contains(same));
+  }
+
+  @Test
+  public void entriesWithoutChecksumsNeverPresent() throws Exception {
+    final IndexEntry entry = new IndexEntry("org/foo/a/1.0/a-1.0.jar", "org.foo", "a", "1.0", null, "jar", "jar",
+        null, null, null, null);
+    when(remote.sha1Of("org/foo/a/1.0/a-1.0.jar")).thenReturn("aaa");
+
+    assertThat(presenceCheck.present(Arrays.asList(entry)), empty());
+  }
+
+  @Test
+  public void snapshotsComparedWithLatestTimestampedSnapshot() throws Exception {
+    when(remote.get("org/foo/a/1.0-SNAPSHOT/maven-metadata.xml")).thenReturn(snapshotMetadata());
+    when(remote.sha1Of("org/foo/a/1.0-SNAPSHOT/a-1.0-20150101.120000-3.jar")).thenReturn("aaa");
+    when(remote.sha1Of("org/foo/a/1.0-SNAPSHOT/a-1.0-20150101.120000-3.pom")).thenReturn("bbb");
+    when(remote.sha1Of("org/foo/a/1.0-SNAPSHOT/a-1.0-20150101.120000-3-sources.jar")).thenReturn("ccc");
+
+    final List<IndexEntry> entries = Arrays.asList(entry("1.0-SNAPSHOT", "1.0-SNAPSHOT", null, "aaa", "bbb"),
+        entry("1.0-SNAPSHOT", "1.0-SNAPSHOT", "sources", "ccc", null));
+    assertThat(presenceCheck.present(entries), contains(entries.get(0), entries.get(1)));
+  }
+
+  @Test
+  public void snapshotsPresentOnlyAsWholeGav() throws Exception {
+    when(remote.get("org/foo/a/1.0-SNAPSHOT/maven-metadata.xml")).thenReturn(snapshotMetadata());
+    when(remote.sha1Of("org/foo/a/1.0-SNAPSHOT/a-1.0-20150101.120000-3.jar")).thenReturn("aaa");
+    when(remote.sha1Of("org/foo/a/1.0-SNAPSHOT/a-1.0-20150101.120000-3.pom")).thenReturn("bbb");
+    when(remote.sha1Of("org/foo/a/1.0-SNAPSHOT/a-1.0-20150101.120000-3-sources.jar")).thenReturn("xxx");
+
+    final List<IndexEntry> entries = Arrays.asList(entry("1.0-SNAPSHOT", "1.0-SNAPSHOT", null, "aaa", "bbb"),
+        entry("1.0-SNAPSHOT", "1.0-SNAPSHOT", "sources", "ccc", null));
+    assertThat(presenceCheck.present(entries), empty());
+  }
+
+  @Test
+  public void snapshotsNeverDeployedNotPresent() throws Exception {
+    final List<IndexEntry> entries = Arrays.asList(entry("1.0-SNAPSHOT", "1.0-SNAPSHOT", null, "aaa", "bbb"));
+    assertThat(presenceCheck.present(entries), empty());
+  }
+
+  private byte[] snapshotMetadata() {
+    return ("<metadata><groupId>org.foo</groupId><artifactId>a</artifactId><version>1.0-SNAPSHOT</version>"
+        + "<versioning><snapshot><timestamp>20150101.120000</timestamp><buildNumber>3</buildNumber></snapshot>"
+        + "<snapshotVersions>"
+        + "<snapshotVersion><extension>jar</extension><value>1.0-20150101.120000-3</value></snapshotVersion>"
+        + "<snapshotVersion><extension>pom</extension><value>1.0-20150101.120000-3</value></snapshotVersion>"
+        + "<snapshotVersion><classifier>sources</classifier><extension>jar</extension>"
+        + "<value>1.0-20150101.120000-3</value></snapshotVersion>"
+        + "</snapshotVersions></versioning></metadata>").getBytes(Charsets.UTF_8);
+  }
+}
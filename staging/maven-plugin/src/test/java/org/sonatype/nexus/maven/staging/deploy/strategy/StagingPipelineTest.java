@@ -0,0 +1,91 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.maven.staging.deploy.strategy;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+
+public class StagingPipelineTest
+    extends TestSupport
+{
+  @Test
+  public void stagesOverlapWithCaller() throws Exception {
+    final StagingPipeline pipeline = new StagingPipeline(2);
+    try {
+      final CountDownLatch callerDone = new CountDownLatch(1);
+      final AtomicInteger closed = new AtomicInteger();
+      pipeline.submit("p1", new Callable<Void>()
+      {
+        @Override
+        public Void call() throws Exception {
+          // "close" waits for the caller "uploading" next profile
+          assertThat(callerDone.await(10, TimeUnit.SECONDS), is(true));
+          closed.incrementAndGet();
+          return null;
+        }
+      });
+      callerDone.countDown();
+      pipeline.await();
+      assertThat(closed.get(), equalTo(1));
+      assertThat(pipeline.isFailed(), is(false));
+    }
+    finally {
+      pipeline.shutdown();
+    }
+  }
+
+  @Test
+  public void firstFailureKeptAndLaterStagesSkipped() throws Exception {
+    final StagingPipeline pipeline = new StagingPipeline(1);
+    try {
+      pipeline.submit("p1", new Callable<Void>()
+      {
+        @Override
+        public Void call() throws Exception {
+          throw new IOException("close failed");
+        }
+      });
+      pipeline.await();
+      pipeline.failed("p2", new IllegalStateException("upload failed"));
+      final AtomicInteger invoked = new AtomicInteger();
+      pipeline.submit("p3", new Callable<Void>()
+      {
+        @Override
+        public Void call() throws Exception {
+          invoked.incrementAndGet();
+          return null;
+        }
+      });
+      pipeline.await();
+      assertThat(pipeline.isFailed(), is(true));
+      assertThat(pipeline.getFailedProfileId(), equalTo("p1"));
+      assertThat(pipeline.getFailure(), instanceOf(IOException.class));
+      assertThat(invoked.get(), equalTo(0));
+    }
+    finally {
+      pipeline.shutdown();
+    }
+  }
+}
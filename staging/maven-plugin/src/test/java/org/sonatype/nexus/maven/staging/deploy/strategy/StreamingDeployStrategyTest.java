@@ -0,0 +1,295 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.maven.staging.deploy.strategy;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sonatype.nexus.staging.client.Profile;
+import com.sonatype.nexus.staging.client.StagingWorkflowV2Service;
+
+import org.sonatype.nexus.maven.staging.ReactorCompletionTracker;
+import org.sonatype.nexus.maven.staging.StagingAction;
+import org.sonatype.nexus.maven.staging.StagingActionMessages;
+import org.sonatype.nexus.maven.staging.deploy.DeployableArtifact;
+import org.sonatype.nexus.maven.staging.deploy.StagingRepository;
+import org.sonatype.nexus.maven.staging.deploy.strategy.AbstractDeployStrategy.FakeArtifactHandler;
+import org.sonatype.nexus.maven.staging.index.IndexEntry;
+import org.sonatype.nexus.maven.staging.install.InstallMode;
+import org.sonatype.nexus.maven.staging.remote.Parameters;
+import org.sonatype.nexus.maven.staging.remote.RemoteNexus;
+import org.sonatype.nexus.maven.staging.upload.UploadProgress;
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.deployer.ArtifactDeploymentException;
+import org.apache.maven.artifact.repository.ArtifactRepository;
+import org.apache.maven.artifact.versioning.VersionRange;
+import org.apache.maven.execution.DefaultMavenExecutionRequest;
+import org.apache.maven.execution.ExecutionEvent;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.project.MavenProject;
+import org.apache.maven.settings.Server;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests of {@link StreamingDeployStrategy} with a mocked {@link RemoteNexus}, where the uploads and closes are
+ * recorded only.
+ */
+public class StreamingDeployStrategyTest
+    extends TestSupport
+{
+  private class TestStreamingDeployStrategy
+      extends StreamingDeployStrategy
+  {
+    private final List<String> uploaded = Collections.synchronizedList(new ArrayList<String>());
+
+    private final List<String> closed = Collections.synchronizedList(new ArrayList<String>());
+
+    private final AtomicInteger attempts = new AtomicInteger();
+
+    private volatile CountDownLatch uploadsReleased = new CountDownLatch(0);
+
+    private volatile IOException uploadFailure;
+
+    @Override
+    protected RemoteNexus createRemoteNexus(final MavenSession mavenSession, final Parameters parameters) {
+      return remoteNexus;
+    }
+
+    @Override
+    protected String selectStagingProfile(final Parameters parameters, final RemoteNexus remoteNexus,
+                                          final Artifact artifact)
+    {
+      return "profile1";
+    }
+
+    @Override
+    protected ArtifactRepository getArtifactRepositoryForDirectory(final File stagingDirectory) {
+      stagingDirectory.mkdirs();
+      return stagingRepository;
+    }
+
+    @Override
+    protected ArtifactRepository createDeploymentArtifactRepository(final String id, final String url) {
+      return mock(ArtifactRepository.class);
+    }
+
+    @Override
+    void deployEntries(final MavenSession mavenSession, final Parameters parameters, final File sourceDirectory,
+                       final ArtifactRepository remoteRepository, final List<IndexEntry> stagedEntries,
+                       final UploadProgress progress, final ResumableUpload resumableUpload,
+                       final PresenceCheck presenceCheck)
+        throws IOException
+    {
+      attempts.incrementAndGet();
+      try {
+        uploadsReleased.await(10, TimeUnit.SECONDS);
+      }
+      catch (InterruptedException e) {
+        throw new IOException(e);
+      }
+      if (uploadFailure != null) {
+        throw uploadFailure;
+      }
+      progress.expect(stagedEntries.size(), 0L);
+      for (IndexEntry entry : stagedEntries) {
+        uploaded.add(entry.getArtifactId());
+        progress.uploaded(1L);
+      }
+    }
+
+    @Override
+    protected void afterUpload(final Parameters parameters, final RemoteNexus remoteNexus,
+                               final StagingRepository stagingRepository)
+    {
+      closed.add(stagingRepository.getRepositoryId());
+    }
+  }
+
+  @Mock
+  private RemoteNexus remoteNexus;
+
+  @Mock
+  private StagingWorkflowV2Service stagingWorkflowService;
+
+  @Mock
+  private Profile profile;
+
+  @Mock
+  private ArtifactRepository stagingRepository;
+
+  @Mock
+  private MavenSession mavenSession;
+
+  private Parameters parameters;
+
+  private File source;
+
+  private TestStreamingDeployStrategy strategy;
+
+  @Before
+  public void prepare() throws Exception {
+    when(mavenSession.getRequest()).thenReturn(new DefaultMavenExecutionRequest());
+    when(remoteNexus.getStagingWorkflowV2Service()).thenReturn(stagingWorkflowService);
+    final Server server = new Server();
+    server.setId("nexus");
+    when(remoteNexus.getServer()).thenReturn(server);
+    when(profile.id()).thenReturn("profile1");
+    when(profile.name()).thenReturn("Profile 1");
+    when(stagingWorkflowService.selectProfile("profile1")).thenReturn(profile);
+    when(stagingWorkflowService.startStaging(eq(profile), anyString(), any(Map.class))).thenReturn("repo-1");
+    when(stagingWorkflowService.startedRepositoryBaseUrl(profile, "repo-1")).thenReturn("http://localhost/repo-1");
+    when(stagingRepository.pathOf(any(Artifact.class))).thenAnswer(new Answer<String>()
+    {
+      @Override
+      public String answer(final InvocationOnMock invocation) throws Throwable {
+        final Artifact artifact = (Artifact) invocation.getArguments()[0];
+        return "org/foo/" + artifact.getArtifactId() + "/1.0/" + artifact.getArtifactId() + "-1.0.jar";
+      }
+    });
+
+    parameters = new Parameters("org.sonatype.plugins:nexus-staging-maven-plugin:1.0", util.createTempDir(),
+        util.createTempDir());
+    parameters.setInstallMode(InstallMode.COPY);
+    parameters.setStagingActionMessages(
+        new StagingActionMessages(null, Collections.<StagingAction, String>emptyMap(), "test"));
+    source = util.createTempFile();
+    Files.write("content", source, Charsets.UTF_8);
+    strategy = new TestStreamingDeployStrategy();
+  }
+
+  private void deployModule(final String artifactId) throws Exception {
+    final Artifact artifact = new DefaultArtifact("org.foo", artifactId, VersionRange.createFromVersion("1.0"),
+        null, "jar", null, new FakeArtifactHandler("jar", "jar"));
+    strategy.deployPerModule(new DeployPerModuleRequest(mavenSession, mock(MavenProject.class), parameters,
+        Collections.singletonList(new DeployableArtifact(source, artifact))));
+  }
+
+  private void finalizeDeploy() throws Exception {
+    strategy.finalizeDeploy(new FinalizeDeployRequest(mavenSession, parameters));
+  }
+
+  @Test
+  public void modulesUploadedInBackgroundAndClosedOnce() throws Exception {
+    final File reportDirectory = util.createTempDir();
+    parameters.setReportDirectory(reportDirectory);
+    strategy.uploadsReleased = new CountDownLatch(1);
+
+    // modules do not wait for their uploads
+    deployModule("m1");
+    deployModule("m2");
+    assertThat(strategy.uploaded, empty());
+    assertThat(strategy.closed, empty());
+
+    strategy.uploadsReleased.countDown();
+    finalizeDeploy();
+
+    assertThat(strategy.uploaded, contains("m1", "m2"));
+    assertThat(strategy.closed, contains("repo-1"));
+    verify(stagingWorkflowService, times(1)).startStaging(eq(profile), anyString(), any(Map.class));
+    // one summary, spanning all the modules
+    final File summary = new File(reportDirectory, "upload-profile1.json");
+    assertThat(Files.toString(summary, Charsets.UTF_8), containsString("\"files\": 2,"));
+  }
+
+  @Test
+  public void failedUploadSkipsLaterModulesAndDropsRepository() throws Exception {
+    strategy.uploadFailure = new IOException("Connection reset");
+
+    deployModule("m1");
+    deployModule("m2");
+    try {
+      finalizeDeploy();
+      fail("Failed upload must fail the deploy");
+    }
+    catch (ArtifactDeploymentException e) {
+      assertThat(e.getMessage(), containsString("Connection reset"));
+    }
+
+    // second module not even attempted
+    assertThat(strategy.attempts.get(), is(1));
+    assertThat(strategy.uploaded, empty());
+    assertThat(strategy.closed, empty());
+    verify(stagingWorkflowService, times(1)).dropStagingRepositories(anyString(), eq("repo-1"));
+  }
+
+  @Test
+  public void failedUploadKeepsRepositoryIfAskedFor() throws Exception {
+    parameters.setKeepStagingRepositoryOnFailure(true);
+    strategy.uploadFailure = new IOException("Connection reset");
+
+    deployModule("m1");
+    try {
+      finalizeDeploy();
+      fail("Failed upload must fail the deploy");
+    }
+    catch (ArtifactDeploymentException e) {
+      // expected
+    }
+
+    assertThat(strategy.closed, empty());
+    verify(stagingWorkflowService, never()).dropStagingRepositories(anyString(), anyString());
+  }
+
+  @Test
+  public void unfinishedStreamsAbandonedAtSessionEnd() throws Exception {
+    deployModule("m1");
+
+    // a module failed, the last module never deployed
+    ReactorCompletionTracker.install(mavenSession).sessionEnded(mock(ExecutionEvent.class));
+
+    assertThat(strategy.closed, empty());
+    verify(stagingWorkflowService, times(1)).dropStagingRepositories(anyString(), eq("repo-1"));
+  }
+
+  @Test
+  public void unfinishedStreamsKeptAtSessionEndIfAskedFor() throws Exception {
+    parameters.setKeepStagingRepositoryOnFailure(true);
+    deployModule("m1");
+
+    ReactorCompletionTracker.install(mavenSession).sessionEnded(mock(ExecutionEvent.class));
+
+    verify(stagingWorkflowService, never()).dropStagingRepositories(anyString(), anyString());
+    assertThat(strategy.closed, empty());
+  }
+}
@@ -0,0 +1,199 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.maven.staging.index;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.sonatype.nexus.maven.staging.install.FileChecksums;
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.nullValue;
+
+public class StagingIndexTest
+    extends TestSupport
+{
+  private File stagingDirectory;
+
+  @Before
+  public void prepare() {
+    stagingDirectory = util.createTempDir();
+  }
+
+  private IndexEntry entry(final int i) {
+    return new IndexEntry("org/foo/a" + i + "/1.0/a" + i + "-1.0.jar", "org.foo", "a" + i, "1.0",
+        i % 2 == 0 ? null : "sources", "jar", "jar", i % 2 == 0 ? "a" + i + "-1.0.pom" : null, null,
+        "releases", "http://localhost:8081/nexus/content/repositories/releases/");
+  }
+
+  private IndexEntry entryWithChecksums(final int i) {
+    final FileChecksums checksums = new FileChecksums("md5-" + i, "sha1-" + i, "sha256-" + i, "sha512-" + i);
+    return new IndexEntry("org/foo/a" + i + "/1.0/a" + i + "-1.0.jar", "org.foo", "a" + i, "1.0", null, "jar",
+        "jar", "a" + i + "-1.0.pom", null, null, null, checksums, i % 2 == 0 ? checksums : null);
+  }
+
+  private List<IndexEntry> readAll() throws Exception {
+    final List<IndexEntry> entries = new ArrayList<IndexEntry>();
+    final StagingIndexReader reader = new StagingIndexReader(stagingDirectory);
+    try {
+      IndexEntry entry;
+      while ((entry = reader.read()) != null) {
+        entries.add(entry);
+      }
+    }
+    finally {
+      reader.close();
+    }
+    return entries;
+  }
+
+  private void assertEntry(final IndexEntry actual, final IndexEntry expected) {
+    assertThat(actual.getPath(), equalTo(expected.getPath()));
+    assertThat(actual.getGroupId(), equalTo(expected.getGroupId()));
+    assertThat(actual.getArtifactId(), equalTo(expected.getArtifactId()));
+    assertThat(actual.getVersion(), equalTo(expected.getVersion()));
+    assertThat(actual.getClassifier(), equalTo(expected.getClassifier()));
+    assertThat(actual.getPackaging(), equalTo(expected.getPackaging()));
+    assertThat(actual.getExtension(), equalTo(expected.getExtension()));
+    assertThat(actual.getPomFileName(), equalTo(expected.getPomFileName()));
+    assertThat(actual.getPluginPrefix(), equalTo(expected.getPluginPrefix()));
+    assertThat(actual.getRepoId(), equalTo(expected.getRepoId()));
+    assertThat(actual.getRepoUrl(), equalTo(expected.getRepoUrl()));
+    assertThat(actual.getChecksums(), equalTo(expected.getChecksums()));
+    assertThat(actual.getPomChecksums(), equalTo(expected.getPomChecksums()));
+  }
+
+  @Test
+  public void roundtrip() throws Exception {
+    final StagingIndexWriter writer = new StagingIndexWriter(stagingDirectory);
+    for (int i = 0; i < 10; i++) {
+      writer.append(entry(i));
+    }
+    writer.sync();
+    // appending continues after reopen
+    writer.close();
+    final StagingIndexWriter reopened = new StagingIndexWriter(stagingDirectory);
+    reopened.append(entry(10));
+    reopened.close();
+
+    final List<IndexEntry> entries = readAll();
+    assertThat(entries, hasSize(11));
+    for (int i = 0; i < 11; i++) {
+      assertEntry(entries.get(i), entry(i));
+    }
+  }
+
+  @Test
+  public void roundtripWithChecksums() throws Exception {
+    final StagingIndexWriter writer = new StagingIndexWriter(stagingDirectory);
+    writer.append(entry(0));
+    writer.append(entryWithChecksums(1));
+    writer.append(entryWithChecksums(2));
+    writer.close();
+
+    final List<IndexEntry> entries = readAll();
+    assertThat(entries, hasSize(3));
+    assertEntry(entries.get(0), entry(0));
+    assertThat(entries.get(0).getChecksums(), nullValue());
+    assertEntry(entries.get(1), entryWithChecksums(1));
+    assertEntry(entries.get(2), entryWithChecksums(2));
+  }
+
+  @Test
+  public void partialLastRecordIgnored() throws Exception {
+    final StagingIndexWriter writer = new StagingIndexWriter(stagingDirectory);
+    writer.append(entry(0));
+    writer.append(entry(1));
+    writer.close();
+    final RandomAccessFile file = new RandomAccessFile(new File(stagingDirectory, ".index"), "rw");
+    try {
+      file.setLength(file.length() - 3);
+    }
+    finally {
+      file.close();
+    }
+
+    final List<IndexEntry> entries = readAll();
+    assertThat(entries, hasSize(1));
+    assertEntry(entries.get(0), entry(0));
+  }
+
+  @Test
+  public void partialLastRecordCutOffBeforeAppend() throws Exception {
+    final StagingIndexWriter writer = new StagingIndexWriter(stagingDirectory);
+    writer.append(entry(0));
+    writer.append(entry(1));
+    writer.close();
+    final RandomAccessFile file = new RandomAccessFile(new File(stagingDirectory, ".index"), "rw");
+    try {
+      // torn payload of last record, and torn length prefix of a next one
+      file.setLength(file.length() - 3);
+      file.seek(file.length());
+      file.write(new byte[]{0, 0});
+    }
+    finally {
+      file.close();
+    }
+
+    final StagingIndexWriter resumed = new StagingIndexWriter(stagingDirectory);
+    resumed.append(entry(2));
+    resumed.close();
+
+    final List<IndexEntry> entries = readAll();
+    assertThat(entries, hasSize(2));
+    assertEntry(entries.get(0), entry(0));
+    assertEntry(entries.get(1), entry(2));
+  }
+
+  @Test
+  public void legacyFormatRead() throws Exception {
+    Files.write("# comment\n"
+        + "org/foo/a/1.0/a-1.0.jar=org.foo:a:1.0:n/a:jar:jar:a-1.0.pom:n/a:n/a:n/a\n"
+        + "\n"
+        + "org/foo/p/1.0/p-1.0.jar=org.foo:p:1.0:n/a:maven-plugin:jar:p-1.0.pom:p:releases:http://host:8081/r/\n",
+        new File(stagingDirectory, ".index"), Charsets.ISO_8859_1);
+
+    final List<IndexEntry> entries = readAll();
+    assertThat(entries, hasSize(2));
+    assertEntry(entries.get(0), new IndexEntry("org/foo/a/1.0/a-1.0.jar", "org.foo", "a", "1.0", null, "jar",
+        "jar", "a-1.0.pom", null, null, null));
+    assertEntry(entries.get(1), new IndexEntry("org/foo/p/1.0/p-1.0.jar", "org.foo", "p", "1.0", null,
+        "maven-plugin", "jar", "p-1.0.pom", "p", "releases", "http://host:8081/r/"));
+  }
+
+  @Test
+  public void legacyFormatConvertedOnAppend() throws Exception {
+    Files.write("org/foo/a/1.0/a-1.0.jar=org.foo:a:1.0:n/a:jar:jar:a-1.0.pom:n/a:n/a:n/a\n",
+        new File(stagingDirectory, ".index"), Charsets.ISO_8859_1);
+    final StagingIndexWriter writer = new StagingIndexWriter(stagingDirectory);
+    writer.append(entry(1));
+    writer.close();
+
+    assertThat(StagingIndexReader.isBinary(stagingDirectory), equalTo(true));
+    final List<IndexEntry> entries = readAll();
+    assertThat(entries, hasSize(2));
+    assertThat(entries.get(0).getPath(), equalTo("org/foo/a/1.0/a-1.0.jar"));
+    assertThat(entries.get(0).getRepoUrl(), nullValue());
+    assertEntry(entries.get(1), entry(1));
+  }
+}
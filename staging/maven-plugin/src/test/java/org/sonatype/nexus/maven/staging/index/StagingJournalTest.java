@@ -0,0 +1,113 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.maven.staging.index;
+
+import java.io.File;
+
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+public class StagingJournalTest
+    extends TestSupport
+{
+  private File stagingDirectory;
+
+  private File file;
+
+  @Before
+  public void prepare() throws Exception {
+    stagingDirectory = util.createTempDir();
+    file = new File(stagingDirectory, "org/foo/a/1.0/a-1.0.jar");
+    file.getParentFile().mkdirs();
+    Files.write("content", file, Charsets.UTF_8);
+  }
+
+  @Test
+  public void recordsSurviveReopen() throws Exception {
+    StagingJournal journal = StagingJournal.open(stagingDirectory);
+    assertThat(journal.getRepositoryId(), nullValue());
+    journal.start("repo-1");
+    journal.uploaded("org/foo/a/1.0/a-1.0.jar", file);
+    journal.close();
+
+    journal = StagingJournal.open(stagingDirectory);
+    try {
+      assertThat(journal.getRepositoryId(), equalTo("repo-1"));
+      assertThat(journal.size(), is(1));
+      assertThat(journal.uploadedSha1("org/foo/a/1.0/a-1.0.jar", file),
+          equalTo(Files.hash(file, Hashing.sha1()).toString()));
+      assertThat(journal.uploadedSha1("org/foo/a/1.0/a-1.0.pom", file), nullValue());
+    }
+    finally {
+      journal.close();
+    }
+  }
+
+  @Test
+  public void changedFileNotUploaded() throws Exception {
+    final StagingJournal journal = StagingJournal.open(stagingDirectory);
+    try {
+      journal.start("repo-1");
+      journal.uploaded("org/foo/a/1.0/a-1.0.jar", file);
+      Files.write("changed", file, Charsets.UTF_8);
+      file.setLastModified(file.lastModified() + 10000L);
+      assertThat(journal.uploadedSha1("org/foo/a/1.0/a-1.0.jar", file), nullValue());
+    }
+    finally {
+      journal.close();
+    }
+  }
+
+  @Test
+  public void otherRepositoryResetsRecords() throws Exception {
+    StagingJournal journal = StagingJournal.open(stagingDirectory);
+    journal.start("repo-1");
+    journal.uploaded("org/foo/a/1.0/a-1.0.jar", file);
+    journal.start("repo-2");
+    assertThat(journal.size(), is(0));
+    journal.close();
+
+    journal = StagingJournal.open(stagingDirectory);
+    assertThat(journal.getRepositoryId(), equalTo("repo-2"));
+    assertThat(journal.size(), is(0));
+    journal.delete();
+    assertThat(journal.getFile().exists(), is(false));
+  }
+
+  @Test
+  public void partialLastLineIgnored() throws Exception {
+    final StagingJournal journal = StagingJournal.open(stagingDirectory);
+    journal.start("repo-1");
+    journal.uploaded("org/foo/a/1.0/a-1.0.jar", file);
+    journal.close();
+    Files.append("0123456789abcdef 12", journal.getFile(), Charsets.UTF_8);
+
+    final StagingJournal reopened = StagingJournal.open(stagingDirectory);
+    try {
+      assertThat(reopened.size(), is(1));
+    }
+    finally {
+      reopened.close();
+    }
+  }
+}
@@ -0,0 +1,112 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.maven.staging.install;
+
+import java.io.File;
+
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+public class FileInstallerTest
+    extends TestSupport
+{
+  private File source;
+
+  private File target;
+
+  @Before
+  public void prepare() throws Exception {
+    source = util.createTempFile();
+    Files.write("content", source, Charsets.UTF_8);
+    target = new File(util.createTempDir(), "org/foo/a/1.0/a-1.0.jar");
+  }
+
+  private boolean isSameFile(final File file1, final File file2) throws Exception {
+    return java.nio.file.Files.isSameFile(file1.toPath(), file2.toPath());
+  }
+
+  @Test
+  public void copy() throws Exception {
+    assertThat(new FileInstaller(InstallMode.COPY).install(source, target), equalTo(7L));
+    assertThat(Files.toString(target, Charsets.UTF_8), equalTo("content"));
+    assertThat(target.lastModified(), equalTo(source.lastModified()));
+    assertThat(isSameFile(source, target), equalTo(false));
+  }
+
+  @Test
+  public void link() throws Exception {
+    assertThat(new FileInstaller(InstallMode.LINK).install(source, target), equalTo(7L));
+    assertThat(Files.toString(target, Charsets.UTF_8), equalTo("content"));
+    assertThat(isSameFile(source, target), equalTo(true));
+  }
+
+  @Test
+  public void autoLinksOnSameFileStore() throws Exception {
+    new FileInstaller(InstallMode.AUTO).install(source, target);
+    assertThat(isSameFile(source, target), equalTo(true));
+  }
+
+  @Test
+  public void copyReplacesLink() throws Exception {
+    new FileInstaller(InstallMode.LINK).install(source, target);
+    new FileInstaller(InstallMode.COPY).install(source, target);
+    assertThat(isSameFile(source, target), equalTo(false));
+    assertThat(Files.toString(source, Charsets.UTF_8), equalTo("content"));
+  }
+
+  private String hash(final HashFunction function) {
+    return function.hashString("content", Charsets.UTF_8).toString();
+  }
+
+  private void assertChecksums(final FileChecksums checksums) {
+    assertThat(checksums.getMd5(), equalTo(hash(Hashing.md5())));
+    assertThat(checksums.getSha1(), equalTo(hash(Hashing.sha1())));
+    assertThat(checksums.getSha256(), equalTo(hash(Hashing.sha256())));
+    assertThat(checksums.getSha512(), equalTo(hash(Hashing.sha512())));
+  }
+
+  @Test
+  public void copyWithChecksums() throws Exception {
+    assertChecksums(new FileInstaller(InstallMode.COPY).installWithChecksums(source, target));
+    assertThat(Files.toString(target, Charsets.UTF_8), equalTo("content"));
+    assertThat(target.lastModified(), equalTo(source.lastModified()));
+    assertThat(isSameFile(source, target), equalTo(false));
+  }
+
+  @Test
+  public void linkWithChecksums() throws Exception {
+    assertChecksums(new FileInstaller(InstallMode.LINK).installWithChecksums(source, target));
+    assertThat(isSameFile(source, target), equalTo(true));
+    assertThat(FileChecksums.of(target), equalTo(FileChecksums.of(source)));
+  }
+
+  @Test
+  public void parse() {
+    assertThat(InstallMode.parse("Link"), equalTo(InstallMode.LINK));
+    assertThat(InstallMode.parse("auto"), equalTo(InstallMode.AUTO));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void parseUnknown() {
+    InstallMode.parse("reflink");
+  }
+}
@@ -0,0 +1,141 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.maven.staging.remote;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import com.sonatype.nexus.staging.client.StagingRepository;
+import com.sonatype.nexus.staging.client.StagingWorkflowV3Service;
+import com.sonatype.nexus.staging.client.StagingWorkflowV3Service.ProgressMonitor;
+
+import org.sonatype.nexus.maven.staging.ProgressMonitorImpl;
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import com.google.common.base.Stopwatch;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class BackoffWaitPolicyTest
+    extends TestSupport
+{
+  @Mock
+  private StagingWorkflowV3Service stagingWorkflowService;
+
+  @Test
+  public void backoffWithoutJitter() {
+    final BackoffWaitPolicy policy = new BackoffWaitPolicy(100L, 1000L, 2.0d, 0.0d, new Random());
+    assertThat(policy.pauseMillis(1), equalTo(100L));
+    assertThat(policy.pauseMillis(2), equalTo(200L));
+    assertThat(policy.pauseMillis(3), equalTo(400L));
+    assertThat(policy.pauseMillis(4), equalTo(800L));
+    assertThat(policy.pauseMillis(5), equalTo(1000L));
+    assertThat(policy.pauseMillis(50), equalTo(1000L));
+  }
+
+  @Test
+  public void jitterStaysWithinBoundsAndCap() {
+    final BackoffWaitPolicy policy = new BackoffWaitPolicy(100L, 1000L, 2.0d, 0.2d, new Random(42L));
+    for (int i = 0; i < 1000; i++) {
+      assertThat(policy.pauseMillis(1), greaterThanOrEqualTo(80L));
+      assertThat(policy.pauseMillis(1), lessThanOrEqualTo(120L));
+      assertThat(policy.pauseMillis(10), greaterThanOrEqualTo(800L));
+      assertThat(policy.pauseMillis(10), lessThanOrEqualTo(1000L));
+    }
+  }
+
+  /**
+   * Closes taking various time are waited for with a fake service, that probes as staging service does. The wait
+   * may overshoot the close by one (capped) pause at most, and the count of probes grows slowly.
+   */
+  @Test
+  public void waitsForVariableCloseLatency() throws Exception {
+    final ProgressMonitorImpl monitor =
+        new ProgressMonitorImpl(new BackoffWaitPolicy(10L, 200L, 2.0d, 0.2d, new Random(42L)));
+    for (long latency : new long[]{0L, 50L, 300L, 1200L}) {
+      // start measuring before the fake close does, as it finishes at fixed time from its creation
+      final Stopwatch stopwatch = new Stopwatch().start();
+      doAnswer(new FakeClose(latency)).when(stagingWorkflowService).getStagingRepositoryStateOf(anyString());
+      final int probes = waitForClose(stagingWorkflowService, monitor, "repo1");
+      final long elapsed = stopwatch.elapsed(TimeUnit.MILLISECONDS);
+
+      log("Close of {} ms waited for {} ms, using {} probes", latency, elapsed, probes);
+      assertThat(elapsed, greaterThanOrEqualTo(latency));
+      assertThat(elapsed, lessThanOrEqualTo(latency + 200L + 250L));
+      assertThat(probes, lessThanOrEqualTo(6 + (int) (latency / 160L)));
+    }
+  }
+
+  /**
+   * Probing loop like the one of the staging service, with service side pause configured to zero.
+   */
+  private int waitForClose(final StagingWorkflowV3Service service, final ProgressMonitor monitor,
+                           final String repositoryId)
+  {
+    int probes = 0;
+    monitor.start();
+    try {
+      while (true) {
+        probes++;
+        if (!service.getStagingRepositoryStateOf(repositoryId).isTransitioning()) {
+          return probes;
+        }
+        monitor.pause();
+        monitor.tick();
+      }
+    }
+    finally {
+      monitor.stop();
+    }
+  }
+
+  /**
+   * Staging repository close, that finishes after given latency.
+   */
+  private static class FakeClose
+      implements Answer<StagingRepository>
+  {
+    private final long finishedAt;
+
+    private final StagingRepository open;
+
+    private final StagingRepository closed;
+
+    private FakeClose(final long latency) {
+      // same clock as the stopwatch, as the wall clock may tick differently
+      this.finishedAt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(latency);
+      this.open = mock(StagingRepository.class);
+      when(open.isTransitioning()).thenReturn(true);
+      when(open.getState()).thenReturn(StagingRepository.State.OPEN);
+      this.closed = mock(StagingRepository.class);
+      when(closed.isTransitioning()).thenReturn(false);
+      when(closed.getState()).thenReturn(StagingRepository.State.CLOSED);
+    }
+
+    @Override
+    public StagingRepository answer(final InvocationOnMock invocation) {
+      return System.nanoTime() - finishedAt >= 0 ? closed : open;
+    }
+  }
+}
@@ -0,0 +1,90 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.maven.staging.remote;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.sonatype.nexus.maven.staging.remote.ProfileMatchCache.Scope;
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+
+public class ProfileMatchCacheTest
+    extends TestSupport
+{
+  private static final String NEXUS_URL = "http://localhost:8081/nexus";
+
+  private File file;
+
+  @Before
+  public void setUp() throws Exception {
+    file = new File(util.createTempDir(), "profile-matches.properties");
+  }
+
+  @Test
+  public void groupIdScopeSharesMatchAcrossArtifacts() {
+    final ProfileMatchCache cache = new ProfileMatchCache(NEXUS_URL, Scope.GROUPID, null, 0L);
+    assertThat(cache.get("org.foo", "a", "1.0"), nullValue());
+    cache.put("org.foo", "a", "1.0", "profile1");
+    assertThat(cache.get("org.foo", "b", "1.0"), equalTo("profile1"));
+    assertThat(cache.get("org.bar", "a", "1.0"), nullValue());
+  }
+
+  @Test
+  public void gavScopeAndNoneScope() {
+    final ProfileMatchCache gav = new ProfileMatchCache(NEXUS_URL, Scope.GAV, null, 0L);
+    gav.put("org.foo", "a", "1.0", "profile1");
+    assertThat(gav.get("org.foo", "a", "1.0"), equalTo("profile1"));
+    assertThat(gav.get("org.foo", "b", "1.0"), nullValue());
+
+    final ProfileMatchCache none = new ProfileMatchCache(NEXUS_URL, Scope.NONE, null, 0L);
+    none.put("org.foo", "a", "1.0", "profile1");
+    assertThat(none.get("org.foo", "a", "1.0"), nullValue());
+  }
+
+  @Test
+  public void persistedMatchesAreReusedPerNexusUntilInvalidated() {
+    final long ttl = TimeUnit.HOURS.toMillis(1);
+    new ProfileMatchCache(NEXUS_URL, Scope.GROUPID, file, ttl).put("org.foo", "a", "1.0", "profile1");
+    assertThat(file.isFile(), equalTo(true));
+
+    // next build
+    final ProfileMatchCache next = new ProfileMatchCache(NEXUS_URL, Scope.GROUPID, file, ttl);
+    assertThat(next.get("org.foo", "b", "1.0"), equalTo("profile1"));
+    assertThat(new ProfileMatchCache("http://other:8081/nexus", Scope.GROUPID, file, ttl).get("org.foo", "b", "1.0"),
+        nullValue());
+
+    // profile reported as not found
+    next.invalidate("profile1");
+    assertThat(next.get("org.foo", "b", "1.0"), nullValue());
+    assertThat(new ProfileMatchCache(NEXUS_URL, Scope.GROUPID, file, ttl).get("org.foo", "b", "1.0"), nullValue());
+  }
+
+  @Test
+  public void expiredMatchesAreNotReused() throws Exception {
+    new ProfileMatchCache(NEXUS_URL, Scope.GROUPID, file, 1L).put("org.foo", "a", "1.0", "profile1");
+    Thread.sleep(10L);
+    assertThat(new ProfileMatchCache(NEXUS_URL, Scope.GROUPID, file, 1L).get("org.foo", "a", "1.0"), nullValue());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void unknownScope() {
+    Scope.parse("artifactId");
+  }
+}
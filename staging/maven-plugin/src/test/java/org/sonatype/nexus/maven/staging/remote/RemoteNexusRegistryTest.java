@@ -0,0 +1,248 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.maven.staging.remote;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sonatype.nexus.staging.client.Profile;
+import com.sonatype.nexus.staging.client.ProfileMatchingParameters;
+import com.sonatype.nexus.staging.client.StagingWorkflowV2Service;
+
+import org.sonatype.nexus.maven.staging.ReactorCompletionTracker;
+import org.sonatype.plexus.components.sec.dispatcher.SecDispatcher;
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import com.google.common.collect.Lists;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.execution.DefaultMavenExecutionRequest;
+import org.apache.maven.execution.ExecutionEvent;
+import org.apache.maven.execution.MavenSession;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class RemoteNexusRegistryTest
+    extends TestSupport
+{
+  @Mock
+  private SecDispatcher secDispatcher;
+
+  @Mock
+  private MavenSession mavenSession;
+
+  @Mock
+  private File file;
+
+  @Mock
+  private StagingWorkflowV2Service stagingWorkflowService;
+
+  @Mock
+  private Profile profile;
+
+  private AtomicInteger created;
+
+  private RemoteNexusRegistry registry;
+
+  @Before
+  public void setUp() {
+    when(mavenSession.getRequest()).thenReturn(new DefaultMavenExecutionRequest());
+    created = new AtomicInteger();
+    registry = new RemoteNexusRegistry(secDispatcher)
+    {
+      @Override
+      protected RemoteNexus createRemoteNexus(final MavenSession mavenSession, final Parameters parameters) {
+        created.incrementAndGet();
+        final RemoteNexus remoteNexus = mock(RemoteNexus.class);
+        when(remoteNexus.getStagingWorkflowV2Service()).thenReturn(stagingWorkflowService);
+        when(remoteNexus.getProfileMatchCache()).thenReturn(
+            new ProfileMatchCache(parameters.getNexusUrl(), parameters.getProfileMatchCacheScope(), null, 0L));
+        return remoteNexus;
+      }
+    };
+  }
+
+  private Parameters parameters(final String nexusUrl, final boolean sslInsecure) {
+    final Parameters parameters = new Parameters("", file, file);
+    parameters.setServerId("nexus");
+    parameters.setNexusUrl(nexusUrl);
+    parameters.setSslInsecure(sslInsecure);
+    return parameters;
+  }
+
+  @Test
+  public void sameKeySharesInstance() {
+    final RemoteNexus first = registry.get(mavenSession, parameters("http://localhost:8081/nexus", false));
+    final RemoteNexus second = registry.get(mavenSession, parameters("http://localhost:8081/nexus", false));
+    assertThat(second, sameInstance(first));
+    assertThat(created.get(), equalTo(1));
+  }
+
+  @Test
+  public void differentKeysDoNotShareInstance() {
+    final RemoteNexus first = registry.get(mavenSession, parameters("http://localhost:8081/nexus", false));
+    final RemoteNexus insecure = registry.get(mavenSession, parameters("http://localhost:8081/nexus", true));
+    final RemoteNexus other = registry.get(mavenSession, parameters("http://localhost:8082/nexus", false));
+    assertThat(insecure, not(sameInstance(first)));
+    assertThat(other, not(sameInstance(first)));
+    assertThat(created.get(), equalTo(3));
+  }
+
+  @Test
+  public void concurrentGetsCreateOnce() throws Exception {
+    final ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      final List<Callable<RemoteNexus>> gets = Lists.newArrayList();
+      for (int i = 0; i < 64; i++) {
+        gets.add(new Callable<RemoteNexus>()
+        {
+          @Override
+          public RemoteNexus call() {
+            return registry.get(mavenSession, parameters("http://localhost:8081/nexus", false));
+          }
+        });
+      }
+      final List<Future<RemoteNexus>> results = executor.invokeAll(gets);
+      for (Future<RemoteNexus> result : results) {
+        assertThat(result.get(), sameInstance(results.get(0).get()));
+      }
+      assertThat(created.get(), equalTo(1));
+    }
+    finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void closeClosesAllAndForgetsThem() {
+    final RemoteNexus first = registry.get(mavenSession, parameters("http://localhost:8081/nexus", false));
+    final RemoteNexus second = registry.get(mavenSession, parameters("http://localhost:8081/nexus", true));
+    registry.close();
+    verify(first, times(1)).close();
+    verify(second, times(1)).close();
+
+    // closed instances are not handed out anymore
+    final RemoteNexus third = registry.get(mavenSession, parameters("http://localhost:8081/nexus", false));
+    assertThat(third, not(sameInstance(first)));
+    registry.close();
+    verify(first, times(1)).close();
+  }
+
+  @Test
+  public void prewarmConnectsAndMatchesProfilesInAdvance() throws Exception {
+    when(profile.id()).thenReturn("profile1");
+    when(stagingWorkflowService.matchProfile(any(ProfileMatchingParameters.class))).thenReturn(profile);
+    final List<Artifact> artifacts = Lists.newArrayList(
+        artifact("org.foo", "a"), artifact("org.foo", "b"), artifact("org.foo", "c"));
+
+    final RemoteNexus prewarmed =
+        registry.prewarm(mavenSession, parameters("http://localhost:8081/nexus", false), artifacts).get();
+    verify(stagingWorkflowService, times(1)).matchProfile(any(ProfileMatchingParameters.class));
+    assertThat(prewarmed.getProfileMatchCache().get("org.foo", "b", "1.0"), equalTo("profile1"));
+
+    // modules get the prewarmed instance, configured with their own parameters
+    final Parameters parameters = parameters("http://localhost:8081/nexus", false);
+    assertThat(registry.get(mavenSession, parameters), sameInstance(prewarmed));
+    assertThat(registry.get(mavenSession, parameters), sameInstance(prewarmed));
+    verify(prewarmed, times(2)).reconfigure(parameters);
+    assertThat(created.get(), equalTo(1));
+  }
+
+  @Test
+  public void sharedInstanceRunsWithParametersOfEachRequest() {
+    final Parameters first = parameters("http://localhost:8081/nexus", false);
+    final RemoteNexus remoteNexus = registry.get(mavenSession, first);
+    final Parameters second = parameters("http://localhost:8081/nexus", false);
+    second.setStagingProgressTimeoutMinutes(30);
+    assertThat(registry.get(mavenSession, second), sameInstance(remoteNexus));
+    verify(remoteNexus, never()).reconfigure(first);
+    verify(remoteNexus, times(1)).reconfigure(second);
+  }
+
+  @Test
+  public void differentProfileMatchCacheDoesNotShareInstance() {
+    final RemoteNexus gav = registry.get(mavenSession, parameters("http://localhost:8081/nexus", false));
+    final Parameters groupId = parameters("http://localhost:8081/nexus", false);
+    groupId.setProfileMatchCacheScope(ProfileMatchCache.Scope.GROUPID);
+    final Parameters persisted = parameters("http://localhost:8081/nexus", false);
+    persisted.setProfileMatchCacheFile(file);
+    persisted.setProfileMatchCacheTtlSeconds(60);
+    assertThat(registry.get(mavenSession, groupId), not(sameInstance(gav)));
+    assertThat(registry.get(mavenSession, persisted), not(sameInstance(gav)));
+    assertThat(created.get(), equalTo(3));
+  }
+
+  @Test
+  public void sessionEndClosesInstancesOfTheSession() {
+    final MavenSession laterSession = mock(MavenSession.class);
+    when(laterSession.getRequest()).thenReturn(new DefaultMavenExecutionRequest());
+    final RemoteNexus first = registry.get(mavenSession, parameters("http://localhost:8081/nexus", false));
+    final RemoteNexus later = registry.get(laterSession, parameters("http://localhost:8081/nexus", false));
+    assertThat(later, not(sameInstance(first)));
+
+    ReactorCompletionTracker.install(mavenSession).sessionEnded(mock(ExecutionEvent.class));
+    verify(first, times(1)).close();
+    verify(later, never()).close();
+    assertThat(registry.get(laterSession, parameters("http://localhost:8081/nexus", false)), sameInstance(later));
+
+    registry.close(laterSession);
+    verify(later, times(1)).close();
+  }
+
+  @Test
+  public void prewarmWithProfileIdSelectsIt() throws Exception {
+    final Parameters parameters = parameters("http://localhost:8081/nexus", false);
+    parameters.setStagingProfileId("profile1");
+    registry.prewarm(mavenSession, parameters, Lists.newArrayList(artifact("org.foo", "a"))).get();
+    verify(stagingWorkflowService, times(1)).selectProfile("profile1");
+    verify(stagingWorkflowService, never()).matchProfile(any(ProfileMatchingParameters.class));
+  }
+
+  @Test(expected = ExecutionException.class)
+  public void prewarmFailureIsReported() throws Exception {
+    registry = new RemoteNexusRegistry(secDispatcher)
+    {
+      @Override
+      protected RemoteNexus createRemoteNexus(final MavenSession mavenSession, final Parameters parameters) {
+        throw new IllegalArgumentException("Server credentials with ID \"nexus\" not found!");
+      }
+    };
+    registry.prewarm(mavenSession, parameters("http://localhost:8081/nexus", false), Lists.<Artifact>newArrayList())
+        .get();
+  }
+
+  private Artifact artifact(final String groupId, final String artifactId) {
+    final Artifact artifact = mock(Artifact.class);
+    when(artifact.getGroupId()).thenReturn(groupId);
+    when(artifact.getArtifactId()).thenReturn(artifactId);
+    when(artifact.getVersion()).thenReturn("1.0");
+    return artifact;
+  }
+}
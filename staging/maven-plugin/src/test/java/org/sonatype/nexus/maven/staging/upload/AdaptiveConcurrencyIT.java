@@ -0,0 +1,200 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.maven.staging.upload;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.sonatype.nexus.maven.staging.LocalHttpServer;
+import org.sonatype.nexus.maven.staging.LocalHttpServer.Responder;
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import com.sun.net.httpserver.HttpExchange;
+import org.apache.http.client.HttpResponseException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+/**
+ * IT for {@link AdaptiveConcurrency}, uploading to a local HTTP server standing in for Nexus with programmable
+ * latency, capacity and error rate. Relies on wall clock timing, hence is not a unit test.
+ */
+public class AdaptiveConcurrencyIT
+    extends TestSupport
+{
+  private static final long LATENCY_MILLIS = 20L;
+
+  /**
+   * Seed of random failures, to have them reproducible.
+   */
+  private static final long SEED = 4527L;
+
+  private LocalHttpServer server;
+
+  private final AtomicInteger overloaded = new AtomicInteger();
+
+  private final Random random = new Random(SEED);
+
+  /**
+   * Count of requests served concurrently, the others queue.
+   */
+  private volatile Semaphore capacity = new Semaphore(Integer.MAX_VALUE);
+
+  /**
+   * Requests over this count in flight are refused with 503.
+   */
+  private volatile int overloadedAbove = Integer.MAX_VALUE;
+
+  /**
+   * Probability of request randomly failing with 503.
+   */
+  private volatile double errorRate;
+
+  @Before
+  public void prepare() throws Exception {
+    server = LocalHttpServer.start(new Responder()
+    {
+      @Override
+      public int respond(final HttpExchange exchange) throws InterruptedException {
+        if (server.getInFlight() > overloadedAbove || random.nextDouble() < errorRate) {
+          overloaded.incrementAndGet();
+          return 503;
+        }
+        capacity.acquire();
+        try {
+          Thread.sleep(LATENCY_MILLIS);
+        }
+        finally {
+          capacity.release();
+        }
+        return 201;
+      }
+    });
+  }
+
+  @After
+  public void stop() {
+    server.stop();
+  }
+
+  private void put(final int index) throws IOException {
+    final URL url = new URL(server.url("/repo/file-" + index));
+    final HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+    try {
+      connection.setRequestMethod("PUT");
+      connection.setDoOutput(true);
+      final OutputStream body = connection.getOutputStream();
+      try {
+        body.write(new byte[128]);
+      }
+      finally {
+        body.close();
+      }
+      final int status = connection.getResponseCode();
+      if (status < 200 || status > 299) {
+        throw new HttpResponseException(status, "Unexpected response to PUT " + url);
+      }
+    }
+    finally {
+      connection.disconnect();
+    }
+  }
+
+  /**
+   * Uploads files to the server, as many concurrently as limit allows, and returns the count of failed uploads.
+   */
+  private int upload(final AdaptiveConcurrency concurrency, final int files) throws Exception {
+    final ExecutorService executor = Executors.newFixedThreadPool(concurrency.getMaxLimit());
+    try {
+      final List<Future<Void>> futures = new ArrayList<Future<Void>>(files);
+      for (int i = 0; i < files; i++) {
+        final int index = i;
+        futures.add(executor.submit(concurrency.limited(new Callable<Void>()
+        {
+          @Override
+          public Void call() throws IOException {
+            put(index);
+            return null;
+          }
+        })));
+      }
+      int failures = 0;
+      for (Future<Void> future : futures) {
+        try {
+          future.get();
+        }
+        catch (ExecutionException e) {
+          failures++;
+        }
+      }
+      return failures;
+    }
+    finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void idleRemoteGetsMoreWorkers() throws Exception {
+    final AdaptiveConcurrency concurrency = AdaptiveConcurrency.create(1, 8);
+    assertThat(upload(concurrency, 400), equalTo(0));
+    assertThat(concurrency.getHighestLimit(), greaterThanOrEqualTo(6));
+  }
+
+  @Test
+  public void slowingRemoteGetsLessWorkers() throws Exception {
+    // serving 2 requests at once, latency grows with every request queued over that
+    capacity = new Semaphore(2);
+    final AdaptiveConcurrency concurrency = AdaptiveConcurrency.create(1, 16);
+    assertThat(upload(concurrency, 300), equalTo(0));
+    assertThat(concurrency.getHighestLimit(), lessThanOrEqualTo(8));
+  }
+
+  @Test
+  public void overloadedRemoteGetsLessWorkers() throws Exception {
+    overloadedAbove = 3;
+    final AdaptiveConcurrency concurrency = AdaptiveConcurrency.create(1, 16);
+    final int failures = upload(concurrency, 300);
+    assertThat(failures, equalTo(overloaded.get()));
+    assertThat(failures, lessThan(45));
+    assertThat(concurrency.getHighestLimit(), lessThanOrEqualTo(6));
+    assertThat(concurrency.getLimit(), lessThanOrEqualTo(4));
+  }
+
+  @Test
+  public void failingRemoteGetsLessWorkers() throws Exception {
+    errorRate = 0.2d;
+    final AdaptiveConcurrency concurrency = AdaptiveConcurrency.create(4, 16);
+    upload(concurrency, 200);
+    assertThat(concurrency.getHighestLimit(), lessThanOrEqualTo(6));
+    assertThat(concurrency.getLowestLimit(), lessThanOrEqualTo(2));
+  }
+}
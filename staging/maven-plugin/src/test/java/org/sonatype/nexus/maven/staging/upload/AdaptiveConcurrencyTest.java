@@ -0,0 +1,112 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.maven.staging.upload;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.TimeUnit;
+
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import org.apache.http.client.HttpResponseException;
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+
+/**
+ * UT for {@link AdaptiveConcurrency}, feeding it with made up samples. See {@link AdaptiveConcurrencyIT} for uploads
+ * to a remote.
+ */
+public class AdaptiveConcurrencyTest
+    extends TestSupport
+{
+  private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+  @Test
+  public void fixed() {
+    final AdaptiveConcurrency concurrency = AdaptiveConcurrency.create(3, 0);
+    assertThat(concurrency.isAdaptive(), equalTo(false));
+    assertThat(concurrency.getLimit(), equalTo(3));
+    assertThat(concurrency.getMaxLimit(), equalTo(3));
+    assertThat(AdaptiveConcurrency.create(3, 8).isAdaptive(), equalTo(true));
+  }
+
+  @Test
+  public void overloads() {
+    assertThat(AdaptiveConcurrency.overloadOf(new HttpResponseException(503, "Unavailable")), equalTo("status 503"));
+    assertThat(AdaptiveConcurrency.overloadOf(new HttpResponseException(429, "Too Many")), equalTo("status 429"));
+    assertThat(AdaptiveConcurrency.overloadOf(new IOException("Failed", new SocketTimeoutException("Read"))),
+        equalTo("timeout"));
+    assertThat(AdaptiveConcurrency.overloadOf(new HttpResponseException(404, "Not Found")), nullValue());
+    assertThat(AdaptiveConcurrency.overloadOf(new IOException("Connection reset")), nullValue());
+  }
+
+  @Test
+  public void raisesWhileThroughputRisesWithFlatLatency() throws Exception {
+    final AdaptiveConcurrency concurrency = new AdaptiveConcurrency(1, 2, 4);
+    final long start = System.nanoTime();
+    concurrency.acquire();
+    concurrency.acquire();
+    for (int i = 1; i <= 5; i++) {
+      concurrency.sampled(start + (i * 10 - 10) * MS, start + i * 10 * MS, null);
+    }
+    assertThat(concurrency.getLimit(), equalTo(3));
+
+    // not using the raised limit, nothing to raise
+    for (int i = 6; i <= 10; i++) {
+      concurrency.sampled(start + (i * 10 - 10) * MS, start + i * 10 * MS, null);
+    }
+    assertThat(concurrency.getLimit(), equalTo(3));
+
+    // using it, and throughput rises
+    concurrency.acquire();
+    for (int i = 1; i <= 5; i++) {
+      concurrency.sampled(start + (100 + i * 5 - 10) * MS, start + (100 + i * 5) * MS, null);
+    }
+    assertThat(concurrency.getLimit(), equalTo(4));
+    assertThat(concurrency.getHighestLimit(), equalTo(4));
+  }
+
+  @Test
+  public void cutsOnOverloadOncePerLimit() {
+    final AdaptiveConcurrency concurrency = new AdaptiveConcurrency(1, 8, 16);
+    final long start = System.nanoTime();
+    concurrency.sampled(start, start + 10 * MS, "status 503");
+    assertThat(concurrency.getLimit(), equalTo(4));
+    // started before the cut, caused by the former limit
+    concurrency.sampled(start + 5 * MS, start + 20 * MS, "status 503");
+    assertThat(concurrency.getLimit(), equalTo(4));
+    concurrency.sampled(start + 15 * MS, start + 30 * MS, "status 429");
+    assertThat(concurrency.getLimit(), equalTo(2));
+    concurrency.sampled(start + 35 * MS, start + 40 * MS, "timeout");
+    concurrency.sampled(start + 45 * MS, start + 50 * MS, "timeout");
+    assertThat(concurrency.getLimit(), equalTo(1));
+    assertThat(concurrency.getLowestLimit(), equalTo(1));
+  }
+
+  @Test
+  public void cutsOnLatencySpike() {
+    final AdaptiveConcurrency concurrency = new AdaptiveConcurrency(1, 4, 8);
+    final long start = System.nanoTime();
+    for (int i = 1; i <= 5; i++) {
+      concurrency.sampled(start + (i * 10 - 10) * MS, start + i * 10 * MS, null);
+    }
+    assertThat(concurrency.getLimit(), equalTo(4));
+    for (int i = 1; i <= 5; i++) {
+      concurrency.sampled(start + (50 + i * 10) * MS, start + (80 + i * 10) * MS, null);
+    }
+    assertThat(concurrency.getLimit(), equalTo(3));
+  }
+}
@@ -0,0 +1,84 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.maven.staging.upload;
+
+import java.io.File;
+
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+
+public class UploadProgressTest
+    extends TestSupport
+{
+  @Test
+  public void histogram() {
+    final LatencyHistogram histogram = new LatencyHistogram();
+    histogram.record(5);
+    histogram.record(10);
+    histogram.record(11);
+    histogram.record(70000);
+    assertThat(histogram.getCount(), equalTo(4L));
+    assertThat(histogram.getMin(), equalTo(5L));
+    assertThat(histogram.getMax(), equalTo(70000L));
+    assertThat(histogram.getBucket(0), equalTo(2L));
+    assertThat(histogram.getBucket(1), equalTo(1L));
+    assertThat(histogram.getBucket(histogram.getBucketCount() - 1), equalTo(1L));
+    assertThat(histogram.getBucketLabel(histogram.getBucketCount() - 1), equalTo("+Inf"));
+  }
+
+  @Test
+  public void progress() {
+    final UploadProgress progress = new UploadProgress("profile");
+    progress.expect(4, 4096);
+    progress.start(0);
+    progress.transferred(2048);
+    progress.uploaded(20);
+    progress.uploaded(30);
+    progress.stop();
+    assertThat(progress.getFiles(), equalTo(2L));
+    assertThat(progress.getBytes(), equalTo(2048L));
+    assertThat(progress.toString(), containsString("2/4 files, 2.0 KB of 4.0 KB (50%)"));
+  }
+
+  @Test
+  public void summary() throws Exception {
+    final UploadProgress progress = new UploadProgress("profile");
+    progress.expect(1, 100);
+    progress.start(0);
+    progress.transferred(100);
+    progress.uploaded(42);
+    progress.stop();
+    final File file = new File(util.createTempDir(), "upload-profile.json");
+    progress.writeSummary(file);
+    final String json = Files.toString(file, Charsets.UTF_8);
+    assertThat(json, containsString("\"name\": \"profile\""));
+    assertThat(json, containsString("\"files\": 1,"));
+    assertThat(json, containsString("\"totalBytes\": 100,"));
+    assertThat(json, containsString("\"mean\": 42,"));
+    assertThat(json, containsString("\"50\": 1,"));
+  }
+
+  @Test
+  public void formatMillis() {
+    assertThat(UploadProgress.formatMillis(5000), equalTo("5s"));
+    assertThat(UploadProgress.formatMillis(125000), equalTo("2m 05s"));
+    assertThat(UploadProgress.formatMillis(3725000), equalTo("1h 02m"));
+  }
+}
@@ -0,0 +1,175 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.maven.staging.upload;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.SocketException;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.sonatype.nexus.maven.staging.remote.BackoffWaitPolicy;
+import org.sonatype.nexus.maven.staging.upload.UploadRetrier.GaveUpException;
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import org.apache.http.client.HttpResponseException;
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.Assert.fail;
+
+public class UploadRetrierTest
+    extends TestSupport
+{
+  private final UploadProgress progress = new UploadProgress("test");
+
+  private RetryPolicy policy(final int maxRetries, final int circuitBreakerFailures) {
+    return new RetryPolicy(maxRetries, new BackoffWaitPolicy(1L, 4L, 2.0d, 0.0d, new Random()),
+        RetryPolicy.parseStatuses(RetryPolicy.DEFAULT_RETRYABLE_STATUSES), circuitBreakerFailures, 0L);
+  }
+
+  /**
+   * Upload failing with given exception the given count of times, then succeeding.
+   */
+  private static class FlakyUpload
+      implements Callable<String>
+  {
+    private final Exception failure;
+
+    private final int failures;
+
+    private final AtomicInteger calls = new AtomicInteger();
+
+    private FlakyUpload(final Exception failure, final int failures) {
+      this.failure = failure;
+      this.failures = failures;
+    }
+
+    @Override
+    public String call() throws Exception {
+      if (calls.incrementAndGet() <= failures) {
+        throw failure;
+      }
+      return "done";
+    }
+  }
+
+  @Test
+  public void statuses() {
+    assertThat(RetryPolicy.statusOf(new HttpResponseException(502, "Bad Gateway")), equalTo(502));
+    assertThat(RetryPolicy.statusOf(new Exception("Failed to deploy", new IOException(
+        "Failed to transfer file: http://localhost/a.jar. Return code is: 503 , ReasonPhrase:Unavailable."))),
+        equalTo(503));
+    assertThat(RetryPolicy.statusOf(
+        new IOException("Transfer failed for http://localhost/a.jar status code: 429, reason phrase: Too Many")),
+        equalTo(429));
+    assertThat(RetryPolicy.statusOf(new SocketException("Connection reset")), equalTo(-1));
+    assertThat(RetryPolicy.parseStatuses(" 502, 429,,500 "), contains(429, 500, 502));
+  }
+
+  @Test
+  public void retryable() {
+    final RetryPolicy policy = policy(3, 100);
+    assertThat(policy.isRetryable(new HttpResponseException(502, "Bad Gateway")), is(true));
+    assertThat(policy.isRetryable(new HttpResponseException(400, "Bad Request")), is(false));
+    assertThat(policy.isRetryable(new Exception("Failed", new SocketException("Connection reset"))), is(true));
+    assertThat(policy.isRetryable(new FileNotFoundException("a.jar")), is(false));
+    assertThat(policy.isRetryable(new IllegalStateException("bug")), is(false));
+  }
+
+  @Test
+  public void transientFailureRetried() throws Exception {
+    final UploadRetrier retrier = new UploadRetrier(policy(3, 100), progress);
+    final FlakyUpload upload = new FlakyUpload(new HttpResponseException(502, "Bad Gateway"), 2);
+
+    assertThat(retrier.upload("a.jar", upload), equalTo("done"));
+
+    assertThat(upload.calls.get(), equalTo(3));
+    assertThat(progress.getRetries(), equalTo(2L));
+    assertThat(progress.getRecoveredFiles(), equalTo(1L));
+  }
+
+  @Test
+  public void permanentFailureNotRetried() throws Exception {
+    final UploadRetrier retrier = new UploadRetrier(policy(3, 100), progress);
+    final HttpResponseException failure = new HttpResponseException(400, "Bad Request");
+    final FlakyUpload upload = new FlakyUpload(failure, 1);
+    try {
+      retrier.upload("a.jar", upload);
+      fail("Upload should fail");
+    }
+    catch (HttpResponseException e) {
+      assertThat(e, sameInstance(failure));
+    }
+    assertThat(upload.calls.get(), equalTo(1));
+    assertThat(progress.getRetries(), equalTo(0L));
+  }
+
+  @Test
+  public void retriesExhausted() throws Exception {
+    final UploadRetrier retrier = new UploadRetrier(policy(3, 100), progress);
+    final FlakyUpload upload = new FlakyUpload(new SocketException("Connection reset"), 10);
+    try {
+      retrier.upload("a.jar", upload);
+      fail("Upload should fail");
+    }
+    catch (SocketException e) {
+      // expected
+    }
+    assertThat(upload.calls.get(), equalTo(4));
+    assertThat(progress.getRetries(), equalTo(3L));
+    assertThat(retrier.isGaveUp(), is(false));
+  }
+
+  @Test
+  public void givesUpOnlyWhenConsistentlyFailing() throws Exception {
+    final UploadRetrier retrier = new UploadRetrier(policy(2, 5), progress);
+    // failures interleaved with successes do not open the breaker
+    for (int i = 0; i < 4; i++) {
+      assertThat(retrier.upload("ok" + i, new FlakyUpload(new HttpResponseException(503, "Unavailable"), 2)),
+          equalTo("done"));
+    }
+    assertThat(retrier.isGaveUp(), is(false));
+
+    // consecutive failures do
+    final FlakyUpload failing = new FlakyUpload(new HttpResponseException(503, "Unavailable"), 10);
+    for (int i = 0; i < 2; i++) {
+      try {
+        retrier.upload("failing" + i, failing);
+        fail("Upload should fail");
+      }
+      catch (HttpResponseException e) {
+        // expected
+      }
+    }
+    assertThat(failing.calls.get(), equalTo(5));
+    assertThat(retrier.isGaveUp(), is(true));
+
+    // and no more uploads are even tried
+    final FlakyUpload next = new FlakyUpload(new HttpResponseException(503, "Unavailable"), 0);
+    try {
+      retrier.upload("next", next);
+      fail("Upload should fail");
+    }
+    catch (GaveUpException e) {
+      assertThat(e.getMessage(), startsWith("Giving up, remote failed 5 consecutive uploads in 0 s, last failing1: "));
+    }
+    assertThat(next.calls.get(), equalTo(0));
+  }
+}
@@ -0,0 +1,113 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.maven.staging.upload;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+import org.sonatype.nexus.maven.staging.upload.UploadScheduler.Upload;
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+
+public class UploadSchedulerTest
+    extends TestSupport
+{
+  private List<List<String>> lanes(final int lanes, final int items) {
+    final List<List<String>> result = new ArrayList<List<String>>();
+    for (int l = 0; l < lanes; l++) {
+      final List<String> lane = new ArrayList<String>();
+      for (int i = 0; i < items; i++) {
+        lane.add(l + ":" + i);
+      }
+      result.add(lane);
+    }
+    return result;
+  }
+
+  @Test
+  public void lanesKeepOrder() throws Exception {
+    final Map<String, List<String>> uploaded = new ConcurrentHashMap<String, List<String>>();
+    final UploadStatistics statistics = new UploadScheduler(4).upload(lanes(10, 20), new Upload<String>()
+    {
+      @Override
+      public long upload(final String item) throws Exception {
+        final String lane = item.substring(0, item.indexOf(':'));
+        List<String> items = uploaded.get(lane);
+        if (items == null) {
+          items = Collections.synchronizedList(new ArrayList<String>());
+          uploaded.put(lane, items);
+        }
+        items.add(item);
+        return 10;
+      }
+    });
+    assertThat(statistics.getFiles(), equalTo(200L));
+    assertThat(statistics.getBytes(), equalTo(2000L));
+    for (int l = 0; l < 10; l++) {
+      assertThat(uploaded.get(String.valueOf(l)), equalTo(lanes(10, 20).get(l)));
+    }
+  }
+
+  @Test
+  public void singleThreadUploadsInOrder() throws Exception {
+    final List<String> uploaded = new ArrayList<String>();
+    new UploadScheduler(1).upload(lanes(2, 2), new Upload<String>()
+    {
+      @Override
+      public long upload(final String item) throws Exception {
+        uploaded.add(item);
+        return 0;
+      }
+    });
+    assertThat(uploaded, contains("0:0", "0:1", "1:0", "1:1"));
+  }
+
+  @Test
+  public void failureIsReported() throws Exception {
+    try {
+      new UploadScheduler(4).upload(lanes(10, 20), new Upload<String>()
+      {
+        @Override
+        public long upload(final String item) throws Exception {
+          if ("5:5".equals(item)) {
+            throw new IOException(item);
+          }
+          return 0;
+        }
+      });
+      throw new AssertionError("Should fail");
+    }
+    catch (ExecutionException e) {
+      assertThat(e.getCause(), instanceOf(IOException.class));
+      assertThat(e.getCause().getMessage(), equalTo("5:5"));
+    }
+  }
+
+  @Test
+  public void formatBytes() {
+    assertThat(Arrays.asList(UploadStatistics.formatBytes(100), UploadStatistics.formatBytes(2048),
+        UploadStatistics.formatBytes(3L * 1024 * 1024)), contains("100 B", "2.0 KB", "3.0 MB"));
+  }
+}
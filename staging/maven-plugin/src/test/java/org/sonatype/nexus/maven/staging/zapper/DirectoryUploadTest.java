@@ -0,0 +1,236 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.maven.staging.zapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.sonatype.nexus.maven.staging.LocalHttpServer;
+import org.sonatype.nexus.maven.staging.LocalHttpServer.Responder;
+import org.sonatype.nexus.maven.staging.remote.BackoffWaitPolicy;
+import org.sonatype.nexus.maven.staging.upload.RetryPolicy;
+import org.sonatype.nexus.maven.staging.upload.UploadProgress;
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import com.sun.net.httpserver.HttpExchange;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.fail;
+
+/**
+ * UT for {@link DirectoryUpload}, uploading through {@link ZapperImpl} to a local HTTP server standing in for Nexus.
+ */
+public class DirectoryUploadTest
+    extends TestSupport
+{
+  private LocalHttpServer server;
+
+  private final List<String> received = Collections.synchronizedList(new ArrayList<String>());
+
+  private final Set<String> failing = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+  private final Map<String, AtomicInteger> flaky = new ConcurrentHashMap<String, AtomicInteger>();
+
+  private File directory;
+
+  @Before
+  public void prepare() throws Exception {
+    directory = util.createTempDir();
+    server = LocalHttpServer.start(new Responder()
+    {
+      @Override
+      public int respond(final HttpExchange exchange) {
+        final String path = exchange.getRequestURI().getPath().substring("/repo/".length());
+        if (failing.contains(path)
+            || (flaky.containsKey(path) && flaky.get(path).getAndDecrement() > 0)) {
+          return 502;
+        }
+        received.add(path);
+        return 201;
+      }
+    });
+  }
+
+  @After
+  public void stop() {
+    server.stop();
+  }
+
+  private void write(final String path) throws IOException {
+    final File file = new File(directory, path);
+    file.getParentFile().mkdirs();
+    Files.write(path, file, Charsets.UTF_8);
+  }
+
+  private void writeArtifact(final String artifactId) throws IOException {
+    final String prefix = "org/foo/" + artifactId + "/1.0/" + artifactId + "-1.0";
+    for (String path : new String[]{prefix + ".jar", prefix + ".pom"}) {
+      write(path);
+      write(path + ".md5");
+      write(path + ".sha1");
+      write(path + ".asc");
+      write(path + ".asc.sha1");
+    }
+    write("org/foo/" + artifactId + "/maven-metadata.xml");
+    write("org/foo/" + artifactId + "/maven-metadata.xml.sha1");
+  }
+
+  private void upload(final int threads) throws IOException {
+    upload(threads, 0, RetryPolicy.NONE, null);
+  }
+
+  private void upload(final int threads, final int maxThreads, final RetryPolicy retryPolicy,
+                      final UploadProgress progress)
+      throws IOException
+  {
+    final ZapperRequest request = new ZapperRequest(directory, server.url("/repo/"));
+    request.setUploadThreads(threads);
+    request.setMaxUploadThreads(maxThreads);
+    request.setRetryPolicy(retryPolicy);
+    request.setProgress(progress);
+    new ZapperImpl().deployDirectory(request);
+  }
+
+  @Test
+  public void phases() {
+    assertThat(DirectoryUpload.phaseOf("g/a/1.0/a-1.0.jar"), equalTo(0));
+    assertThat(DirectoryUpload.phaseOf("g/a/1.0/a-1.0.jar.sha1"), equalTo(1));
+    assertThat(DirectoryUpload.phaseOf("g/a/1.0/a-1.0.jar.asc.sha1"), equalTo(2));
+    assertThat(DirectoryUpload.phaseOf("g/a/maven-metadata.xml"), greaterThan(2));
+    assertThat(DirectoryUpload.phaseOf("g/a/maven-metadata.xml.md5"),
+        equalTo(DirectoryUpload.phaseOf("g/a/maven-metadata.xml") + 1));
+    assertThat(DirectoryUpload.primaryOf("g/a/1.0/a-1.0.jar.asc"), equalTo("g/a/1.0/a-1.0.jar"));
+    assertThat(DirectoryUpload.primaryOf("g/a/1.0/a-1.0.jar"), nullValue());
+  }
+
+  @Test
+  public void sidecarsAndMetadataAfterPrimaries() throws Exception {
+    for (int i = 0; i < 10; i++) {
+      writeArtifact("a" + i);
+    }
+    upload(4);
+
+    assertThat(received.size(), equalTo(10 * 12));
+    int lastNonMetadata = -1;
+    int firstMetadata = Integer.MAX_VALUE;
+    for (int i = 0; i < received.size(); i++) {
+      final String path = received.get(i);
+      final String primary = DirectoryUpload.primaryOf(path);
+      if (primary != null) {
+        assertThat(path, received.indexOf(primary), lessThan(i));
+      }
+      if (path.contains("maven-metadata")) {
+        firstMetadata = Math.min(firstMetadata, i);
+      }
+      else {
+        lastNonMetadata = i;
+      }
+    }
+    assertThat(lastNonMetadata, lessThan(firstMetadata));
+  }
+
+  @Test
+  public void inFlightRequestsBounded() throws Exception {
+    for (int i = 0; i < 40; i++) {
+      write("org/foo/a/1.0/file-" + i + ".bin");
+    }
+    server.setLatencyMillis(20);
+    upload(3);
+
+    assertThat(received.size(), equalTo(40));
+    assertThat(server.getMaxInFlight(), lessThanOrEqualTo(3));
+    assertThat(server.getMaxInFlight(), greaterThan(1));
+  }
+
+  @Test
+  public void adaptiveInFlightRequestsBounded() throws Exception {
+    for (int i = 0; i < 80; i++) {
+      write("org/foo/a/1.0/file-" + i + ".bin");
+    }
+    server.setLatencyMillis(20);
+    upload(1, 4, RetryPolicy.NONE, null);
+
+    assertThat(received.size(), equalTo(80));
+    assertThat(server.getMaxInFlight(), lessThanOrEqualTo(4));
+    assertThat(server.getMaxInFlight(), greaterThan(1));
+  }
+
+  @Test
+  public void failuresCollected() throws Exception {
+    writeArtifact("a");
+    writeArtifact("b");
+    writeArtifact("c");
+    failing.add("org/foo/a/1.0/a-1.0.jar");
+    failing.add("org/foo/b/1.0/b-1.0.pom.sha1");
+
+    try {
+      upload(4);
+      fail("Upload should fail");
+    }
+    catch (IOException e) {
+      assertThat(e.getMessage(),
+          containsString("Failed to upload 2 of 36 files (8 more files were skipped)"));
+      assertThat(e.getMessage(), containsString("org/foo/a/1.0/a-1.0.jar: "));
+      assertThat(e.getMessage(), containsString("org/foo/b/1.0/b-1.0.pom.sha1: "));
+      assertThat(e.getSuppressed().length, equalTo(1));
+    }
+
+    // all the others were uploaded, but the dependents of failed files
+    assertThat(received, hasItem("org/foo/a/1.0/a-1.0.pom"));
+    assertThat(received, hasItem("org/foo/b/1.0/b-1.0.jar.sha1"));
+    assertThat(received, not(hasItem("org/foo/a/1.0/a-1.0.jar.sha1")));
+    assertThat(received, not(hasItem("org/foo/a/1.0/a-1.0.jar.asc.sha1")));
+    assertThat(received, not(hasItem("org/foo/a/maven-metadata.xml")));
+    assertThat(received, not(hasItem("org/foo/a/maven-metadata.xml.sha1")));
+    assertThat(received, not(hasItem("org/foo/b/maven-metadata.xml")));
+    assertThat(received, hasItem("org/foo/c/maven-metadata.xml.sha1"));
+    assertThat(received.size(), equalTo(36 - 2 - 4 - 2 - 2));
+  }
+
+  @Test
+  public void transientFailuresRetried() throws Exception {
+    writeArtifact("a");
+    flaky.put("org/foo/a/1.0/a-1.0.jar", new AtomicInteger(2));
+    flaky.put("org/foo/a/maven-metadata.xml", new AtomicInteger(1));
+    final UploadProgress progress = new UploadProgress("test");
+
+    upload(4, 0, new RetryPolicy(3, new BackoffWaitPolicy(1L, 4L, 2.0d, 0.0d, new Random()),
+        RetryPolicy.parseStatuses(RetryPolicy.DEFAULT_RETRYABLE_STATUSES), 100, 0L), progress);
+
+    assertThat(received.size(), equalTo(12));
+    assertThat(received.indexOf("org/foo/a/1.0/a-1.0.jar"), lessThan(received.indexOf("org/foo/a/1.0/a-1.0.jar.sha1")));
+    assertThat(progress.getRetries(), equalTo(3L));
+    assertThat(progress.getRecoveredFiles(), equalTo(2L));
+  }
+}
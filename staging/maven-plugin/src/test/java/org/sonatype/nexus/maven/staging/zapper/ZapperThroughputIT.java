@@ -0,0 +1,118 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.maven.staging.zapper;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.sonatype.nexus.maven.staging.LocalHttpServer;
+import org.sonatype.nexus.maven.staging.LocalHttpServer.Responder;
+import org.sonatype.nexus.maven.staging.upload.UploadProgress;
+import org.sonatype.nexus.maven.staging.upload.UploadStatistics;
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import com.google.common.io.Files;
+import com.sun.net.httpserver.HttpExchange;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThan;
+
+/**
+ * Measures the throughput of {@link ZapperImpl} with different transport tunings, against a local HTTP server
+ * standing in for Nexus, that adds a fixed latency to every request to simulate a WAN link.
+ */
+public class ZapperThroughputIT
+    extends TestSupport
+{
+  private static final int FILES = 120;
+
+  private static final int FILE_SIZE = 64 * 1024;
+
+  private static final long LATENCY_MILLIS = 25;
+
+  private LocalHttpServer server;
+
+  private final Set<String> received = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+  private File directory;
+
+  @Before
+  public void prepare() throws Exception {
+    directory = util.createTempDir();
+    final Random random = new Random(FILES);
+    for (int i = 0; i < FILES; i++) {
+      final byte[] content = new byte[FILE_SIZE];
+      random.nextBytes(content);
+      final File file = new File(directory, "org/foo/a" + (i % 10) + "/1.0/file-" + i + ".jar");
+      file.getParentFile().mkdirs();
+      Files.write(content, file);
+    }
+
+    server = LocalHttpServer.start(new Responder()
+    {
+      @Override
+      public int respond(final HttpExchange exchange) {
+        if ("PUT".equals(exchange.getRequestMethod())) {
+          received.add(exchange.getRequestURI().getPath());
+          return 201;
+        }
+        return 404;
+      }
+    });
+    server.setLatencyMillis(LATENCY_MILLIS);
+  }
+
+  @After
+  public void stop() {
+    server.stop();
+  }
+
+  private long upload(final String name, final int threads, final int socketBufferSize) throws Exception {
+    received.clear();
+    final ZapperRequest request = new ZapperRequest(directory, server.url("/repo/"));
+    request.setUploadThreads(threads);
+    request.setSocketBufferSize(socketBufferSize);
+    request.setConnectTimeoutMillis(5000);
+    request.setReadTimeoutMillis(30000);
+    final UploadProgress progress = new UploadProgress(name);
+    request.setProgress(progress);
+    progress.start(0);
+    new ZapperImpl().deployDirectory(request);
+    progress.stop();
+
+    assertThat(received.size(), equalTo(FILES));
+    logger.info("{}: {} files in {} ms, {}/s", name, FILES, progress.getElapsedMillis(),
+        UploadStatistics.formatBytes((long) progress.getBytesPerSecond()));
+    return progress.getElapsedMillis();
+  }
+
+  @Test
+  public void throughputAtSeveralSettings() throws Exception {
+    final long serial = upload("1 thread", 1, 0);
+    final long defaults = upload(String.format(Locale.ENGLISH, "%d threads", ZapperRequest.DEFAULT_UPLOAD_THREADS),
+        ZapperRequest.DEFAULT_UPLOAD_THREADS, 0);
+    upload("12 threads", 12, 0);
+    upload("12 threads, 256 KB socket buffers", 12, 256 * 1024);
+
+    // latency bound upload must scale with concurrency
+    assertThat(defaults, lessThan(serial));
+  }
+}
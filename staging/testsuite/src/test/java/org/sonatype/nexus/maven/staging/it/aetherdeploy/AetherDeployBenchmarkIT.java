@@ -0,0 +1,144 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.maven.staging.it.aetherdeploy;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.sonatype.nexus.staging.client.StagingRepository;
+
+import org.sonatype.nexus.maven.staging.it.PreparedVerifier;
+import org.sonatype.nexus.maven.staging.it.SimpleRoundtripMatrixSupport;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Stopwatch;
+import com.google.common.io.Files;
+import org.apache.maven.it.VerificationException;
+import org.apache.maven.it.util.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+
+/**
+ * Benchmark of "deploy-staged" of 2000 synthetic locally staged artifacts, deployed using one batched Aether deploy
+ * request versus deployed one by one using ArtifactDeployer. Timings are logged, to be compared across runs.
+ */
+public class AetherDeployBenchmarkIT
+    extends SimpleRoundtripMatrixSupport
+{
+  private static final String PROFILE_ID = "12a2439c79f79c6f";
+
+  private static final int ARTIFACTS = 2000;
+
+  private File tmpDir;
+
+  private boolean aetherDeploy;
+
+  public AetherDeployBenchmarkIT(final String nexusBundleCoordinates) {
+    super(nexusBundleCoordinates);
+  }
+
+  @Before
+  public void setupTmpDir()
+      throws IOException
+  {
+    tmpDir = new File(util.getTmpDir(), String.valueOf(hashCode()));
+    tmpDir.mkdirs();
+    stageSyntheticArtifacts(new File(tmpDir, "staging/" + PROFILE_ID));
+  }
+
+  @After
+  public void cleanup()
+      throws IOException
+  {
+    FileUtils.deleteDirectory(tmpDir);
+  }
+
+  /**
+   * Lays out the artifacts (and the index) as the local staging would do it.
+   */
+  private void stageSyntheticArtifacts(final File stagingDirectory)
+      throws IOException
+  {
+    final String groupId = getClass().getPackage().getName();
+    final StringBuilder index = new StringBuilder();
+    for (int i = 0; i < ARTIFACTS; i++) {
+      final String artifactId = "artifact-" + i;
+      final String path = groupId.replace('.', '/') + "/" + artifactId + "/1.0/" + artifactId + "-1.0";
+      final File jar = new File(stagingDirectory, path + ".jar");
+      jar.getParentFile().mkdirs();
+      Files.write(("jar " + artifactId).getBytes(Charsets.UTF_8), jar);
+      final File pom = new File(stagingDirectory, path + ".pom");
+      Files.write(("<project><modelVersion>4.0.0</modelVersion><groupId>" + groupId + "</groupId><artifactId>"
+          + artifactId + "</artifactId><version>1.0</version></project>").getBytes(Charsets.UTF_8), pom);
+      index.append(path).append(".jar=").append(groupId).append(':').append(artifactId).append(":1.0:n/a:jar:jar:")
+          .append(pom.getName()).append(":n/a:n/a:n/a\n");
+    }
+    Files.write(index.toString(), new File(stagingDirectory, ".index"), Charsets.ISO_8859_1);
+  }
+
+  @Override
+  protected void preNexusAssertions(final PreparedVerifier verifier) {
+    assertThat(getAllStagingRepositories().toString(), getAllStagingRepositories(), hasSize(0));
+  }
+
+  @Override
+  protected void postNexusAssertions(final PreparedVerifier verifier) {
+    final List<StagingRepository> stagingRepositories = getAllStagingRepositories();
+    assertThat(stagingRepositories.toString(), stagingRepositories, hasSize(1));
+
+    // cleanup
+    getStagingWorkflowV2Service().dropStagingRepositories("cleanup", stagingRepositories.get(0).getId());
+  }
+
+  @Override
+  protected void invokeMaven(final PreparedVerifier verifier)
+      throws VerificationException
+  {
+    verifier.addCliOption("-DserverId=local-nexus");
+    verifier.addCliOption("-DnexusUrl=" + nexus().getUrl().toExternalForm()
+        // verifier replaces "//" with "/", which will make nexus-client unable to parse the URL
+        .replace("http://", "http:///"));
+    verifier.addCliOption("-DaltStagingDirectory=" + tmpDir.getAbsolutePath());
+    verifier.addCliOption("-DskipStagingRepositoryClose=true");
+    verifier.addCliOption("-DaetherDeploy=" + aetherDeploy);
+
+    final Stopwatch stopwatch = new Stopwatch().start();
+    verifier.executeGoal("nexus-staging:deploy-staged");
+    stopwatch.stop();
+    verifier.verifyErrorFreeLog();
+    logger.info("Deployed {} artifacts with aetherDeploy={} in {} ms", ARTIFACTS, aetherDeploy,
+        stopwatch.elapsed(TimeUnit.MILLISECONDS));
+  }
+
+  @Test
+  public void benchmarkAetherDeployM32()
+      throws VerificationException, IOException
+  {
+    aetherDeploy = true;
+    roundtrip(createMavenVerifier(M32_VERSION, new File(getBasedir(), "target/test-classes/plain-project")));
+  }
+
+  @Test
+  public void benchmarkLegacyDeployM32()
+      throws VerificationException, IOException
+  {
+    aetherDeploy = false;
+    roundtrip(createMavenVerifier(M32_VERSION, new File(getBasedir(), "target/test-classes/plain-project")));
+  }
+}
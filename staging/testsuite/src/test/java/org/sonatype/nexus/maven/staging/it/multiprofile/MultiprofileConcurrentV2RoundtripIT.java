@@ -0,0 +1,106 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2007-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.maven.staging.it.multiprofile;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import com.sonatype.nexus.staging.client.StagingRepository;
+
+import org.sonatype.nexus.maven.staging.it.PreparedVerifier;
+
+import junit.framework.Assert;
+import org.apache.maven.it.VerificationException;
+import org.junit.Test;
+
+/**
+ * IT that verifies multi profile build with profiles remotely staged concurrently: on success all staging
+ * repositories are closed, while on failure of any of them (rule failure on close) all the staging repositories
+ * created by the reactor are dropped, same as when staging serially.
+ *
+ * @see MultiprofileV2RoundtripIT
+ * @see MultiprofileFailureV2RoundtripIT
+ */
+public class MultiprofileConcurrentV2RoundtripIT
+    extends MultiprofileITSupport
+{
+  public MultiprofileConcurrentV2RoundtripIT(final String nexusBundleCoordinates) {
+    super(nexusBundleCoordinates);
+  }
+
+  private PreparedVerifier createConcurrentVerifier(final String testName)
+      throws VerificationException, IOException
+  {
+    final PreparedVerifier verifier =
+        createMavenVerifier(getClass().getSimpleName() + "_" + testName, M32_VERSION,
+            testData().resolveFile("preset-nexus-maven-settings.xml"), new File(getBasedir(),
+                "target/test-classes/maven3-multiprofile-project"));
+    verifier.addCliOption("-DstagingProfileThreads=2");
+    return verifier;
+  }
+
+  @Test
+  public void concurrentRoundtrip()
+      throws VerificationException, IOException
+  {
+    final PreparedVerifier verifier = createConcurrentVerifier("concurrentRoundtrip");
+
+    // v2 workflow
+    verifier.executeGoals(Arrays.asList("clean", "deploy"));
+    // should not fail
+    verifier.verifyErrorFreeLog();
+    verifier.verifyTextInLog("Remote staging 2 profiles using 2 threads");
+
+    // perform some checks
+    {
+      final List<StagingRepository> stagingRepositories = getAllStagingRepositories();
+      Assert.assertEquals("Nexus should have 2 staging repository, the ones of the current build", 2,
+          stagingRepositories.size());
+      Assert.assertEquals("Staging repository should be closed!", StagingRepository.State.CLOSED,
+          stagingRepositories.get(0).getState());
+      Assert.assertEquals("Staging repository should be closed!", StagingRepository.State.CLOSED,
+          stagingRepositories.get(1).getState());
+    }
+  }
+
+  @Test
+  public void concurrentFailureDropsAll()
+      throws VerificationException, IOException
+  {
+    final PreparedVerifier verifier = createConcurrentVerifier("concurrentFailureDropsAll");
+
+    try {
+      // skip javadoc, we want failing build
+      verifier.addCliOption("-Pskip-javadoc");
+      // v2 workflow
+      verifier.executeGoals(Arrays.asList("clean", "deploy"));
+      // should fail
+      verifier.verifyErrorFreeLog();
+      // foolproof the failure
+      Assert.fail("We should not get here, close at the end of deploy should fail!");
+    }
+    catch (VerificationException e) {
+      // good
+    }
+
+    // perform some checks
+    {
+      final List<StagingRepository> stagingRepositories = getAllStagingRepositories();
+      if (!stagingRepositories.isEmpty()) {
+        Assert.fail("Nexus should have 0 staging repositories, but it has: " + stagingRepositories);
+      }
+    }
+  }
+}